@@ -19,6 +19,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener.ChangeEvent;
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuBoard;
 import se.samuelandersson.gomoku.GomokuBoardListener;
+import se.samuelandersson.gomoku.Moves;
 import se.samuelandersson.gomoku.client.Assets;
 
 public class BoardEntity extends Table
@@ -83,6 +84,12 @@ public class BoardEntity extends Table
       {
         BoardEntity.this.setPiece(color, x, y);
       }
+
+      @Override
+      public void onChanges(final int[] moves, final int offset, final int length)
+      {
+        BoardEntity.this.setPieces(moves, offset, length);
+      }
     });
 
     this.clearChildren();
@@ -128,4 +135,23 @@ public class BoardEntity extends Table
 
     slots.get(y * this.board.getWidth() + x).setPiece(color);
   }
+
+  public void setForbidden(final int x, final int y, final boolean forbidden)
+  {
+    slots.get(y * this.board.getWidth() + x).setForbidden(forbidden);
+  }
+
+  public void setPieces(final int[] moves, final int offset, final int length)
+  {
+    if (log.isDebugEnabled())
+    {
+      log.debug("setPieces(Count: {})", length);
+    }
+
+    for (int i = offset; i < offset + length; i++)
+    {
+      int move = moves[i];
+      slots.get(Moves.getY(move) * this.board.getWidth() + Moves.getX(move)).setPiece(Moves.getColor(move));
+    }
+  }
 }
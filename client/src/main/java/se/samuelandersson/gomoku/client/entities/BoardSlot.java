@@ -43,6 +43,23 @@ public class BoardSlot extends ImageButton
     }
   }
 
+  /**
+   * Mark the slot as a point the player is not allowed to place on
+   *
+   * @param forbidden whether the slot is forbidden
+   */
+  public void setForbidden(boolean forbidden)
+  {
+    if (forbidden)
+    {
+      this.setColor(1f, 0.5f, 0.5f, 1f);
+    }
+    else
+    {
+      this.setColor(1f, 1f, 1f, 1f);
+    }
+  }
+
   public int getSlotX()
   {
     return this.x;
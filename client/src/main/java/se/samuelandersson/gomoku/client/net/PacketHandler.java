@@ -3,6 +3,7 @@ package se.samuelandersson.gomoku.client.net;
 import com.esotericsoftware.kryonet.Connection;
 
 import se.samuelandersson.gomoku.net.BoardPacket;
+import se.samuelandersson.gomoku.net.ForbiddenMaskPacket;
 import se.samuelandersson.gomoku.net.GameActionPacket;
 import se.samuelandersson.gomoku.net.GameListPacket;
 import se.samuelandersson.gomoku.net.HandshakeClientPacket;
@@ -27,6 +28,18 @@ public interface PacketHandler
   {
   }
   
+  /**
+   * Handles how a received ForbiddenMaskPacket should be treated.
+   *
+   * @param connection
+   *          the connection that sent the ForbiddenMaskPacket
+   * @param fmp
+   *          the ForbiddenMaskPacket
+   */
+  default void handleForbiddenMask(Connection connection, ForbiddenMaskPacket fmp)
+  {
+  }
+
   /**
    * Handles how a received GameListPacket should be treated.
    *
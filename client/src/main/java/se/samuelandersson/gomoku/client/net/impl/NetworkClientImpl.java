@@ -15,6 +15,7 @@ import se.samuelandersson.gomoku.client.net.NetworkClient;
 import se.samuelandersson.gomoku.client.net.NetworkListener;
 import se.samuelandersson.gomoku.client.net.PacketHandler;
 import se.samuelandersson.gomoku.net.BoardPacket;
+import se.samuelandersson.gomoku.net.ForbiddenMaskPacket;
 import se.samuelandersson.gomoku.net.GameActionPacket;
 import se.samuelandersson.gomoku.net.GameListPacket;
 import se.samuelandersson.gomoku.net.HandshakeClientPacket;
@@ -138,6 +139,10 @@ public class NetworkClientImpl implements NetworkClient
               {
                 handler.handleBoard(connection, (BoardPacket) object);
               }
+              else if (object instanceof ForbiddenMaskPacket)
+              {
+                handler.handleForbiddenMask(connection, (ForbiddenMaskPacket) object);
+              }
               else if (object instanceof GameListPacket)
               {
                 handler.handleGameList(connection, (GameListPacket) object);
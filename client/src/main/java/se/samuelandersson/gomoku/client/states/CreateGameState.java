@@ -18,27 +18,46 @@ import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.utils.Align;
 import com.esotericsoftware.kryonet.Connection;
 
+import se.samuelandersson.gomoku.BoardType;
 import se.samuelandersson.gomoku.GomokuConfig;
 import se.samuelandersson.gomoku.client.Assets;
 import se.samuelandersson.gomoku.client.GomokuClient;
 import se.samuelandersson.gomoku.client.net.PacketHandler;
 import se.samuelandersson.gomoku.net.CreateGamePacket;
 import se.samuelandersson.gomoku.net.InitialServerDataPacket;
+import se.samuelandersson.gomoku.rules.OpeningRule;
 
 public class CreateGameState extends MenuState implements PacketHandler
 {
+  /** The largest board size that can be chosen */
+  private static final int MAX_SIZE = 100;
+
+  /** Boards larger than this use a sparse board */
+  private static final int DENSE_MAX_SIZE = 40;
+
+  /** The longest row that can be chosen to win */
+  private static final int MAX_VICTORY_LENGTH = 8;
+
+  /** The most stones per turn that can be chosen */
+  private static final int MAX_STONES_PER_TURN = 3;
+
   private TextField gameNameField;
   private SelectBox<Integer> widthBox;
   private SelectBox<Integer> heightBox;
+  private SelectBox<Integer> victoryLengthBox;
+  private SelectBox<Integer> stonesPerTurnBox;
   private CheckBox allowOverlinesCB;
   private CheckBox threeAndThreeCB;
   private CheckBox fourAndFourCB;
+  private CheckBox renjuCB;
+  private SelectBox<OpeningRule> openingBox;
   private Button confirmButton;
 
   private Button backButton;
 
   private Label gameNameLabel;
   private Label whLabel;
+  private Label messageLabel;
 
   public CreateGameState(GomokuClient app)
   {
@@ -57,7 +76,7 @@ public class CreateGameState extends MenuState implements PacketHandler
     List<Integer> widthItems = new ArrayList<>();
     List<Integer> heightItems = new ArrayList<>();
 
-    for (int i = 5; i <= 40; i++)
+    for (int i = 5; i <= MAX_SIZE; i++)
     {
       widthItems.add(i);
       heightItems.add(i);
@@ -71,6 +90,28 @@ public class CreateGameState extends MenuState implements PacketHandler
     heightBox.setItems(heightItems.toArray(new Integer[heightItems.size()]));
     heightBox.setSelected(Integer.valueOf(15));
 
+    List<Integer> victoryLengthItems = new ArrayList<>();
+    for (int i = 3; i <= MAX_VICTORY_LENGTH; i++)
+    {
+      victoryLengthItems.add(i);
+    }
+
+    victoryLengthBox = new SelectBox<Integer>(skin);
+    victoryLengthBox.setItems(victoryLengthItems.toArray(new Integer[victoryLengthItems.size()]));
+    victoryLengthBox.setSelected(Integer.valueOf(5));
+
+    List<Integer> stonesPerTurnItems = new ArrayList<>();
+    for (int i = 1; i <= MAX_STONES_PER_TURN; i++)
+    {
+      stonesPerTurnItems.add(i);
+    }
+
+    stonesPerTurnBox = new SelectBox<Integer>(skin);
+    stonesPerTurnBox.setItems(stonesPerTurnItems.toArray(new Integer[stonesPerTurnItems.size()]));
+    stonesPerTurnBox.setSelected(Integer.valueOf(1));
+    stonesPerTurnBox.addListener(new TextTooltip("The stones placed each turn after the first. Connect6 is 19x19 with 6 in a row and 2 stones per turn.",
+                                                 skin));
+
     allowOverlinesCB = new CheckBox("Allow Overlines", skin);
     allowOverlinesCB.align(Align.left);
     allowOverlinesCB.getLabelCell().spaceLeft(10);
@@ -89,6 +130,18 @@ public class CreateGameState extends MenuState implements PacketHandler
     fourAndFourCB.addListener(new TextTooltip("Four and four means you are not allowed to place a stone with which you create two open rows of 4.",
                                               skin));
 
+    renjuCB = new CheckBox("Renju", skin);
+    renjuCB.align(Align.left);
+    renjuCB.getLabelCell().spaceLeft(10);
+    renjuCB.addListener(new TextTooltip("Renju forbids black from making overlines, two threes or two fours with one stone, while white wins with overlines.",
+                                        skin));
+
+    openingBox = new SelectBox<OpeningRule>(skin);
+    openingBox.setItems(OpeningRule.values());
+    openingBox.setSelected(OpeningRule.STANDARD);
+    openingBox.addListener(new TextTooltip("Pro and Long Pro restricts the first and third stones. With Swap and Swap2 the first player places three stones before the colors are chosen.",
+                                           skin));
+
     confirmButton = new TextButton("Create Game!", skin);
     confirmButton.setColor(Color.GREEN);
     confirmButton.addListener(new ChangeListener()
@@ -122,24 +175,43 @@ public class CreateGameState extends MenuState implements PacketHandler
 
     gameNameLabel = new Label("Game Name", skin);
     whLabel = new Label("Width / Height", skin);
+    messageLabel = new Label("", skin);
+    messageLabel.setColor(Color.RED);
+    Label openingLabel = new Label("Opening", skin);
 
     Table widthHeightBoxContainer = new Table(skin);
     widthHeightBoxContainer.defaults().grow().spaceLeft(5).spaceRight(5);
     widthHeightBoxContainer.add(widthBox);
     widthHeightBoxContainer.add(heightBox);
 
+    Label rowLabel = new Label("In a row / Stones", skin);
+    Table rowBoxContainer = new Table(skin);
+    rowBoxContainer.defaults().grow().spaceLeft(5).spaceRight(5);
+    rowBoxContainer.add(victoryLengthBox);
+    rowBoxContainer.add(stonesPerTurnBox);
+
     this.getTable().add(gameNameLabel);
     this.getTable().add(gameNameField);
     this.getTable().row();
     this.getTable().add(whLabel);
     this.getTable().add(widthHeightBoxContainer);
     this.getTable().row();
+    this.getTable().add(rowLabel);
+    this.getTable().add(rowBoxContainer);
+    this.getTable().row();
     this.getTable().add(allowOverlinesCB).colspan(2);
     this.getTable().row();
     this.getTable().add(threeAndThreeCB).colspan(2);
     this.getTable().row();
     this.getTable().add(fourAndFourCB).colspan(2);
     this.getTable().row();
+    this.getTable().add(renjuCB).colspan(2);
+    this.getTable().row();
+    this.getTable().add(openingLabel);
+    this.getTable().add(openingBox);
+    this.getTable().row();
+    this.getTable().add(messageLabel).colspan(2);
+    this.getTable().row();
     this.getTable().add(confirmButton);
     this.getTable().add(backButton);
 
@@ -147,29 +219,49 @@ public class CreateGameState extends MenuState implements PacketHandler
 
   }
 
+  /**
+   * Returns the config of the current choices
+   *
+   * @return the config
+   * @throws IllegalArgumentException if the choices can not be combined
+   */
   public GomokuConfig getCurrentConfig()
   {
     int w = widthBox.getSelected().intValue();
-    int h = widthBox.getSelected().intValue();
+    int h = heightBox.getSelected().intValue();
 
     return new GomokuConfig(gameNameField.getText().trim(),
                             w,
                             h,
-                            5,
+                            victoryLengthBox.getSelected().intValue(),
+                            stonesPerTurnBox.getSelected().intValue(),
                             allowOverlinesCB.isChecked(),
                             threeAndThreeCB.isChecked(),
-                            fourAndFourCB.isChecked());
+                            fourAndFourCB.isChecked(),
+                            renjuCB.isChecked(),
+                            openingBox.getSelected(),
+                            w > DENSE_MAX_SIZE || h > DENSE_MAX_SIZE ? BoardType.SPARSE : BoardType.ARRAY);
   }
 
   public void createNewGame()
   {
-    GomokuConfig config = getCurrentConfig();
-
-    if (config.getName().equals(""))
+    GomokuConfig config;
+    try
+    {
+      config = getCurrentConfig();
+      if (config.getName().equals(""))
+      {
+        throw new IllegalArgumentException("You must provide a game name");
+      }
+    }
+    catch (IllegalArgumentException e)
     {
-      throw new IllegalArgumentException("You must provide a game name");
+      // not every choice of rules can be combined
+      messageLabel.setText(e.getMessage());
+      return;
     }
 
+    messageLabel.setText("");
     confirmButton.setDisabled(true);
     this.getApplication().getClient().sendTCP(new CreateGamePacket(config));
   }
@@ -27,8 +27,10 @@ import se.samuelandersson.gomoku.GomokuBoard;
 import se.samuelandersson.gomoku.GomokuConfig;
 import se.samuelandersson.gomoku.GomokuGame;
 import se.samuelandersson.gomoku.GomokuGameListener;
+import se.samuelandersson.gomoku.Moves;
 import se.samuelandersson.gomoku.Player;
 import se.samuelandersson.gomoku.action.BoardAction;
+import se.samuelandersson.gomoku.action.ChooseColorAction;
 import se.samuelandersson.gomoku.action.GameAction;
 import se.samuelandersson.gomoku.action.PlacePieceAction;
 import se.samuelandersson.gomoku.client.Assets;
@@ -38,17 +40,20 @@ import se.samuelandersson.gomoku.client.Settings.Setting;
 import se.samuelandersson.gomoku.client.entities.BoardEntity;
 import se.samuelandersson.gomoku.client.entities.BoardEvent;
 import se.samuelandersson.gomoku.client.net.PacketHandler;
+import se.samuelandersson.gomoku.event.ChooseColorEvent;
 import se.samuelandersson.gomoku.event.GameEvent;
 import se.samuelandersson.gomoku.event.SetPlayerTurnEvent;
 import se.samuelandersson.gomoku.exception.IllegalActionException;
 import se.samuelandersson.gomoku.impl.GomokuGameImpl;
 import se.samuelandersson.gomoku.net.BoardPacket;
+import se.samuelandersson.gomoku.net.ForbiddenMaskPacket;
 import se.samuelandersson.gomoku.net.GameActionPacket;
 import se.samuelandersson.gomoku.net.InitialServerDataPacket;
 import se.samuelandersson.gomoku.net.NotifyTurnPacket;
 import se.samuelandersson.gomoku.net.PlayerListPacket;
 import se.samuelandersson.gomoku.net.Request;
 import se.samuelandersson.gomoku.net.VictoryPacket;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
 
 /**
  * The playing state of the Gomoku game.
@@ -77,6 +82,9 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
   private Button confirmButton;
   private Button cancelButton;
 
+  private Table chooseColorTable;
+  private Button extendButton;
+
   private Container<Label> messageLabelContainer;
   private Label messageLabel;
   private Label nametag1Label;
@@ -109,6 +117,8 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
                         isdp.getPlayerColor(),
                         isdp.getPlayerColorCurrentTurn(),
                         isdp.getPlayerList());
+
+    isdp.restoreHistory(gomokuGame);
   }
 
   private void setInitialData(GomokuBoard board,
@@ -301,6 +311,40 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
     confirmOrCancelTable.defaults().pad(10);
     confirmOrCancelTable.add(confirmButton, cancelButton);
 
+    TextButton blackButton = new TextButton("Play black", skin);
+    blackButton.addListener(new ChangeListener()
+    {
+      @Override
+      public void changed(ChangeEvent event, Actor actor)
+      {
+        chooseColor(Color.BLACK);
+      }
+    });
+
+    TextButton whiteButton = new TextButton("Play white", skin);
+    whiteButton.addListener(new ChangeListener()
+    {
+      @Override
+      public void changed(ChangeEvent event, Actor actor)
+      {
+        chooseColor(Color.WHITE);
+      }
+    });
+
+    extendButton = new TextButton("Place two more", skin);
+    extendButton.addListener(new ChangeListener()
+    {
+      @Override
+      public void changed(ChangeEvent event, Actor actor)
+      {
+        chooseColor(Color.NONE);
+      }
+    });
+
+    chooseColorTable = new Table(skin);
+    chooseColorTable.defaults().pad(10);
+    chooseColorTable.add(blackButton, whiteButton, extendButton);
+
     messageLabel = new Label("message", skin);
     messageLabel.setColor(0, 0, 0, 1);
     this.messageLabelContainer = new Container<Label>(messageLabel);
@@ -358,6 +402,48 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
     }
   }
 
+  /**
+   * Show or hide the buttons for choosing color
+   *
+   * @param choosing whether this client is to choose color
+   */
+  private void setChoosingColor(boolean choosing)
+  {
+    this.messageLabelContainer.setVisible(true);
+    this.statusBar.clearChildren();
+    if (choosing)
+    {
+      this.extendButton.setVisible(gomokuGame.getConfig()
+                                             .getOpeningRule()
+                                             .canExtend(gomokuGame.getMoveCount(), gomokuGame.isOpeningExtended()));
+      this.statusBar.add(this.chooseColorTable).center();
+    }
+    else
+    {
+      this.statusBar.add(this.messageLabelContainer).center();
+    }
+  }
+
+  /**
+   * Choose which color to play, or to place two more stones
+   *
+   * @param choice the color, or {@link Color#NONE} for two more stones
+   */
+  private void chooseColor(Color choice)
+  {
+    try
+    {
+      GameAction action = new ChooseColorAction(me.getColor(), choice);
+      action.doAction(gomokuGame);
+      confirmAndSendGameAction(action);
+    }
+    catch (IllegalActionException e)
+    {
+      this.setChoosingColor(false);
+      this.setMessage(e.getMessage(), com.badlogic.gdx.graphics.Color.RED, 5);
+    }
+  }
+
   /**
    * Try to place a new piece on provided position. If successful client-side, send a packet to server trying to do the
    * same thing.
@@ -386,7 +472,7 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
         }
       }
 
-      GameAction pendingAction = new PlacePieceAction(me.getColor(), x, y);
+      GameAction pendingAction = new PlacePieceAction(gomokuGame.getNextColor(), x, y);
       pendingAction.doAction(gomokuGame);
 
       if (!requireConfirm)
@@ -493,6 +579,12 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
       log.debug("Received GameAction of type " + ppp.getAction().getClass().getSimpleName());
       ppp.getAction().doAction(gomokuGame);
       ppp.getAction().confirmAction(gomokuGame);
+
+      if (ppp.getBoardHash() != 0 && ppp.getBoardHash() != gomokuGame.getBoard().getHash())
+      {
+        log.warn("Board out of sync with server after {}", ppp.getAction());
+        this.getApplication().getClient().sendTCP(conn, Request.UPDATE_BOARD);
+      }
     }
     catch (IllegalActionException e)
     {
@@ -505,7 +597,73 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
   public void handleBoard(Connection conn, BoardPacket bp)
   {
     // let's update our board with the board of the server
-    gomokuGame.getBoard().setFrom(bp.getBoard());
+    GomokuBoard board = gomokuGame.getBoard();
+    GomokuBoard serverBoard = bp.getBoard();
+    if (board.getWidth() == serverBoard.getWidth() && board.getHeight() == serverBoard.getHeight())
+    {
+      // only the differing positions are set, notifying the board entity once
+      int[] moves = Moves.diff(board, serverBoard);
+      board.setPieces(moves, 0, moves.length);
+    }
+    else
+    {
+      board.setFrom(serverBoard);
+    }
+  }
+
+  @Override
+  public void handleForbiddenMask(Connection conn, ForbiddenMaskPacket fmp)
+  {
+    GomokuBoard board = gomokuGame.getBoard();
+    ForbiddenMask mask = gomokuGame.getForbiddenMask();
+    if (mask == null)
+    {
+      mask = new ForbiddenMask(board.getWidth(), board.getHeight());
+      gomokuGame.setForbiddenMask(mask);
+    }
+
+    fmp.applyTo(mask);
+
+    // only our own forbidden points are shown
+    Color color = me.getColor();
+    if (fmp.isReset())
+    {
+      updateForbiddenSlots();
+    }
+    else
+    {
+      for (int point : fmp.getRemoved())
+      {
+        if (Moves.getColor(point) == color)
+        {
+          boardEntity.setForbidden(Moves.getX(point), Moves.getY(point), false);
+        }
+      }
+
+      for (int point : fmp.getAdded())
+      {
+        if (Moves.getColor(point) == color)
+        {
+          boardEntity.setForbidden(Moves.getX(point), Moves.getY(point), true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Mark all slots forbidden for this client
+   */
+  private void updateForbiddenSlots()
+  {
+    GomokuBoard board = gomokuGame.getBoard();
+    ForbiddenMask mask = gomokuGame.getForbiddenMask();
+    for (int y = 0; y < board.getHeight(); y++)
+    {
+      for (int x = 0; x < board.getWidth(); x++)
+      {
+        boardEntity.setForbidden(x, y, mask != null && mask.isForbidden(me.getColor(), x, y));
+      }
+    }
   }
 
   @Override
@@ -595,10 +753,30 @@ public class GameplayState extends AbstractGameState implements PacketHandler, G
   @Override
   public void onEvent(GameEvent event)
   {
-    if (event instanceof SetPlayerTurnEvent)
+    if (event instanceof ChooseColorEvent && ((ChooseColorEvent) event).isSwapped())
+    {
+      // the game swaps the names of the players, so we are the other one now
+      if (me == gomokuGame.getPlayerOne())
+      {
+        me = gomokuGame.getPlayerTwo();
+      }
+      else if (me == gomokuGame.getPlayerTwo())
+      {
+        me = gomokuGame.getPlayerOne();
+      }
+
+      updateForbiddenSlots();
+    }
+    else if (event instanceof SetPlayerTurnEvent)
     {
       SetPlayerTurnEvent spte = (SetPlayerTurnEvent) event;
-      if (spte.getColor() == me.getColor())
+      boolean choosing = spte.getColor() == me.getColor() && gomokuGame.getChoosingColor() == me.getColor();
+      this.setChoosingColor(choosing);
+      if (choosing)
+      {
+        this.setMessage("Choose your color!", com.badlogic.gdx.graphics.Color.GREEN, -1);
+      }
+      else if (spte.getColor() == me.getColor())
       {
         this.setMessage("Your turn!", com.badlogic.gdx.graphics.Color.GREEN, -1);
       }
@@ -18,6 +18,7 @@ import se.samuelandersson.gomoku.net.Request;
 public class PauseMenu extends AbstractGameState
 {
   private Button continueButton;
+  private Button playComputerButton;
   private Button optionsButton;
   private Button exitToMenuButton;
   private Button exitToOSButton;
@@ -48,9 +49,24 @@ public class PauseMenu extends AbstractGameState
       }
     });
 
+    playComputerButton = new TextButton("Play Computer", skin);
+    playComputerButton.setSize(300, 50);
+    playComputerButton.setPosition(250, 220);
+    playComputerButton.addListener(new ChangeListener()
+    {
+      @Override
+      public void changed(ChangeEvent event, Actor actor)
+      {
+        // the server seats a computer in the free seat, if there is one
+        GomokuClient app = PauseMenu.this.getApplication();
+        app.getClient().sendTCP(Request.PLAY_COMPUTER);
+        app.exitCurrentState();
+      }
+    });
+
     optionsButton = new TextButton("Options", skin);
     optionsButton.setSize(300, 50);
-    optionsButton.setPosition(250, 220);
+    optionsButton.setPosition(250, 290);
     optionsButton.setDisabled(true);
     optionsButton.addListener(new ChangeListener()
     {
@@ -64,7 +80,7 @@ public class PauseMenu extends AbstractGameState
 
     exitToMenuButton = new TextButton("Exit to Menu", skin);
     exitToMenuButton.setSize(300, 50);
-    exitToMenuButton.setPosition(250, 290);
+    exitToMenuButton.setPosition(250, 360);
     exitToMenuButton.addListener(new ChangeListener()
     {
       @Override
@@ -78,7 +94,7 @@ public class PauseMenu extends AbstractGameState
 
     exitToOSButton = new TextButton("Exit to OS", skin);
     exitToOSButton.setSize(300, 50);
-    exitToOSButton.setPosition(250, 360);
+    exitToOSButton.setPosition(250, 430);
     exitToOSButton.addListener(new ChangeListener()
     {
       @Override
@@ -91,6 +107,8 @@ public class PauseMenu extends AbstractGameState
     this.getTable().defaults().minWidth(200).space(10).fill();
     this.getTable().add(continueButton);
     this.getTable().row();
+    this.getTable().add(playComputerButton);
+    this.getTable().row();
     this.getTable().add(optionsButton);
     this.getTable().row();
     this.getTable().add(exitToMenuButton);
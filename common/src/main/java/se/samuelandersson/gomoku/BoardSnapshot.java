@@ -0,0 +1,155 @@
+package se.samuelandersson.gomoku;
+
+import se.samuelandersson.gomoku.impl.PackedBoardImpl;
+
+/**
+ * An immutable copy of a board at a certain version. Created by
+ * {@link GomokuBoard#snapshot()}.
+ * <p>
+ * The pieces are stored one row at a time, packed two bits per cell. Rows that
+ * did not change between two snapshots of the same board are shared between
+ * them, so taking a snapshot after a move only packs the row the move was on.
+ * Since a snapshot never changes it can be handed to any number of
+ * connections or threads without copying or locking.
+ *
+ * @author Samuel Andersson
+ */
+public final class BoardSnapshot
+{
+  private final int width;
+  private final int height;
+
+  /** The version of the board the snapshot was taken of */
+  private final long version;
+
+  /** The hash of the board the snapshot was taken of */
+  private final long hash;
+
+  /** The rows, packed two bits per cell. Never modified once created. */
+  private final long[][] rows;
+
+  /** Empty constructor for Kryonet */
+  @SuppressWarnings("unused")
+  private BoardSnapshot()
+  {
+    this(0, 0, 0, 0, null);
+  }
+
+  /**
+   * Create a new snapshot. The rows must not be modified afterwards.
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   * @param version the version of the board
+   * @param hash the hash of the board
+   * @param rows the packed rows, see {@link #getRowLength(int)}
+   */
+  public BoardSnapshot(int width, int height, long version, long hash, long[][] rows)
+  {
+    this.width = width;
+    this.height = height;
+    this.version = version;
+    this.hash = hash;
+    this.rows = rows;
+  }
+
+  /**
+   * Returns the number of longs a packed row of provided width takes
+   *
+   * @param width the width of the board
+   * @return the number of longs
+   */
+  public static int getRowLength(int width)
+  {
+    return PackedBoardImpl.getPackedLength(width);
+  }
+
+  /**
+   * Returns the rows of a previous snapshot that can be shared with a new
+   * snapshot of a board with provided size. Returns null if the sizes differ.
+   *
+   * @param previous the previous snapshot, may be null
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return a copy of the array of rows, sharing the rows themselves
+   */
+  public static long[][] shareRows(BoardSnapshot previous, int width, int height)
+  {
+    if (previous == null || previous.width != width || previous.height != height)
+    {
+      return null;
+    }
+
+    return previous.rows.clone();
+  }
+
+  public Color getPiece(int x, int y)
+  {
+    if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+    {
+      return Color.NONE;
+    }
+
+    return Color.valueOf(PackedBoardImpl.getPacked(rows[y], x));
+  }
+
+  /**
+   * Returns the pieces of the snapshot packed as a whole board, as described
+   * by {@link PackedBoardImpl}
+   *
+   * @return the packed board data
+   */
+  public long[] getPackedData()
+  {
+    long[] data = new long[PackedBoardImpl.getPackedLength(this.width * this.height)];
+    for (int y = 0; y < this.height; y++)
+    {
+      for (int x = 0; x < this.width; x++)
+      {
+        PackedBoardImpl.setPacked(data, x + this.width * y, PackedBoardImpl.getPacked(rows[y], x));
+      }
+    }
+
+    return data;
+  }
+
+  /**
+   * Create a new board of provided type with the pieces of this snapshot
+   *
+   * @param boardType the type of board
+   * @return the new board
+   */
+  public GomokuBoard toBoard(BoardType boardType)
+  {
+    GomokuBoard board = boardType.createBoard(this.width, this.height);
+    board.setPackedData(getPackedData());
+
+    return board;
+  }
+
+  public int getWidth()
+  {
+    return this.width;
+  }
+
+  public int getHeight()
+  {
+    return this.height;
+  }
+
+  public long getVersion()
+  {
+    return this.version;
+  }
+
+  public long getHash()
+  {
+    return this.hash;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("BoardSnapshot<%sx%s,%s>", this.width, this.height, this.version);
+  }
+}
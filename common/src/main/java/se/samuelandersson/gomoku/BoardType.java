@@ -0,0 +1,107 @@
+package se.samuelandersson.gomoku;
+
+import se.samuelandersson.gomoku.impl.BitBoardImpl;
+import se.samuelandersson.gomoku.impl.BoardImpl;
+import se.samuelandersson.gomoku.impl.PackedBoardImpl;
+import se.samuelandersson.gomoku.impl.SparseBoardImpl;
+
+/**
+ * The available {@link GomokuBoard} implementations. Chosen per game through
+ * {@link GomokuConfig#getBoardType()}.
+ *
+ * @author Samuel Andersson
+ */
+public enum BoardType
+{
+  /** One array entry per cell, see {@link BoardImpl} */
+  ARRAY("Array", 100)
+  {
+    @Override
+    public GomokuBoard createBoard(final int width, final int height)
+    {
+      return new BoardImpl(width, height);
+    }
+  },
+
+  /** One bitset per color and line, see {@link BitBoardImpl} */
+  BITBOARD("Bitboard", BitBoardImpl.MAX_SIZE)
+  {
+    @Override
+    public GomokuBoard createBoard(final int width, final int height)
+    {
+      return new BitBoardImpl(width, height);
+    }
+  },
+
+  /** Two bits per cell and no indexes, see {@link PackedBoardImpl} */
+  PACKED("Packed", 1000)
+  {
+    @Override
+    public GomokuBoard createBoard(final int width, final int height)
+    {
+      return new PackedBoardImpl(width, height);
+    }
+  },
+
+  /** Chunks allocated only where there are pieces, see {@link SparseBoardImpl} */
+  SPARSE("Sparse", SparseBoardImpl.MAX_SIZE)
+  {
+    @Override
+    public GomokuBoard createBoard(final int width, final int height)
+    {
+      return new SparseBoardImpl(width, height);
+    }
+  };
+
+  private String name;
+  private int maxSize;
+
+  private BoardType(final String name, final int maxSize)
+  {
+    this.name = name;
+    this.maxSize = maxSize;
+  }
+
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * Returns the largest width and height this type of board should be used
+   * for
+   *
+   * @return the largest width and height
+   */
+  public int getMaxSize()
+  {
+    return this.maxSize;
+  }
+
+  /**
+   * Returns whether this type of board should be used for provided size
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return true if the size is supported
+   */
+  public boolean supports(final int width, final int height)
+  {
+    return width <= this.maxSize && height <= this.maxSize;
+  }
+
+  /**
+   * Create a new, empty board of this type
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return the new board
+   */
+  public abstract GomokuBoard createBoard(final int width, final int height);
+
+  @Override
+  public String toString()
+  {
+    return this.getName();
+  }
+}
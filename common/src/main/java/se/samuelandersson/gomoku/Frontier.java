@@ -0,0 +1,249 @@
+package se.samuelandersson.gomoku;
+
+/**
+ * The empty cells within a certain distance of a piece, which are the
+ * candidates for the next move. Kept up to date by the board as pieces are
+ * placed and removed, see {@link GomokuBoard#getFrontier()}, so listing the
+ * candidates takes time in proportion to their number rather than the area of
+ * the board.
+ * <p>
+ * Every cell has a count of the pieces in the square of provided radius around
+ * it. An empty cell is part of the frontier while its count is above zero. The
+ * members are kept both in a bitset for lookups and in a dense list for
+ * iterating, together with the index of each member in the list so it can be
+ * removed in constant time. Removing a piece exactly reverses placing it, which
+ * makes the frontier usable when a search undoes its moves.
+ *
+ * @author Samuel Andersson
+ */
+public final class Frontier
+{
+  /** The radius used by the boards */
+  public static final int DEFAULT_RADIUS = 2;
+
+  /** The largest radius, keeping the counts within a byte */
+  public static final int MAX_RADIUS = 5;
+
+  private final int radius;
+
+  private int width;
+  private int height;
+
+  /** The number of pieces around each cell */
+  private byte[] neighbors;
+
+  /** One bit per cell with a piece */
+  private long[] pieces;
+
+  /** One bit per cell in the frontier */
+  private long[] members;
+
+  /** The cells in the frontier, the first size of them are used */
+  private int[] cells;
+
+  /** The index in cells of each member */
+  private int[] positions;
+
+  private int size;
+
+  /**
+   * Create a new empty frontier
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   * @param radius the largest distance from a piece, counted in both x and y
+   */
+  public Frontier(int width, int height, int radius)
+  {
+    if (radius < 1 || radius > MAX_RADIUS)
+    {
+      throw new IllegalArgumentException("Radius must be between 1 and " + MAX_RADIUS + ": " + radius);
+    }
+
+    this.radius = radius;
+    reset(width, height);
+  }
+
+  /**
+   * Clear the frontier, making it fit a board of provided size
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   */
+  public void reset(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+
+    int cellCount = width * height;
+    neighbors = new byte[cellCount];
+    pieces = new long[(cellCount + 63) >>> 6];
+    members = new long[(cellCount + 63) >>> 6];
+    cells = new int[cellCount];
+    positions = new int[cellCount];
+    size = 0;
+  }
+
+  /**
+   * Update the frontier after a piece was placed on an empty cell
+   *
+   * @param x the x location
+   * @param y the y location
+   */
+  public void piecePlaced(int x, int y)
+  {
+    int cell = x + width * y;
+    if (isSet(pieces, cell))
+    {
+      return;
+    }
+
+    pieces[cell >>> 6] |= 1L << cell;
+    remove(cell);
+
+    for (int ypos = Math.max(0, y - radius); ypos <= Math.min(height - 1, y + radius); ypos++)
+    {
+      for (int xpos = Math.max(0, x - radius); xpos <= Math.min(width - 1, x + radius); xpos++)
+      {
+        int other = xpos + width * ypos;
+        if (other != cell && ++neighbors[other] == 1 && !isSet(pieces, other))
+        {
+          add(other);
+        }
+      }
+    }
+  }
+
+  /**
+   * Update the frontier after a piece was removed
+   *
+   * @param x the x location
+   * @param y the y location
+   */
+  public void pieceRemoved(int x, int y)
+  {
+    int cell = x + width * y;
+    if (!isSet(pieces, cell))
+    {
+      return;
+    }
+
+    pieces[cell >>> 6] &= ~(1L << cell);
+
+    for (int ypos = Math.max(0, y - radius); ypos <= Math.min(height - 1, y + radius); ypos++)
+    {
+      for (int xpos = Math.max(0, x - radius); xpos <= Math.min(width - 1, x + radius); xpos++)
+      {
+        int other = xpos + width * ypos;
+        if (other != cell && --neighbors[other] == 0)
+        {
+          remove(other);
+        }
+      }
+    }
+
+    if (neighbors[cell] > 0)
+    {
+      add(cell);
+    }
+  }
+
+  private void add(int cell)
+  {
+    members[cell >>> 6] |= 1L << cell;
+    positions[cell] = size;
+    cells[size++] = cell;
+  }
+
+  private void remove(int cell)
+  {
+    if (!isSet(members, cell))
+    {
+      return;
+    }
+
+    members[cell >>> 6] &= ~(1L << cell);
+
+    // move the last member into the place of the removed one
+    int last = cells[--size];
+    cells[positions[cell]] = last;
+    positions[last] = positions[cell];
+  }
+
+  private static boolean isSet(long[] bits, int cell)
+  {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /**
+   * Returns whether x, y is in the frontier
+   *
+   * @param x the x location
+   * @param y the y location
+   * @return true if x, y is an empty cell near a piece
+   */
+  public boolean contains(int x, int y)
+  {
+    if (x < 0 || x >= width || y < 0 || y >= height)
+    {
+      return false;
+    }
+
+    return isSet(members, x + width * y);
+  }
+
+  /**
+   * Returns the number of cells in the frontier
+   *
+   * @return the number of cells in the frontier
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns a cell of the frontier as x + width * y. The order of the cells
+   * changes as the frontier does.
+   *
+   * @param index the index, below {@link #size()}
+   * @return the cell
+   */
+  public int get(int index)
+  {
+    if (index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    return cells[index];
+  }
+
+  /**
+   * Copy the cells of the frontier to an array
+   *
+   * @param dest the array, with room for at least {@link #size()} cells
+   * @param offset the index in dest to copy to
+   * @return the number of cells copied
+   */
+  public int copyTo(int[] dest, int offset)
+  {
+    System.arraycopy(cells, 0, dest, offset, size);
+    return size;
+  }
+
+  public int getRadius()
+  {
+    return radius;
+  }
+
+  public int getWidth()
+  {
+    return width;
+  }
+
+  public int getHeight()
+  {
+    return height;
+  }
+}
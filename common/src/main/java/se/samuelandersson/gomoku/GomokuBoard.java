@@ -1,5 +1,9 @@
 package se.samuelandersson.gomoku;
 
+import java.util.function.IntConsumer;
+
+import se.samuelandersson.gomoku.rules.LinePatterns;
+
 public interface GomokuBoard
 {
   void reset();
@@ -8,10 +12,37 @@ public interface GomokuBoard
 
   int[] getBoardData();
 
+  /**
+   * Replace the pieces of the board with packed data, two bits per cell as
+   * described by {@link se.samuelandersson.gomoku.impl.PackedBoardImpl}.
+   *
+   * @param data the packed data
+   */
+  void setPackedData(long[] data);
+
+  /**
+   * Returns a copy of the pieces of the board packed two bits per cell. This is
+   * the form boards are sent over the network in.
+   *
+   * @return the packed data
+   */
+  long[] getPackedData();
+
   Color getPiece(int x, int y);
 
   void setPiece(int x, int y, Color color);
 
+  /**
+   * Set many pieces at once. The listeners are notified once, through
+   * {@link GomokuBoardListener#onChanges(int[], int, int)}, after all pieces
+   * have been set. No piece is set if any position is out of bounds.
+   *
+   * @param moves the pieces to set, packed as described by {@link Moves}
+   * @param offset the index of the first move
+   * @param length the number of moves
+   */
+  void setPieces(int[] moves, int offset, int length);
+
   int getWidth();
 
   int getHeight();
@@ -29,12 +60,183 @@ public interface GomokuBoard
    */
   int count(Color color, int x, int y, int dirX, int dirY);
 
+  /**
+   * Returns the cell indices of the board for the primitive methods. The same
+   * grid is returned until the size of the board changes.
+   *
+   * @return the grid
+   */
+  Grid getGrid();
+
+  /**
+   * Returns the value of a cell, the primitive version of
+   * {@link #getPiece(int, int)}
+   *
+   * @param index the index of the cell, see {@link #getGrid()}
+   * @return the id of the color on the cell, or {@link Grid#WALL} outside the board
+   */
+  byte getCell(int index);
+
+  /**
+   * Set the value of a cell, the primitive version of
+   * {@link #setPiece(int, int, Color)}
+   *
+   * @param index the index of the cell, see {@link #getGrid()}
+   * @param value the id of the color
+   * @throws IllegalArgumentException if the cell is outside the board
+   */
+  void setCell(int index, byte value);
+
+  /**
+   * Returns the number of cells with provided value in a row through a cell,
+   * counting the cell itself, the primitive version of
+   * {@link #count(Color, int, int, int, int)}
+   *
+   * @param value the value of the row
+   * @param index the index of a cell on the board
+   * @param dir the direction, see {@link Grid#getOffset(int)}
+   * @return the length of the row
+   */
+  int count(byte value, int index, int dir);
+
   boolean try3And3(Color color, int x, int y);
 
+  /**
+   * Returns false if placing a piece on x, y creates two or more open threes,
+   * meaning rows one move away from a straight four, for the victory length of
+   * provided tables
+   *
+   * @param color the color to place
+   * @param x the x location
+   * @param y the y location
+   * @param patterns the tables of the victory length
+   * @return whether the move is allowed by the three and three rule
+   */
+  boolean try3And3(Color color, int x, int y, LinePatterns patterns);
+
   boolean try4And4(Color color, int x, int y);
 
+  /**
+   * Returns false if placing a piece on x, y creates two or more fours,
+   * meaning rows one move away from victory, for the victory length of
+   * provided tables
+   *
+   * @param color the color to place
+   * @param x the x location
+   * @param y the y location
+   * @param patterns the tables of the victory length
+   * @return whether the move is allowed by the four and four rule
+   */
+  boolean try4And4(Color color, int x, int y, LinePatterns patterns);
+
   void setFrom(GomokuBoard board);
+
+  /**
+   * Returns the Zobrist hash of the pieces on the board. Two boards with the
+   * same pieces have the same hash, see {@link Zobrist}.
+   *
+   * @return the hash of the board
+   */
+  long getHash();
+
+  /**
+   * Returns the version of the board, which changes every time the pieces do
+   *
+   * @return the version of the board
+   */
+  long getVersion();
+
+  /**
+   * Returns an immutable snapshot of the current pieces. The snapshot is not
+   * affected by later changes to the board and can be shared between threads,
+   * but must be taken on the thread that modifies the board.
+   *
+   * @return the snapshot
+   */
+  BoardSnapshot snapshot();
+
+  /**
+   * Returns the empty cells near the pieces on the board, which is kept up to
+   * date as pieces are set. The same frontier is returned every time.
+   *
+   * @return the frontier
+   */
+  Frontier getFrontier();
+
+  /**
+   * Returns the threats on the board for five in a row, where overlines do not
+   * count. See {@link #getThreats(LinePatterns)}.
+   *
+   * @return the threats
+   */
+  ThreatTracker getThreats();
+
+  /**
+   * Returns the hashes of the board in all its orientations, for sharing
+   * entries between symmetric positions. The hashes are computed by scanning
+   * the board the first time this is called and after the whole board has
+   * been replaced, and are kept up to date as pieces are set.
+   *
+   * @return the hashes of the orientations
+   */
+  SymmetricHashes getSymmetricHashes();
+
+  /**
+   * Returns the threats on the board for the victory length of provided
+   * tables. The threats are found by scanning the board the first time this is
+   * called and after the whole board has been replaced, and are kept up to
+   * date as pieces are set. The same tracker is returned while the rules are
+   * the same.
+   *
+   * @param patterns the tables of the rules, giving the victory length and
+   *          whether overlines count
+   * @return the threats
+   */
+  ThreatTracker getThreats(LinePatterns patterns);
+
+  /**
+   * Returns the threats on the board for a victory length, also the ones the
+   * line pattern tables are not generated for. See
+   * {@link #getThreats(LinePatterns)}.
+   *
+   * @param victoryLength the number of pieces in a row needed to win
+   * @param exactFive whether a longer row than victory length should not count as five
+   * @return the threats
+   */
+  ThreatTracker getThreats(int victoryLength, boolean exactFive);
+
+  /**
+   * Returns the windows of a victory length each color can still make a row
+   * in. The windows are found by scanning the board the first time this is
+   * called and after the whole board has been replaced, and are kept up to
+   * date as pieces are set. The same windows are returned while the victory
+   * length is the same. Boards that keep no indexes to save memory may read
+   * the windows from all of the board on every call instead.
+   *
+   * @param victoryLength the number of pieces in a row needed to win
+   * @return the live windows
+   */
+  LiveWindows getLiveWindows(int victoryLength);
+
+  /**
+   * Returns the number of pieces on the board, counted when first needed and
+   * after the whole board has been replaced, and kept up to date as pieces
+   * are set
+   *
+   * @return the number of pieces
+   */
+  int getPieceCount();
   
   void addListener(GomokuBoardListener listener);
   void removeListener(GomokuBoardListener listener);
+
+  /**
+   * Add a listener called with the index of every cell set, after the
+   * {@link GomokuBoardListener}s
+   *
+   * @param listener the listener
+   */
+  void addCellListener(IntConsumer listener);
+
+  void removeCellListener(IntConsumer listener);
 }
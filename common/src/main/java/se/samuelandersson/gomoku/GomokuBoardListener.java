@@ -3,4 +3,21 @@ package se.samuelandersson.gomoku;
 public interface GomokuBoardListener
 {
   void onChange(Color color, int x, int y);
-}
\ No newline at end of file
+
+  /**
+   * Called once after a batch of pieces has been set with
+   * {@link GomokuBoard#setPieces(int[], int, int)}. Calls
+   * {@link #onChange(Color, int, int)} for each move unless overridden.
+   *
+   * @param moves the pieces set, packed as described by {@link Moves}
+   * @param offset the index of the first move
+   * @param length the number of moves
+   */
+  default void onChanges(int[] moves, int offset, int length)
+  {
+    for (int i = offset; i < offset + length; i++)
+    {
+      onChange(Moves.getColor(moves[i]), Moves.getX(moves[i]), Moves.getY(moves[i]));
+    }
+  }
+}
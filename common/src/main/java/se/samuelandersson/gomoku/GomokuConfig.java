@@ -1,5 +1,9 @@
 package se.samuelandersson.gomoku;
 
+import se.samuelandersson.gomoku.rules.LinePatterns;
+import se.samuelandersson.gomoku.rules.MoveValidators;
+import se.samuelandersson.gomoku.rules.OpeningRule;
+
 public class GomokuConfig
 {
   private String name;
@@ -9,33 +13,136 @@ public class GomokuConfig
 
   private int victoryLength;
 
+  /** The number of stones placed each turn, except the first turn */
+  private int stonesPerTurn;
+
   private boolean allowOverlines;
 
   private boolean threeAndThree;
 
   private boolean fourAndFour;
 
+  private boolean renju;
+
+  private BoardType boardType;
+
+  private OpeningRule openingRule;
+
+  /** The move validators of the rules, compiled when first needed */
+  private transient MoveValidators moveValidators;
+
   public GomokuConfig()
   {
     name = "Gomoku";
     boardWidth = 15;
     boardHeight = 15;
     victoryLength = 5;
+    stonesPerTurn = 1;
     allowOverlines = false;
     threeAndThree = false;
     fourAndFour = false;
+    renju = false;
+    openingRule = OpeningRule.STANDARD;
+    boardType = BoardType.ARRAY;
   }
 
   public GomokuConfig(String name, int width, int height, int victoryLength, boolean allowOverLines,
       boolean threeAndThree, boolean fourAndFour)
+  {
+    this(name, width, height, victoryLength, allowOverLines, threeAndThree, fourAndFour, BoardType.ARRAY);
+  }
+
+  public GomokuConfig(String name, int width, int height, int victoryLength, boolean allowOverLines,
+      boolean threeAndThree, boolean fourAndFour, BoardType boardType)
+  {
+    this(name, width, height, victoryLength, allowOverLines, threeAndThree, fourAndFour, false, boardType);
+  }
+
+  public GomokuConfig(String name, int width, int height, int victoryLength, boolean allowOverLines,
+      boolean threeAndThree, boolean fourAndFour, boolean renju, BoardType boardType)
+  {
+    this(name, width, height, victoryLength, allowOverLines, threeAndThree, fourAndFour, renju,
+         OpeningRule.STANDARD, boardType);
+  }
+
+  public GomokuConfig(String name, int width, int height, int victoryLength, boolean allowOverLines,
+      boolean threeAndThree, boolean fourAndFour, boolean renju, OpeningRule openingRule, BoardType boardType)
+  {
+    this(name, width, height, victoryLength, 1, allowOverLines, threeAndThree, fourAndFour, renju, openingRule,
+         boardType);
+  }
+
+  /**
+   * Create a config for an m,n,k,p game, where m and n are the width and the
+   * height, k the victory length and p the number of stones per turn. Connect6
+   * is 19, 19, 6, 2.
+   *
+   * @throws IllegalArgumentException if the rules can not be combined, see
+   *           {@link #validate()}
+   */
+  public GomokuConfig(String name, int width, int height, int victoryLength, int stonesPerTurn,
+      boolean allowOverLines, boolean threeAndThree, boolean fourAndFour, boolean renju, OpeningRule openingRule,
+      BoardType boardType)
   {
     this.name = name;
     this.boardWidth = width;
     this.boardHeight = height;
     this.victoryLength = victoryLength;
+    this.stonesPerTurn = stonesPerTurn;
     this.allowOverlines = allowOverLines;
     this.threeAndThree = threeAndThree;
     this.fourAndFour = fourAndFour;
+    this.renju = renju;
+    this.openingRule = openingRule;
+    this.boardType = boardType;
+    validate();
+  }
+
+  /**
+   * Check that the rules can be combined and that the board type can hold the
+   * board. The constructors already do this, configs received over the
+   * network have to be checked.
+   *
+   * @throws IllegalArgumentException if the config is not valid
+   */
+  public void validate()
+  {
+    if (boardType == null || openingRule == null)
+    {
+      throw new IllegalArgumentException("A board type and an opening are required");
+    }
+
+    if (boardWidth < 1 || boardHeight < 1 || !boardType.supports(boardWidth, boardHeight))
+    {
+      throw new IllegalArgumentException("A " + boardType.getName() + " board can not be " + boardWidth + "x" +
+                                         boardHeight);
+    }
+
+    if (victoryLength < 1)
+    {
+      throw new IllegalArgumentException("The victory length must be at least 1: " + victoryLength);
+    }
+
+    if (stonesPerTurn < 1)
+    {
+      throw new IllegalArgumentException("At least one stone must be placed per turn: " + stonesPerTurn);
+    }
+
+    if (stonesPerTurn > 1 && openingRule != OpeningRule.STANDARD)
+    {
+      throw new IllegalArgumentException("The " + openingRule + " opening requires one stone per turn");
+    }
+
+    if (renju && (victoryLength != 5 || stonesPerTurn != 1))
+    {
+      throw new IllegalArgumentException("Renju requires five in a row and one stone per turn");
+    }
+
+    if ((threeAndThree || fourAndFour) && (victoryLength < 2 || victoryLength > LinePatterns.MAX_LENGTH))
+    {
+      throw new IllegalArgumentException("Three and three and four and four require a victory length between 2 and " +
+                                         LinePatterns.MAX_LENGTH);
+    }
   }
 
   public int getVictoryLength()
@@ -43,6 +150,29 @@ public class GomokuConfig
     return victoryLength;
   }
 
+  /**
+   * Returns the number of stones placed each turn. The first turn of black
+   * always places one stone, which is what makes Connect6 fair.
+   *
+   * @return the number of stones placed each turn
+   */
+  public int getStonesPerTurn()
+  {
+    return stonesPerTurn;
+  }
+
+  /**
+   * Returns the color of the stone placed by a move
+   *
+   * @param move the number of the move, the first move being 0
+   * @return the color of the stone
+   */
+  public Color getStoneColor(int move)
+  {
+    int turn = move == 0 ? 0 : (move - 1) / stonesPerTurn + 1;
+    return (turn & 1) == 0 ? Color.BLACK : Color.WHITE;
+  }
+
   public boolean getAllowOverlines()
   {
     return allowOverlines;
@@ -68,20 +198,82 @@ public class GomokuConfig
     return fourAndFour;
   }
 
+  /**
+   * Returns whether black is restricted by the Renju rules, see
+   * {@link se.samuelandersson.gomoku.rules.RenjuRules}. White wins with an overline when this is used.
+   *
+   * @return whether the Renju rules are used
+   */
+  public boolean useRenju()
+  {
+    return renju;
+  }
+
+  /**
+   * Returns the rules for the first moves of the game
+   *
+   * @return the opening rule
+   */
+  public OpeningRule getOpeningRule()
+  {
+    return openingRule;
+  }
+
+  /**
+   * Returns the validators checking the moves against the rules of this
+   * config, compiled once
+   *
+   * @return the move validators
+   */
+  public MoveValidators getMoveValidators()
+  {
+    if (moveValidators == null)
+    {
+      moveValidators = MoveValidators.compile(this);
+    }
+
+    return moveValidators;
+  }
+
   public String getName()
   {
     return name;
   }
 
+  /**
+   * Returns the type of board the game should be played on
+   *
+   * @return the type of board the game should be played on
+   */
+  public BoardType getBoardType()
+  {
+    return boardType;
+  }
+
+  /**
+   * Create a new, empty board as described by this config
+   *
+   * @return the new board
+   */
+  public GomokuBoard createBoard()
+  {
+    return boardType.createBoard(boardWidth, boardHeight);
+  }
+
   @Override
   public String toString()
   {
-    return String.format("GomokuConfig<%s,%sx%s%s%s%s>",
+    return String.format("GomokuConfig<%s,%sx%s,k=%s,p=%s,%s,%s%s%s%s%s>",
                          name,
                          boardWidth,
                          boardHeight,
+                         victoryLength,
+                         stonesPerTurn,
+                         boardType,
+                         openingRule,
                          this.allowOverlines ? ", Allow overlines" : "",
                          this.threeAndThree ? ",3&3" : "",
-                         this.fourAndFour ? ",4&4" : "");
+                         this.fourAndFour ? ",4&4" : "",
+                         this.renju ? ",Renju" : "");
   }
 }
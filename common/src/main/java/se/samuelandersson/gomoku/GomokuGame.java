@@ -1,5 +1,10 @@
 package se.samuelandersson.gomoku;
 
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.rules.Forbidden;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
+import se.samuelandersson.gomoku.rules.OpeningRule;
+
 public interface GomokuGame
 {
   GomokuBoard getBoard();
@@ -30,6 +35,143 @@ public interface GomokuGame
    */
   void checkBoard(int x, int y);
 
+  /**
+   * Check the next move against the rules of the game, using the validators
+   * compiled for the config, see {@link GomokuConfig#getMoveValidators()}
+   *
+   * @param color the color of the stone
+   * @param x the x location
+   * @param y the y location
+   * @throws IllegalActionException if the move breaks a rule
+   */
+  void validateMove(Color color, int x, int y) throws IllegalActionException;
+
+  /**
+   * Returns the color of the next stone, see
+   * {@link GomokuConfig#getStoneColor(int)}
+   *
+   * @return the color of the next stone
+   */
+  Color getNextColor();
+
+  /**
+   * Returns the color of the player that has to choose which color to play
+   * before the next move, see {@link OpeningRule}
+   *
+   * @return the color of the player choosing, or {@link Color#NONE}
+   */
+  Color getChoosingColor();
+
+  /**
+   * Make the choice of color of the player choosing. If the other color is
+   * chosen the names of the players are swapped, so player one stays black.
+   * The choice can not be undone.
+   *
+   * @param color the color of the player choosing
+   * @param choice the color to play, or {@link Color#NONE} to place two more
+   *          stones and let the opponent choose
+   */
+  void chooseColor(Color color, Color choice);
+
+  /**
+   * Returns the move count at the last choice of color
+   *
+   * @return the move count at the last choice of color, or -1
+   */
+  int getChoiceMove();
+
+  /**
+   * Returns whether two more stones were chosen in Swap2
+   *
+   * @return whether two more stones were chosen
+   */
+  boolean isOpeningExtended();
+
+  /**
+   * Restore the choices of color, for example when joining a game
+   *
+   * @param choiceMove the move count at the last choice of color, or -1
+   * @param extended whether two more stones were chosen in Swap2
+   */
+  void setOpeningState(int choiceMove, boolean extended);
+
+  /**
+   * Returns whether placing a piece is forbidden by the rules of the game. The
+   * Renju rules are used for black if the config uses them, see
+   * {@link GomokuConfig#useRenju()}, otherwise the three and three and four
+   * and four rules if used.
+   *
+   * @param color the color to place
+   * @param x the x location
+   * @param y the y location
+   * @return the reason the move is forbidden, or {@link Forbidden#NONE}
+   */
+  Forbidden checkForbidden(Color color, int x, int y);
+
+  /**
+   * Returns the forbidden points received from the server, if any. When set,
+   * moves are checked against the mask instead of the rules.
+   *
+   * @return the forbidden points, or null
+   */
+  ForbiddenMask getForbiddenMask();
+
+  void setForbiddenMask(ForbiddenMask mask);
+
+  /**
+   * Apply a batch of moves, for example when loading or replaying a game. The
+   * moves are set on the board at once and the victory check is only run on
+   * the positions given a piece, stopping at the first victory. The moves are
+   * not checked against the rules and the turn is left unchanged.
+   *
+   * @param moves the moves, packed as described by {@link Moves}
+   * @param offset the index of the first move
+   * @param length the number of moves
+   */
+  void applyMoves(int[] moves, int offset, int length);
+
+  /**
+   * Confirm a piece already placed on the board as the next move. The move is
+   * recorded so it can be undone, the board is checked for victory and the turn
+   * is switched unless the game is over. Any moves that were undone can no
+   * longer be redone.
+   *
+   * @param color the color of the piece
+   * @param x the x location
+   * @param y the y location
+   */
+  void confirmMove(Color color, int x, int y);
+
+  /**
+   * Take back the last move, restoring the board, the turn and whether the game
+   * is over
+   *
+   * @return false if there was no move to take back
+   */
+  boolean undo();
+
+  /**
+   * Make the last move taken back again
+   *
+   * @return false if there was no move to make again
+   */
+  boolean redo();
+
+  /**
+   * Returns the number of moves made
+   *
+   * @return the number of moves made
+   */
+  int getMoveCount();
+
+  /**
+   * Returns a move made, packed as described by {@link Moves}
+   *
+   * @param index the index of the move, the first move being 0
+   * @return the packed move
+   */
+  int getMove(int index);
+
   void switchTurn();
 
   boolean isGameOver();
@@ -0,0 +1,149 @@
+package se.samuelandersson.gomoku;
+
+import java.util.Arrays;
+
+import se.samuelandersson.gomoku.rules.LinePatterns;
+
+/**
+ * The cell indices of a board for the primitive methods of
+ * {@link GomokuBoard}. The board is surrounded by a border of {@link #WALL}
+ * cells, {@link #PAD} cells wide, so a loop reading a line from a cell on the
+ * board can step with {@link #getOffset(int)} and stop on the wall instead of
+ * checking the bounds. The border is wide enough for every line the rule
+ * checks read, and a step can not wrap around to the other side of the board
+ * within it.
+ * <p>
+ * The values of the cells are the ids of the colors as bytes, with
+ * {@link #WALL} for the border.
+ *
+ * @author Samuel Andersson
+ */
+public final class Grid
+{
+  public static final byte EMPTY = 0;
+  public static final byte BLACK = 1;
+  public static final byte WHITE = 2;
+
+  /** The value of the cells outside the board */
+  public static final byte WALL = 3;
+
+  /** The width of the border, the farthest a line is read from a cell */
+  public static final int PAD = LinePatterns.MAX_LENGTH;
+
+  /** The number of line directions, see {@link #getOffset(int)} */
+  public static final int DIRECTIONS = 4;
+
+  private final int width;
+  private final int height;
+  private final int stride;
+
+  /** The index steps of the directions */
+  private final int[] offsets;
+
+  public Grid(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+    this.stride = width + 2 * PAD;
+    this.offsets = new int[] { 1, stride, stride + 1, 1 - stride };
+  }
+
+  /**
+   * Returns the index of a cell
+   *
+   * @param x the x location, between -{@link #PAD} and width + {@link #PAD}
+   * @param y the y location, between -{@link #PAD} and height + {@link #PAD}
+   * @return the index of the cell
+   */
+  public int index(int x, int y)
+  {
+    return (x + PAD) + stride * (y + PAD);
+  }
+
+  public int getX(int index)
+  {
+    return index % stride - PAD;
+  }
+
+  public int getY(int index)
+  {
+    return index / stride - PAD;
+  }
+
+  /**
+   * Returns whether a cell is on the board rather than the border
+   *
+   * @param index the index of the cell
+   * @return whether the cell is on the board
+   */
+  public boolean isOnBoard(int index)
+  {
+    if (index < 0 || index >= getSize())
+    {
+      return false;
+    }
+
+    int x = getX(index);
+    int y = getY(index);
+    return x >= 0 && x < width && y >= 0 && y < height;
+  }
+
+  /**
+   * Returns the index step of a direction, horizontal, vertical and the two
+   * diagonals in the order of {@code (1, 0), (0, 1), (1, 1), (1, -1)}
+   *
+   * @param dir the direction, below {@link #DIRECTIONS}
+   * @return the step between neighbours in the direction
+   */
+  public int getOffset(int dir)
+  {
+    return offsets[dir];
+  }
+
+  /**
+   * Returns a new array of cells with the board empty and the border walls
+   *
+   * @return the cells
+   */
+  public byte[] createCells()
+  {
+    byte[] cells = new byte[getSize()];
+    Arrays.fill(cells, WALL);
+    for (int y = 0; y < height; y++)
+    {
+      Arrays.fill(cells, index(0, y), index(width, y), EMPTY);
+    }
+
+    return cells;
+  }
+
+  public int getWidth()
+  {
+    return width;
+  }
+
+  public int getHeight()
+  {
+    return height;
+  }
+
+  /**
+   * Returns the distance in index between two rows
+   *
+   * @return the width of the board and its border
+   */
+  public int getStride()
+  {
+    return stride;
+  }
+
+  /**
+   * Returns the number of cells, including the border
+   *
+   * @return the number of cells
+   */
+  public int getSize()
+  {
+    return stride * (height + 2 * PAD);
+  }
+}
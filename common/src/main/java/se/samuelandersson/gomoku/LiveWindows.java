@@ -0,0 +1,208 @@
+package se.samuelandersson.gomoku;
+
+import java.util.Arrays;
+
+/**
+ * The windows of victory length on a board that each color can still make a
+ * row in, because they hold no pieces of the other color. When neither color
+ * has a live window left the position is dead, and the game can only end in
+ * a draw. Kept up to date by the board as pieces are placed and removed, see
+ * {@link GomokuBoard#getLiveWindows(int)}.
+ * <p>
+ * Every window is given by its first cell and a direction, and has one bit
+ * per color, so the whole board takes a byte per cell. Placing a piece only
+ * clears bits, while removing one reads the windows through it again. Rows
+ * longer than the victory length are not considered, so a window may be live
+ * for a color that can only make an overline there.
+ *
+ * @author Samuel Andersson
+ */
+public final class LiveWindows
+{
+  /** Horizontal, vertical and the two diagonal directions */
+  private static final int[] DIR_X = { 1, 0, 1, 1 };
+  private static final int[] DIR_Y = { 0, 1, 1, -1 };
+
+  private final GomokuBoard board;
+  private final int victoryLength;
+  private final int width;
+  private final int height;
+
+  /** Two bits per window, indexed by cell and then direction, one per color id - 1 */
+  private final long[] live;
+
+  /** The number of live windows per color id - 1 */
+  private final int[] liveCounts = new int[2];
+
+  /**
+   * Create the windows of a board, which are all dead until
+   * {@link #rebuild()}
+   *
+   * @param board the board
+   * @param victoryLength the number of pieces in a row needed to win
+   */
+  public LiveWindows(GomokuBoard board, int victoryLength)
+  {
+    if (victoryLength < 1)
+    {
+      throw new IllegalArgumentException("Victory length must be at least 1: " + victoryLength);
+    }
+
+    this.board = board;
+    this.victoryLength = victoryLength;
+    this.width = board.getWidth();
+    this.height = board.getHeight();
+    this.live = new long[(int) (((long) width * height * Grid.DIRECTIONS * 2 + 63) >>> 6)];
+  }
+
+  /**
+   * Find the live windows by reading all of the board
+   */
+  public void rebuild()
+  {
+    Arrays.fill(live, 0);
+    liveCounts[0] = 0;
+    liveCounts[1] = 0;
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+      {
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+        {
+          if (fits(x, y, dir))
+          {
+            setBits(x, y, dir, readBits(x, y, dir, -1, Grid.EMPTY));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Update the windows through a position that changes from one color to
+   * another, which may be called before the board has stored the change
+   *
+   * @param x the x location
+   * @param y the y location
+   * @param oldId the id of the previous color
+   * @param newId the id of the new color
+   */
+  public void pieceChanged(int x, int y, int oldId, int newId)
+  {
+    int changed = board.getGrid().index(x, y);
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      for (int i = 0; i < victoryLength; i++)
+      {
+        int startX = x - i * DIR_X[dir];
+        int startY = y - i * DIR_Y[dir];
+        if (fits(startX, startY, dir))
+        {
+          // a new piece makes the window dead for the other color
+          int bits = oldId == Grid.EMPTY ? getBits(startX, startY, dir) & newId
+                                         : readBits(startX, startY, dir, changed, (byte) newId);
+          setBits(startX, startY, dir, bits);
+        }
+      }
+    }
+  }
+
+  public int getVictoryLength()
+  {
+    return victoryLength;
+  }
+
+  public int getWidth()
+  {
+    return width;
+  }
+
+  public int getHeight()
+  {
+    return height;
+  }
+
+  /**
+   * Returns the number of windows of victory length without pieces of the
+   * other color, where the color could still make a row
+   *
+   * @param color the color
+   * @return the number of live windows
+   */
+  public int getLiveCount(Color color)
+  {
+    return color == Color.NONE ? 0 : liveCounts[color.getId() - 1];
+  }
+
+  /**
+   * Returns whether neither color can make a row any more, no matter how the
+   * rest of the board is filled
+   *
+   * @return whether the position is dead
+   */
+  public boolean isDead()
+  {
+    return liveCounts[0] == 0 && liveCounts[1] == 0;
+  }
+
+  /**
+   * Returns whether a window starting on a position fits on the board
+   */
+  private boolean fits(int x, int y, int dir)
+  {
+    int endX = x + (victoryLength - 1) * DIR_X[dir];
+    int endY = y + (victoryLength - 1) * DIR_Y[dir];
+    return x >= 0 && y >= 0 && y < height && endX < width && endY >= 0 && endY < height;
+  }
+
+  /**
+   * Read the colors a window is live for from the board, with the value of
+   * one cell given rather than read
+   */
+  private int readBits(int x, int y, int dir, int changed, byte changedValue)
+  {
+    Grid grid = board.getGrid();
+    int cell = grid.index(x, y);
+    int step = grid.getOffset(dir);
+    int bits = 3;
+    for (int i = 0; i < victoryLength && bits != 0; i++)
+    {
+      int index = cell + i * step;
+      byte value = index == changed ? changedValue : board.getCell(index);
+      if (value != Grid.EMPTY)
+      {
+        bits &= value;
+      }
+    }
+
+    return bits;
+  }
+
+  private int getBits(int x, int y, int dir)
+  {
+    long bit = ((long) (x + width * y) * Grid.DIRECTIONS + dir) * 2;
+    return (int) (live[(int) (bit >>> 6)] >>> (bit & 63)) & 3;
+  }
+
+  private void setBits(int x, int y, int dir, int bits)
+  {
+    long bit = ((long) (x + width * y) * Grid.DIRECTIONS + dir) * 2;
+    int index = (int) (bit >>> 6);
+    int shift = (int) (bit & 63);
+    int changed = ((int) (live[index] >>> shift) & 3) ^ bits;
+    if (changed == 0)
+    {
+      return;
+    }
+
+    for (int id = 1; id <= 2; id++)
+    {
+      if ((changed & id) != 0)
+      {
+        liveCounts[id - 1] += (bits & id) != 0 ? 1 : -1;
+      }
+    }
+
+    live[index] ^= (long) changed << shift;
+  }
+}
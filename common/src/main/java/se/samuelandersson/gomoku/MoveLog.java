@@ -0,0 +1,203 @@
+package se.samuelandersson.gomoku;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The moves of a game, packed as described by {@link Moves} into a growable
+ * int array, four bytes per move. Moves taken back stay in the log until a new
+ * move is added, so they can be made again.
+ * <p>
+ * A log is stored as the number of moves followed by the moves, as ints.
+ *
+ * @author Samuel Andersson
+ */
+public final class MoveLog
+{
+  private int[] moves;
+
+  /** The number of moves made */
+  private int size;
+
+  /** The number of moves that can be made again up to */
+  private int top;
+
+  public MoveLog()
+  {
+    this(64);
+  }
+
+  /**
+   * Create an empty log
+   *
+   * @param capacity the number of moves to make room for
+   */
+  public MoveLog(int capacity)
+  {
+    moves = new int[Math.max(capacity, 1)];
+  }
+
+  /**
+   * Add a move, dropping the moves taken back
+   *
+   * @param move the move, packed by {@link Moves}
+   */
+  public void add(int move)
+  {
+    if (size == moves.length)
+    {
+      moves = Arrays.copyOf(moves, moves.length * 2);
+    }
+
+    moves[size++] = move;
+    top = size;
+  }
+
+  /**
+   * Take back the last move
+   *
+   * @return the move taken back
+   * @throws IllegalStateException if there are no moves
+   */
+  public int undo()
+  {
+    if (size == 0)
+    {
+      throw new IllegalStateException("No move to take back");
+    }
+
+    return moves[--size];
+  }
+
+  /**
+   * Make the last move taken back again
+   *
+   * @return the move made again
+   * @throws IllegalStateException if no move was taken back
+   */
+  public int redo()
+  {
+    if (!canRedo())
+    {
+      throw new IllegalStateException("No move to make again");
+    }
+
+    return moves[size++];
+  }
+
+  public boolean canRedo()
+  {
+    return size < top;
+  }
+
+  /**
+   * Returns a move
+   *
+   * @param index the index of the move, the first move being 0
+   * @return the move, packed by {@link Moves}
+   */
+  public int get(int index)
+  {
+    if (index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Moves: " + size);
+    }
+
+    return moves[index];
+  }
+
+  /**
+   * Returns the number of moves made, not counting the ones taken back
+   *
+   * @return the number of moves
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Remove all moves
+   */
+  public void clear()
+  {
+    size = 0;
+    top = 0;
+  }
+
+  /**
+   * Returns a copy of the moves made
+   *
+   * @return the moves, packed by {@link Moves}
+   */
+  public int[] toArray()
+  {
+    return Arrays.copyOf(moves, size);
+  }
+
+  /**
+   * Write the moves made
+   *
+   * @param out where to write
+   * @throws IOException if writing fails
+   */
+  public void write(DataOutput out) throws IOException
+  {
+    out.writeInt(size);
+    for (int i = 0; i < size; i++)
+    {
+      out.writeInt(moves[i]);
+    }
+  }
+
+  /**
+   * Replace the moves with ones written by {@link #write(DataOutput)}
+   *
+   * @param in where to read
+   * @throws IOException if reading fails
+   */
+  public void read(DataInput in) throws IOException
+  {
+    int count = in.readInt();
+    if (count < 0)
+    {
+      throw new IOException("Invalid move count: " + count);
+    }
+
+    clear();
+    for (int i = 0; i < count; i++)
+    {
+      add(in.readInt());
+    }
+  }
+
+  public void store(String fileName) throws IOException
+  {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName))))
+    {
+      write(out);
+    }
+  }
+
+  public void load(String fileName) throws IOException
+  {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName))))
+    {
+      read(in);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("MoveLog<%s/%s>", size, top);
+  }
+}
@@ -0,0 +1,98 @@
+package se.samuelandersson.gomoku;
+
+import java.util.Arrays;
+
+/**
+ * Moves packed into a single int, for passing many of them around without an
+ * object per move. Bits 0-14 hold y, bits 15-29 hold x and bits 30-31 the id
+ * of the color, so a position must be below 32768.
+ *
+ * @author Samuel Andersson
+ */
+public final class Moves
+{
+  private static final int COORDINATE_BITS = 15;
+  private static final int COORDINATE_MASK = (1 << COORDINATE_BITS) - 1;
+  private static final int COLOR_SHIFT = COORDINATE_BITS * 2;
+
+  /** The largest x and y of a move */
+  public static final int MAX_COORDINATE = COORDINATE_MASK;
+
+  private Moves()
+  {
+  }
+
+  /**
+   * Pack a move
+   *
+   * @param color the color placed
+   * @param x the x location
+   * @param y the y location
+   * @return the packed move
+   */
+  public static int pack(Color color, int x, int y)
+  {
+    if (x < 0 || x > MAX_COORDINATE || y < 0 || y > MAX_COORDINATE)
+    {
+      throw new IllegalArgumentException("Position can not be packed. X: " + x + ", Y: " + y);
+    }
+
+    return (color.getId() << COLOR_SHIFT) | (x << COORDINATE_BITS) | y;
+  }
+
+  public static Color getColor(int move)
+  {
+    return Color.valueOf(move >>> COLOR_SHIFT);
+  }
+
+  public static int getX(int move)
+  {
+    return (move >>> COORDINATE_BITS) & COORDINATE_MASK;
+  }
+
+  public static int getY(int move)
+  {
+    return move & COORDINATE_MASK;
+  }
+
+  /**
+   * Returns the moves turning one board into another of the same size
+   *
+   * @param from the board to start from
+   * @param to the board to end up with
+   * @return the packed moves, one per differing position
+   */
+  public static int[] diff(GomokuBoard from, GomokuBoard to)
+  {
+    if (from.getWidth() != to.getWidth() || from.getHeight() != to.getHeight())
+    {
+      throw new IllegalArgumentException("Boards differ in size");
+    }
+
+    int[] moves = new int[16];
+    int count = 0;
+    for (int y = 0; y < to.getHeight(); y++)
+    {
+      for (int x = 0; x < to.getWidth(); x++)
+      {
+        Color color = to.getPiece(x, y);
+        if (from.getPiece(x, y) != color)
+        {
+          if (count == moves.length)
+          {
+            moves = Arrays.copyOf(moves, count * 2);
+          }
+
+          moves[count++] = pack(color, x, y);
+        }
+      }
+    }
+
+    return Arrays.copyOf(moves, count);
+  }
+
+  public static String toString(int move)
+  {
+    return String.format("%s(%s,%s)", getColor(move), getX(move), getY(move));
+  }
+}
@@ -0,0 +1,157 @@
+package se.samuelandersson.gomoku;
+
+/**
+ * The hashes of a board in all of its orientations, see {@link Symmetry}. A
+ * position and its rotations and reflections share the canonical hash, the
+ * smallest of them, so caches, opening books and archives can store one entry
+ * for all of them. The orientation giving the canonical hash maps moves to
+ * the canonical position and back.
+ * <p>
+ * Kept up to date by the board as pieces are placed and removed, see
+ * {@link GomokuBoard#getSymmetricHashes()}, by updating the hash of every
+ * orientation with the {@link Zobrist} key of the moved piece.
+ *
+ * @author Samuel Andersson
+ */
+public final class SymmetricHashes
+{
+  private final int width;
+  private final int height;
+
+  private final Symmetry[] symmetries;
+
+  /** The hashes, indexed by the ordinal of the symmetry */
+  private final long[] hashes = new long[Symmetry.values().length];
+
+  /**
+   * Create the hashes of an empty board
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   */
+  public SymmetricHashes(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+    this.symmetries = Symmetry.getSymmetries(width, height);
+  }
+
+  /**
+   * Set the hashes to the ones of a board of the same size
+   *
+   * @param board the board
+   */
+  public void setFrom(GomokuBoard board)
+  {
+    for (int i = 0; i < hashes.length; i++)
+    {
+      hashes[i] = 0;
+    }
+
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+      {
+        int id = board.getPiece(x, y).getId();
+        if (id != Color.NONE.getId())
+        {
+          pieceChanged(x, y, Color.NONE.getId(), id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Update the hashes after a position changed color
+   *
+   * @param x the x location
+   * @param y the y location
+   * @param oldId the id of the previous color
+   * @param newId the id of the new color
+   */
+  public void pieceChanged(int x, int y, int oldId, int newId)
+  {
+    for (Symmetry symmetry : symmetries)
+    {
+      int sx = symmetry.getX(x, y, width, height);
+      int sy = symmetry.getY(x, y, width, height);
+      hashes[symmetry.ordinal()] ^= Zobrist.getKey(oldId, sx, sy) ^ Zobrist.getKey(newId, sx, sy);
+    }
+  }
+
+  /**
+   * Returns the hash of the board moved by a symmetry
+   *
+   * @param symmetry the symmetry, which must apply to the size of the board
+   * @return the hash
+   */
+  public long getHash(Symmetry symmetry)
+  {
+    return hashes[symmetry.ordinal()];
+  }
+
+  /**
+   * Returns the symmetry moving the board to its canonical orientation, the
+   * first one in declaration order giving the smallest hash. When the
+   * position is symmetric itself several orientations give the same position,
+   * and moves mapped through them are equivalent.
+   *
+   * @return the symmetry
+   */
+  public Symmetry getCanonicalSymmetry()
+  {
+    Symmetry best = Symmetry.IDENTITY;
+    for (Symmetry symmetry : symmetries)
+    {
+      if (hashes[symmetry.ordinal()] < hashes[best.ordinal()])
+      {
+        best = symmetry;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Returns the hash shared by the board and all its rotations and reflections
+   *
+   * @return the smallest hash of the orientations
+   */
+  public long getCanonicalHash()
+  {
+    return hashes[getCanonicalSymmetry().ordinal()];
+  }
+
+  /**
+   * Returns a move on the board moved to the canonical orientation
+   *
+   * @param move the move, packed by {@link Moves}
+   * @return the move in the canonical orientation
+   */
+  public int toCanonical(int move)
+  {
+    return getCanonicalSymmetry().apply(move, width, height);
+  }
+
+  /**
+   * Returns a move in the canonical orientation moved back to the board, for
+   * example a move found in an opening book
+   *
+   * @param move the move in the canonical orientation, packed by {@link Moves}
+   * @return the move on the board
+   */
+  public int fromCanonical(int move)
+  {
+    return getCanonicalSymmetry().inverse().apply(move, width, height);
+  }
+
+  public int getWidth()
+  {
+    return width;
+  }
+
+  public int getHeight()
+  {
+    return height;
+  }
+}
@@ -0,0 +1,150 @@
+package se.samuelandersson.gomoku;
+
+/**
+ * The eight symmetries of a square board, the rotations and the reflections.
+ * Only the ones that keep the width and the height, see
+ * {@link #isSquareOnly()}, apply to other boards.
+ *
+ * @author Samuel Andersson
+ */
+public enum Symmetry
+{
+  IDENTITY(false),
+  ROTATE_90(true),
+  ROTATE_180(false),
+  ROTATE_270(true),
+
+  /** Mirrored left to right */
+  FLIP_X(false),
+
+  /** Mirrored top to bottom */
+  FLIP_Y(false),
+
+  /** Mirrored along the diagonal through 0, 0 */
+  TRANSPOSE(true),
+
+  /** Mirrored along the other diagonal */
+  ANTI_TRANSPOSE(true);
+
+  private static final Symmetry[] ALL = values();
+
+  private static final Symmetry[] RECTANGULAR = { IDENTITY, ROTATE_180, FLIP_X, FLIP_Y };
+
+  private final boolean squareOnly;
+
+  private Symmetry(boolean squareOnly)
+  {
+    this.squareOnly = squareOnly;
+  }
+
+  /**
+   * Returns whether the symmetry swaps the x and y axes, and so only applies
+   * to square boards
+   *
+   * @return whether the symmetry only applies to square boards
+   */
+  public boolean isSquareOnly()
+  {
+    return squareOnly;
+  }
+
+  /**
+   * Returns the symmetries of a board of provided size
+   *
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return all eight symmetries if the board is square, otherwise the four
+   *         keeping the size. Must not be modified.
+   */
+  public static Symmetry[] getSymmetries(int width, int height)
+  {
+    return width == height ? ALL : RECTANGULAR;
+  }
+
+  /**
+   * Returns the symmetry undoing this one
+   *
+   * @return the inverse
+   */
+  public Symmetry inverse()
+  {
+    switch (this)
+    {
+      case ROTATE_90:
+        return ROTATE_270;
+      case ROTATE_270:
+        return ROTATE_90;
+      default:
+        return this;
+    }
+  }
+
+  /**
+   * Returns the x location a position is moved to
+   *
+   * @param x the x location
+   * @param y the y location
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return the new x location
+   */
+  public int getX(int x, int y, int width, int height)
+  {
+    switch (this)
+    {
+      case ROTATE_90:
+      case ANTI_TRANSPOSE:
+        return height - 1 - y;
+      case ROTATE_180:
+      case FLIP_X:
+        return width - 1 - x;
+      case ROTATE_270:
+      case TRANSPOSE:
+        return y;
+      default:
+        return x;
+    }
+  }
+
+  /**
+   * Returns the y location a position is moved to
+   *
+   * @param x the x location
+   * @param y the y location
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return the new y location
+   */
+  public int getY(int x, int y, int width, int height)
+  {
+    switch (this)
+    {
+      case ROTATE_90:
+      case TRANSPOSE:
+        return x;
+      case ROTATE_180:
+      case FLIP_Y:
+        return height - 1 - y;
+      case ROTATE_270:
+      case ANTI_TRANSPOSE:
+        return width - 1 - x;
+      default:
+        return y;
+    }
+  }
+
+  /**
+   * Returns a move moved by this symmetry
+   *
+   * @param move the move, packed by {@link Moves}
+   * @param width the width of the board
+   * @param height the height of the board
+   * @return the moved move, with the same color
+   */
+  public int apply(int move, int width, int height)
+  {
+    int x = Moves.getX(move);
+    int y = Moves.getY(move);
+    return Moves.pack(Moves.getColor(move), getX(x, y, width, height), getY(x, y, width, height));
+  }
+}
@@ -0,0 +1,132 @@
+package se.samuelandersson.gomoku;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A threat on the board, see {@link ThreatTracker}. A threat is a window of
+ * cells along a line, with the cells that complete it.
+ *
+ * @author Samuel Andersson
+ */
+public final class Threat
+{
+  private final ThreatType type;
+  private final Color color;
+
+  private final int x;
+  private final int y;
+  private final int dirX;
+  private final int dirY;
+  private final int length;
+
+  private final int[] completions;
+
+  public Threat(ThreatType type, Color color, int x, int y, int dirX, int dirY, int length, int[] completions)
+  {
+    this.type = type;
+    this.color = color;
+    this.x = x;
+    this.y = y;
+    this.dirX = dirX;
+    this.dirY = dirY;
+    this.length = length;
+    this.completions = completions;
+  }
+
+  public ThreatType getType()
+  {
+    return type;
+  }
+
+  public Color getColor()
+  {
+    return color;
+  }
+
+  /**
+   * Returns the x location of the first cell of the window
+   *
+   * @return the x location
+   */
+  public int getX()
+  {
+    return x;
+  }
+
+  /**
+   * Returns the y location of the first cell of the window
+   *
+   * @return the y location
+   */
+  public int getY()
+  {
+    return y;
+  }
+
+  public int getDirX()
+  {
+    return dirX;
+  }
+
+  public int getDirY()
+  {
+    return dirY;
+  }
+
+  /**
+   * Returns the number of cells in the window
+   *
+   * @return the number of cells
+   */
+  public int getLength()
+  {
+    return length;
+  }
+
+  /**
+   * Returns the cells that complete the threat, packed by {@link Moves} with
+   * the color of the threat. A four is completed by the move making five, a
+   * straight four by either of its ends and a three by the move making a
+   * straight four. A five has no completions.
+   *
+   * @return the cells completing the threat
+   */
+  public int[] getCompletions()
+  {
+    return completions.clone();
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (!(obj instanceof Threat))
+    {
+      return false;
+    }
+
+    Threat other = (Threat) obj;
+    return type == other.type && color == other.color && x == other.x && y == other.y && dirX == other.dirX &&
+           dirY == other.dirY && length == other.length;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(type, color, x, y, dirX, dirY, length);
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("Threat<%s,%s,%s,%s,(%s,%s)x%s,%s>",
+                         type,
+                         color,
+                         x,
+                         y,
+                         dirX,
+                         dirY,
+                         length,
+                         Arrays.toString(completions));
+  }
+}
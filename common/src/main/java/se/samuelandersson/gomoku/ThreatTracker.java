@@ -0,0 +1,406 @@
+package se.samuelandersson.gomoku;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The threats of both colors on a board: fives, straight fours, fours, open
+ * threes and broken threes, see {@link ThreatType}. Kept up to date by the
+ * board as pieces are placed and removed, see
+ * {@link GomokuBoard#getThreats()}.
+ * <p>
+ * A threat is a window of cells along a line. Windows of victory length hold
+ * the fives and the fours, windows one cell longer hold the straight fours and
+ * the threes, which need an empty cell on both ends. A window is a threat of a
+ * color when it has no pieces of the other color and no cells outside the
+ * board, so a row can show up in several windows, like a straight four also
+ * being two fours. When rows longer than the victory length do not count, a
+ * window next to a piece of its own color is not a threat.
+ * <p>
+ * Every window is classified by itself, so a change of a cell only affects the
+ * windows containing it or next to it. The changes are collected by {@link #cellChanged(int)}
+ * and those windows are classified again on the next query. The threats are
+ * kept in a dense list for iterating, together with the index of each window
+ * in the list so it can be removed in constant time.
+ *
+ * @author Samuel Andersson
+ */
+public final class ThreatTracker
+{
+  private static final ThreatType[] TYPES = ThreatType.values();
+
+  private final GomokuBoard board;
+  private final Grid grid;
+  private final int victoryLength;
+  private final boolean exactFive;
+
+  /**
+   * The threat of each window, the ordinal of the type plus one in the low
+   * bits and the color id above them, or 0. Indexed by
+   * {@link #getWindow(int, int, int)}.
+   */
+  private final byte[] windows;
+
+  /** The windows with threats, the first size of them are used */
+  private int[] threats = new int[64];
+
+  /** The index in threats of each window, or -1 */
+  private final int[] positions;
+
+  private int size;
+
+  /** The number of threats per color id - 1 and type */
+  private final int[][] counts = new int[2][TYPES.length];
+
+  /** The cells changed since the last update, as grid indices */
+  private int[] changed = new int[16];
+  private int changedCount;
+
+  /**
+   * Create a tracker without threats, call {@link #rebuild()} to find them
+   *
+   * @param board the board, read through its cell methods
+   * @param victoryLength the number of pieces in a row needed to win
+   * @param exactFive whether a longer row than victory length should not count as five
+   */
+  public ThreatTracker(GomokuBoard board, int victoryLength, boolean exactFive)
+  {
+    if (victoryLength < 2)
+    {
+      throw new IllegalArgumentException("No threats for victory length " + victoryLength);
+    }
+
+    this.board = board;
+    this.grid = board.getGrid();
+    this.victoryLength = victoryLength;
+    this.exactFive = exactFive;
+
+    int windowCount = 2 * Grid.DIRECTIONS * grid.getSize();
+    windows = new byte[windowCount];
+    positions = new int[windowCount];
+    Arrays.fill(positions, -1);
+  }
+
+  /**
+   * Classify every window of the board
+   */
+  public void rebuild()
+  {
+    changedCount = 0;
+    for (int y = 0; y < grid.getHeight(); y++)
+    {
+      for (int x = 0; x < grid.getWidth(); x++)
+      {
+        int start = grid.index(x, y);
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+        {
+          classify(start, dir, 0);
+          classify(start, dir, 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record a change of a cell, the windows containing it are classified again
+   * by the next {@link #update()}
+   *
+   * @param index the grid index of the cell
+   */
+  public void cellChanged(int index)
+  {
+    if (changedCount == changed.length)
+    {
+      changed = Arrays.copyOf(changed, changed.length * 2);
+    }
+
+    changed[changedCount++] = index;
+  }
+
+  /**
+   * Returns whether there are changes {@link #update()} has not
+   * classified yet
+   *
+   * @return whether there are changes
+   */
+  public boolean hasChanges()
+  {
+    return changedCount > 0;
+  }
+
+  /**
+   * Classify the windows containing the cells changed since the last update
+   */
+  public void update()
+  {
+    for (int i = 0; i < changedCount; i++)
+    {
+      int index = changed[i];
+      for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+      {
+        int step = grid.getOffset(dir);
+        for (int extra = 0; extra < 2; extra++)
+        {
+          // the cells next to a window count as well when overlines do not
+          for (int offset = -1; offset <= victoryLength + extra; offset++)
+          {
+            classify(index - offset * step, dir, extra);
+          }
+        }
+      }
+    }
+
+    changedCount = 0;
+  }
+
+  /**
+   * Returns the index of a window
+   *
+   * @param start the grid index of the first cell
+   * @param dir the direction, see {@link Grid#getOffset(int)}
+   * @param extra 0 for windows of victory length, 1 for the longer ones
+   */
+  private int getWindow(int start, int dir, int extra)
+  {
+    return (extra * Grid.DIRECTIONS + dir) * grid.getSize() + start;
+  }
+
+  /**
+   * Classify a window and update the threats with the result
+   */
+  private void classify(int start, int dir, int extra)
+  {
+    if (!grid.isOnBoard(start))
+    {
+      return;
+    }
+
+    int window = getWindow(start, dir, extra);
+    int value = evaluate(start, grid.getOffset(dir), victoryLength + extra);
+    if (windows[window] == value)
+    {
+      return;
+    }
+
+    if (windows[window] != 0)
+    {
+      counts[getColorId(windows[window]) - 1][getTypeOrdinal(windows[window])]--;
+      remove(window);
+    }
+
+    windows[window] = (byte) value;
+    if (value != 0)
+    {
+      counts[getColorId(value) - 1][getTypeOrdinal(value)]++;
+      add(window);
+    }
+  }
+
+  /**
+   * Returns the threat of a window, as stored in {@link #windows}
+   */
+  private int evaluate(int start, int step, int length)
+  {
+    int black = 0;
+    int white = 0;
+    int gaps = 0;
+    int gap = -1;
+    for (int i = 0; i < length; i++)
+    {
+      byte cell = board.getCell(start + i * step);
+      if (cell == Grid.BLACK)
+      {
+        black++;
+      }
+      else if (cell == Grid.WHITE)
+      {
+        white++;
+      }
+      else if (cell == Grid.WALL)
+      {
+        return 0;
+      }
+      else if (i > 0 && i < length - 1)
+      {
+        gaps++;
+        gap = i;
+      }
+    }
+
+    if ((black == 0) == (white == 0))
+    {
+      return 0;
+    }
+
+    int id = black > 0 ? Grid.BLACK : Grid.WHITE;
+    int own = black + white;
+    if (exactFive && (board.getCell(start - step) == id || board.getCell(start + length * step) == id))
+    {
+      return 0;
+    }
+
+    ThreatType type = null;
+    if (length == victoryLength)
+    {
+      if (own == victoryLength)
+      {
+        type = ThreatType.FIVE;
+      }
+      else if (own == victoryLength - 1)
+      {
+        type = ThreatType.FOUR;
+      }
+    }
+    else if (board.getCell(start) == Grid.EMPTY && board.getCell(start + (length - 1) * step) == Grid.EMPTY)
+    {
+      if (own == victoryLength - 1)
+      {
+        type = ThreatType.STRAIGHT_FOUR;
+      }
+      else if (own == victoryLength - 2 && gaps == 1)
+      {
+        type = gap == 1 || gap == length - 2 ? ThreatType.OPEN_THREE : ThreatType.BROKEN_THREE;
+      }
+    }
+
+    return type == null ? 0 : (id << 3) | (type.ordinal() + 1);
+  }
+
+  private static int getColorId(int value)
+  {
+    return value >>> 3;
+  }
+
+  private static int getTypeOrdinal(int value)
+  {
+    return (value & 7) - 1;
+  }
+
+  private void add(int window)
+  {
+    if (size == threats.length)
+    {
+      threats = Arrays.copyOf(threats, threats.length * 2);
+    }
+
+    positions[window] = size;
+    threats[size++] = window;
+  }
+
+  private void remove(int window)
+  {
+    int position = positions[window];
+    int last = threats[--size];
+    threats[position] = last;
+    positions[last] = position;
+    positions[window] = -1;
+  }
+
+  /**
+   * Returns the cell indices of the board when the tracker was created
+   *
+   * @return the grid
+   */
+  public Grid getGrid()
+  {
+    return grid;
+  }
+
+  public int getVictoryLength()
+  {
+    return victoryLength;
+  }
+
+  public boolean isExactFive()
+  {
+    return exactFive;
+  }
+
+  /**
+   * Returns the number of threats of a kind
+   *
+   * @param color the color of the threats
+   * @param type the type of the threats
+   * @return the number of threats
+   */
+  public int getCount(Color color, ThreatType type)
+  {
+    return color == Color.NONE ? 0 : counts[color.getId() - 1][type.ordinal()];
+  }
+
+  /**
+   * Returns the threats of a color
+   *
+   * @param color the color
+   * @return the threats, in no particular order
+   */
+  public List<Threat> getThreats(Color color)
+  {
+    List<Threat> result = new ArrayList<>();
+    for (int i = 0; i < size; i++)
+    {
+      if (getColorId(windows[threats[i]]) == color.getId())
+      {
+        result.add(createThreat(threats[i]));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the threats of a color and type
+   *
+   * @param color the color
+   * @param type the type
+   * @return the threats, in no particular order
+   */
+  public List<Threat> getThreats(Color color, ThreatType type)
+  {
+    List<Threat> result = new ArrayList<>();
+    for (int i = 0; i < size; i++)
+    {
+      int value = windows[threats[i]];
+      if (getColorId(value) == color.getId() && getTypeOrdinal(value) == type.ordinal())
+      {
+        result.add(createThreat(threats[i]));
+      }
+    }
+
+    return result;
+  }
+
+  private Threat createThreat(int window)
+  {
+    int start = window % grid.getSize();
+    int dir = (window / grid.getSize()) % Grid.DIRECTIONS;
+    int length = victoryLength + window / grid.getSize() / Grid.DIRECTIONS;
+    int step = grid.getOffset(dir);
+    int value = windows[window];
+    Color color = Color.valueOf(getColorId(value));
+    ThreatType type = TYPES[getTypeOrdinal(value)];
+
+    // a straight four is completed by its ends, everything else by its gap
+    int[] completions = new int[2];
+    int count = 0;
+    for (int i = 0; i < length; i++)
+    {
+      int index = start + i * step;
+      boolean end = i == 0 || i == length - 1;
+      if (board.getCell(index) == Grid.EMPTY && (type == ThreatType.STRAIGHT_FOUR || !end || length == victoryLength))
+      {
+        completions[count++] = Moves.pack(color, grid.getX(index), grid.getY(index));
+      }
+    }
+
+    return new Threat(type,
+                      color,
+                      grid.getX(start),
+                      grid.getY(start),
+                      grid.getX(start + step) - grid.getX(start),
+                      grid.getY(start + step) - grid.getY(start),
+                      length,
+                      Arrays.copyOf(completions, count));
+  }
+}
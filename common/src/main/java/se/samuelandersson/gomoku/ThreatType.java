@@ -0,0 +1,25 @@
+package se.samuelandersson.gomoku;
+
+/**
+ * The kinds of threats found by {@link ThreatTracker}, with five as the
+ * victory length
+ *
+ * @author Samuel Andersson
+ */
+public enum ThreatType
+{
+  /** A row of five, the game is won */
+  FIVE,
+
+  /** Four in a row with both ends open, .XXXX., a five can not be stopped */
+  STRAIGHT_FOUR,
+
+  /** One move makes a five, i.e. XXXX. or XX.XX */
+  FOUR,
+
+  /** One move makes a straight four out of an unbroken row, i.e. .XXX.. */
+  OPEN_THREE,
+
+  /** One move makes a straight four by filling a gap, i.e. .X.XX. */
+  BROKEN_THREE;
+}
@@ -0,0 +1,85 @@
+package se.samuelandersson.gomoku;
+
+/**
+ * Zobrist keys for the pieces of a board. The hash of a board is the xor of the
+ * keys of all its pieces, which makes it cheap to update one piece at a time.
+ * <p>
+ * The keys are derived from the color and position alone, so a board has the
+ * same hash on every client and server regardless of its size or
+ * implementation.
+ *
+ * @author Samuel Andersson
+ */
+public final class Zobrist
+{
+  /** Positions below this are looked up in a table instead of being computed */
+  private static final int TABLE_SIZE = 64;
+
+  private static final long[][] KEYS = new long[2][TABLE_SIZE * TABLE_SIZE];
+
+  static
+  {
+    for (int id = 1; id <= 2; id++)
+    {
+      for (int y = 0; y < TABLE_SIZE; y++)
+      {
+        for (int x = 0; x < TABLE_SIZE; x++)
+        {
+          KEYS[id - 1][x + TABLE_SIZE * y] = computeKey(id, x, y);
+        }
+      }
+    }
+  }
+
+  private Zobrist()
+  {
+  }
+
+  /**
+   * Returns the key of a piece
+   *
+   * @param color the color of the piece
+   * @param x the x location
+   * @param y the y location
+   * @return the key, 0 for {@link Color#NONE}
+   */
+  public static long getKey(Color color, int x, int y)
+  {
+    return getKey(color.getId(), x, y);
+  }
+
+  /**
+   * Returns the key of a piece
+   *
+   * @param id the color id of the piece, see {@link Color#getId()}
+   * @param x the x location
+   * @param y the y location
+   * @return the key, 0 for {@link Color#NONE}
+   */
+  public static long getKey(int id, int x, int y)
+  {
+    if (id == 0)
+    {
+      return 0;
+    }
+
+    if (x >= 0 && x < TABLE_SIZE && y >= 0 && y < TABLE_SIZE)
+    {
+      return KEYS[id - 1][x + TABLE_SIZE * y];
+    }
+
+    return computeKey(id, x, y);
+  }
+
+  /**
+   * SplitMix64 of the color and position
+   */
+  private static long computeKey(int id, int x, int y)
+  {
+    long z = ((long) id << 56) ^ ((long) (y & 0xFFFFFF) << 24) ^ (x & 0xFFFFFF);
+    z += 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
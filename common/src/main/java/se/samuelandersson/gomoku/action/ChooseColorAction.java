@@ -0,0 +1,79 @@
+package se.samuelandersson.gomoku.action;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.action.impl.AbstractGameAction;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.rules.OpeningRule;
+
+/**
+ * Action for choosing which color to play in the swap openings, see
+ * {@link OpeningRule#SWAP} and {@link OpeningRule#SWAP2}. A choice can not be
+ * undone once confirmed.
+ *
+ * @author Samuel Andersson
+ */
+public class ChooseColorAction extends AbstractGameAction
+{
+  /** The color chosen, or {@link Color#NONE} to place two more stones */
+  private Color choice;
+
+  /**
+   * For kryonet
+   */
+  protected ChooseColorAction()
+  {
+  }
+
+  /**
+   * Create a new choice
+   *
+   * @param color the color of the player choosing
+   * @param choice the color to play, or {@link Color#NONE} to place two more
+   *          stones and let the opponent choose
+   */
+  public ChooseColorAction(Color color, Color choice)
+  {
+    super(color);
+    this.choice = choice;
+  }
+
+  @Override
+  public void doAction(GomokuGame game) throws IllegalActionException
+  {
+    if (game.getChoosingColor() == Color.NONE || game.getChoosingColor() != color)
+    {
+      throw new IllegalActionException("There is no color to choose!");
+    }
+
+    OpeningRule opening = game.getConfig().getOpeningRule();
+    if (choice == Color.NONE && !opening.canExtend(game.getMoveCount(), game.isOpeningExtended()))
+    {
+      throw new IllegalActionException("Unable to place more stones, a color has to be chosen!");
+    }
+  }
+
+  @Override
+  public void confirmAction(GomokuGame game)
+  {
+    game.chooseColor(this.color, this.choice);
+
+    confirmed = true;
+  }
+
+  @Override
+  public void undoAction(GomokuGame game)
+  {
+  }
+
+  public Color getChoice()
+  {
+    return this.choice;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("ChooseColor<%s,%s>", this.color, this.choice);
+  }
+}
@@ -2,6 +2,7 @@ package se.samuelandersson.gomoku.action;
 
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Moves;
 import se.samuelandersson.gomoku.action.impl.AbstractBoardAction;
 import se.samuelandersson.gomoku.exception.IllegalActionException;
 
@@ -27,38 +28,14 @@ public class PlacePieceAction extends AbstractBoardAction
   @Override
   public void doAction(GomokuGame game) throws IllegalActionException
   {
-    if (game.getBoard().getPiece(x, y) != Color.NONE)
-    {
-      throw new IllegalActionException("That position is already occupied!");
-    }
-
-    if (game.getConfig().useThreeAndThree())
-    {
-      if (!game.getBoard().try3And3(color, x, y))
-      {
-        throw new IllegalActionException("Unable to place because of Three And Three-rule.");
-      }
-    }
-
-    if (game.getConfig().useFourAndFour())
-    {
-      if (!game.getBoard().try4And4(color, x, y))
-      {
-        throw new IllegalActionException("Unable to place because of Four And Four-rule.");
-      }
-    }
-
+    game.validateMove(color, x, y);
     game.getBoard().setPiece(x, y, color);
   }
 
   @Override
   public void confirmAction(GomokuGame game)
   {
-    game.checkBoard(this.x, this.y);
-    if (!game.isGameOver())
-    {
-      game.switchTurn();
-    }
+    game.confirmMove(this.color, this.x, this.y);
 
     confirmed = true;
   }
@@ -66,6 +43,17 @@ public class PlacePieceAction extends AbstractBoardAction
   @Override
   public void undoAction(GomokuGame game)
   {
+    if (confirmed)
+    {
+      int last = game.getMoveCount() - 1;
+      if (last >= 0 && game.getMove(last) == Moves.pack(color, x, y))
+      {
+        game.undo();
+        confirmed = false;
+        return;
+      }
+    }
+
     game.getBoard().setPiece(x, y, Color.NONE);
   }
 
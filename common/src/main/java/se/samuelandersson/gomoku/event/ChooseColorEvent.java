@@ -0,0 +1,52 @@
+package se.samuelandersson.gomoku.event;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuGame;
+
+/**
+ * Fired when a player has chosen which color to play. If the other color was
+ * chosen the players have swapped colors, which is done by swapping their
+ * names.
+ */
+public class ChooseColorEvent extends AbstractGameEvent
+{
+  private Color color;
+  private Color choice;
+
+  public ChooseColorEvent(final GomokuGame game, Color color, Color choice)
+  {
+    super(game);
+    this.color = color;
+    this.choice = choice;
+  }
+
+  /**
+   * Returns the color of the player that chose
+   *
+   * @return the color of the player that chose
+   */
+  public Color getColor()
+  {
+    return this.color;
+  }
+
+  /**
+   * Returns the color chosen
+   *
+   * @return the color chosen, or {@link Color#NONE} if two more stones will be placed
+   */
+  public Color getChoice()
+  {
+    return this.choice;
+  }
+
+  /**
+   * Returns whether the players swapped colors
+   *
+   * @return whether the players swapped colors
+   */
+  public boolean isSwapped()
+  {
+    return this.choice != Color.NONE && this.choice != this.color;
+  }
+}
@@ -0,0 +1,706 @@
+package se.samuelandersson.gomoku.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.Frontier;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuBoardListener;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.LiveWindows;
+import se.samuelandersson.gomoku.SymmetricHashes;
+import se.samuelandersson.gomoku.ThreatTracker;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.Zobrist;
+import se.samuelandersson.gomoku.rules.LinePatterns;
+
+/**
+ * Base class for {@link GomokuBoard} implementations. Keeps track of the board
+ * dimensions and the registered listeners, leaving the storage of the pieces to
+ * the subclasses. The 3&3 and 4&4 rule checks are looked up in the
+ * {@link LinePatterns} tables from the lines encoded by
+ * {@link #encodeLine(Color, int, int, int, LinePatterns)}.
+ * <p>
+ * Subclasses report every change through
+ * {@link #pieceChanged(int, int, int, int)} or {@link #boardReplaced(long)},
+ * which keeps the hash, the version and the rows to repack in the next
+ * {@link #snapshot()} up to date.
+ *
+ * @author Samuel Andersson
+ */
+public abstract class AbstractBoard implements GomokuBoard
+{
+  /** Horizontal, vertical and the two diagonal directions */
+  protected static final int[] DIR_X = { 1, 0, 1, 1 };
+  protected static final int[] DIR_Y = { 0, 1, 1, -1 };
+
+  protected int width;
+  protected int height;
+
+  /** The Zobrist hash of the pieces on the board */
+  private long hash;
+
+  /** Incremented on every change of the pieces */
+  private transient long version;
+
+  /** The most recent snapshot, its unchanged rows are shared with the next */
+  private transient BoardSnapshot snapshot;
+
+  /** One bit per row changed since the last snapshot, null if all have */
+  private transient long[] dirtyRows;
+
+  /** The candidate moves, created on first use */
+  private transient Frontier frontier;
+
+  /** Whether the frontier matches the pieces, if not it is rebuilt on use */
+  private transient boolean frontierValid;
+
+  /** The number of pieces, or -1 if it has to be counted */
+  private transient int pieceCount = -1;
+
+  /** The threats, created on first use */
+  private transient ThreatTracker threats;
+
+  /** Whether the threats are kept up to date with the pieces */
+  private transient boolean threatsValid;
+
+  /** The live windows, created on first use */
+  private transient LiveWindows liveWindows;
+
+  /** Whether the live windows are kept up to date with the pieces */
+  private transient boolean liveWindowsValid;
+
+  /** The hashes of the orientations, created on first use */
+  private transient SymmetricHashes symmetricHashes;
+
+  /** Whether the hashes of the orientations are kept up to date with the pieces */
+  private transient boolean symmetricHashesValid;
+
+  /** The cell indices, replaced when the size changes */
+  private transient Grid grid;
+
+  private transient final List<GomokuBoardListener> listeners = new ArrayList<>();
+
+  private transient final List<IntConsumer> cellListeners = new ArrayList<>();
+
+  /** Empty constructor for Kryonet */
+  protected AbstractBoard()
+  {
+  }
+
+  public AbstractBoard(final int width, final int height)
+  {
+    this.width = width;
+    this.height = height;
+  }
+
+  @Override
+  public void addListener(GomokuBoardListener listener)
+  {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(GomokuBoardListener listener)
+  {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public void addCellListener(IntConsumer listener)
+  {
+    cellListeners.add(listener);
+  }
+
+  @Override
+  public void removeCellListener(IntConsumer listener)
+  {
+    cellListeners.remove(listener);
+  }
+
+  public void fireListeners(Color color, int x, int y)
+  {
+    for (GomokuBoardListener listener : listeners)
+    {
+      listener.onChange(color, x, y);
+    }
+
+    if (!cellListeners.isEmpty())
+    {
+      int index = getGrid().index(x, y);
+      for (IntConsumer listener : cellListeners)
+      {
+        listener.accept(index);
+      }
+    }
+  }
+
+  public void fireListeners(int[] moves, int offset, int length)
+  {
+    for (GomokuBoardListener listener : listeners)
+    {
+      listener.onChanges(moves, offset, length);
+    }
+
+    for (IntConsumer listener : cellListeners)
+    {
+      for (int i = offset; i < offset + length; i++)
+      {
+        listener.accept(getGrid().index(Moves.getX(moves[i]), Moves.getY(moves[i])));
+      }
+    }
+  }
+
+  @Override
+  public void setPiece(int x, int y, Color color)
+  {
+    checkBounds(x, y);
+    storePiece(x, y, color);
+
+    this.fireListeners(color, x, y);
+  }
+
+  @Override
+  public void setCell(int index, byte value)
+  {
+    Grid grid = getGrid();
+    if (!grid.isOnBoard(index))
+    {
+      throw new IllegalArgumentException("Cell out of bounds: " + index);
+    }
+
+    storeCell(index, value);
+
+    if (!listeners.isEmpty() || !cellListeners.isEmpty())
+    {
+      this.fireListeners(Color.valueOf(value), grid.getX(index), grid.getY(index));
+    }
+  }
+
+  /**
+   * Store the value of a cell without notifying the listeners. Subclasses
+   * storing their pieces by index should override this.
+   *
+   * @param index the index of a cell on the board
+   * @param value the id of the color to store
+   */
+  protected void storeCell(int index, byte value)
+  {
+    Grid grid = getGrid();
+    storePiece(grid.getX(index), grid.getY(index), Color.valueOf(value));
+  }
+
+  @Override
+  public Grid getGrid()
+  {
+    if (grid == null || grid.getWidth() != this.width || grid.getHeight() != this.height)
+    {
+      grid = new Grid(this.width, this.height);
+    }
+
+    return grid;
+  }
+
+  /**
+   * Returns the value of a cell by looking up its piece. Subclasses storing
+   * their pieces by index should override this.
+   */
+  @Override
+  public byte getCell(int index)
+  {
+    Grid grid = getGrid();
+    if (!grid.isOnBoard(index))
+    {
+      return Grid.WALL;
+    }
+
+    return (byte) getPiece(grid.getX(index), grid.getY(index)).getId();
+  }
+
+  @Override
+  public int count(byte value, int index, int dir)
+  {
+    Grid grid = getGrid();
+    return count(Color.valueOf(value), grid.getX(index), grid.getY(index), DIR_X[dir], DIR_Y[dir]);
+  }
+
+  @Override
+  public void setPieces(int[] moves, int offset, int length)
+  {
+    for (int i = offset; i < offset + length; i++)
+    {
+      checkBounds(Moves.getX(moves[i]), Moves.getY(moves[i]));
+    }
+
+    for (int i = offset; i < offset + length; i++)
+    {
+      storePiece(Moves.getX(moves[i]), Moves.getY(moves[i]), Moves.getColor(moves[i]));
+    }
+
+    this.fireListeners(moves, offset, length);
+  }
+
+  private void checkBounds(int x, int y)
+  {
+    if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+    {
+      throw new IllegalArgumentException("Position out of bounds. X: " + x + ", Y: " + y);
+    }
+  }
+
+  /**
+   * Store a piece without notifying the listeners. The position has already
+   * been checked to be on the board.
+   *
+   * @param x the x location
+   * @param y the y location
+   * @param color the color to store
+   */
+  protected abstract void storePiece(int x, int y, Color color);
+
+  @Override
+  public void setPackedData(long[] data)
+  {
+    int[] unpacked = new int[this.width * this.height];
+    for (int cell = 0; cell < unpacked.length; cell++)
+    {
+      unpacked[cell] = PackedBoardImpl.getPacked(data, cell);
+    }
+
+    setBoardData(unpacked);
+  }
+
+  @Override
+  public long[] getPackedData()
+  {
+    long[] data = new long[PackedBoardImpl.getPackedLength(this.width * this.height)];
+    for (int y = 0; y < this.height; y++)
+    {
+      for (int x = 0; x < this.width; x++)
+      {
+        PackedBoardImpl.setPacked(data, x + this.width * y, getPiece(x, y).getId());
+      }
+    }
+
+    return data;
+  }
+
+  @Override
+  public long getHash()
+  {
+    return this.hash;
+  }
+
+  @Override
+  public long getVersion()
+  {
+    return this.version;
+  }
+
+  /**
+   * Must be called by subclasses when x, y changes from one color to another.
+   * Updates the hash and the version.
+   *
+   * @param x the x location
+   * @param y the y location
+   * @param oldId the id of the previous color
+   * @param newId the id of the new color
+   */
+  protected void pieceChanged(int x, int y, int oldId, int newId)
+  {
+    this.hash ^= Zobrist.getKey(oldId, x, y) ^ Zobrist.getKey(newId, x, y);
+    this.version++;
+    if (dirtyRows != null)
+    {
+      dirtyRows[y >>> 6] |= 1L << y;
+    }
+
+    if (pieceCount >= 0)
+    {
+      if (oldId == Color.NONE.getId())
+      {
+        pieceCount++;
+      }
+      else if (newId == Color.NONE.getId())
+      {
+        pieceCount--;
+      }
+    }
+
+    if (symmetricHashesValid)
+    {
+      symmetricHashes.pieceChanged(x, y, oldId, newId);
+    }
+
+    if (threatsValid)
+    {
+      threats.cellChanged(getGrid().index(x, y));
+    }
+
+    if (liveWindowsValid)
+    {
+      liveWindows.pieceChanged(x, y, oldId, newId);
+    }
+
+    if (frontierValid)
+    {
+      if (oldId == Color.NONE.getId())
+      {
+        frontier.piecePlaced(x, y);
+      }
+      else if (newId == Color.NONE.getId())
+      {
+        frontier.pieceRemoved(x, y);
+      }
+    }
+  }
+
+  /**
+   * Must be called by subclasses when all of the board has been replaced, for
+   * example on a reset or a change of size.
+   *
+   * @param hash the hash of the new pieces
+   */
+  protected void boardReplaced(long hash)
+  {
+    this.hash = hash;
+    this.version++;
+    this.dirtyRows = null;
+    this.frontierValid = false;
+    this.threatsValid = false;
+    this.liveWindowsValid = false;
+    this.symmetricHashesValid = false;
+    this.pieceCount = -1;
+  }
+
+  @Override
+  public int getPieceCount()
+  {
+    if (pieceCount < 0)
+    {
+      pieceCount = countPieces();
+    }
+
+    return pieceCount;
+  }
+
+  /**
+   * Count the pieces on the board. Subclasses that can count faster than
+   * looking at every cell should override this.
+   *
+   * @return the number of pieces
+   */
+  protected int countPieces()
+  {
+    int count = 0;
+    for (int y = 0; y < this.height; y++)
+    {
+      for (int x = 0; x < this.width; x++)
+      {
+        if (getPiece(x, y) != Color.NONE)
+        {
+          count++;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns the candidate moves. The frontier is created with a radius of
+   * {@value Frontier#DEFAULT_RADIUS} the first time this is called, and after
+   * that kept up to date with every change. It is rebuilt by scanning the board
+   * when the whole board has been replaced.
+   */
+  @Override
+  public Frontier getFrontier()
+  {
+    if (frontier == null)
+    {
+      frontier = new Frontier(this.width, this.height, Frontier.DEFAULT_RADIUS);
+    }
+
+    if (!frontierValid)
+    {
+      frontier.reset(this.width, this.height);
+      for (int y = 0; y < this.height; y++)
+      {
+        for (int x = 0; x < this.width; x++)
+        {
+          if (getPiece(x, y) != Color.NONE)
+          {
+            frontier.piecePlaced(x, y);
+          }
+        }
+      }
+
+      frontierValid = true;
+    }
+
+    return frontier;
+  }
+
+  @Override
+  public SymmetricHashes getSymmetricHashes()
+  {
+    if (!symmetricHashesValid)
+    {
+      if (symmetricHashes == null || symmetricHashes.getWidth() != this.width ||
+          symmetricHashes.getHeight() != this.height)
+      {
+        symmetricHashes = new SymmetricHashes(this.width, this.height);
+      }
+
+      symmetricHashes.setFrom(this);
+      symmetricHashesValid = true;
+    }
+
+    return symmetricHashes;
+  }
+
+  @Override
+  public ThreatTracker getThreats()
+  {
+    return getThreats(getPatterns());
+  }
+
+  @Override
+  public ThreatTracker getThreats(LinePatterns patterns)
+  {
+    return getThreats(patterns.getLength(), patterns.isExactFive());
+  }
+
+  /**
+   * Returns the threats. The changes made since the last call are classified
+   * first, or all of the board when it has been replaced or the rules differ
+   * from the last call.
+   */
+  @Override
+  public ThreatTracker getThreats(int victoryLength, boolean exactFive)
+  {
+    if (threats == null || threats.getVictoryLength() != victoryLength || threats.isExactFive() != exactFive ||
+        threats.getGrid() != getGrid())
+    {
+      threats = new ThreatTracker(this, victoryLength, exactFive);
+      threatsValid = false;
+    }
+
+    if (!threatsValid)
+    {
+      threats.rebuild();
+      threatsValid = true;
+    }
+    else if (threats.hasChanges())
+    {
+      threats.update();
+    }
+
+    return threats;
+  }
+
+  @Override
+  public LiveWindows getLiveWindows(int victoryLength)
+  {
+    if (liveWindows == null || liveWindows.getVictoryLength() != victoryLength ||
+        liveWindows.getWidth() != this.width || liveWindows.getHeight() != this.height)
+    {
+      liveWindows = new LiveWindows(this, victoryLength);
+      liveWindowsValid = false;
+    }
+
+    if (!liveWindowsValid)
+    {
+      liveWindows.rebuild();
+      liveWindowsValid = true;
+    }
+
+    return liveWindows;
+  }
+
+  /**
+   * Returns a snapshot of the board. Only the rows that changed since the
+   * previous snapshot are packed again, the rest are shared with it. Calling
+   * this again without changing the board returns the same snapshot.
+   */
+  @Override
+  public BoardSnapshot snapshot()
+  {
+    if (snapshot != null && snapshot.getVersion() == version)
+    {
+      return snapshot;
+    }
+
+    long[][] rows = dirtyRows == null ? null : BoardSnapshot.shareRows(snapshot, this.width, this.height);
+    if (rows == null)
+    {
+      rows = new long[this.height][];
+    }
+
+    for (int y = 0; y < this.height; y++)
+    {
+      if (rows[y] == null || (dirtyRows[y >>> 6] & (1L << y)) != 0)
+      {
+        rows[y] = packRow(y);
+      }
+    }
+
+    snapshot = new BoardSnapshot(this.width, this.height, version, hash, rows);
+    dirtyRows = new long[(this.height + 63) >>> 6];
+
+    return snapshot;
+  }
+
+  /**
+   * Returns a row of the board packed two bits per cell, see
+   * {@link BoardSnapshot}
+   *
+   * @param y the row
+   * @return the packed row
+   */
+  protected long[] packRow(int y)
+  {
+    long[] row = new long[BoardSnapshot.getRowLength(this.width)];
+    for (int x = 0; x < this.width; x++)
+    {
+      PackedBoardImpl.setPacked(row, x, getPiece(x, y).getId());
+    }
+
+    return row;
+  }
+
+  /**
+   * Returns the tables used by the rule checks
+   *
+   * @return the tables used by the rule checks
+   */
+  protected LinePatterns getPatterns()
+  {
+    return LinePatterns.STANDARD;
+  }
+
+  /**
+   * Returns false if placing a piece on x, y creates two or more open threes.
+   * A move making five is always allowed.
+   */
+  @Override
+  public boolean try3And3(Color color, int x, int y)
+  {
+    return try3And3(color, x, y, getPatterns());
+  }
+
+  @Override
+  public boolean try3And3(Color color, int x, int y, LinePatterns patterns)
+  {
+    int threes = 0;
+    for (int dir = 0; dir < DIR_X.length; dir++)
+    {
+      int flags = patterns.getFlags(encodeLine(color, x, y, dir, patterns));
+      if ((flags & LinePatterns.FIVE) != 0)
+      {
+        return true;
+      }
+
+      if ((flags & LinePatterns.OPEN_THREE) != 0)
+      {
+        threes++;
+      }
+    }
+
+    return threes < 2;
+  }
+
+  /**
+   * Returns false if placing a piece on x, y creates two or more fours, open
+   * or not. A move making five is always allowed.
+   */
+  @Override
+  public boolean try4And4(Color color, int x, int y)
+  {
+    return try4And4(color, x, y, getPatterns());
+  }
+
+  @Override
+  public boolean try4And4(Color color, int x, int y, LinePatterns patterns)
+  {
+    int fours = 0;
+    for (int dir = 0; dir < DIR_X.length; dir++)
+    {
+      int index = encodeLine(color, x, y, dir, patterns);
+      if ((patterns.getFlags(index) & LinePatterns.FIVE) != 0)
+      {
+        return true;
+      }
+
+      fours += patterns.getFourCount(index);
+    }
+
+    return fours < 2;
+  }
+
+  /**
+   * Returns the window index of the line through x, y in provided direction,
+   * as seen by provided color. Subclasses should override this with a version
+   * reading their storage directly.
+   *
+   * @param color the color placing on x, y
+   * @param x the x location
+   * @param y the y location
+   * @param dir the direction index, see {@link #DIR_X} and {@link #DIR_Y}
+   * @param patterns the tables the index is for
+   * @return the window index
+   */
+  protected int encodeLine(Color color, int x, int y, int dir, LinePatterns patterns)
+  {
+    int index = 0;
+    for (int digit = patterns.getDigits() - 1; digit >= 0; digit--)
+    {
+      int offset = patterns.getOffset(digit);
+      int xpos = x + offset * DIR_X[dir];
+      int ypos = y + offset * DIR_Y[dir];
+
+      int value = LinePatterns.BLOCKED;
+      if (xpos >= 0 && xpos < this.width && ypos >= 0 && ypos < this.height)
+      {
+        Color piece = getPiece(xpos, ypos);
+        if (piece == color)
+        {
+          value = LinePatterns.OWN;
+        }
+        else if (piece == Color.NONE)
+        {
+          value = LinePatterns.EMPTY;
+        }
+      }
+
+      index = index * 3 + value;
+    }
+
+    return index;
+  }
+
+  /**
+   * Returns the current width of the board
+   *
+   * @return the current width of the board
+   */
+  @Override
+  public int getWidth()
+  {
+    return this.width;
+  }
+
+  /**
+   * Returns the current height of the board
+   *
+   * @return the current height of the board
+   */
+  @Override
+  public int getHeight()
+  {
+    return this.height;
+  }
+}
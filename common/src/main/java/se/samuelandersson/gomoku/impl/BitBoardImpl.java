@@ -0,0 +1,333 @@
+package se.samuelandersson.gomoku.impl;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.rules.LinePatterns;
+
+/**
+ * A board keeping one bitset per color and line. Every line of the board
+ * (rows, columns and both diagonals) is stored as a single long where bit
+ * <i>n</i> is set if the <i>n</i>th cell of the line is occupied by that color.
+ * Rows and diagonals are indexed by x, columns by y.
+ * <p>
+ * Counting the length of a row is done with a couple of shifts and a
+ * {@link Long#numberOfTrailingZeros(long)} instead of visiting each cell, which
+ * makes {@link #count(Color, int, int, int, int)} constant time. The windows
+ * used by the 3&3 and 4&4 checks are cut out of the line the same way. Since
+ * each line must fit in a long, neither side of the board may be larger than
+ * {@value #MAX_SIZE}.
+ *
+ * @author Samuel Andersson
+ */
+public class BitBoardImpl extends AbstractBoard
+{
+  /** The largest width or height supported */
+  public static final int MAX_SIZE = Long.SIZE;
+
+  /** The line types, in the same order as the directions of {@link AbstractBoard} */
+  private static final int HORIZONTAL = 0;
+  private static final int VERTICAL = 1;
+  private static final int DIAGONAL = 2;
+  private static final int ANTI_DIAGONAL = 3;
+
+  private static final int LINE_TYPES = 4;
+
+  /** The line bitsets, indexed by color (black, white), line type and line */
+  private long[][][] lines;
+
+  public BitBoardImpl(final int width, final int height)
+  {
+    super(width, height);
+
+    if (width < 1 || width > MAX_SIZE || height < 1 || height > MAX_SIZE)
+    {
+      throw new IllegalArgumentException("Board size not supported: " + width + "x" + height);
+    }
+
+    reset();
+  }
+
+  /**
+   * Reset the board, making it all empty spaces.
+   */
+  @Override
+  public void reset()
+  {
+    lines = new long[2][LINE_TYPES][];
+    for (int c = 0; c < 2; c++)
+    {
+      for (int type = 0; type < LINE_TYPES; type++)
+      {
+        lines[c][type] = new long[getLineCount(type)];
+      }
+    }
+
+    boardReplaced(0);
+  }
+
+  /**
+   * Replace the current board with a new board
+   *
+   * @param board
+   *          The source board which will replace the current board
+   */
+  @Override
+  public void setFrom(GomokuBoard board)
+  {
+    this.width = board.getWidth();
+    this.height = board.getHeight();
+
+    if (board instanceof BitBoardImpl)
+    {
+      long[][][] other = ((BitBoardImpl) board).lines;
+      lines = new long[2][LINE_TYPES][];
+      for (int c = 0; c < 2; c++)
+      {
+        for (int type = 0; type < LINE_TYPES; type++)
+        {
+          lines[c][type] = other[c][type].clone();
+        }
+      }
+
+      boardReplaced(board.getHash());
+    }
+    else
+    {
+      setBoardData(board.getBoardData());
+    }
+  }
+
+  @Override
+  public void setBoardData(int[] data)
+  {
+    reset();
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+      {
+        int id = data[x + width * y];
+        if (id != Color.NONE.getId())
+        {
+          storePiece(x, y, Color.valueOf(id));
+        }
+      }
+    }
+  }
+
+  @Override
+  public int[] getBoardData()
+  {
+    int[] data = new int[width * height];
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+      {
+        data[x + width * y] = getPiece(x, y).getId();
+      }
+    }
+
+    return data;
+  }
+
+  @Override
+  public Color getPiece(int x, int y)
+  {
+    if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+    {
+      return Color.NONE;
+    }
+
+    long bit = 1L << x;
+    if ((lines[0][HORIZONTAL][y] & bit) != 0)
+    {
+      return Color.BLACK;
+    }
+    if ((lines[1][HORIZONTAL][y] & bit) != 0)
+    {
+      return Color.WHITE;
+    }
+
+    return Color.NONE;
+  }
+
+  @Override
+  protected void storePiece(int x, int y, Color color)
+  {
+    int old = getPiece(x, y).getId();
+    if (old == color.getId())
+    {
+      return;
+    }
+
+    pieceChanged(x, y, old, color.getId());
+
+    for (int type = 0; type < LINE_TYPES; type++)
+    {
+      int line = getLine(type, x, y);
+      long bit = 1L << getPosition(type, x, y);
+
+      lines[0][type][line] &= ~bit;
+      lines[1][type][line] &= ~bit;
+      if (color != Color.NONE)
+      {
+        lines[color.getId() - 1][type][line] |= bit;
+      }
+    }
+  }
+
+  @Override
+  public int count(Color color, int x, int y, int dirX, int dirY)
+  {
+    int type = getLineType(dirX, dirY);
+    int line = getLine(type, x, y);
+
+    return runLength(getLineBits(color, type, line), getPosition(type, x, y));
+  }
+
+  @Override
+  protected int encodeLine(Color color, int x, int y, int dir, LinePatterns patterns)
+  {
+    // the line types are in the same order as the directions
+    int line = getLine(dir, x, y);
+    int pos = getPosition(dir, x, y);
+    int radius = patterns.getRadius();
+
+    long own = getWindow(getLineBits(color, dir, line), pos, radius);
+    long empty = getWindow(getLineBits(Color.NONE, dir, line), pos, radius);
+    long blocked = ~(own | empty) & ((1L << (2 * radius + 1)) - 1);
+
+    return patterns.getIndex(removeCenter(own, radius), removeCenter(blocked, radius));
+  }
+
+  /**
+   * Returns the bits of the line from pos - radius to pos + radius, shifted to
+   * start at bit 0
+   */
+  private static long getWindow(long bits, int pos, int radius)
+  {
+    long window = pos >= radius ? bits >>> (pos - radius) : bits << (radius - pos);
+    return window & ((1L << (2 * radius + 1)) - 1);
+  }
+
+  private static int removeCenter(long window, int radius)
+  {
+    long below = window & ((1L << radius) - 1);
+    return (int) (below | ((window >>> (radius + 1)) << radius));
+  }
+
+  /**
+   * Returns the length of the row of set bits going through the provided
+   * position, counting the bit at the position as set.
+   */
+  private static int runLength(long bits, int pos)
+  {
+    bits |= 1L << pos;
+    int above = Long.numberOfTrailingZeros(~(bits >>> pos));
+    int below = Long.numberOfLeadingZeros(~(bits << (Long.SIZE - 1 - pos)));
+
+    return above + below - 1;
+  }
+
+  /**
+   * Returns the bits of the line for the provided color. For {@link Color#NONE}
+   * the empty cells of the line are returned.
+   */
+  private long getLineBits(Color color, int type, int line)
+  {
+    if (color == Color.NONE)
+    {
+      return ~(lines[0][type][line] | lines[1][type][line]) & getLineMask(type, line);
+    }
+
+    return lines[color.getId() - 1][type][line];
+  }
+
+  /**
+   * Returns a mask with the bits set for every position of the line that is
+   * on the board.
+   */
+  private long getLineMask(int type, int line)
+  {
+    int first;
+    int last;
+    switch (type)
+    {
+      case HORIZONTAL:
+        first = 0;
+        last = width - 1;
+        break;
+      case VERTICAL:
+        first = 0;
+        last = height - 1;
+        break;
+      default:
+        // the same bounds apply for both kinds of diagonals
+        first = Math.max(0, line - (height - 1));
+        last = Math.min(width - 1, line);
+        break;
+    }
+
+    long upToLast = last == Long.SIZE - 1 ? -1L : (1L << (last + 1)) - 1;
+    return upToLast & (-1L << first);
+  }
+
+  private int getLineCount(int type)
+  {
+    switch (type)
+    {
+      case HORIZONTAL:
+        return height;
+      case VERTICAL:
+        return width;
+      default:
+        return width + height - 1;
+    }
+  }
+
+  private static int getLineType(int dirX, int dirY)
+  {
+    if (dirY == 0 && dirX != 0)
+    {
+      return HORIZONTAL;
+    }
+    if (dirX == 0 && dirY != 0)
+    {
+      return VERTICAL;
+    }
+    if (dirX == dirY && dirX != 0)
+    {
+      return DIAGONAL;
+    }
+    if (dirX == -dirY && dirX != 0)
+    {
+      return ANTI_DIAGONAL;
+    }
+
+    throw new IllegalArgumentException("Invalid direction. X: " + dirX + ", Y: " + dirY);
+  }
+
+  /**
+   * Returns the index of the line of provided type that goes through x, y.
+   * Diagonals (top left to bottom right) are numbered by x - y, offset to
+   * start at zero, and anti diagonals by x + y.
+   */
+  private int getLine(int type, int x, int y)
+  {
+    switch (type)
+    {
+      case HORIZONTAL:
+        return y;
+      case VERTICAL:
+        return x;
+      case DIAGONAL:
+        return x - y + height - 1;
+      default:
+        return x + y;
+    }
+  }
+
+  private static int getPosition(int type, int x, int y)
+  {
+    return type == VERTICAL ? y : x;
+  }
+}
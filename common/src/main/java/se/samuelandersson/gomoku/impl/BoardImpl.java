@@ -1,26 +1,37 @@
 package se.samuelandersson.gomoku.impl;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuBoard;
-import se.samuelandersson.gomoku.GomokuBoardListener;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.rules.LinePatterns;
 
 /**
- * A Board represents a Gomoku board. The board size restrictions is 40x40.
+ * A Board represents a Gomoku board. The board is used for sizes up to
+ * 100x100, see {@link se.samuelandersson.gomoku.BoardType#ARRAY}, larger
+ * boards are sparse.
+ * <p>
+ * The pieces are stored by the cell indices of {@link Grid}, surrounded by a
+ * border of walls, so the rows are read without checking the bounds.
+ * <p>
+ * Besides the board data, the board keeps a run-length index: for every cell
+ * and direction, the length of the row of same colored pieces the cell is part
+ * of. The index is updated by {@link #setPiece(int, int, Color)}, making
+ * {@link #count(Color, int, int, int, int)} a constant time lookup.
  *
  * @author Samuel Andersson
  *
  */
-public class BoardImpl implements GomokuBoard
+public class BoardImpl extends AbstractBoard
 {
-  /** The structure containing the board data */
-  private int[] board;
-  private int width;
-  private int height;
+  /** The structure containing the board data, the color ids by cell index */
+  private byte[] cells;
 
-  private transient final List<GomokuBoardListener> listeners = new ArrayList<>();
+  /**
+   * The run-length index, indexed by direction and then cell. Holds the length
+   * of the row a piece is part of, or 0 for empty cells. Lengths saturate at
+   * {@link Byte#MAX_VALUE}.
+   */
+  private byte[][] runs;
 
   /** Empty constructor for Kryonet */
   @SuppressWarnings("unused")
@@ -30,39 +41,20 @@ public class BoardImpl implements GomokuBoard
 
   public BoardImpl(final int width, final int height)
   {
-    this.width = width;
-    this.height = height;
+    super(width, height);
     reset();
   }
 
-  @Override
-  public void addListener(GomokuBoardListener listener)
-  {
-    listeners.add(listener);
-  }
-
-  @Override
-  public void removeListener(GomokuBoardListener listener)
-  {
-    listeners.remove(listener);
-  }
-
-  public void fireListeners(Color color, int x, int y)
-  {
-    for (GomokuBoardListener listener : listeners)
-    {
-      listener.onChange(color, x, y);
-    }
-  }
-
   /**
-   * Reset the board, making it all empty spaces. Also reset the
-   * actionRecorder.
+   * Reset the board, making it all empty spaces. Also clear the run-length
+   * index.
    */
   @Override
   public void reset()
   {
-    board = new int[this.width * this.height];
+    cells = getGrid().createCells();
+    runs = new byte[Grid.DIRECTIONS][cells.length];
+    boardReplaced(0);
   }
 
   /**
@@ -74,107 +66,133 @@ public class BoardImpl implements GomokuBoard
   @Override
   public void setFrom(GomokuBoard board)
   {
-    this.board = board.getBoardData();
     this.width = board.getWidth();
     this.height = board.getHeight();
+    copyData(board.getBoardData());
+    boardReplaced(board.getHash());
+    rebuildRuns();
   }
 
   @Override
   public void setBoardData(int[] data)
   {
-    board = data;
+    // only the cells that differ from the current data changes the hash
+    Grid grid = getGrid();
+    boolean sameSize = cells != null && cells.length == grid.getSize();
+    if (!sameSize)
+    {
+      boardReplaced(0);
+    }
+
+    for (int cell = 0; cell < data.length; cell++)
+    {
+      int x = cell % this.width;
+      int y = cell / this.width;
+      int old = sameSize ? cells[grid.index(x, y)] : Color.NONE.getId();
+      if (old != data[cell])
+      {
+        pieceChanged(x, y, old, data[cell]);
+      }
+    }
+
+    copyData(data);
+    rebuildRuns();
+  }
+
+  private void copyData(int[] data)
+  {
+    Grid grid = getGrid();
+    cells = grid.createCells();
+    for (int cell = 0; cell < data.length; cell++)
+    {
+      cells[grid.index(cell % this.width, cell / this.width)] = (byte) data[cell];
+    }
   }
 
   @Override
   public int[] getBoardData()
   {
-    return board;
+    Grid grid = getGrid();
+    int[] data = new int[this.width * this.height];
+    for (int cell = 0; cell < data.length; cell++)
+    {
+      data[cell] = cells[grid.index(cell % this.width, cell / this.width)];
+    }
+
+    return data;
   }
 
-  /**
-   * Returns true of all the pieces surrounding the line is empty
-   *
-   * @return true of all the pieces surrounding the line is empty
-   */
-  protected boolean isOpen(Color color, int x, int y, int dirX, int dirY)
+  @Override
+  public int count(Color color, int x, int y, int dirX, int dirY)
   {
-    int xpos, ypos;
-    xpos = x + dirX;
-    ypos = y + dirY;
+    int dir = getDirection(dirX, dirY);
+    if (color == Color.NONE || dir < 0 || x < 0 || x >= this.width || y < 0 || y >= this.height)
+    {
+      return scan(color, x, y, dirX, dirY);
+    }
+
+    return count((byte) color.getId(), getGrid().index(x, y), dir);
+  }
 
-    do
+  @Override
+  public int count(byte value, int index, int dir)
+  {
+    if (value == Grid.EMPTY)
     {
-      // if we reached the edge of the board:
-      // this line is not open if there's something other than NOPLAYER
-      if (xpos == 0 || xpos == getWidth() - 1)
-      {
-        if (getPiece(xpos, ypos) != Color.NONE)
-        {
-          return false;
-        }
-      }
-      if (ypos == 0 || ypos == getHeight() - 1)
-      {
-        if (getPiece(xpos, ypos) != Color.NONE)
-        {
-          return false;
-        }
-      }
+      Grid grid = getGrid();
+      return scan(Color.NONE, grid.getX(index), grid.getY(index), DIR_X[dir], DIR_Y[dir]);
+    }
 
-      if (getPiece(xpos, ypos) == Color.NONE)
-      {
-        break;
-      }
-      else if (getPiece(xpos, ypos) != color)
-      { // enemy
-        return false;
-      }
+    if (cells[index] == value)
+    {
+      return runs[dir][index];
+    }
 
-      xpos += dirX;
-      ypos += dirY;
+    // the position is not part of a row of this color, so the rows on each
+    // side of it ends right next to it, and the walls have no runs
+    int step = getGrid().getOffset(dir);
+    int ct = 1;
+    if (cells[index + step] == value)
+    {
+      ct += runs[dir][index + step];
+    }
 
-    } while (xpos >= 0 && xpos < getWidth() && ypos >= 0 && ypos < getHeight());
+    if (cells[index - step] == value)
+    {
+      ct += runs[dir][index - step];
+    }
 
-    // now check the other side
-    xpos = x - dirX;
-    ypos = y - dirY;
+    return ct;
+  }
 
-    do
+  /**
+   * Returns the direction index of provided direction, or -1 if it is not one
+   * of the four line directions. Opposite directions share index.
+   */
+  private static int getDirection(int dirX, int dirY)
+  {
+    if (dirX < 0 || (dirX == 0 && dirY < 0))
     {
-      // if we reached the edge of the board:
-      // this line is not open if there's something other than NOPLAYER
-      if (xpos == 0 || xpos == getWidth() - 1)
-      {
-        if (getPiece(xpos, ypos) != Color.NONE)
-        {
-          return false;
-        }
-      }
-      if (ypos == 0 || ypos == getHeight() - 1)
-      {
-        if (getPiece(xpos, ypos) != Color.NONE)
-        {
-          return false;
-        }
-      }
+      dirX = -dirX;
+      dirY = -dirY;
+    }
 
-      if (getPiece(xpos, ypos) == Color.NONE)
+    for (int dir = 0; dir < DIR_X.length; dir++)
+    {
+      if (DIR_X[dir] == dirX && DIR_Y[dir] == dirY)
       {
-        break;
-      }
-      else if (getPiece(xpos, ypos) != color)
-      { // enemy
-        return false;
+        return dir;
       }
-      xpos -= dirX;
-      ypos -= dirY;
-    } while (xpos >= 0 && xpos < getWidth() && ypos >= 0 && ypos < getHeight());
+    }
 
-    return true;
+    return -1;
   }
 
-  @Override
-  public int count(Color color, int x, int y, int dirX, int dirY)
+  /**
+   * Counts the row by walking the board. Used for queries the run-length index
+   * does not cover, such as rows of empty cells.
+   */
+  private int scan(Color color, int x, int y, int dirX, int dirY)
   {
     int ct = 1;
     int xpos, ypos; // position to be examined
@@ -203,67 +221,38 @@ public class BoardImpl implements GomokuBoard
   }
 
   @Override
-  public boolean try3And3(Color color, int x, int y)
+  protected int encodeLine(Color color, int x, int y, int dir, LinePatterns patterns)
   {
-    int ct = 0;
-    // horizontal
-    if (x > 0 && x < getWidth() - 1 && count(color, x, y, -1, 0) == 3 && isOpen(color, x, y, 1, 0))
-    {
-      ct++;
-    }
-
-    // vertical
-    if (y > 0 && y < getHeight() - 1 && count(color, x, y, 0, -1) == 3 && isOpen(color, x, y, 0, 1))
-    {
-      ct++;
-    }
-
-    // topleft to bottomdown
-    if (x > 0 && x < getWidth() - 1 && y > 0 && y < getHeight() - 1 && count(color, x, y, -1, -1) == 3 &&
-        isOpen(color, x, y, 1, 1))
-    {
-      ct++;
-    }
-
-    // topright to bottomleft
-    if (x > 0 && x < getWidth() - 1 && y > 0 && y < getHeight() - 1 && count(color, x, y, 1, -1) == 3 &&
-        isOpen(color, x, y, 1, 1))
-    {
-      ct++;
-    }
-
-    return ct < 2;
-  }
-
-  @Override
-  public boolean try4And4(Color color, int x, int y)
-  {
-    int ct = 0;
-    // horizontal
-    if (count(color, x, y, -1, 0) == 4)
+    if (x < 0 || x >= this.width || y < 0 || y >= this.height)
     {
-      ct++;
+      return super.encodeLine(color, x, y, dir, patterns);
     }
 
-    // vertical
-    if (count(color, x, y, 0, -1) == 4)
+    // the border is as wide as the longest pattern, so every digit is read
+    // from the cells or the walls around them
+    Grid grid = getGrid();
+    int center = grid.index(x, y);
+    int step = grid.getOffset(dir);
+    int id = color.getId();
+    int index = 0;
+    for (int digit = patterns.getDigits() - 1; digit >= 0; digit--)
     {
-      ct++;
-    }
+      int piece = cells[center + patterns.getOffset(digit) * step];
 
-    // topleft to bottomdown
-    if (count(color, x, y, -1, -1) == 4)
-    {
-      ct++;
-    }
+      int value = LinePatterns.BLOCKED;
+      if (piece == id)
+      {
+        value = LinePatterns.OWN;
+      }
+      else if (piece == Grid.EMPTY)
+      {
+        value = LinePatterns.EMPTY;
+      }
 
-    // topright to bottomleft
-    if (count(color, x, y, 1, -1) == 4)
-    {
-      ct++;
+      index = index * 3 + value;
     }
 
-    return ct < 2;
+    return index;
   }
 
   /**
@@ -283,11 +272,17 @@ public class BoardImpl implements GomokuBoard
       return Color.NONE;
     }
 
-    return Color.valueOf(board[x + this.width * y]);
+    return Color.valueOf(cells[getGrid().index(x, y)]);
+  }
+
+  @Override
+  public byte getCell(int index)
+  {
+    return index >= 0 && index < cells.length ? cells[index] : Grid.WALL;
   }
 
   /**
-   * Place a piece on the board
+   * Store a piece and update the run-length index
    *
    * @param x
    *          The x location for the piece
@@ -297,37 +292,122 @@ public class BoardImpl implements GomokuBoard
    *          The player color for the piece
    */
   @Override
-  public void setPiece(int x, int y, Color color)
+  protected void storePiece(int x, int y, Color color)
   {
-    if (x < 0 || x > this.width || y < 0 || y > this.height)
+    storeCell(getGrid().index(x, y), (byte) color.getId());
+  }
+
+  /**
+   * Store a piece by index and update the run-length index
+   */
+  @Override
+  protected void storeCell(int index, byte value)
+  {
+    byte old = cells[index];
+    cells[index] = value;
+
+    if (old != value)
+    {
+      Grid grid = getGrid();
+      pieceChanged(grid.getX(index), grid.getY(index), old, value);
+
+      for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+      {
+        updateRuns(index, dir, old);
+      }
+    }
+  }
+
+  /**
+   * Update the run-length index in one direction after the cell changed from
+   * the provided old value. The rows on each side of the cell that were joined
+   * with the old value are given their new lengths, then the row the cell is
+   * now part of.
+   */
+  private void updateRuns(int index, int dir, byte old)
+  {
+    int step = getGrid().getOffset(dir);
+
+    runs[dir][index] = 0;
+    if (old != Grid.EMPTY)
     {
-      throw new IllegalArgumentException("Position out of bounds. X: " + x + ", Y: " + y);
+      relabel(index + step, step, dir, old, 0);
+      relabel(index - step, -step, dir, old, 0);
     }
 
-    board[x + this.width * y] = color.getId();
-    
-    this.fireListeners(color, x, y);
+    byte id = cells[index];
+    if (id != Grid.EMPTY)
+    {
+      int length = 1 + walk(index + step, step, id) + walk(index - step, -step, id);
+      runs[dir][index] = saturate(length);
+      relabel(index + step, step, dir, id, length);
+      relabel(index - step, -step, dir, id, length);
+    }
   }
 
   /**
-   * Returns the current width of the board
-   *
-   * @return the current width of the board
+   * Returns the number of pieces with the provided id starting at the cell and
+   * stepping through the row. The walls stop the walk.
    */
-  @Override
-  public int getWidth()
+  private int walk(int index, int step, byte id)
+  {
+    int ct = 0;
+    while (cells[index] == id)
+    {
+      ct++;
+      index += step;
+    }
+
+    return ct;
+  }
+
+  /**
+   * Set the run length of the row of pieces with the provided id starting at
+   * the cell and stepping through the row. A length of 0 means the row ended
+   * at the cell and is measured by walking it.
+   */
+  private void relabel(int index, int step, int dir, byte id, int length)
+  {
+    if (length == 0)
+    {
+      length = walk(index, step, id);
+    }
+
+    byte value = saturate(length);
+    while (cells[index] == id)
+    {
+      runs[dir][index] = value;
+      index += step;
+    }
+  }
+
+  private static byte saturate(int length)
   {
-    return this.width;
+    return (byte) Math.min(length, Byte.MAX_VALUE);
   }
 
   /**
-   * Returns the current height of the board
-   *
-   * @return the current height of the board
+   * Rebuild the run-length index from the board data
    */
-  @Override
-  public int getHeight()
+  private void rebuildRuns()
   {
-    return this.height;
+    Grid grid = getGrid();
+    runs = new byte[Grid.DIRECTIONS][cells.length];
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      int step = grid.getOffset(dir);
+      for (int y = 0; y < this.height; y++)
+      {
+        for (int x = 0; x < this.width; x++)
+        {
+          int index = grid.index(x, y);
+          byte id = cells[index];
+          if (id != Grid.EMPTY && cells[index - step] != id)
+          {
+            relabel(index, step, dir, id, 0);
+          }
+        }
+      }
+    }
   }
 }
@@ -0,0 +1,161 @@
+package se.samuelandersson.gomoku.impl;
+
+/**
+ * An open addressing hash map from long keys to chunks of packed cells, used
+ * by {@link SparseBoardImpl}. Avoids boxing the keys and the per entry objects
+ * of a {@link java.util.HashMap}. Entries are never removed, only cleared all
+ * at once.
+ *
+ * @author Samuel Andersson
+ */
+class ChunkMap
+{
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] keys;
+  private long[][] chunks;
+  private int size;
+
+  ChunkMap()
+  {
+    clear();
+  }
+
+  /**
+   * Returns the chunk of provided key
+   *
+   * @param key the key
+   * @return the chunk, or null if there is none
+   */
+  long[] get(long key)
+  {
+    int mask = keys.length - 1;
+    for (int slot = hash(key) & mask; chunks[slot] != null; slot = (slot + 1) & mask)
+    {
+      if (keys[slot] == key)
+      {
+        return chunks[slot];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the chunk of provided key, creating it if there is none
+   *
+   * @param key the key
+   * @param chunkLength the length of a new chunk
+   * @return the chunk
+   */
+  long[] getOrCreate(long key, int chunkLength)
+  {
+    long[] chunk = get(key);
+    if (chunk == null)
+    {
+      chunk = new long[chunkLength];
+      put(key, chunk);
+    }
+
+    return chunk;
+  }
+
+  private void put(long key, long[] chunk)
+  {
+    if ((size + 1) * 4 > keys.length * 3)
+    {
+      grow();
+    }
+
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (chunks[slot] != null)
+    {
+      slot = (slot + 1) & mask;
+    }
+
+    keys[slot] = key;
+    chunks[slot] = chunk;
+    size++;
+  }
+
+  private void grow()
+  {
+    long[] oldKeys = keys;
+    long[][] oldChunks = chunks;
+
+    keys = new long[oldKeys.length * 2];
+    chunks = new long[oldKeys.length * 2][];
+    size = 0;
+
+    for (int slot = 0; slot < oldKeys.length; slot++)
+    {
+      if (oldChunks[slot] != null)
+      {
+        put(oldKeys[slot], oldChunks[slot]);
+      }
+    }
+  }
+
+  void clear()
+  {
+    keys = new long[INITIAL_CAPACITY];
+    chunks = new long[INITIAL_CAPACITY][];
+    size = 0;
+  }
+
+  /**
+   * Returns a deep copy of this map
+   *
+   * @return the copy
+   */
+  ChunkMap copy()
+  {
+    ChunkMap copy = new ChunkMap();
+    copy.keys = keys.clone();
+    copy.chunks = new long[chunks.length][];
+    for (int slot = 0; slot < chunks.length; slot++)
+    {
+      if (chunks[slot] != null)
+      {
+        copy.chunks[slot] = chunks[slot].clone();
+      }
+    }
+
+    copy.size = size;
+    return copy;
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the number of slots, for iterating with {@link #keyAt(int)} and
+   * {@link #chunkAt(int)}
+   */
+  int capacity()
+  {
+    return keys.length;
+  }
+
+  long keyAt(int slot)
+  {
+    return keys[slot];
+  }
+
+  /**
+   * Returns the chunk in provided slot, or null if the slot is empty
+   */
+  long[] chunkAt(int slot)
+  {
+    return chunks[slot];
+  }
+
+  private static int hash(long key)
+  {
+    key *= 0x9E3779B97F4A7C15L;
+    return (int) (key ^ (key >>> 32));
+  }
+}
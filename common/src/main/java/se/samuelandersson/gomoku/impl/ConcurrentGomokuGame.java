@@ -0,0 +1,557 @@
+package se.samuelandersson.gomoku.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.GomokuGameListener;
+import se.samuelandersson.gomoku.Player;
+import se.samuelandersson.gomoku.action.GameAction;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.rules.Forbidden;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
+
+/**
+ * A game that can be read by any number of threads while one thread makes the
+ * moves. Every change is made to the wrapped game under the write lock of a
+ * {@link StampedLock}, after which the state readers need is published: a
+ * {@link BoardSnapshot} of the board, the moves, the turn and whether the game
+ * is over. Readers read the published state with an optimistic read and only
+ * take the read lock if a change was made at the same time, so they never
+ * block the moving thread, and since the lock is only held while copying the
+ * state the moving thread never waits on a slow reader. The rule checks take
+ * the write lock too, since they keep caches, but publish nothing, and several
+ * of them can share one lock with {@link #check(Runnable)}.
+ * <p>
+ * The board returned by {@link #getBoard()} is the live board and must only be
+ * used by the moving thread, other threads use {@link #getSnapshot()}. Actions
+ * must be made with {@link #perform(GameAction)}, since they change the board
+ * directly. Listeners are called by the moving thread with the lock held, and
+ * may read and change the game from there.
+ *
+ * @author Samuel Andersson
+ */
+public class ConcurrentGomokuGame implements GomokuGame
+{
+  private final GomokuGame game;
+
+  private final StampedLock lock = new StampedLock();
+
+  /** The thread holding the write lock, which reads the game directly */
+  private volatile Thread writer;
+
+  /* The published state, only changed with the write lock held */
+
+  private BoardSnapshot snapshot;
+
+  private int[] moves = new int[64];
+
+  private int moveCount;
+
+  private Color turn;
+
+  private Color nextColor;
+
+  private Color choosingColor;
+
+  private int choiceMove;
+
+  private boolean openingExtended;
+
+  private boolean gameOver;
+
+  private long version;
+
+  /**
+   * Wrap a game. The game must not be changed other than through the wrapper
+   * afterwards.
+   *
+   * @param game the game
+   */
+  public ConcurrentGomokuGame(GomokuGame game)
+  {
+    this.game = game;
+    write(() -> {});
+  }
+
+  /**
+   * Returns the wrapped game
+   *
+   * @return the wrapped game
+   */
+  public GomokuGame getGame()
+  {
+    return game;
+  }
+
+  /**
+   * Returns an immutable copy of the board after the last change. Safe to call
+   * from any thread.
+   *
+   * @return the snapshot of the board
+   */
+  public BoardSnapshot getSnapshot()
+  {
+    return read(() -> snapshot);
+  }
+
+  /**
+   * Returns the number of times a change has been published. Safe to call from
+   * any thread.
+   *
+   * @return the version of the published state
+   */
+  public long getVersion()
+  {
+    return read(() -> version);
+  }
+
+  /**
+   * Run rule checks that read the game, such as
+   * {@link #checkForbidden(Color, int, int)}, under one write lock, since the
+   * rule checks keep caches. Nothing is published afterwards, so the checks
+   * must not change the game.
+   *
+   * @param checks the checks
+   */
+  public void check(Runnable checks)
+  {
+    long stamp = lockWrite();
+    try
+    {
+      checks.run();
+    }
+    finally
+    {
+      unlockWrite(stamp, false);
+    }
+  }
+
+  /**
+   * Do and confirm an action with the write lock held
+   *
+   * @param action the action
+   * @throws IllegalActionException if the action breaks the rules, nothing is
+   *           changed then
+   */
+  public void perform(GameAction action) throws IllegalActionException
+  {
+    long stamp = lockWrite();
+    try
+    {
+      action.doAction(game);
+      action.confirmAction(game);
+    }
+    finally
+    {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Take the write lock, or 0 if the current thread already holds it
+   */
+  private long lockWrite()
+  {
+    if (writer == Thread.currentThread())
+    {
+      return 0;
+    }
+
+    long stamp = lock.writeLock();
+    writer = Thread.currentThread();
+    return stamp;
+  }
+
+  /**
+   * Publish the state and release the write lock taken by
+   * {@link #lockWrite()}
+   */
+  private void unlockWrite(long stamp)
+  {
+    unlockWrite(stamp, true);
+  }
+
+  /**
+   * Release the write lock taken by {@link #lockWrite()}, publishing the state
+   * first if the game may have changed
+   */
+  private void unlockWrite(long stamp, boolean changed)
+  {
+    if (stamp == 0)
+    {
+      return;
+    }
+
+    try
+    {
+      if (changed)
+      {
+        publish();
+        version++;
+      }
+    }
+    finally
+    {
+      writer = null;
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  private void write(Runnable change)
+  {
+    long stamp = lockWrite();
+    try
+    {
+      change.run();
+    }
+    finally
+    {
+      unlockWrite(stamp);
+    }
+  }
+
+  private boolean write(BooleanSupplier change)
+  {
+    long stamp = lockWrite();
+    try
+    {
+      return change.getAsBoolean();
+    }
+    finally
+    {
+      unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Copy the state of the game read by other threads
+   */
+  private void publish()
+  {
+    snapshot = game.getBoard().snapshot();
+
+    moveCount = game.getMoveCount();
+    if (moves.length < moveCount)
+    {
+      moves = Arrays.copyOf(moves, Math.max(moveCount, moves.length * 2));
+    }
+
+    for (int i = 0; i < moveCount; i++)
+    {
+      moves[i] = game.getMove(i);
+    }
+
+    turn = game.getCurrentTurnPlayer().getColor();
+    nextColor = game.getNextColor();
+    choosingColor = game.getChoosingColor();
+    choiceMove = game.getChoiceMove();
+    openingExtended = game.isOpeningExtended();
+    gameOver = game.isGameOver();
+  }
+
+  /**
+   * Read the published state, retrying with the read lock if it changed while
+   * reading. A read made during a change may fail, in which case it is retried
+   * as well. The thread making the change publishes the state first.
+   */
+  private <T> T read(Supplier<T> reader)
+  {
+    if (writer == Thread.currentThread())
+    {
+      // a listener reading in the middle of a change
+      publish();
+      return reader.get();
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0)
+    {
+      try
+      {
+        T value = reader.get();
+        if (lock.validate(stamp))
+        {
+          return value;
+        }
+      }
+      catch (RuntimeException e)
+      {
+        if (lock.validate(stamp))
+        {
+          throw e;
+        }
+      }
+    }
+
+    stamp = lock.readLock();
+    try
+    {
+      return reader.get();
+    }
+    finally
+    {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private int readInt(IntSupplier reader)
+  {
+    if (writer == Thread.currentThread())
+    {
+      // a listener reading in the middle of a change
+      publish();
+      return reader.getAsInt();
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0)
+    {
+      try
+      {
+        int value = reader.getAsInt();
+        if (lock.validate(stamp))
+        {
+          return value;
+        }
+      }
+      catch (RuntimeException e)
+      {
+        if (lock.validate(stamp))
+        {
+          throw e;
+        }
+      }
+    }
+
+    stamp = lock.readLock();
+    try
+    {
+      return reader.getAsInt();
+    }
+    finally
+    {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private boolean readBoolean(BooleanSupplier reader)
+  {
+    return readInt(() -> reader.getAsBoolean() ? 1 : 0) != 0;
+  }
+
+  /**
+   * Returns the live board, only to be used by the thread making the changes
+   */
+  @Override
+  public GomokuBoard getBoard()
+  {
+    return game.getBoard();
+  }
+
+  @Override
+  public GomokuConfig getConfig()
+  {
+    return game.getConfig();
+  }
+
+  @Override
+  public void addListener(GomokuGameListener listener)
+  {
+    write(() -> game.addListener(listener));
+  }
+
+  @Override
+  public void removeListener(GomokuGameListener listener)
+  {
+    write(() -> game.removeListener(listener));
+  }
+
+  @Override
+  public Player getPlayerOne()
+  {
+    return game.getPlayerOne();
+  }
+
+  @Override
+  public Player getPlayerTwo()
+  {
+    return game.getPlayerTwo();
+  }
+
+  @Override
+  public Player getPlayer(Color color)
+  {
+    return game.getPlayer(color);
+  }
+
+  @Override
+  public Player getCurrentTurnPlayer()
+  {
+    return game.getPlayer(read(() -> turn));
+  }
+
+  @Override
+  public void setCurrentTurnPlayer(Player player)
+  {
+    write(() -> game.setCurrentTurnPlayer(player));
+  }
+
+  @Override
+  public void reset()
+  {
+    write(game::reset);
+  }
+
+  @Override
+  public void checkBoard(int x, int y)
+  {
+    write(() -> game.checkBoard(x, y));
+  }
+
+  /**
+   * Validates the move with the write lock held, since the rule checks keep
+   * caches. Nothing is published, since the game does not change.
+   */
+  @Override
+  public void validateMove(Color color, int x, int y) throws IllegalActionException
+  {
+    long stamp = lockWrite();
+    try
+    {
+      game.validateMove(color, x, y);
+    }
+    finally
+    {
+      unlockWrite(stamp, false);
+    }
+  }
+
+  @Override
+  public Color getNextColor()
+  {
+    return read(() -> nextColor);
+  }
+
+  @Override
+  public Color getChoosingColor()
+  {
+    return read(() -> choosingColor);
+  }
+
+  @Override
+  public void chooseColor(Color color, Color choice)
+  {
+    write(() -> game.chooseColor(color, choice));
+  }
+
+  @Override
+  public int getChoiceMove()
+  {
+    return readInt(() -> choiceMove);
+  }
+
+  @Override
+  public boolean isOpeningExtended()
+  {
+    return readBoolean(() -> openingExtended);
+  }
+
+  @Override
+  public void setOpeningState(int choiceMove, boolean extended)
+  {
+    write(() -> game.setOpeningState(choiceMove, extended));
+  }
+
+  /**
+   * Checks the move with the write lock held, since the rule checks keep
+   * caches. Nothing is published, since the game does not change.
+   */
+  @Override
+  public Forbidden checkForbidden(Color color, int x, int y)
+  {
+    long stamp = lockWrite();
+    try
+    {
+      return game.checkForbidden(color, x, y);
+    }
+    finally
+    {
+      unlockWrite(stamp, false);
+    }
+  }
+
+  @Override
+  public ForbiddenMask getForbiddenMask()
+  {
+    return game.getForbiddenMask();
+  }
+
+  @Override
+  public void setForbiddenMask(ForbiddenMask mask)
+  {
+    write(() -> game.setForbiddenMask(mask));
+  }
+
+  @Override
+  public void applyMoves(int[] moves, int offset, int length)
+  {
+    write(() -> game.applyMoves(moves, offset, length));
+  }
+
+  @Override
+  public void confirmMove(Color color, int x, int y)
+  {
+    write(() -> game.confirmMove(color, x, y));
+  }
+
+  @Override
+  public boolean undo()
+  {
+    return write(game::undo);
+  }
+
+  @Override
+  public boolean redo()
+  {
+    return write(game::redo);
+  }
+
+  @Override
+  public int getMoveCount()
+  {
+    return readInt(() -> moveCount);
+  }
+
+  @Override
+  public int getMove(int index)
+  {
+    return readInt(() -> {
+      if (index < 0 || index >= moveCount)
+      {
+        throw new IndexOutOfBoundsException("No move " + index + " of " + moveCount);
+      }
+
+      return moves[index];
+    });
+  }
+
+  @Override
+  public void switchTurn()
+  {
+    write(game::switchTurn);
+  }
+
+  @Override
+  public boolean isGameOver()
+  {
+    return readBoolean(() -> gameOver);
+  }
+}
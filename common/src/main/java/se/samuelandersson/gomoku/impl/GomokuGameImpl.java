@@ -6,16 +6,24 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import se.samuelandersson.gomoku.ActionRecorder;
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuBoard;
 import se.samuelandersson.gomoku.GomokuConfig;
 import se.samuelandersson.gomoku.GomokuGame;
 import se.samuelandersson.gomoku.GomokuGameListener;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.MoveLog;
+import se.samuelandersson.gomoku.Moves;
 import se.samuelandersson.gomoku.Player;
+import se.samuelandersson.gomoku.event.ChooseColorEvent;
 import se.samuelandersson.gomoku.event.GameEvent;
 import se.samuelandersson.gomoku.event.GameOverEvent;
 import se.samuelandersson.gomoku.event.SetPlayerTurnEvent;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.rules.Forbidden;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
+import se.samuelandersson.gomoku.rules.LinePatterns;
+import se.samuelandersson.gomoku.rules.RenjuRules;
 
 /**
  * Contains game logic for Gomoku game. The game keeps track of the board, the
@@ -28,6 +36,9 @@ public class GomokuGameImpl implements GomokuGame
 {
   private static final Logger log = LoggerFactory.getLogger(GomokuGameImpl.class);
 
+  /** Larger boards are not checked for dead positions, the lines are tracked per cell */
+  private static final int DEAD_CHECK_MAX_CELLS = 128 * 128;
+
   /** The board */
   private GomokuBoard board;
 
@@ -44,22 +55,38 @@ public class GomokuGameImpl implements GomokuGame
 
   private GomokuConfig config;
 
-  /** The recorder of this game */
-  protected ActionRecorder actionRecorder;
+  /** The tables of the rule checks for the victory length, found when first needed */
+  private LinePatterns linePatterns;
+
+  /** The Renju rules, created when first needed */
+  private RenjuRules renjuRules;
+
+  /** The forbidden points received from the server */
+  private ForbiddenMask forbiddenMask;
+
+  /** The confirmed moves, including the ones that can be redone */
+  private MoveLog moveLog;
+
+  /** The move count the game was won at, or -1 */
+  private int gameOverAt = -1;
+
+  /** The move count at the last choice of color, or -1 */
+  private int choiceMove = -1;
+
+  /** Whether two more stones were chosen in Swap2 */
+  private boolean openingExtended;
 
   private final List<GomokuGameListener> listeners = new ArrayList<>();
 
   /**
-   * Create a new game with set width and height
+   * Create a new game with a board as described by the config
    *
-   * @param width
-   *          the width of the board
-   * @param height
-   *          the height of the board
+   * @param config
+   *          the game rules and board settings
    */
   public GomokuGameImpl(GomokuConfig config)
   {
-    this(new BoardImpl(config.getWidth(), config.getHeight()), config);
+    this(config.createBoard(), config);
   }
 
   /**
@@ -79,6 +106,8 @@ public class GomokuGameImpl implements GomokuGame
 
     // game rules
     this.config = config;
+
+    moveLog = new MoveLog(Math.min(board.getWidth() * board.getHeight(), 256));
   }
 
   /**
@@ -95,6 +124,11 @@ public class GomokuGameImpl implements GomokuGame
     board.reset();
     turn = playerOne;
     gameOver = false;
+
+    moveLog.clear();
+    gameOverAt = -1;
+    choiceMove = -1;
+    openingExtended = false;
   }
 
   @Override
@@ -105,70 +139,333 @@ public class GomokuGameImpl implements GomokuGame
 
   @Override
   public void checkBoard(int x, int y)
+  {
+    if (isVictory(x, y))
+    {
+      endGame(getPieceOwner(x, y).getColor());
+    }
+    else if (isDrawn())
+    {
+      endGame(Color.NONE);
+    }
+  }
+
+  /**
+   * Returns whether the piece on a position is part of a row that wins
+   */
+  private boolean isVictory(int x, int y)
   {
     /*
      * The algorithm will check four lines for victory based of the changed
      * position. Horizontally, vertically and two diagonal rows.
      */
-    Player player = getPieceOwner(x, y);
-    Color color = player.getColor();
-    boolean victory = false;
+    Color color = board.getPiece(x, y);
+    byte value = (byte) color.getId();
+    int index = board.getGrid().index(x, y);
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      int length = board.count(value, index, dir);
+      if (length == config.getVictoryLength())
+      {
+        return true;
+      }
+      else if (length > config.getVictoryLength() &&
+               (config.getAllowOverlines() || (config.useRenju() && color == Color.WHITE)))
+      {
+        return true;
+      }
+    }
 
-    // horizontal check
-    int length = board.count(color, x, y, 1, 0);
-    if (length == config.getVictoryLength())
+    return false;
+  }
+
+  /**
+   * End the game and tell the listeners
+   *
+   * @param winner the color of the winner, or {@link Color#NONE} for a draw
+   */
+  private void endGame(Color winner)
+  {
+    if (log.isDebugEnabled())
     {
-      victory = true;
+      if (winner == Color.NONE)
+      {
+        log.debug("Game detected draw at move {}", moveLog.size());
+      }
+      else
+      {
+        Player player = getPlayer(winner);
+        log.debug("Game detected winner {}({})", player.getName(), player.getColor().getName());
+      }
     }
-    else if (config.getAllowOverlines() && length > config.getVictoryLength())
+
+    gameOver = true;
+
+    fireEvent(new GameOverEvent(this, winner));
+  }
+
+  /**
+   * Returns whether the game can not be won by either color, because the board
+   * is full or because every line of victory length has pieces of both colors
+   */
+  private boolean isDrawn()
+  {
+    if (board.getPieceCount() == board.getWidth() * board.getHeight())
+    {
+      return true;
+    }
+
+    if ((long) board.getWidth() * board.getHeight() > DEAD_CHECK_MAX_CELLS)
     {
-      victory = true;
+      return false;
     }
 
-    // vertical check
-    length = board.count(color, x, y, 0, 1);
-    if (length == config.getVictoryLength())
+    return board.getLiveWindows(config.getVictoryLength()).isDead();
+  }
+
+  @Override
+  public void validateMove(Color color, int x, int y) throws IllegalActionException
+  {
+    if (gameOver)
+    {
+      throw new IllegalActionException("The game is over!");
+    }
+
+    config.getMoveValidators().validate(this, color, x, y);
+  }
+
+  @Override
+  public Color getNextColor()
+  {
+    return config.getStoneColor(moveLog.size());
+  }
+
+  @Override
+  public Color getChoosingColor()
+  {
+    if (gameOver || choiceMove == moveLog.size())
+    {
+      return Color.NONE;
+    }
+
+    return config.getOpeningRule().getChooser(moveLog.size(), openingExtended);
+  }
+
+  @Override
+  public void chooseColor(Color color, Color choice)
+  {
+    choiceMove = moveLog.size();
+    if (choice == Color.NONE)
+    {
+      openingExtended = true;
+    }
+    else if (choice != color)
+    {
+      // the players keep their colors and swap names instead
+      String name = playerOne.getName();
+      playerOne.setName(playerTwo.getName());
+      playerTwo.setName(name);
+    }
+
+    fireEvent(new ChooseColorEvent(this, color, choice));
+    setTurn(getNextTurn());
+  }
+
+  /**
+   * Returns the color of the player to act next, which is the player choosing
+   * color or the player placing the next move
+   */
+  private Color getNextTurn()
+  {
+    Color chooser = getChoosingColor();
+    if (chooser != Color.NONE)
+    {
+      return chooser;
+    }
+
+    return config.getOpeningRule().getMover(config, moveLog.size(), openingExtended);
+  }
+
+  @Override
+  public int getChoiceMove()
+  {
+    return choiceMove;
+  }
+
+  @Override
+  public boolean isOpeningExtended()
+  {
+    return openingExtended;
+  }
+
+  @Override
+  public void setOpeningState(int choiceMove, boolean extended)
+  {
+    this.choiceMove = choiceMove;
+    this.openingExtended = extended;
+  }
+
+  @Override
+  public Forbidden checkForbidden(Color color, int x, int y)
+  {
+    if (config.useRenju() && color == Color.BLACK)
     {
-      victory = true;
+      if (renjuRules == null)
+      {
+        renjuRules = new RenjuRules();
+      }
+
+      return renjuRules.check(board, color, x, y);
     }
-    else if (config.getAllowOverlines() && length > config.getVictoryLength())
+
+    if (!config.useThreeAndThree() && !config.useFourAndFour())
     {
-      victory = true;
+      return Forbidden.NONE;
     }
 
-    // topleft diagonal check
-    length = board.count(color, x, y, 1, 1);
-    if (length == config.getVictoryLength())
+    if (linePatterns == null)
     {
-      victory = true;
+      linePatterns = LinePatterns.get(config.getVictoryLength(), !config.getAllowOverlines());
     }
-    else if (config.getAllowOverlines() && length > config.getVictoryLength())
+
+    if (config.useThreeAndThree() && !board.try3And3(color, x, y, linePatterns))
     {
-      victory = true;
+      return Forbidden.DOUBLE_THREE;
     }
 
-    // topright diagonal check
-    length = board.count(color, x, y, 1, -1);
-    if (length == config.getVictoryLength())
+    if (config.useFourAndFour() && !board.try4And4(color, x, y, linePatterns))
     {
-      victory = true;
+      return Forbidden.DOUBLE_FOUR;
     }
-    else if (config.getAllowOverlines() && length > config.getVictoryLength())
+
+    return Forbidden.NONE;
+  }
+
+  @Override
+  public ForbiddenMask getForbiddenMask()
+  {
+    return forbiddenMask;
+  }
+
+  @Override
+  public void setForbiddenMask(ForbiddenMask forbiddenMask)
+  {
+    this.forbiddenMask = forbiddenMask;
+  }
+
+  @Override
+  public void applyMoves(int[] moves, int offset, int length)
+  {
+    board.setPieces(moves, offset, length);
+
+    // the placed pieces become moves that can be undone, unless pieces were
+    // also removed in which case the history no longer matches the board
+    for (int i = offset; i < offset + length; i++)
     {
-      victory = true;
+      if (Moves.getColor(moves[i]) == Color.NONE)
+      {
+        moveLog.clear();
+        break;
+      }
+
+      moveLog.add(moves[i]);
     }
 
-    if (victory)
+    // a finished game is decided by its last move, so only the last piece of
+    // each color is checked for a row, and the draw once for all of them
+    int checked = 0;
+    for (int i = offset + length - 1; i >= offset && !gameOver; i--)
     {
-      if (log.isDebugEnabled())
+      Color color = Moves.getColor(moves[i]);
+      if (color != Color.NONE && (checked & 1 << color.getId()) == 0)
       {
-        log.debug("Game detected winner {}({})", player.getName(), player.getColor().getName());
+        checked |= 1 << color.getId();
+        if (isVictory(Moves.getX(moves[i]), Moves.getY(moves[i])))
+        {
+          endGame(color);
+        }
       }
+    }
 
-      gameOver = true;
+    if (!gameOver && checked != 0 && isDrawn())
+    {
+      endGame(Color.NONE);
+    }
 
-      fireEvent(new GameOverEvent(this, player.getColor()));
+    gameOverAt = gameOver ? moveLog.size() : -1;
+  }
+
+  @Override
+  public void confirmMove(Color color, int x, int y)
+  {
+    moveLog.add(Moves.pack(color, x, y));
+
+    checkBoard(x, y);
+    if (gameOver)
+    {
+      gameOverAt = moveLog.size();
     }
+    else
+    {
+      gameOverAt = -1;
+      setTurn(getNextTurn());
+    }
+  }
+
+  /**
+   * Take back the last move. The piece is removed from the board and the turn
+   * is given back to its player. The game listeners are not notified of the
+   * change of turn. Moves made before a choice of color can not be taken back.
+   */
+  @Override
+  public boolean undo()
+  {
+    if (moveLog.size() == 0 || moveLog.size() <= choiceMove)
+    {
+      return false;
+    }
+
+    int move = moveLog.undo();
+    board.setPiece(Moves.getX(move), Moves.getY(move), Color.NONE);
+
+    gameOver = false;
+    turn = getPlayer(getNextTurn());
+
+    return true;
+  }
+
+  /**
+   * Make the last move taken back again. The game listeners are not notified
+   * of the change of turn or of a victory.
+   */
+  @Override
+  public boolean redo()
+  {
+    if (!moveLog.canRedo())
+    {
+      return false;
+    }
+
+    int move = moveLog.redo();
+    Color color = Moves.getColor(move);
+    board.setPiece(Moves.getX(move), Moves.getY(move), color);
+
+    gameOver = moveLog.size() == gameOverAt;
+    turn = getPlayer(gameOver ? color : getNextTurn());
+
+    return true;
+  }
+
+  @Override
+  public int getMoveCount()
+  {
+    return moveLog.size();
+  }
+
+  @Override
+  public int getMove(int index)
+  {
+    return moveLog.get(index);
   }
 
   protected void fireEvent(final GameEvent event)
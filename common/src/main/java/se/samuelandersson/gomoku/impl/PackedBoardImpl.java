@@ -0,0 +1,237 @@
+package se.samuelandersson.gomoku.impl;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.LiveWindows;
+import se.samuelandersson.gomoku.rules.LinePatterns;
+
+/**
+ * A board storing each cell in two bits, 32 cells to a long. Cell <i>n</i>
+ * (x + width * y) is bits 2(n % 32) and 2(n % 32) + 1 of long n / 32, holding
+ * the id of its color.
+ * <p>
+ * There are no indexes kept besides the hash and the ones asked for, so a
+ * 40x40 board takes 400 bytes compared to 6.4 KB for an int per cell. The
+ * live windows, a byte per cell, are read from the board on every call of
+ * {@link #getLiveWindows(int)} rather than kept. This is the board for
+ * servers holding many games at once, at the cost of walking the board in
+ * {@link #count(Color, int, int, int, int)} and of reading the windows again
+ * for the draw check of every move. The same layout is used as the wire form
+ * of all boards, see {@link GomokuBoard#getPackedData()}.
+ *
+ * @author Samuel Andersson
+ */
+public class PackedBoardImpl extends AbstractBoard
+{
+  /** The number of cells in each long */
+  public static final int CELLS_PER_LONG = Long.SIZE / 2;
+
+  /** The packed cells */
+  private long[] cells;
+
+  public PackedBoardImpl(final int width, final int height)
+  {
+    super(width, height);
+    reset();
+  }
+
+  /**
+   * Returns the number of longs needed to pack provided number of cells
+   *
+   * @param cellCount the number of cells
+   * @return the number of longs needed
+   */
+  public static int getPackedLength(int cellCount)
+  {
+    return (cellCount + CELLS_PER_LONG - 1) / CELLS_PER_LONG;
+  }
+
+  /**
+   * Returns the color id of a cell in packed data
+   *
+   * @param data the packed data
+   * @param cell the cell index
+   * @return the color id
+   */
+  public static int getPacked(long[] data, int cell)
+  {
+    return (int) (data[cell / CELLS_PER_LONG] >>> ((cell % CELLS_PER_LONG) << 1)) & 3;
+  }
+
+  /**
+   * Sets the color id of a cell in packed data
+   *
+   * @param data the packed data
+   * @param cell the cell index
+   * @param id the color id
+   */
+  public static void setPacked(long[] data, int cell, int id)
+  {
+    int shift = (cell % CELLS_PER_LONG) << 1;
+    int index = cell / CELLS_PER_LONG;
+    data[index] = (data[index] & ~(3L << shift)) | ((long) id << shift);
+  }
+
+  @Override
+  public void reset()
+  {
+    cells = new long[getPackedLength(this.width * this.height)];
+    boardReplaced(0);
+  }
+
+  @Override
+  public void setFrom(GomokuBoard board)
+  {
+    this.width = board.getWidth();
+    this.height = board.getHeight();
+
+    if (board instanceof PackedBoardImpl)
+    {
+      cells = ((PackedBoardImpl) board).cells.clone();
+      boardReplaced(board.getHash());
+    }
+    else
+    {
+      reset();
+      setPackedData(board.getPackedData());
+    }
+  }
+
+  @Override
+  public void setBoardData(int[] data)
+  {
+    for (int cell = 0; cell < data.length; cell++)
+    {
+      set(cell, data[cell]);
+    }
+  }
+
+  @Override
+  public int[] getBoardData()
+  {
+    int[] data = new int[this.width * this.height];
+    for (int cell = 0; cell < data.length; cell++)
+    {
+      data[cell] = getPacked(cells, cell);
+    }
+
+    return data;
+  }
+
+  @Override
+  public void setPackedData(long[] data)
+  {
+    for (int cell = 0; cell < this.width * this.height; cell++)
+    {
+      set(cell, getPacked(data, cell));
+    }
+  }
+
+  @Override
+  public long[] getPackedData()
+  {
+    return cells.clone();
+  }
+
+  @Override
+  public Color getPiece(int x, int y)
+  {
+    if (x < 0 || x >= this.width || y < 0 || y >= this.height)
+    {
+      return Color.NONE;
+    }
+
+    return Color.valueOf(getPacked(cells, x + this.width * y));
+  }
+
+  @Override
+  protected void storePiece(int x, int y, Color color)
+  {
+    set(x + this.width * y, color.getId());
+  }
+
+  private void set(int cell, int id)
+  {
+    int old = getPacked(cells, cell);
+    if (old != id)
+    {
+      pieceChanged(cell % this.width, cell / this.width, old, id);
+      setPacked(cells, cell, id);
+    }
+  }
+
+  @Override
+  public int count(Color color, int x, int y, int dirX, int dirY)
+  {
+    int id = color.getId();
+    int ct = 1;
+    int xpos = x + dirX;
+    int ypos = y + dirY;
+
+    while (xpos >= 0 && xpos < this.width && ypos >= 0 && ypos < this.height &&
+           getPacked(cells, xpos + this.width * ypos) == id)
+    {
+      ct++;
+      xpos += dirX;
+      ypos += dirY;
+    }
+
+    // check opposite direction too
+    xpos = x - dirX;
+    ypos = y - dirY;
+
+    while (xpos >= 0 && xpos < this.width && ypos >= 0 && ypos < this.height &&
+           getPacked(cells, xpos + this.width * ypos) == id)
+    {
+      ct++;
+      xpos -= dirX;
+      ypos -= dirY;
+    }
+
+    return ct;
+  }
+
+  /**
+   * Returns the live windows read from all of the board, which are not kept up
+   * to date as pieces are set, since they take four times the memory of the
+   * cells
+   */
+  @Override
+  public LiveWindows getLiveWindows(int victoryLength)
+  {
+    LiveWindows liveWindows = new LiveWindows(this, victoryLength);
+    liveWindows.rebuild();
+    return liveWindows;
+  }
+
+  @Override
+  protected int encodeLine(Color color, int x, int y, int dir, LinePatterns patterns)
+  {
+    int id = color.getId();
+    int index = 0;
+    for (int digit = patterns.getDigits() - 1; digit >= 0; digit--)
+    {
+      int offset = patterns.getOffset(digit);
+      int xpos = x + offset * DIR_X[dir];
+      int ypos = y + offset * DIR_Y[dir];
+
+      int value = LinePatterns.BLOCKED;
+      if (xpos >= 0 && xpos < this.width && ypos >= 0 && ypos < this.height)
+      {
+        int piece = getPacked(cells, xpos + this.width * ypos);
+        if (piece == id)
+        {
+          value = LinePatterns.OWN;
+        }
+        else if (piece == Color.NONE.getId())
+        {
+          value = LinePatterns.EMPTY;
+        }
+      }
+
+      index = index * 3 + value;
+    }
+
+    return index;
+  }
+}
@@ -0,0 +1,355 @@
+package se.samuelandersson.gomoku.impl;
+
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.rules.LinePatterns;
+
+/**
+ * A board storing its pieces in chunks of {@value #CHUNK_SIZE}x
+ * {@value #CHUNK_SIZE} cells, packed two bits per cell like
+ * {@link PackedBoardImpl}. Only the chunks that ever had a piece placed in them
+ * are allocated, kept in a {@link ChunkMap} keyed by the chunk coordinates.
+ * <p>
+ * The memory used scales with the number of pieces instead of the area, which
+ * makes boards up to {@value #MAX_SIZE}x{@value #MAX_SIZE} possible. Lookups
+ * near the last one are served from the same chunk without touching the map,
+ * so {@link #count(Color, int, int, int, int)} and the rule checks mostly stay
+ * within a chunk and its neighbours.
+ * <p>
+ * Methods returning the whole board, such as {@link #getBoardData()}, still
+ * scale with the area.
+ *
+ * @author Samuel Andersson
+ */
+public class SparseBoardImpl extends AbstractBoard
+{
+  /** The largest width and height, keeping the number of cells within an int */
+  public static final int MAX_SIZE = 1 << 15;
+
+  private static final int CHUNK_SHIFT = 4;
+  public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int CHUNK_LENGTH = PackedBoardImpl.getPackedLength(CHUNK_SIZE * CHUNK_SIZE);
+
+  /** The chunks with pieces in them */
+  private transient ChunkMap chunks;
+
+  /** The most recently used chunk and its key */
+  private transient long[] lastChunk;
+  private transient long lastKey;
+
+  /** The row shared by all empty rows of the snapshots */
+  private transient long[] emptyRow;
+
+  /** Empty constructor for Kryonet */
+  @SuppressWarnings("unused")
+  private SparseBoardImpl()
+  {
+  }
+
+  public SparseBoardImpl(final int width, final int height)
+  {
+    super(width, height);
+
+    if (width < 1 || width > MAX_SIZE || height < 1 || height > MAX_SIZE)
+    {
+      throw new IllegalArgumentException("Board size must be between 1 and " + MAX_SIZE + ". Width: " + width +
+                                         ", Height: " + height);
+    }
+
+    reset();
+  }
+
+  private static long getKey(int x, int y)
+  {
+    return ((long) (x >> CHUNK_SHIFT) << 32) | (y >> CHUNK_SHIFT);
+  }
+
+  private static int getCell(int x, int y)
+  {
+    return (x & CHUNK_MASK) | ((y & CHUNK_MASK) << CHUNK_SHIFT);
+  }
+
+  /**
+   * Returns the chunk containing x, y
+   *
+   * @return the chunk, or null if no piece was ever placed in it
+   */
+  private long[] getChunk(int x, int y)
+  {
+    long key = getKey(x, y);
+    if (lastChunk != null && lastKey == key)
+    {
+      return lastChunk;
+    }
+
+    long[] chunk = chunks.get(key);
+    if (chunk != null)
+    {
+      lastChunk = chunk;
+      lastKey = key;
+    }
+
+    return chunk;
+  }
+
+  /**
+   * Returns the color id on x, y, which must be on the board
+   */
+  private int get(int x, int y)
+  {
+    long[] chunk = getChunk(x, y);
+    return chunk == null ? 0 : PackedBoardImpl.getPacked(chunk, getCell(x, y));
+  }
+
+  private void set(int x, int y, int id)
+  {
+    long[] chunk = getChunk(x, y);
+    if (chunk == null)
+    {
+      if (id == Color.NONE.getId())
+      {
+        return;
+      }
+
+      chunk = chunks.getOrCreate(getKey(x, y), CHUNK_LENGTH);
+    }
+
+    int cell = getCell(x, y);
+    int old = PackedBoardImpl.getPacked(chunk, cell);
+    if (old != id)
+    {
+      pieceChanged(x, y, old, id);
+      PackedBoardImpl.setPacked(chunk, cell, id);
+    }
+  }
+
+  private boolean isOnBoard(int x, int y)
+  {
+    return x >= 0 && x < this.width && y >= 0 && y < this.height;
+  }
+
+  /**
+   * Returns the number of chunks allocated
+   *
+   * @return the number of chunks allocated
+   */
+  public int getChunkCount()
+  {
+    return chunks.size();
+  }
+
+  @Override
+  public void reset()
+  {
+    chunks = new ChunkMap();
+    lastChunk = null;
+    boardReplaced(0);
+  }
+
+  @Override
+  public void setFrom(GomokuBoard board)
+  {
+    this.width = board.getWidth();
+    this.height = board.getHeight();
+
+    if (board instanceof SparseBoardImpl)
+    {
+      chunks = ((SparseBoardImpl) board).chunks.copy();
+      lastChunk = null;
+      boardReplaced(board.getHash());
+    }
+    else
+    {
+      reset();
+      setPackedData(board.getPackedData());
+    }
+  }
+
+  @Override
+  public void setBoardData(int[] data)
+  {
+    for (int cell = 0; cell < data.length; cell++)
+    {
+      set(cell % this.width, cell / this.width, data[cell]);
+    }
+  }
+
+  @Override
+  public int[] getBoardData()
+  {
+    int[] data = new int[this.width * this.height];
+    for (int slot = 0; slot < chunks.capacity(); slot++)
+    {
+      long[] chunk = chunks.chunkAt(slot);
+      if (chunk == null)
+      {
+        continue;
+      }
+
+      long key = chunks.keyAt(slot);
+      int chunkX = (int) (key >>> 32) << CHUNK_SHIFT;
+      int chunkY = (int) key << CHUNK_SHIFT;
+      for (int cell = 0; cell < CHUNK_SIZE * CHUNK_SIZE; cell++)
+      {
+        int x = chunkX + (cell & CHUNK_MASK);
+        int y = chunkY + (cell >> CHUNK_SHIFT);
+        if (x < this.width && y < this.height)
+        {
+          data[x + this.width * y] = PackedBoardImpl.getPacked(chunk, cell);
+        }
+      }
+    }
+
+    return data;
+  }
+
+  @Override
+  public void setPackedData(long[] data)
+  {
+    for (int cell = 0; cell < this.width * this.height; cell++)
+    {
+      set(cell % this.width, cell / this.width, PackedBoardImpl.getPacked(data, cell));
+    }
+  }
+
+  /**
+   * Counts the pieces of the allocated chunks only, two bits at a time
+   */
+  @Override
+  protected int countPieces()
+  {
+    int count = 0;
+    for (int slot = 0; slot < chunks.capacity(); slot++)
+    {
+      long[] chunk = chunks.chunkAt(slot);
+      if (chunk != null)
+      {
+        for (long bits : chunk)
+        {
+          count += Long.bitCount((bits | (bits >>> 1)) & 0x5555555555555555L);
+        }
+      }
+    }
+
+    return count;
+  }
+
+  @Override
+  public Color getPiece(int x, int y)
+  {
+    if (!isOnBoard(x, y))
+    {
+      return Color.NONE;
+    }
+
+    return Color.valueOf(get(x, y));
+  }
+
+  @Override
+  protected void storePiece(int x, int y, Color color)
+  {
+    set(x, y, color.getId());
+  }
+
+  @Override
+  public int count(Color color, int x, int y, int dirX, int dirY)
+  {
+    int id = color.getId();
+    int ct = 1;
+    int xpos = x + dirX;
+    int ypos = y + dirY;
+
+    while (isOnBoard(xpos, ypos) && get(xpos, ypos) == id)
+    {
+      ct++;
+      xpos += dirX;
+      ypos += dirY;
+    }
+
+    // check opposite direction too
+    xpos = x - dirX;
+    ypos = y - dirY;
+
+    while (isOnBoard(xpos, ypos) && get(xpos, ypos) == id)
+    {
+      ct++;
+      xpos -= dirX;
+      ypos -= dirY;
+    }
+
+    return ct;
+  }
+
+  @Override
+  protected int encodeLine(Color color, int x, int y, int dir, LinePatterns patterns)
+  {
+    int id = color.getId();
+    int index = 0;
+    for (int digit = patterns.getDigits() - 1; digit >= 0; digit--)
+    {
+      int offset = patterns.getOffset(digit);
+      int xpos = x + offset * DIR_X[dir];
+      int ypos = y + offset * DIR_Y[dir];
+
+      int value = LinePatterns.BLOCKED;
+      if (isOnBoard(xpos, ypos))
+      {
+        int piece = get(xpos, ypos);
+        if (piece == id)
+        {
+          value = LinePatterns.OWN;
+        }
+        else if (piece == Color.NONE.getId())
+        {
+          value = LinePatterns.EMPTY;
+        }
+      }
+
+      index = index * 3 + value;
+    }
+
+    return index;
+  }
+
+  /**
+   * Rows without any chunk share one empty row, keeping snapshots of large,
+   * mostly empty boards small.
+   */
+  @Override
+  protected long[] packRow(int y)
+  {
+    long[] row = null;
+    for (int chunkX = 0; chunkX < this.width; chunkX += CHUNK_SIZE)
+    {
+      long[] chunk = chunks.get(getKey(chunkX, y));
+      if (chunk == null)
+      {
+        continue;
+      }
+
+      if (row == null)
+      {
+        row = new long[BoardSnapshot.getRowLength(this.width)];
+      }
+
+      for (int x = chunkX; x < Math.min(chunkX + CHUNK_SIZE, this.width); x++)
+      {
+        PackedBoardImpl.setPacked(row, x, PackedBoardImpl.getPacked(chunk, getCell(x, y)));
+      }
+    }
+
+    return row == null ? getEmptyRow() : row;
+  }
+
+  private long[] getEmptyRow()
+  {
+    if (emptyRow == null || emptyRow.length != BoardSnapshot.getRowLength(this.width))
+    {
+      emptyRow = new long[BoardSnapshot.getRowLength(this.width)];
+    }
+
+    return emptyRow;
+  }
+}
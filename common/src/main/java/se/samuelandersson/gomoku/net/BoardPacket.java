@@ -1,7 +1,8 @@
 package se.samuelandersson.gomoku.net;
 
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.BoardType;
 import se.samuelandersson.gomoku.GomokuBoard;
-import se.samuelandersson.gomoku.impl.BoardImpl;
 
 /**
  * A packet containing a board data.
@@ -10,11 +11,8 @@ import se.samuelandersson.gomoku.impl.BoardImpl;
  */
 public class BoardPacket
 {
-  /** The board data */
-  private int[] board;
-
-  private int width;
-  private int height;
+  /** The board, shared with every other packet of the same version */
+  private BoardSnapshot snapshot;
 
   /** Empty constructor for Kryonet */
   public BoardPacket()
@@ -22,16 +20,35 @@ public class BoardPacket
   }
 
   /**
-   * Create a new board packet from a {@link BoardImpl}
+   * Create a new board packet from a snapshot of provided board
    *
    * @param board
    *          The board to get data from
    */
   public BoardPacket(GomokuBoard board)
   {
-    this.board = board.getBoardData();
-    this.width = board.getWidth();
-    this.height = board.getHeight();
+    this(board.snapshot());
+  }
+
+  /**
+   * Create a new board packet from a snapshot
+   *
+   * @param snapshot
+   *          The snapshot of the board
+   */
+  public BoardPacket(BoardSnapshot snapshot)
+  {
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Returns the snapshot of the board
+   *
+   * @return the snapshot of the board
+   */
+  public BoardSnapshot getSnapshot()
+  {
+    return this.snapshot;
   }
 
   /**
@@ -41,15 +58,12 @@ public class BoardPacket
    */
   public GomokuBoard getBoard()
   {
-    BoardImpl board = new BoardImpl(this.width, this.height);
-    board.setBoardData(this.board);
-
-    return board;
+    return this.snapshot.toBoard(BoardType.ARRAY);
   }
 
   @Override
   public String toString()
   {
-    return String.format("Board<%sx%s>", this.width, this.height);
+    return String.format("Board<%sx%s>", this.snapshot.getWidth(), this.snapshot.getHeight());
   }
 }
@@ -0,0 +1,70 @@
+package se.samuelandersson.gomoku.net;
+
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
+
+/**
+ * A packet with the changes to the forbidden points of a game, sent by the
+ * server after every move. The points are packed by {@link Moves}, with the
+ * color being the color the point is forbidden for.
+ *
+ * @author Samuel Andersson
+ */
+public class ForbiddenMaskPacket
+{
+  /** Whether all points should be removed before the changes are applied */
+  private boolean reset;
+
+  private int[] added;
+  private int[] removed;
+
+  /** Empty constructor for Kryonet */
+  public ForbiddenMaskPacket()
+  {
+  }
+
+  /**
+   * Create a packet with the changes recorded by a mask, or with all its
+   * points if reset is set
+   *
+   * @param mask the mask
+   * @param reset whether the packet replaces all points
+   */
+  public ForbiddenMaskPacket(ForbiddenMask mask, boolean reset)
+  {
+    this.reset = reset;
+    this.added = reset ? mask.getPoints() : mask.getAdded();
+    this.removed = reset ? new int[0] : mask.getRemoved();
+  }
+
+  /**
+   * Apply the changes of this packet to a mask
+   *
+   * @param mask the mask
+   */
+  public void applyTo(ForbiddenMask mask)
+  {
+    mask.apply(reset, added, removed);
+  }
+
+  public boolean isReset()
+  {
+    return reset;
+  }
+
+  public int[] getAdded()
+  {
+    return added;
+  }
+
+  public int[] getRemoved()
+  {
+    return removed;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("ForbiddenMask<%s,+%s,-%s>", reset, added.length, removed.length);
+  }
+}
@@ -1,16 +1,36 @@
 package se.samuelandersson.gomoku.net;
 
+import se.samuelandersson.gomoku.Moves;
 import se.samuelandersson.gomoku.action.GameAction;
+import se.samuelandersson.gomoku.action.PlacePieceAction;
 
 /**
- * A packet requesting to place a piece on a certain location on the board
+ * A packet requesting to place a piece on a certain location on the board.
+ * <p>
+ * A piece placement, by far the most common action, is sent as one int packed
+ * by {@link Moves} instead of as an action object. Other actions are sent as
+ * they are.
  *
  * @author Samuel Andersson
  */
 public class GameActionPacket
 {
+  /** The action, or null if it is a piece placement */
   private GameAction action;
 
+  /** The piece placement, packed by {@link Moves}, or 0 */
+  private int move;
+
+  /**
+   * The hash of the board after the action was applied by the server, or 0 if
+   * not known. Lets clients detect that their board is out of sync without
+   * requesting the whole board.
+   */
+  private long boardHash;
+
+  /** The piece placement unpacked, created when first needed */
+  private transient GameAction placement;
+
   /** Empty constructor for Kryonet */
   @SuppressWarnings("unused")
   private GameActionPacket()
@@ -18,28 +38,62 @@ public class GameActionPacket
   }
 
   /**
-   * Create a new packet requesting piece placement
+   * Create a new packet requesting an action
    *
-   * @param x
-   *          The x location of the piece
-   * @param y
-   *          The y location of the piece
-   * @param playerColor
-   *          The player color of the player placing the piece
+   * @param action the action
    */
   public GameActionPacket(GameAction action)
   {
-    this.action = action;
+    if (action.getClass() == PlacePieceAction.class)
+    {
+      PlacePieceAction placement = (PlacePieceAction) action;
+      this.move = Moves.pack(placement.getColor(), placement.getX(), placement.getY());
+      this.placement = action;
+    }
+    else
+    {
+      this.action = action;
+    }
   }
-  
+
   public GameAction getAction()
   {
-    return this.action;
+    if (this.action != null)
+    {
+      return this.action;
+    }
+
+    if (this.placement == null)
+    {
+      this.placement = new PlacePieceAction(Moves.getColor(move), Moves.getX(move), Moves.getY(move));
+    }
+
+    return this.placement;
+  }
+
+  /**
+   * Returns the piece placement, packed by {@link Moves}
+   *
+   * @return the packed placement, or 0 if the action is not a piece placement
+   */
+  public int getMove()
+  {
+    return this.move;
+  }
+
+  public long getBoardHash()
+  {
+    return this.boardHash;
+  }
+
+  public void setBoardHash(long boardHash)
+  {
+    this.boardHash = boardHash;
   }
   
   @Override
   public String toString()
   {
-    return String.format("GameAction<%s>", this.action.toString());
+    return String.format("GameAction<%s>", getAction().toString());
   }
 }
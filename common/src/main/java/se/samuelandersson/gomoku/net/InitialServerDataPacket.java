@@ -2,11 +2,13 @@ package se.samuelandersson.gomoku.net;
 
 import java.util.List;
 
+import se.samuelandersson.gomoku.BoardSnapshot;
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuBoard;
 import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Moves;
 import se.samuelandersson.gomoku.Player;
-import se.samuelandersson.gomoku.impl.BoardImpl;
 
 /**
  * A packet that the client requests from the server upon connection. It sends
@@ -19,7 +21,7 @@ import se.samuelandersson.gomoku.impl.BoardImpl;
 public class InitialServerDataPacket
 {
   /** The board of the game */
-  private int[] board;
+  private BoardSnapshot board;
 
   private GomokuConfig config;
 
@@ -32,6 +34,15 @@ public class InitialServerDataPacket
   /** The currently connected players */
   private List<Player> playerList;
 
+  /** The moves of the game, packed as described by {@link Moves} */
+  private int[] moves;
+
+  /** The move count at the last choice of color, or -1 */
+  private int choiceMove = -1;
+
+  /** Whether two more stones were chosen in Swap2 */
+  private boolean openingExtended;
+
   /** Empty constructor for Kryonet */
   public InitialServerDataPacket()
   {
@@ -52,13 +63,47 @@ public class InitialServerDataPacket
   public InitialServerDataPacket(GomokuBoard board, GomokuConfig config, Color playerColor, Color turnColor,
       List<Player> playerList)
   {
-    this.board = board.getBoardData();
+    this.board = board.snapshot();
     this.config = config;
     this.playerColor = playerColor;
     this.turnColor = turnColor;
     this.playerList = playerList;
   }
 
+  /**
+   * Copy the moves and the choices of color of a game, so the opening rules
+   * can be followed by a client joining after the first move
+   *
+   * @param game the game
+   */
+  public void setHistory(GomokuGame game)
+  {
+    this.moves = new int[game.getMoveCount()];
+    for (int i = 0; i < moves.length; i++)
+    {
+      this.moves[i] = game.getMove(i);
+    }
+
+    this.choiceMove = game.getChoiceMove();
+    this.openingExtended = game.isOpeningExtended();
+  }
+
+  /**
+   * Restore the moves and the choices of color to a game with the board of
+   * this packet
+   *
+   * @param game the game
+   */
+  public void restoreHistory(GomokuGame game)
+  {
+    if (moves != null)
+    {
+      game.applyMoves(moves, 0, moves.length);
+    }
+
+    game.setOpeningState(choiceMove, openingExtended);
+  }
+
   /**
    * Returns the board
    *
@@ -66,10 +111,7 @@ public class InitialServerDataPacket
    */
   public GomokuBoard getBoard()
   {
-    BoardImpl board = new BoardImpl(config.getWidth(), config.getHeight());
-    board.setBoardData(this.board);
-
-    return board;
+    return this.board.toBoard(config.getBoardType());
   }
 
   public GomokuConfig getConfig()
@@ -6,11 +6,15 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryonet.Client;
 import com.esotericsoftware.kryonet.Server;
 
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.BoardType;
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuConfig;
 import se.samuelandersson.gomoku.Player;
+import se.samuelandersson.gomoku.action.ChooseColorAction;
 import se.samuelandersson.gomoku.action.PlacePieceAction;
 import se.samuelandersson.gomoku.impl.BoardImpl;
+import se.samuelandersson.gomoku.rules.OpeningRule;
 
 /**
  * For kryonets {@link Client} and {@link Server}. Used to register all classes
@@ -51,5 +55,14 @@ public abstract class RegisterPackets
     kryo.register(Player.class);
     kryo.register(HandshakeClientPacket.class);
     kryo.register(HandshakeServerPacket.class);
+    kryo.register(BoardType.class);
+    kryo.register(long[].class);
+    kryo.register(BoardSnapshot.class);
+    kryo.register(long[][].class);
+    kryo.register(ForbiddenMaskPacket.class);
+    kryo.register(OpeningRule.class);
+    kryo.register(ChooseColorAction.class);
+    kryo.register(byte[].class);
+    kryo.register(byte[][].class);
   }
 }
@@ -30,5 +30,8 @@ public enum Request
   LEAVE_GAME,
   
   /** Request to join a game in a single-game server */
-  JOIN_SINGLE_GAME_SERVER;
+  JOIN_SINGLE_GAME_SERVER,
+
+  /** Request a computer player to take the free seat of the game */
+  PLAY_COMPUTER;
 }
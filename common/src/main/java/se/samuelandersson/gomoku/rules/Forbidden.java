@@ -0,0 +1,39 @@
+package se.samuelandersson.gomoku.rules;
+
+/**
+ * The reasons a move can be forbidden, see {@link RenjuRules}
+ *
+ * @author Samuel Andersson
+ */
+public enum Forbidden
+{
+  /** The move is allowed */
+  NONE("None"),
+
+  /** The move creates two or more threes */
+  DOUBLE_THREE("Three And Three"),
+
+  /** The move creates two or more fours */
+  DOUBLE_FOUR("Four And Four"),
+
+  /** The move creates a row longer than five */
+  OVERLINE("Overline");
+
+  private String name;
+
+  private Forbidden(final String name)
+  {
+    this.name = name;
+  }
+
+  public String getName()
+  {
+    return this.name;
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getName();
+  }
+}
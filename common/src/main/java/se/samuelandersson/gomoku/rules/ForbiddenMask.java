@@ -0,0 +1,324 @@
+package se.samuelandersson.gomoku.rules;
+
+import java.util.Arrays;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Moves;
+
+/**
+ * The points each color is forbidden to place on, one bitset per color.
+ * <p>
+ * The server keeps the mask up to date with {@link #update(GomokuGame, int, int)}
+ * after every move, which only checks the cells whose lines passed through the
+ * changed position. The changes made since the last {@link #clearChanges()}
+ * are sent to the clients, which {@link #apply(boolean, int[], int[])} them to
+ * their own mask and can reject forbidden points without checking the rules.
+ * <p>
+ * With the Renju rules a point also depends on the lines through the points
+ * that could complete its threes, so the cells on the lines through those are
+ * checked as well. Chains deeper than that are not followed, so under Renju
+ * the mask is only a hint, see {@link #isExact(GomokuConfig)}, and the server
+ * still checks every move against the rules.
+ *
+ * @author Samuel Andersson
+ */
+public class ForbiddenMask
+{
+  /** How far along a line a stone affects the rule checks of five in a row */
+  private static final int RADIUS = 5;
+
+  /** How far along a line the points completing a three can be */
+  private static final int THREE_RADIUS = 4;
+
+  private static final int[] DIR_X = { 1, 0, 1, 1 };
+  private static final int[] DIR_Y = { 0, 1, 1, -1 };
+
+  private final int width;
+  private final int height;
+
+  /** The forbidden points, indexed by color id - 1 */
+  private final long[][] masks = new long[2][];
+
+  /** The moves added and removed since the last clear, packed by {@link Moves} */
+  private int[] added = new int[16];
+  private int addedCount;
+  private int[] removed = new int[16];
+  private int removedCount;
+
+  /** The cells to check in an update */
+  private long[] dirty;
+  private int[] dirtyCells = new int[64];
+  private int dirtyCount;
+
+  public ForbiddenMask(int width, int height)
+  {
+    this.width = width;
+    this.height = height;
+    clear();
+  }
+
+  /**
+   * Returns the colors the rules of a game forbid some points for
+   *
+   * @param config the config of the game
+   * @return the restricted colors, possibly none
+   */
+  public static Color[] getRestrictedColors(GomokuConfig config)
+  {
+    if (config.useThreeAndThree() || config.useFourAndFour())
+    {
+      return new Color[] { Color.BLACK, Color.WHITE };
+    }
+
+    if (config.useRenju())
+    {
+      return new Color[] { Color.BLACK };
+    }
+
+    return new Color[0];
+  }
+
+  /**
+   * Returns whether {@link #update(GomokuGame, int, int)} keeps the mask exact
+   * for the rules of a game. The 3&3 and 4&4 rules only read the lines through
+   * a point, while a Renju point can depend on points arbitrarily far away.
+   *
+   * @param config the config of the game
+   * @return true if the mask can be trusted instead of checking the rules
+   */
+  public static boolean isExact(GomokuConfig config)
+  {
+    return !config.useRenju();
+  }
+
+  /**
+   * Remove all points, without recording any changes
+   */
+  public void clear()
+  {
+    int length = (width * height + 63) >>> 6;
+    masks[0] = new long[length];
+    masks[1] = new long[length];
+    dirty = new long[length];
+    clearChanges();
+  }
+
+  public boolean isForbidden(Color color, int x, int y)
+  {
+    if (color == Color.NONE || x < 0 || x >= width || y < 0 || y >= height)
+    {
+      return false;
+    }
+
+    int cell = x + width * y;
+    return (masks[color.getId() - 1][cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /**
+   * Set whether a point is forbidden, recording the change
+   *
+   * @param color the color
+   * @param x the x location
+   * @param y the y location
+   * @param forbidden whether the point is forbidden
+   */
+  public void set(Color color, int x, int y, boolean forbidden)
+  {
+    if (isForbidden(color, x, y) == forbidden)
+    {
+      return;
+    }
+
+    int cell = x + width * y;
+    masks[color.getId() - 1][cell >>> 6] ^= 1L << cell;
+
+    if (forbidden)
+    {
+      added = append(added, addedCount++, Moves.pack(color, x, y));
+    }
+    else
+    {
+      removed = append(removed, removedCount++, Moves.pack(color, x, y));
+    }
+  }
+
+  private static int[] append(int[] array, int index, int value)
+  {
+    if (index == array.length)
+    {
+      array = Arrays.copyOf(array, array.length * 2);
+    }
+
+    array[index] = value;
+    return array;
+  }
+
+  /**
+   * Check every empty cell of the board against the rules of the game
+   *
+   * @param game the game
+   */
+  public void rebuild(GomokuGame game)
+  {
+    Color[] colors = getRestrictedColors(game.getConfig());
+    for (int y = 0; y < height; y++)
+    {
+      for (int x = 0; x < width; x++)
+      {
+        check(game, colors, x, y);
+      }
+    }
+  }
+
+  /**
+   * Check the cells affected by a change of x, y against the rules of the game
+   *
+   * @param game the game
+   * @param x the x location changed
+   * @param y the y location changed
+   */
+  public void update(GomokuGame game, int x, int y)
+  {
+    Color[] colors = getRestrictedColors(game.getConfig());
+    if (colors.length == 0)
+    {
+      return;
+    }
+
+    // the rule checks read as far as the victory length along each line
+    markLines(x, y, Math.max(RADIUS, game.getConfig().getVictoryLength()));
+    if (game.getConfig().useRenju())
+    {
+      // the points on these lines may complete threes of cells further away
+      int count = dirtyCount;
+      for (int i = 0; i < count; i++)
+      {
+        markLines(dirtyCells[i] % width, dirtyCells[i] / width, THREE_RADIUS);
+      }
+    }
+
+    for (int i = 0; i < dirtyCount; i++)
+    {
+      int cell = dirtyCells[i];
+      dirty[cell >>> 6] &= ~(1L << cell);
+      check(game, colors, cell % width, cell / width);
+    }
+
+    dirtyCount = 0;
+  }
+
+  private void markLines(int x, int y, int radius)
+  {
+    for (int dir = 0; dir < DIR_X.length; dir++)
+    {
+      for (int offset = -radius; offset <= radius; offset++)
+      {
+        int xpos = x + offset * DIR_X[dir];
+        int ypos = y + offset * DIR_Y[dir];
+        if (xpos < 0 || xpos >= width || ypos < 0 || ypos >= height)
+        {
+          continue;
+        }
+
+        int cell = xpos + width * ypos;
+        if ((dirty[cell >>> 6] & (1L << cell)) == 0)
+        {
+          dirty[cell >>> 6] |= 1L << cell;
+          dirtyCells = append(dirtyCells, dirtyCount++, cell);
+        }
+      }
+    }
+  }
+
+  private void check(GomokuGame game, Color[] colors, int x, int y)
+  {
+    boolean empty = game.getBoard().getPiece(x, y) == Color.NONE;
+    for (Color color : colors)
+    {
+      set(color, x, y, empty && game.checkForbidden(color, x, y) != Forbidden.NONE);
+    }
+  }
+
+  /**
+   * Apply changes recorded by another mask
+   *
+   * @param reset whether to remove all points first
+   * @param added the points added, packed by {@link Moves}
+   * @param removed the points removed, packed by {@link Moves}
+   */
+  public void apply(boolean reset, int[] added, int[] removed)
+  {
+    if (reset)
+    {
+      clear();
+    }
+
+    for (int move : removed)
+    {
+      set(Moves.getColor(move), Moves.getX(move), Moves.getY(move), false);
+    }
+
+    for (int move : added)
+    {
+      set(Moves.getColor(move), Moves.getX(move), Moves.getY(move), true);
+    }
+  }
+
+  /**
+   * Returns all forbidden points, packed by {@link Moves}
+   *
+   * @return all forbidden points
+   */
+  public int[] getPoints()
+  {
+    int[] points = new int[16];
+    int count = 0;
+    for (int id = 1; id <= 2; id++)
+    {
+      long[] mask = masks[id - 1];
+      for (int index = 0; index < mask.length; index++)
+      {
+        for (long bits = mask[index]; bits != 0; bits &= bits - 1)
+        {
+          int cell = (index << 6) + Long.numberOfTrailingZeros(bits);
+          points = append(points, count++, Moves.pack(Color.valueOf(id), cell % width, cell / width));
+        }
+      }
+    }
+
+    return Arrays.copyOf(points, count);
+  }
+
+  /**
+   * Returns the points added since the last {@link #clearChanges()}
+   *
+   * @return the points added, packed by {@link Moves}
+   */
+  public int[] getAdded()
+  {
+    return Arrays.copyOf(added, addedCount);
+  }
+
+  /**
+   * Returns the points removed since the last {@link #clearChanges()}
+   *
+   * @return the points removed, packed by {@link Moves}
+   */
+  public int[] getRemoved()
+  {
+    return Arrays.copyOf(removed, removedCount);
+  }
+
+  public boolean hasChanges()
+  {
+    return addedCount > 0 || removedCount > 0;
+  }
+
+  public void clearChanges()
+  {
+    addedCount = 0;
+    removedCount = 0;
+  }
+}
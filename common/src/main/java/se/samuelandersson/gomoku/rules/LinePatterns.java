@@ -0,0 +1,401 @@
+package se.samuelandersson.gomoku.rules;
+
+/**
+ * Precomputed classification of the line through a cell. A line is described
+ * by the cells within {@link #getRadius()} of the center in both directions,
+ * seen from the color placing on the center. Every cell is {@link #EMPTY},
+ * {@link #OWN} or {@link #BLOCKED} (the opponent or outside the board), and
+ * the cells are encoded as the digits of a base-3 number, the window index.
+ * Digit 0 is the cell furthest away in the negative direction, the center
+ * itself is not part of the index since it is always {@link #OWN}.
+ * <p>
+ * For every window index the tables hold the class of the line (five, four,
+ * open three etc) and the cells that would complete it. The tables for five
+ * in a row are generated when the class is loaded, other lengths are generated
+ * on first use.
+ *
+ * @author Samuel Andersson
+ */
+public final class LinePatterns
+{
+  /** The line is a row of exactly victory length (or longer if overlines count) */
+  public static final int FIVE = 1;
+
+  /** The line is a row longer than the victory length */
+  public static final int OVERLINE = 1 << 1;
+
+  /** One move makes a five */
+  public static final int FOUR = 1 << 2;
+
+  /** Two moves make a five, on each end of an unbroken row, i.e. .XXXX. */
+  public static final int STRAIGHT_FOUR = 1 << 3;
+
+  /** Two separate fours in the same line, i.e. X.XXX.X */
+  public static final int DOUBLE_FOUR = 1 << 4;
+
+  /** One move makes a straight four */
+  public static final int OPEN_THREE = 1 << 5;
+
+  public static final int EMPTY = 0;
+  public static final int OWN = 1;
+  public static final int BLOCKED = 2;
+
+  /** The longest victory length tables can be generated for */
+  public static final int MAX_LENGTH = 6;
+
+  /** Tables for five in a row where overlines does not count as five */
+  public static final LinePatterns STANDARD = new LinePatterns(5, true);
+
+  private static final LinePatterns[][] cache = new LinePatterns[MAX_LENGTH + 1][2];
+
+  static
+  {
+    cache[STANDARD.length][1] = STANDARD;
+  }
+
+  private final int length;
+  private final boolean exactFive;
+  private final int radius;
+  private final int digits;
+
+  /** Line class flags per window index */
+  private final byte[] flags;
+
+  /** Digits of the cells making a five, per window index */
+  private final short[] fourPoints;
+
+  /** Digits of the cells making a straight four, per window index */
+  private final short[] threePoints;
+
+  /** Converts a bitset of digits to the base-3 number with those digits set to 1 */
+  private final int[] base3;
+
+  private LinePatterns(final int length, final boolean exactFive)
+  {
+    this.length = length;
+    this.exactFive = exactFive;
+    this.radius = length;
+    this.digits = 2 * radius;
+
+    int size = 1;
+    for (int i = 0; i < digits; i++)
+    {
+      size *= 3;
+    }
+
+    flags = new byte[size];
+    fourPoints = new short[size];
+    threePoints = new short[size];
+
+    base3 = new int[1 << digits];
+    for (int bits = 1; bits < base3.length; bits++)
+    {
+      int highest = 31 - Integer.numberOfLeadingZeros(bits);
+      base3[bits] = base3[bits & ~(1 << highest)] + pow3(highest);
+    }
+
+    int[] line = new int[digits + 1];
+    for (int index = 0; index < size; index++)
+    {
+      int rest = index;
+      for (int digit = 0; digit < digits; digit++)
+      {
+        line[getPosition(digit)] = rest % 3;
+        rest /= 3;
+      }
+      line[radius] = OWN;
+
+      classify(index, line);
+    }
+  }
+
+  /**
+   * Returns the tables for provided victory length.
+   *
+   * @param victoryLength the number of pieces in a row needed to win
+   * @param exactFive whether a longer row than victory length should not count as five
+   * @return the tables
+   * @throws IllegalArgumentException if victory length is not between 2 and {@value #MAX_LENGTH}
+   */
+  public static LinePatterns get(final int victoryLength, final boolean exactFive)
+  {
+    if (victoryLength < 2 || victoryLength > MAX_LENGTH)
+    {
+      throw new IllegalArgumentException("No line patterns for victory length " + victoryLength);
+    }
+
+    synchronized (cache)
+    {
+      LinePatterns patterns = cache[victoryLength][exactFive ? 1 : 0];
+      if (patterns == null)
+      {
+        patterns = new LinePatterns(victoryLength, exactFive);
+        cache[victoryLength][exactFive ? 1 : 0] = patterns;
+      }
+
+      return patterns;
+    }
+  }
+
+  private void classify(int index, int[] line)
+  {
+    int run = getRun(line);
+    int result = run > length ? OVERLINE : 0;
+    if (isFive(run))
+    {
+      flags[index] = (byte) (result | FIVE);
+      return;
+    }
+
+    int fours = getCompletions(line);
+    fourPoints[index] = (short) fours;
+
+    int count = Integer.bitCount(fours);
+    if (count == 1)
+    {
+      result |= FOUR;
+    }
+    else if (count > 1)
+    {
+      result |= isStraightFour(line, fours) ? STRAIGHT_FOUR : DOUBLE_FOUR;
+    }
+    else
+    {
+      int threes = 0;
+      for (int digit = 0; digit < digits; digit++)
+      {
+        int pos = getPosition(digit);
+        if (line[pos] == EMPTY)
+        {
+          line[pos] = OWN;
+          if (isStraightFour(line, getCompletions(line)))
+          {
+            threes |= 1 << digit;
+          }
+          line[pos] = EMPTY;
+        }
+      }
+
+      threePoints[index] = (short) threes;
+      if (threes != 0)
+      {
+        result |= OPEN_THREE;
+      }
+    }
+
+    flags[index] = (byte) result;
+  }
+
+  private boolean isFive(int run)
+  {
+    return exactFive ? run == length : run >= length;
+  }
+
+  /**
+   * Returns the length of the row of own pieces through the center
+   */
+  private int getRun(int[] line)
+  {
+    int first = radius;
+    while (first > 0 && line[first - 1] == OWN)
+    {
+      first--;
+    }
+
+    int last = radius;
+    while (last < digits && line[last + 1] == OWN)
+    {
+      last++;
+    }
+
+    return last - first + 1;
+  }
+
+  /**
+   * Returns the digits of the empty cells that makes a five through the center
+   */
+  private int getCompletions(int[] line)
+  {
+    int completions = 0;
+    for (int digit = 0; digit < digits; digit++)
+    {
+      int pos = getPosition(digit);
+      if (line[pos] == EMPTY && Math.abs(pos - radius) < length)
+      {
+        line[pos] = OWN;
+        if (isFive(getRun(line)))
+        {
+          completions |= 1 << digit;
+        }
+        line[pos] = EMPTY;
+      }
+    }
+
+    return completions;
+  }
+
+  /**
+   * Whether the row through the center is one short of five and is completed
+   * by the cells on both of its ends
+   */
+  private boolean isStraightFour(int[] line, int completions)
+  {
+    if (getRun(line) != length - 1)
+    {
+      return false;
+    }
+
+    int first = radius;
+    while (line[first - 1] == OWN)
+    {
+      first--;
+    }
+
+    int last = radius;
+    while (line[last + 1] == OWN)
+    {
+      last++;
+    }
+
+    return (completions & (1 << getDigit(first - 1))) != 0 && (completions & (1 << getDigit(last + 1))) != 0;
+  }
+
+  private static int pow3(int exponent)
+  {
+    int result = 1;
+    for (int i = 0; i < exponent; i++)
+    {
+      result *= 3;
+    }
+
+    return result;
+  }
+
+  private int getPosition(int digit)
+  {
+    return digit < radius ? digit : digit + 1;
+  }
+
+  private int getDigit(int position)
+  {
+    return position < radius ? position : position - 1;
+  }
+
+  /**
+   * Returns the victory length the tables were generated for
+   *
+   * @return the victory length the tables were generated for
+   */
+  public int getLength()
+  {
+    return length;
+  }
+
+  /**
+   * Returns whether rows longer than the victory length are not counted as five
+   *
+   * @return whether rows longer than the victory length are not counted as five
+   */
+  public boolean isExactFive()
+  {
+    return exactFive;
+  }
+
+  /**
+   * Returns the number of cells on each side of the center that are part of a
+   * window
+   *
+   * @return the number of cells on each side of the center
+   */
+  public int getRadius()
+  {
+    return radius;
+  }
+
+  /**
+   * Returns the number of digits in a window index
+   *
+   * @return the number of digits in a window index
+   */
+  public int getDigits()
+  {
+    return digits;
+  }
+
+  /**
+   * Returns the offset from the center of the cell represented by provided
+   * digit
+   *
+   * @param digit the digit
+   * @return the offset from the center, never 0
+   */
+  public int getOffset(int digit)
+  {
+    return getPosition(digit) - radius;
+  }
+
+  /**
+   * Returns the window index for a line given as bitsets, where bit
+   * <i>n</i> is digit <i>n</i>
+   *
+   * @param own the cells with own pieces
+   * @param blocked the cells with opponent pieces or outside the board
+   * @return the window index
+   */
+  public int getIndex(int own, int blocked)
+  {
+    return base3[own] + 2 * base3[blocked];
+  }
+
+  /**
+   * Returns the line class flags for a window
+   *
+   * @param index the window index
+   * @return the line class flags
+   */
+  public int getFlags(int index)
+  {
+    return flags[index];
+  }
+
+  /**
+   * Returns the number of fours the window contains, where a
+   * {@link #DOUBLE_FOUR} counts as two
+   *
+   * @param index the window index
+   * @return the number of fours
+   */
+  public int getFourCount(int index)
+  {
+    int f = flags[index];
+    if ((f & DOUBLE_FOUR) != 0)
+    {
+      return 2;
+    }
+
+    return (f & (FOUR | STRAIGHT_FOUR)) != 0 ? 1 : 0;
+  }
+
+  /**
+   * Returns the digits of the cells that would make a five
+   *
+   * @param index the window index
+   * @return a bitset of digits
+   */
+  public int getFourPoints(int index)
+  {
+    return fourPoints[index];
+  }
+
+  /**
+   * Returns the digits of the cells that would make a straight four out of
+   * an open three
+   *
+   * @param index the window index
+   * @return a bitset of digits
+   */
+  public int getThreePoints(int index)
+  {
+    return threePoints[index];
+  }
+}
@@ -0,0 +1,42 @@
+package se.samuelandersson.gomoku.rules;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+
+/**
+ * Checks a move against one rule of the game. Every validator states the moves
+ * it applies to, so {@link MoveValidators} only runs it for those.
+ *
+ * @author Samuel Andersson
+ */
+public interface MoveValidator
+{
+  /** The end of a validator applying to every move from its first on */
+  int UNBOUNDED = Integer.MAX_VALUE;
+
+  /**
+   * Returns the number of the first move checked, the first move being 0
+   *
+   * @return the number of the first move checked
+   */
+  int getFirstMove();
+
+  /**
+   * Returns the number after the last move checked
+   *
+   * @return the number after the last move checked, or {@link #UNBOUNDED}
+   */
+  int getEndMove();
+
+  /**
+   * Check a move, which is the next move of the game
+   *
+   * @param game the game
+   * @param color the color of the stone
+   * @param x the x location
+   * @param y the y location
+   * @throws IllegalActionException if the move breaks the rule
+   */
+  void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException;
+}
@@ -0,0 +1,270 @@
+package se.samuelandersson.gomoku.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+
+/**
+ * The validators of a game compiled into one array per move of the opening and
+ * one for all moves after it, so checking a move only runs the validators that
+ * apply to it. After the opening no opening rule is looked at, no matter how
+ * many of them the config uses.
+ *
+ * @author Samuel Andersson
+ */
+public final class MoveValidators
+{
+  /** The validators of each move of the opening, indexed by move number */
+  private final MoveValidator[][] opening;
+
+  /** The validators of the moves after the opening */
+  private final MoveValidator[] rest;
+
+  /**
+   * Compile validators, which are run in the order given
+   *
+   * @param validators the validators
+   */
+  public MoveValidators(MoveValidator... validators)
+  {
+    // from this move on the same validators apply to every move
+    int length = 0;
+    for (MoveValidator validator : validators)
+    {
+      if (validator.getEndMove() != MoveValidator.UNBOUNDED)
+      {
+        length = Math.max(length, validator.getEndMove());
+      }
+      else
+      {
+        length = Math.max(length, validator.getFirstMove());
+      }
+    }
+
+    opening = new MoveValidator[length][];
+    for (int move = 0; move < length; move++)
+    {
+      opening[move] = select(validators, move);
+    }
+
+    rest = select(validators, length);
+  }
+
+  private static MoveValidator[] select(MoveValidator[] validators, int move)
+  {
+    List<MoveValidator> selected = new ArrayList<>();
+    for (MoveValidator validator : validators)
+    {
+      if (move >= validator.getFirstMove() && move < validator.getEndMove())
+      {
+        selected.add(validator);
+      }
+    }
+
+    return selected.toArray(new MoveValidator[selected.size()]);
+  }
+
+  /**
+   * Compile the validators of the rules of a config
+   *
+   * @param config the config
+   * @return the compiled validators
+   */
+  public static MoveValidators compile(GomokuConfig config)
+  {
+    List<MoveValidator> validators = new ArrayList<>();
+    validators.add(OCCUPIED);
+    validators.add(STONE_COLOR);
+
+    OpeningRule opening = config.getOpeningRule();
+    if (opening == OpeningRule.PRO || opening == OpeningRule.LONG_PRO)
+    {
+      validators.add(CENTER);
+      validators.add(new AwayFromCenter(opening == OpeningRule.PRO ? 2 : 3));
+    }
+    else if (opening == OpeningRule.SWAP || opening == OpeningRule.SWAP2)
+    {
+      int end = OpeningRule.SWAP_STONES + 1;
+      if (opening == OpeningRule.SWAP2)
+      {
+        end += OpeningRule.SWAP2_STONES;
+      }
+
+      validators.add(new ColorChosen(end));
+    }
+
+    if (ForbiddenMask.getRestrictedColors(config).length > 0)
+    {
+      validators.add(FORBIDDEN);
+    }
+
+    return new MoveValidators(validators.toArray(new MoveValidator[validators.size()]));
+  }
+
+  /**
+   * Check the next move of a game against the validators of its number
+   *
+   * @param game the game
+   * @param color the color of the stone
+   * @param x the x location
+   * @param y the y location
+   * @throws IllegalActionException if the move breaks a rule
+   */
+  public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+  {
+    int move = game.getMoveCount();
+    for (MoveValidator validator : move < opening.length ? opening[move] : rest)
+    {
+      validator.validate(game, color, x, y);
+    }
+  }
+
+  /**
+   * Returns the number of moves with validators of their own
+   *
+   * @return the number of moves before the validators stay the same
+   */
+  public int getOpeningLength()
+  {
+    return opening.length;
+  }
+
+  /**
+   * Base for validators of a range of moves
+   */
+  private abstract static class RangeValidator implements MoveValidator
+  {
+    private final int firstMove;
+    private final int endMove;
+
+    RangeValidator(int firstMove, int endMove)
+    {
+      this.firstMove = firstMove;
+      this.endMove = endMove;
+    }
+
+    @Override
+    public int getFirstMove()
+    {
+      return firstMove;
+    }
+
+    @Override
+    public int getEndMove()
+    {
+      return endMove;
+    }
+  }
+
+  private static final MoveValidator OCCUPIED = new RangeValidator(0, MoveValidator.UNBOUNDED)
+  {
+    @Override
+    public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+    {
+      if (game.getBoard().getPiece(x, y) != Color.NONE)
+      {
+        throw new IllegalActionException("That position is already occupied!");
+      }
+    }
+  };
+
+  private static final MoveValidator STONE_COLOR = new RangeValidator(0, MoveValidator.UNBOUNDED)
+  {
+    @Override
+    public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+    {
+      if (color != game.getNextColor())
+      {
+        throw new IllegalActionException("The next stone is " + game.getNextColor().getName() + "!");
+      }
+    }
+  };
+
+  private static final MoveValidator CENTER = new RangeValidator(0, 1)
+  {
+    @Override
+    public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+    {
+      if (x != game.getBoard().getWidth() / 2 || y != game.getBoard().getHeight() / 2)
+      {
+        throw new IllegalActionException("The first stone must be placed in the middle!");
+      }
+    }
+  };
+
+  /**
+   * The third stone must be placed outside a square in the middle
+   */
+  private static class AwayFromCenter extends RangeValidator
+  {
+    private final int radius;
+
+    AwayFromCenter(int radius)
+    {
+      super(2, 3);
+      this.radius = radius;
+    }
+
+    @Override
+    public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+    {
+      int dx = Math.abs(x - game.getBoard().getWidth() / 2);
+      int dy = Math.abs(y - game.getBoard().getHeight() / 2);
+      if (dx <= radius && dy <= radius)
+      {
+        int size = radius * 2 + 1;
+        throw new IllegalActionException("The third stone must be placed outside the " + size + "x" + size +
+                                         " area in the middle!");
+      }
+    }
+  }
+
+  /**
+   * No stone can be placed while a player is to choose color
+   */
+  private static class ColorChosen extends RangeValidator
+  {
+    ColorChosen(int endMove)
+    {
+      super(OpeningRule.SWAP_STONES, endMove);
+    }
+
+    @Override
+    public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+    {
+      if (game.getChoosingColor() != Color.NONE)
+      {
+        throw new IllegalActionException(game.getChoosingColor().getName() + " has to choose color first!");
+      }
+    }
+  }
+
+  private static final MoveValidator FORBIDDEN = new RangeValidator(0, MoveValidator.UNBOUNDED)
+  {
+    @Override
+    public void validate(GomokuGame game, Color color, int x, int y) throws IllegalActionException
+    {
+      // a Renju mask is only updated near each move, so it is not trusted
+      ForbiddenMask mask = game.getForbiddenMask();
+      if (mask != null && ForbiddenMask.isExact(game.getConfig()))
+      {
+        if (mask.isForbidden(color, x, y))
+        {
+          throw new IllegalActionException("That position is forbidden!");
+        }
+
+        return;
+      }
+
+      Forbidden forbidden = game.checkForbidden(color, x, y);
+      if (forbidden != Forbidden.NONE)
+      {
+        throw new IllegalActionException("Unable to place because of " + forbidden.getName() + "-rule.");
+      }
+    }
+  };
+}
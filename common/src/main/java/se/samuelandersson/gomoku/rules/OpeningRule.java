@@ -0,0 +1,132 @@
+package se.samuelandersson.gomoku.rules;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+
+/**
+ * The rules for the first moves of a game, all but the standard opening
+ * requiring one stone per turn. The stones alternate between black and white,
+ * but with the swap openings the player placing them and the
+ * colors of the players are decided as described below.
+ *
+ * @author Samuel Andersson
+ */
+public enum OpeningRule
+{
+  /** Black moves first, no restrictions */
+  STANDARD("Standard"),
+
+  /**
+   * The first stone is placed in the middle, and the third stone outside the
+   * 5x5 area in the middle
+   */
+  PRO("Pro"),
+
+  /**
+   * The first stone is placed in the middle, and the third stone outside the
+   * 7x7 area in the middle
+   */
+  LONG_PRO("Long Pro"),
+
+  /**
+   * The first player places the first three stones, then the second player
+   * chooses which color to play
+   */
+  SWAP("Swap"),
+
+  /**
+   * The first player places the first three stones, then the second player
+   * either chooses which color to play or places two more stones and lets the
+   * first player choose
+   */
+  SWAP2("Swap2");
+
+  /** The number of stones placed before the first choice of color */
+  public static final int SWAP_STONES = 3;
+
+  /** The number of stones placed when the choice is passed on in Swap2 */
+  public static final int SWAP2_STONES = 2;
+
+  private String name;
+
+  private OpeningRule(final String name)
+  {
+    this.name = name;
+  }
+
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * Returns the color of the player placing a move, which is not the color of
+   * the stone while the swap openings are being placed
+   *
+   * @param config the config of the game
+   * @param move the number of the move, the first move being 0
+   * @param extended whether two more stones were chosen in Swap2
+   * @return the color of the player placing the move
+   */
+  public Color getMover(GomokuConfig config, int move, boolean extended)
+  {
+    if (this == SWAP || this == SWAP2)
+    {
+      if (move < SWAP_STONES)
+      {
+        return Color.BLACK;
+      }
+
+      if (extended && move < SWAP_STONES + SWAP2_STONES)
+      {
+        return Color.WHITE;
+      }
+    }
+
+    return config.getStoneColor(move);
+  }
+
+  /**
+   * Returns the color of the player to choose which color to play before a
+   * move, unless the choice is already made
+   *
+   * @param move the number of the move, the first move being 0
+   * @param extended whether two more stones were chosen in Swap2
+   * @return the color of the player choosing, or {@link Color#NONE}
+   */
+  public Color getChooser(int move, boolean extended)
+  {
+    if (this == SWAP || this == SWAP2)
+    {
+      if (move == SWAP_STONES && !extended)
+      {
+        return Color.WHITE;
+      }
+
+      if (move == SWAP_STONES + SWAP2_STONES && extended)
+      {
+        return Color.BLACK;
+      }
+    }
+
+    return Color.NONE;
+  }
+
+  /**
+   * Returns whether the player choosing may place two more stones instead
+   *
+   * @param move the number of the move, the first move being 0
+   * @param extended whether two more stones were chosen in Swap2
+   * @return whether two more stones can be chosen
+   */
+  public boolean canExtend(int move, boolean extended)
+  {
+    return this == SWAP2 && move == SWAP_STONES && !extended;
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.getName();
+  }
+}
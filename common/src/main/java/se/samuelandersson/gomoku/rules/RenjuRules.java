@@ -0,0 +1,395 @@
+package se.samuelandersson.gomoku.rules;
+
+import java.util.function.IntConsumer;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.Zobrist;
+
+/**
+ * Finds the moves forbidden for black by the Renju rules. A move making
+ * exactly five is always allowed. Otherwise a move is forbidden if it makes a
+ * row of six or more, two or more fours, or two or more threes.
+ * <p>
+ * A four is a row that becomes exactly five with one more stone. A three only
+ * counts if one more stone makes it a straight four, open in both ends, and
+ * that stone is not forbidden itself. Deciding that means checking the
+ * completing stone with the same rules, recursively.
+ * <p>
+ * Every result, including the ones from the recursion, is cached by the hash
+ * of the board and the position, so asking again about the same board is a
+ * lookup. The rules keep a copy of the board with a border around it to work
+ * on. The copy listens to the cells set on the board, see
+ * {@link GomokuBoard#addCellListener(IntConsumer)}, and only those cells are
+ * copied again. All of the board is copied when the hash of the copy no longer
+ * matches, for example after the whole board has been replaced, and when the
+ * rules are used with another board. An instance must only be used by one
+ * thread at a time, the same thread that changes the board.
+ *
+ * @author Samuel Andersson
+ */
+public class RenjuRules
+{
+  private static final int DEFAULT_CACHE_BITS = 14;
+
+  private static final Forbidden[] RESULTS = Forbidden.values();
+
+  /** The most cells set on the board before all of it is copied again */
+  private static final int MAX_CHANGES = 64;
+
+  /** The board copied, and its version at the time */
+  private GomokuBoard board;
+  private long boardVersion;
+
+  private Grid grid;
+
+  /** The board with a border of walls, indexed as the grid of the board */
+  private byte[] cells;
+
+  /** The steps between neighbours in each direction */
+  private final int[] steps = new int[4];
+
+  /** The hash of the board copy, including the stones placed while checking */
+  private long hash;
+
+  /** The cells set on the board since the copy, or -1 if there were too many */
+  private final int[] changes = new int[MAX_CHANGES];
+  private int changeCount;
+
+  private final IntConsumer cellListener = this::cellChanged;
+
+  private final long[] cacheHashes;
+  private final int[] cacheCells;
+
+  /** The cached results, the ordinal of the result plus one */
+  private final byte[] cacheResults;
+
+  public RenjuRules()
+  {
+    this(DEFAULT_CACHE_BITS);
+  }
+
+  /**
+   * Create new rules
+   *
+   * @param cacheBits the cache holds 2^cacheBits results
+   */
+  public RenjuRules(int cacheBits)
+  {
+    cacheHashes = new long[1 << cacheBits];
+    cacheCells = new int[1 << cacheBits];
+    cacheResults = new byte[1 << cacheBits];
+  }
+
+  /**
+   * Returns whether a move is forbidden
+   *
+   * @param board the board
+   * @param color the color moving, only black has forbidden moves
+   * @param x the x location
+   * @param y the y location
+   * @return the reason the move is forbidden, or {@link Forbidden#NONE}
+   */
+  public Forbidden check(GomokuBoard board, Color color, int x, int y)
+  {
+    if (color != Color.BLACK || x < 0 || x >= board.getWidth() || y < 0 || y >= board.getHeight() ||
+        board.getPiece(x, y) != Color.NONE)
+    {
+      return Forbidden.NONE;
+    }
+
+    load(board);
+
+    return evaluate(grid.index(x, y));
+  }
+
+  /**
+   * Copy the board unless it is the one copied last, in which case only the
+   * cells set since are copied
+   */
+  private void load(GomokuBoard board)
+  {
+    if (this.board == board)
+    {
+      if (boardVersion == board.getVersion() || copyChanges())
+      {
+        boardVersion = board.getVersion();
+        return;
+      }
+    }
+    else
+    {
+      if (this.board != null)
+      {
+        this.board.removeCellListener(cellListener);
+      }
+
+      board.addCellListener(cellListener);
+    }
+
+    this.board = board;
+    this.boardVersion = board.getVersion();
+    this.grid = board.getGrid();
+    this.hash = board.getHash();
+    this.changeCount = 0;
+
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      steps[dir] = grid.getOffset(dir);
+    }
+
+    if (cells == null || cells.length != grid.getSize())
+    {
+      cells = new byte[grid.getSize()];
+    }
+
+    for (int i = 0; i < cells.length; i++)
+    {
+      cells[i] = board.getCell(i);
+    }
+  }
+
+  /**
+   * Copy the cells set on the board since the last copy
+   *
+   * @return false if all of the board has to be copied instead
+   */
+  private boolean copyChanges()
+  {
+    int count = changeCount;
+    changeCount = 0;
+    if (count < 0 || grid != board.getGrid())
+    {
+      return false;
+    }
+
+    for (int i = 0; i < count; i++)
+    {
+      int cell = changes[i];
+      byte value = board.getCell(cell);
+      if (cells[cell] != value)
+      {
+        hash ^= Zobrist.getKey(cells[cell], grid.getX(cell), grid.getY(cell)) ^
+                Zobrist.getKey(value, grid.getX(cell), grid.getY(cell));
+        cells[cell] = value;
+      }
+    }
+
+    // a board replaced without setting its cells is not heard of, but changes
+    // its hash
+    return hash == board.getHash();
+  }
+
+  private void cellChanged(int cell)
+  {
+    if (changeCount == MAX_CHANGES)
+    {
+      changeCount = -1;
+    }
+    else if (changeCount >= 0)
+    {
+      changes[changeCount++] = cell;
+    }
+  }
+
+  /**
+   * Returns whether black placing on the empty cell is forbidden, from the
+   * cache if possible
+   */
+  private Forbidden evaluate(int cell)
+  {
+    int slot = getSlot(hash, cell);
+    if (cacheResults[slot] != 0 && cacheHashes[slot] == hash && cacheCells[slot] == cell)
+    {
+      return RESULTS[cacheResults[slot] - 1];
+    }
+
+    long before = hash;
+    place(cell);
+    Forbidden result = classify(cell);
+    remove(cell);
+
+    cacheHashes[slot] = before;
+    cacheCells[slot] = cell;
+    cacheResults[slot] = (byte) (result.ordinal() + 1);
+
+    return result;
+  }
+
+  private int getSlot(long hash, int cell)
+  {
+    long key = (hash ^ cell) * 0x9E3779B97F4A7C15L;
+    return (int) (key >>> 40) & (cacheResults.length - 1);
+  }
+
+  private void place(int cell)
+  {
+    cells[cell] = Grid.BLACK;
+    hash ^= Zobrist.getKey(Grid.BLACK, grid.getX(cell), grid.getY(cell));
+  }
+
+  private void remove(int cell)
+  {
+    cells[cell] = Grid.EMPTY;
+    hash ^= Zobrist.getKey(Grid.BLACK, grid.getX(cell), grid.getY(cell));
+  }
+
+  /**
+   * Classify a black stone just placed on the cell
+   */
+  private Forbidden classify(int cell)
+  {
+    boolean overline = false;
+    for (int step : steps)
+    {
+      int length = getRunLength(cell, step);
+      if (length == 5)
+      {
+        return Forbidden.NONE;
+      }
+
+      overline |= length > 5;
+    }
+
+    if (overline)
+    {
+      return Forbidden.OVERLINE;
+    }
+
+    int fours = 0;
+    int threes = 0;
+    for (int step : steps)
+    {
+      int lineFours = getFourCount(cell, step);
+      fours += lineFours;
+      if (lineFours == 0 && isThree(cell, step))
+      {
+        threes++;
+      }
+    }
+
+    if (fours >= 2)
+    {
+      return Forbidden.DOUBLE_FOUR;
+    }
+
+    if (threes >= 2)
+    {
+      return Forbidden.DOUBLE_THREE;
+    }
+
+    return Forbidden.NONE;
+  }
+
+  private int getRunLength(int cell, int step)
+  {
+    return 1 + walk(cell, step) + walk(cell, -step);
+  }
+
+  /**
+   * Returns the number of black stones following the cell in one direction
+   */
+  private int walk(int cell, int step)
+  {
+    int count = 0;
+    for (int pos = cell + step; cells[pos] == Grid.BLACK; pos += step)
+    {
+      count++;
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns the number of fours through the cell in one direction. Two points
+   * completing the same four, as in an open four, count once.
+   */
+  private int getFourCount(int cell, int step)
+  {
+    int count = 0;
+    int firstOffset = 0;
+    for (int offset = -4; offset <= 4; offset++)
+    {
+      int pos = cell + offset * step;
+      if (offset == 0 || cells[pos] != Grid.EMPTY)
+      {
+        continue;
+      }
+
+      cells[pos] = Grid.BLACK;
+      int before = walk(pos, -step);
+      int after = walk(pos, step);
+      cells[pos] = Grid.EMPTY;
+
+      // exactly five, and the cell is part of it
+      if (before + after + 1 == 5 && -offset >= -before && -offset <= after)
+      {
+        if (count == 1 && offset - firstOffset == 5)
+        {
+          continue;
+        }
+
+        if (count == 0)
+        {
+          firstOffset = offset;
+        }
+
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns whether the cell is part of a three in one direction, meaning one
+   * more allowed stone makes a straight four
+   */
+  private boolean isThree(int cell, int step)
+  {
+    for (int offset = -4; offset <= 4; offset++)
+    {
+      int pos = cell + offset * step;
+      if (offset == 0 || cells[pos] != Grid.EMPTY)
+      {
+        continue;
+      }
+
+      cells[pos] = Grid.BLACK;
+      boolean straightFour = isStraightFour(cell, pos, step);
+      cells[pos] = Grid.EMPTY;
+
+      if (straightFour && evaluate(pos) == Forbidden.NONE)
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns whether the run through the cell is four stones, including the
+   * other cell, that becomes exactly five in both ends
+   */
+  private boolean isStraightFour(int cell, int other, int step)
+  {
+    int before = walk(cell, -step);
+    int after = walk(cell, step);
+    if (before + after + 1 != 4)
+    {
+      return false;
+    }
+
+    int first = cell - (before + 1) * step;
+    int last = cell + (after + 1) * step;
+    if ((other - first) / step <= 0 || (last - other) / step <= 0)
+    {
+      return false;
+    }
+
+    return cells[first] == Grid.EMPTY && cells[last] == Grid.EMPTY && cells[first - step] != Grid.BLACK &&
+           cells[last + step] != Grid.BLACK;
+  }
+}
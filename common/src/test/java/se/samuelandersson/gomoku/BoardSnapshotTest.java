@@ -0,0 +1,44 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.impl.PackedBoardImpl;
+import se.samuelandersson.gomoku.net.BoardPacket;
+import se.samuelandersson.gomoku.net.RegisterPackets;
+
+public class BoardSnapshotTest
+{
+  @Test
+  public void testSnapshot()
+  {
+    GomokuBoard board = new PackedBoardImpl(15, 15);
+    board.setPiece(3, 4, Color.BLACK);
+    BoardSnapshot first = board.snapshot();
+    assertSame(board.snapshot(), first);
+
+    board.setPiece(5, 6, Color.WHITE);
+    BoardSnapshot second = board.snapshot();
+    assertEquals(first.getPiece(5, 6), Color.NONE);
+    assertEquals(second.getPiece(5, 6), Color.WHITE);
+    assertEquals(second.getPiece(3, 4), Color.BLACK);
+    assertEquals(second.getHash(), board.getHash());
+    assertTrue(second.getVersion() > first.getVersion());
+
+    Kryo kryo = new Kryo();
+    kryo.setRegistrationRequired(true);
+    RegisterPackets.register(kryo);
+    Output output = new Output(1024);
+    kryo.writeObject(output, new BoardPacket(board));
+    BoardPacket packet = kryo.readObject(new Input(output.toBytes()), BoardPacket.class);
+    assertEquals(packet.getBoard().getBoardData(), board.getBoardData());
+    assertEquals(packet.getSnapshot().getHash(), board.getHash());
+  }
+}
@@ -0,0 +1,18 @@
+package se.samuelandersson.gomoku;
+
+import org.testng.annotations.DataProvider;
+
+/**
+ * The board types tested against the array board, shared by the tests run on
+ * every board type
+ *
+ * @author Samuel Andersson
+ */
+public class BoardTypeProvider
+{
+  @DataProvider
+  public static Object[][] boardTypes()
+  {
+    return new Object[][] { { BoardType.BITBOARD }, { BoardType.PACKED }, { BoardType.SPARSE } };
+  }
+}
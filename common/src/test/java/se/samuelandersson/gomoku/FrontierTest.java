@@ -0,0 +1,51 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class FrontierTest
+{
+  @Test(dataProvider = "boardTypes", dataProviderClass = BoardTypeProvider.class)
+  public void testFrontier(BoardType boardType)
+  {
+    Random random = new Random(2);
+    GomokuBoard board = boardType.createBoard(17, 12);
+    board.setPiece(4, 4, Color.BLACK);
+    Frontier frontier = board.getFrontier();
+    assertEquals(frontier.size(), 24);
+
+    for (int i = 0; i < 300; i++)
+    {
+      Color color = random.nextInt(3) == 0 ? Color.NONE : Color.valueOf(1 + random.nextInt(2));
+      board.setPiece(random.nextInt(17), random.nextInt(12), color);
+
+      int expected = 0;
+      for (int y = 0; y < 12; y++)
+      {
+        for (int x = 0; x < 17; x++)
+        {
+          boolean near = false;
+          for (int ypos = y - 2; ypos <= y + 2; ypos++)
+          {
+            for (int xpos = x - 2; xpos <= x + 2; xpos++)
+            {
+              near |= board.getPiece(xpos, ypos) != Color.NONE;
+            }
+          }
+
+          boolean candidate = near && board.getPiece(x, y) == Color.NONE;
+          assertEquals(frontier.contains(x, y), candidate);
+          expected += candidate ? 1 : 0;
+        }
+      }
+
+      assertEquals(frontier.size(), expected);
+    }
+
+    board.reset();
+    assertEquals(board.getFrontier().size(), 0);
+  }
+}
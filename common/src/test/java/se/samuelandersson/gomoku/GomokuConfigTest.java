@@ -0,0 +1,45 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.net.RegisterPackets;
+import se.samuelandersson.gomoku.rules.OpeningRule;
+
+public class GomokuConfigTest
+{
+  @Test
+  public void testInvalidConfigs()
+  {
+    Object[][] rules = { { 7, 1, true, false, OpeningRule.STANDARD }, { 6, 1, false, true, OpeningRule.STANDARD },
+                         { 5, 2, false, true, OpeningRule.STANDARD }, { 5, 2, false, false, OpeningRule.SWAP2 } };
+    for (Object[] rule : rules)
+    {
+      try
+      {
+        new GomokuConfig("Invalid", 15, 15, (Integer) rule[0], (Integer) rule[1], false, (Boolean) rule[2],
+                         false, (Boolean) rule[3], (OpeningRule) rule[4], BoardType.ARRAY);
+        fail("Expected the rules to be rejected: " + Arrays.toString(rule));
+      }
+      catch (IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+
+    // a config received over the network skips the constructor
+    Kryo kryo = new Kryo();
+    RegisterPackets.register(kryo);
+    Output output = new Output(256);
+    kryo.writeObject(output, new GomokuConfig("Valid", 15, 15, 5, false, false, false));
+    GomokuConfig received = kryo.readObject(new Input(output.toBytes()), GomokuConfig.class);
+    received.validate();
+  }
+}
@@ -0,0 +1,32 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class LiveWindowsTest
+{
+  @Test(dataProvider = "boardTypes", dataProviderClass = BoardTypeProvider.class)
+  public void testLiveWindows(BoardType boardType)
+  {
+    Random random = new Random(4);
+    GomokuBoard board = boardType.createBoard(12, 9);
+    LiveWindows live = board.getLiveWindows(4);
+
+    // 9 windows in each of the 9 rows, 6 in each of the 12 columns and 9 * 6
+    // along each of the two diagonals
+    assertEquals(live.getLiveCount(Color.BLACK), 9 * 9 + 12 * 6 + 9 * 6 * 2);
+    for (int i = 0; i < 300; i++)
+    {
+      Color color = random.nextInt(3) == 0 ? Color.NONE : Color.valueOf(1 + random.nextInt(2));
+      board.setPiece(random.nextInt(12), random.nextInt(9), color);
+
+      LiveWindows expected = new LiveWindows(board, 4);
+      expected.rebuild();
+      assertEquals(board.getLiveWindows(4).getLiveCount(Color.BLACK), expected.getLiveCount(Color.BLACK));
+      assertEquals(board.getLiveWindows(4).getLiveCount(Color.WHITE), expected.getLiveCount(Color.WHITE));
+    }
+  }
+}
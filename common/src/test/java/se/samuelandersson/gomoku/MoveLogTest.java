@@ -0,0 +1,60 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.action.PlacePieceAction;
+import se.samuelandersson.gomoku.net.GameActionPacket;
+import se.samuelandersson.gomoku.net.RegisterPackets;
+
+public class MoveLogTest
+{
+  @Test
+  public void testPackedMoves() throws IOException
+  {
+    Kryo kryo = new Kryo();
+    RegisterPackets.register(kryo);
+    Output output = new Output(1024);
+    kryo.writeObject(output, new GameActionPacket(new PlacePieceAction(Color.WHITE, 12, 3)));
+    assertTrue(output.position() < 16, "Packet of " + output.position() + " bytes");
+
+    GameActionPacket packet = kryo.readObject(new Input(output.toBytes()), GameActionPacket.class);
+    PlacePieceAction action = (PlacePieceAction) packet.getAction();
+    assertEquals(action.getColor(), Color.WHITE);
+    assertEquals(action.getX(), 12);
+    assertEquals(action.getY(), 3);
+    assertSame(packet.getAction(), action);
+
+    MoveLog log = new MoveLog(1);
+    for (int i = 0; i < 5; i++)
+    {
+      log.add(Moves.pack(i % 2 == 0 ? Color.BLACK : Color.WHITE, i, 2 * i));
+    }
+
+    assertEquals(log.undo(), Moves.pack(Color.BLACK, 4, 8));
+    assertTrue(log.canRedo());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    log.write(new DataOutputStream(bytes));
+    assertEquals(bytes.size(), 4 + 4 * 4);
+
+    MoveLog copy = new MoveLog();
+    copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(copy.toArray(), log.toArray());
+    assertFalse(copy.canRedo());
+  }
+}
@@ -0,0 +1,57 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.impl.BoardImpl;
+import se.samuelandersson.gomoku.impl.PackedBoardImpl;
+
+public class SymmetricHashesTest
+{
+  @Test
+  public void testSymmetricHashes()
+  {
+    Random random = new Random(7);
+    GomokuBoard board = new BoardImpl(15, 15);
+    SymmetricHashes hashes = board.getSymmetricHashes();
+    for (int i = 0; i < 30; i++)
+    {
+      board.setPiece(random.nextInt(15), random.nextInt(15), Color.valueOf(1 + random.nextInt(2)));
+    }
+
+    assertEquals(hashes.getHash(Symmetry.IDENTITY), board.getHash());
+    for (Symmetry symmetry : Symmetry.values())
+    {
+      GomokuBoard moved = new PackedBoardImpl(15, 15);
+      for (int y = 0; y < 15; y++)
+      {
+        for (int x = 0; x < 15; x++)
+        {
+          moved.setPiece(symmetry.getX(x, y, 15, 15), symmetry.getY(x, y, 15, 15), board.getPiece(x, y));
+        }
+      }
+
+      SymmetricHashes movedHashes = moved.getSymmetricHashes();
+      assertEquals(moved.getHash(), hashes.getHash(symmetry));
+      assertEquals(movedHashes.getCanonicalHash(), hashes.getCanonicalHash(), symmetry.toString());
+
+      // the same cell of both boards is the same cell of the canonical position
+      int move = Moves.pack(Color.BLACK, 3, 11);
+      int movedMove = symmetry.apply(move, 15, 15);
+      assertEquals(movedHashes.toCanonical(movedMove), hashes.toCanonical(move));
+      assertEquals(movedHashes.fromCanonical(hashes.toCanonical(move)), movedMove);
+    }
+
+    // only the four symmetries keeping the size apply to other boards
+    GomokuBoard wide = new BoardImpl(19, 9);
+    wide.setPiece(2, 1, Color.WHITE);
+    GomokuBoard flipped = new BoardImpl(19, 9);
+    flipped.setPiece(16, 7, Color.WHITE);
+    assertEquals(flipped.getSymmetricHashes().getCanonicalHash(), wide.getSymmetricHashes().getCanonicalHash());
+    assertFalse(wide.getSymmetricHashes().getCanonicalSymmetry().isSquareOnly());
+  }
+}
@@ -0,0 +1,66 @@
+package se.samuelandersson.gomoku;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class ThreatTrackerTest
+{
+  @Test
+  public void testThreats()
+  {
+    for (BoardType boardType : BoardType.values())
+    {
+      GomokuBoard board = boardType.createBoard(15, 15);
+      ThreatTracker threats = board.getThreats();
+
+      // ..XXX.. on row 7 is a three made straight four on either side
+      board.setPiece(5, 7, Color.BLACK);
+      board.setPiece(6, 7, Color.BLACK);
+      board.setPiece(7, 7, Color.BLACK);
+      assertEquals(threats.getCount(Color.BLACK, ThreatType.OPEN_THREE), 0);
+      assertSame(board.getThreats(), threats);
+      assertEquals(threats.getCount(Color.BLACK, ThreatType.OPEN_THREE), 2, boardType.toString());
+
+      board.setPiece(2, 2, Color.WHITE);
+      board.setPiece(2, 4, Color.WHITE);
+      board.setPiece(2, 5, Color.WHITE);
+      List<Threat> broken = board.getThreats().getThreats(Color.WHITE, ThreatType.BROKEN_THREE);
+      assertEquals(broken.size(), 1);
+      assertEquals(broken.get(0).getCompletions(), new int[] { Moves.pack(Color.WHITE, 2, 3) });
+
+      board.setPiece(8, 7, Color.BLACK);
+      List<Threat> straight = board.getThreats().getThreats(Color.BLACK, ThreatType.STRAIGHT_FOUR);
+      assertEquals(straight.size(), 1);
+      assertEquals(straight.get(0).getCompletions(),
+                   new int[] { Moves.pack(Color.BLACK, 4, 7), Moves.pack(Color.BLACK, 9, 7) });
+      assertEquals(threats.getCount(Color.BLACK, ThreatType.FOUR), 2);
+
+      board.setPiece(9, 7, Color.WHITE);
+      assertEquals(board.getThreats().getCount(Color.BLACK, ThreatType.STRAIGHT_FOUR), 0);
+      assertEquals(threats.getCount(Color.BLACK, ThreatType.FOUR), 1);
+
+      // the incremental threats match the ones found by scanning
+      Random random = new Random(5);
+      for (int i = 0; i < 200; i++)
+      {
+        board.setPiece(random.nextInt(15), random.nextInt(15), Color.valueOf(random.nextInt(3)));
+        if (i % 20 == 0)
+        {
+          ThreatTracker expected = new ThreatTracker(board, 5, true);
+          expected.rebuild();
+          for (Color color : new Color[] { Color.BLACK, Color.WHITE })
+          {
+            assertEquals(new HashSet<>(board.getThreats().getThreats(color)),
+                         new HashSet<>(expected.getThreats(color)));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package se.samuelandersson.gomoku.impl;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.Grid;
+
+public class BoardImplTest
+{
+  private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 }, { -1, 0 }, { -1, 1 } };
+
+  @Test
+  public void testRunIndex()
+  {
+    Random random = new Random(2);
+    BoardImpl board = new BoardImpl(9, 7);
+    Grid grid = board.getGrid();
+
+    for (int i = 0; i < 400; i++)
+    {
+      int x = random.nextInt(9);
+      int y = random.nextInt(7);
+      // mostly black, to get long rows that are joined and split
+      Color color = Color.valueOf(random.nextInt(5) < 3 ? 1 : random.nextInt(3));
+      switch (random.nextInt(10))
+      {
+        case 0:
+          board.setCell(grid.index(x, y), (byte) color.getId());
+          break;
+        case 1:
+          GomokuBoard copy = new BoardImpl(9, 7);
+          copy.setFrom(board);
+          copy.setPiece(x, y, color);
+          board.setBoardData(copy.getBoardData());
+          break;
+        case 2:
+          GomokuBoard source = new BoardImpl(9, 7);
+          source.setBoardData(board.getBoardData());
+          source.setPiece(x, y, color);
+          board.setFrom(source);
+          break;
+        default:
+          board.setPiece(x, y, color);
+          break;
+      }
+
+      assertCounts(board);
+    }
+  }
+
+  private static void assertCounts(BoardImpl board)
+  {
+    Grid grid = board.getGrid();
+    for (int y = 0; y < board.getHeight(); y++)
+    {
+      for (int x = 0; x < board.getWidth(); x++)
+      {
+        for (Color color : Color.values())
+        {
+          for (int[] dir : DIRECTIONS)
+          {
+            assertEquals(board.count(color, x, y, dir[0], dir[1]), scan(board, color, x, y, dir[0], dir[1]),
+                         "count " + color + " at " + x + "," + y);
+          }
+
+          for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+          {
+            assertEquals(board.count((byte) color.getId(), grid.index(x, y), dir),
+                         scan(board, color, x, y, AbstractBoard.DIR_X[dir], AbstractBoard.DIR_Y[dir]),
+                         "cell count " + color + " at " + x + "," + y);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Count the row through a position by walking the board
+   */
+  private static int scan(GomokuBoard board, Color color, int x, int y, int dirX, int dirY)
+  {
+    int ct = 1;
+    for (int sign = -1; sign <= 1; sign += 2)
+    {
+      int xpos = x + sign * dirX;
+      int ypos = y + sign * dirY;
+      while (board.getPiece(xpos, ypos) == color && xpos >= 0 && xpos < board.getWidth() && ypos >= 0
+             && ypos < board.getHeight())
+      {
+        ct++;
+        xpos += sign * dirX;
+        ypos += sign * dirY;
+      }
+    }
+
+    return ct;
+  }
+}
@@ -0,0 +1,170 @@
+package se.samuelandersson.gomoku.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.BoardTypeProvider;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.Grid;
+
+public class BoardImplementationsTest
+{
+  private static final int[][] DIRECTIONS = { { 1, 0 }, { 0, 1 }, { 1, 1 }, { 1, -1 } };
+
+  @Test(dataProvider = "boardTypes", dataProviderClass = BoardTypeProvider.class)
+  public void testMatchesBoardImpl(BoardType boardType)
+  {
+    Random random = new Random(1);
+    GomokuBoard expected = new BoardImpl(19, 13);
+    GomokuBoard actual = boardType.createBoard(19, 13);
+
+    for (int i = 0; i < 150; i++)
+    {
+      int x = random.nextInt(19);
+      int y = random.nextInt(13);
+      Color color = Color.valueOf(random.nextInt(3));
+      expected.setPiece(x, y, color);
+      actual.setPiece(x, y, color);
+    }
+
+    assertEquals(actual.getBoardData(), expected.getBoardData());
+    assertEquals(actual.getHash(), expected.getHash());
+
+    GomokuBoard copy = new BoardImpl(19, 13);
+    copy.setPackedData(actual.getPackedData());
+    assertEquals(copy.getBoardData(), expected.getBoardData());
+    assertEquals(copy.getHash(), expected.getHash());
+
+    for (int y = 0; y < 13; y++)
+    {
+      for (int x = 0; x < 19; x++)
+      {
+        assertEquals(actual.getPiece(x, y), expected.getPiece(x, y));
+        assertEquals(actual.try3And3(Color.BLACK, x, y), expected.try3And3(Color.BLACK, x, y));
+        assertEquals(actual.try4And4(Color.WHITE, x, y), expected.try4And4(Color.WHITE, x, y));
+        for (int[] dir : DIRECTIONS)
+        {
+          for (Color color : Color.values())
+          {
+            assertEquals(actual.count(color, x, y, dir[0], dir[1]),
+                         expected.count(color, x, y, dir[0], dir[1]),
+                         "count " + color + " at " + x + "," + y);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testThreeAndThree()
+  {
+    GomokuBoard board = new BitBoardImpl(15, 15);
+    board.setPiece(5, 7, Color.BLACK);
+    board.setPiece(6, 7, Color.BLACK);
+    board.setPiece(7, 5, Color.BLACK);
+    board.setPiece(7, 6, Color.BLACK);
+
+    assertFalse(board.try3And3(Color.BLACK, 7, 7));
+
+    board.setPiece(4, 7, Color.WHITE);
+    assertTrue(board.try3And3(Color.BLACK, 7, 7));
+  }
+
+  @Test
+  public void testBrokenThreeAndFour()
+  {
+    GomokuBoard board = new BitBoardImpl(15, 15);
+    // a broken three horizontally (X.XX) and a three vertically
+    board.setPiece(3, 7, Color.BLACK);
+    board.setPiece(5, 7, Color.BLACK);
+    board.setPiece(6, 5, Color.BLACK);
+    board.setPiece(6, 6, Color.BLACK);
+    assertFalse(board.try3And3(Color.BLACK, 6, 7));
+
+    board.setPiece(6, 4, Color.WHITE);
+    board.setPiece(6, 8, Color.WHITE);
+    assertTrue(board.try3And3(Color.BLACK, 6, 7));
+
+    // X.XXX.X is two fours in the same line
+    board.reset();
+    board.setPiece(0, 0, Color.BLACK);
+    board.setPiece(2, 0, Color.BLACK);
+    board.setPiece(4, 0, Color.BLACK);
+    board.setPiece(6, 0, Color.BLACK);
+    assertFalse(board.try4And4(Color.BLACK, 3, 0));
+  }
+
+  @Test
+  public void testSparseLargeBoard()
+  {
+    SparseBoardImpl board = new SparseBoardImpl(5000, 5000);
+    for (int i = 0; i < 4; i++)
+    {
+      board.setPiece(4990 + i, 10, Color.BLACK);
+    }
+
+    board.setPiece(2, 4999, Color.WHITE);
+    assertEquals(board.getChunkCount(), 3);
+    assertEquals(board.count(Color.BLACK, 4990, 10, 1, 0), 4);
+
+    BoardSnapshot snapshot = board.snapshot();
+    assertEquals(snapshot.getPiece(2, 4999), Color.WHITE);
+    assertEquals(snapshot.getPiece(4993, 10), Color.BLACK);
+    assertEquals(snapshot.getPiece(4994, 10), Color.NONE);
+  }
+
+  @Test(dataProvider = "boardTypes", dataProviderClass = BoardTypeProvider.class)
+  public void testCells(BoardType boardType)
+  {
+    Random random = new Random(3);
+    GomokuBoard expected = new BoardImpl(17, 11);
+    GomokuBoard actual = boardType.createBoard(17, 11);
+    Grid grid = actual.getGrid();
+    List<Integer> changed = new ArrayList<>();
+    actual.addCellListener(changed::add);
+
+    for (int i = 0; i < 120; i++)
+    {
+      int x = random.nextInt(17);
+      int y = random.nextInt(11);
+      byte value = (byte) random.nextInt(3);
+      expected.setCell(grid.index(x, y), value);
+      actual.setPiece(x, y, Color.valueOf(value));
+      assertEquals((int) changed.get(changed.size() - 1), grid.index(x, y));
+    }
+
+    assertEquals(actual.getHash(), expected.getHash());
+    assertEquals(expected.getCell(grid.index(-1, 3)), Grid.WALL);
+    assertEquals(actual.getCell(grid.index(17, 3)), Grid.WALL);
+
+    for (int y = 0; y < 11; y++)
+    {
+      for (int x = 0; x < 17; x++)
+      {
+        int index = grid.index(x, y);
+        assertEquals(actual.getCell(index), expected.getCell(index));
+        assertEquals(expected.getCell(index), expected.getPiece(x, y).getId());
+        for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+        {
+          for (byte value = Grid.EMPTY; value <= Grid.WHITE; value++)
+          {
+            Color color = Color.valueOf(value);
+            int count = expected.count(color, x, y, DIRECTIONS[dir][0], DIRECTIONS[dir][1]);
+            assertEquals(expected.count(value, index, dir), count, "count " + color + " at " + x + "," + y);
+            assertEquals(actual.count(value, index, dir), count, "count " + color + " at " + x + "," + y);
+          }
+        }
+      }
+    }
+  }
+}
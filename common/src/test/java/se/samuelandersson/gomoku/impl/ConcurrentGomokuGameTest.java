@@ -0,0 +1,87 @@
+package se.samuelandersson.gomoku.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardSnapshot;
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.action.PlacePieceAction;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
+
+public class ConcurrentGomokuGameTest
+{
+  @Test
+  public void testConcurrentReads() throws Exception
+  {
+    ConcurrentGomokuGame game = new ConcurrentGomokuGame(new GomokuGameImpl(new GomokuConfig()));
+    AtomicReference<String> failure = new AtomicReference<>();
+    Thread reader = new Thread(() -> {
+      int previous = 0;
+      while (!game.isGameOver() && failure.get() == null)
+      {
+        // the snapshot is taken after the count, so it has all of the moves
+        int count = game.getMoveCount();
+        BoardSnapshot snapshot = game.getSnapshot();
+        if (count < previous)
+        {
+          failure.set("Move count went from " + previous + " to " + count);
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+          int move = game.getMove(i);
+          if (snapshot.getPiece(Moves.getX(move), Moves.getY(move)) != Moves.getColor(move))
+          {
+            failure.set("Move " + i + " missing from snapshot " + snapshot.getVersion());
+          }
+        }
+
+        previous = count;
+      }
+    });
+    reader.start();
+
+    for (int i = 0; i < 9; i++)
+    {
+      Color color = game.getCurrentTurnPlayer().getColor();
+      game.perform(new PlacePieceAction(color, 3 + i / 2, color == Color.BLACK ? 7 : 8));
+    }
+
+    reader.join(10000);
+    assertTrue(game.isGameOver());
+    assertEquals(failure.get(), null);
+    assertEquals(game.getMoveCount(), 9);
+    assertEquals(game.getSnapshot().getHash(), game.getBoard().getHash());
+  }
+
+  @Test
+  public void testChecksPublishNothing() throws IllegalActionException
+  {
+    GomokuConfig config = new GomokuConfig("Renju", 15, 15, 5, false, false, false, true, BoardType.ARRAY);
+    ConcurrentGomokuGame game = new ConcurrentGomokuGame(new GomokuGameImpl(config));
+    game.perform(new PlacePieceAction(Color.BLACK, 7, 7));
+    long version = game.getVersion();
+    BoardSnapshot snapshot = game.getSnapshot();
+
+    ForbiddenMask mask = new ForbiddenMask(15, 15);
+    game.check(() -> mask.update(game, 7, 7));
+    game.checkForbidden(Color.BLACK, 8, 8);
+    game.validateMove(Color.WHITE, 8, 8);
+    assertEquals(game.getVersion(), version);
+    assertSame(game.getSnapshot(), snapshot);
+
+    game.perform(new PlacePieceAction(Color.WHITE, 8, 8));
+    assertEquals(game.getVersion(), version + 1);
+    assertNotSame(game.getSnapshot(), snapshot);
+  }
+}
@@ -0,0 +1,192 @@
+package se.samuelandersson.gomoku.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoardListener;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGameAdapter;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.action.PlacePieceAction;
+import se.samuelandersson.gomoku.event.GameEvent;
+import se.samuelandersson.gomoku.event.GameOverEvent;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.rules.OpeningRule;
+
+public class GomokuGameImplTest
+{
+  @Test
+  public void testApplyMoves()
+  {
+    GomokuGameImpl game = new GomokuGameImpl(new GomokuConfig());
+    int[] notified = new int[2];
+    game.getBoard().addListener(new GomokuBoardListener()
+    {
+      @Override
+      public void onChange(Color color, int x, int y)
+      {
+        notified[0]++;
+      }
+
+      @Override
+      public void onChanges(int[] moves, int offset, int length)
+      {
+        notified[1]++;
+      }
+    });
+
+    int[] moves = new int[9];
+    for (int i = 0; i < 5; i++)
+    {
+      moves[i * 2] = Moves.pack(Color.BLACK, 3 + i, 7);
+      if (i < 4)
+      {
+        moves[i * 2 + 1] = Moves.pack(Color.WHITE, 3 + i, 8);
+      }
+    }
+
+    game.applyMoves(moves, 0, moves.length);
+    assertEquals(notified[0], 0);
+    assertEquals(notified[1], 1);
+    assertEquals(game.getBoard().getPiece(7, 7), Color.BLACK);
+    assertEquals(game.getBoard().getPiece(6, 8), Color.WHITE);
+    assertTrue(game.isGameOver());
+  }
+
+  @Test
+  public void testUndoRedo() throws IllegalActionException
+  {
+    GomokuGameImpl game = new GomokuGameImpl(new GomokuConfig());
+    long[] hashes = new long[10];
+    for (int i = 0; i < 9; i++)
+    {
+      hashes[i] = game.getBoard().getHash();
+      Color color = game.getCurrentTurnPlayer().getColor();
+      PlacePieceAction action = new PlacePieceAction(color, 3 + i / 2, color == Color.BLACK ? 7 : 8);
+      action.doAction(game);
+      action.confirmAction(game);
+    }
+
+    hashes[9] = game.getBoard().getHash();
+    assertTrue(game.isGameOver());
+
+    for (int i = 8; i >= 0; i--)
+    {
+      assertTrue(game.undo());
+      assertFalse(game.isGameOver());
+      assertEquals(game.getBoard().getHash(), hashes[i]);
+      assertEquals(game.getCurrentTurnPlayer().getColor(), i % 2 == 0 ? Color.BLACK : Color.WHITE);
+    }
+
+    assertFalse(game.undo());
+    assertEquals(game.getBoard().getFrontier().size(), 0);
+
+    while (game.redo())
+    {
+    }
+
+    assertEquals(game.getBoard().getHash(), hashes[9]);
+    assertTrue(game.isGameOver());
+    assertEquals(game.getCurrentTurnPlayer().getColor(), Color.BLACK);
+  }
+
+  @Test
+  public void testConnect6() throws IllegalActionException
+  {
+    GomokuConfig config = new GomokuConfig("Connect6", 19, 19, 6, 2, false, false, false, false,
+                                           OpeningRule.STANDARD, BoardType.ARRAY);
+    GomokuGameImpl game = new GomokuGameImpl(config);
+
+    // black places one stone, then two stones per turn
+    Color[] colors = { Color.BLACK, Color.WHITE, Color.WHITE, Color.BLACK, Color.BLACK, Color.WHITE };
+    for (int i = 0; i < colors.length; i++)
+    {
+      assertEquals(game.getNextColor(), colors[i]);
+      assertEquals(game.getCurrentTurnPlayer().getColor(), colors[i]);
+      PlacePieceAction action = new PlacePieceAction(colors[i], i, colors[i] == Color.BLACK ? 0 : 10 + i);
+      action.doAction(game);
+      action.confirmAction(game);
+    }
+
+    try
+    {
+      new PlacePieceAction(Color.BLACK, 10, 10).doAction(game);
+      fail("Expected the second stone of white to be required");
+    }
+    catch (IllegalActionException e)
+    {
+      // expected
+    }
+
+    // five in a row does not win
+    int[] moves = { 12, 1, 2, 13, 14, 5 };
+    for (int i = 0; i < moves.length; i++)
+    {
+      Color color = game.getNextColor();
+      PlacePieceAction action = new PlacePieceAction(color, moves[i], color == Color.BLACK ? 0 : 4);
+      action.doAction(game);
+      action.confirmAction(game);
+      assertEquals(game.isGameOver(), i == moves.length - 1);
+    }
+  }
+
+  @Test
+  public void testDraw() throws IllegalActionException
+  {
+    GomokuConfig config = new GomokuConfig("Draw", 3, 3, 3, false, false, false);
+    GomokuGameImpl game = new GomokuGameImpl(config);
+    List<Color> results = new ArrayList<>();
+    game.addListener(new GomokuGameAdapter()
+    {
+      @Override
+      public void onEvent(GameEvent event)
+      {
+        if (event instanceof GameOverEvent)
+        {
+          results.add(((GameOverEvent) event).getColor());
+        }
+      }
+    });
+
+    // the board is filled without a row of three
+    int[][] moves = { { 0, 0 }, { 1, 1 }, { 2, 2 }, { 0, 2 }, { 2, 0 }, { 1, 0 }, { 1, 2 }, { 2, 1 }, { 0, 1 } };
+    int move = 0;
+    while (!game.isGameOver())
+    {
+      PlacePieceAction action = new PlacePieceAction(game.getNextColor(), moves[move][0], moves[move][1]);
+      action.doAction(game);
+      action.confirmAction(game);
+      move++;
+    }
+
+    assertEquals(move, 9);
+    assertEquals(results, Arrays.asList(Color.NONE));
+    assertTrue(game.getBoard().getLiveWindows(3).isDead());
+
+    try
+    {
+      game.validateMove(game.getNextColor(), 1, 1);
+      fail("A move was allowed after the game was over");
+    }
+    catch (IllegalActionException e)
+    {
+    }
+
+    // a board where no line is long enough is drawn by the first move
+    game = new GomokuGameImpl(new GomokuConfig("Small", 4, 4, 5, false, false, false));
+    PlacePieceAction action = new PlacePieceAction(Color.BLACK, 1, 1);
+    action.doAction(game);
+    action.confirmAction(game);
+    assertTrue(game.isGameOver());
+  }
+}
@@ -0,0 +1,70 @@
+package se.samuelandersson.gomoku.rules;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.impl.GomokuGameImpl;
+
+public class ForbiddenMaskTest
+{
+  @Test
+  public void testUpdateMatchesRebuild()
+  {
+    GomokuConfig config = new GomokuConfig("Renju", 15, 15, 5, false, false, false, true, BoardType.ARRAY);
+    GomokuGameImpl game = new GomokuGameImpl(config);
+    ForbiddenMask mask = new ForbiddenMask(15, 15);
+    ForbiddenMask client = new ForbiddenMask(15, 15);
+
+    int[] positions = { 7, 5, 7, 6, 5, 7, 6, 7, 3, 7, 10, 10 };
+    for (int i = 0; i < positions.length; i += 2)
+    {
+      Color color = i == 8 ? Color.WHITE : Color.BLACK;
+      game.getBoard().setPiece(positions[i], positions[i + 1], color);
+      mask.clearChanges();
+      mask.update(game, positions[i], positions[i + 1]);
+      client.apply(false, mask.getAdded(), mask.getRemoved());
+    }
+
+    ForbiddenMask expected = new ForbiddenMask(15, 15);
+    expected.rebuild(game);
+
+    assertTrue(mask.isForbidden(Color.BLACK, 7, 7));
+    assertFalse(mask.isForbidden(Color.WHITE, 7, 7));
+    assertEquals(mask.getPoints(), expected.getPoints());
+    assertEquals(client.getPoints(), expected.getPoints());
+  }
+
+  @Test
+  public void testRenjuMaskIsNotTrusted() throws IllegalActionException
+  {
+    // a mask claiming the center is forbidden, which it is not
+    ForbiddenMask mask = new ForbiddenMask(15, 15);
+    mask.set(Color.BLACK, 7, 7, true);
+
+    GomokuConfig renju = new GomokuConfig("Renju", 15, 15, 5, false, false, false, true, BoardType.ARRAY);
+    GomokuGameImpl game = new GomokuGameImpl(renju);
+    game.setForbiddenMask(mask);
+    game.validateMove(Color.BLACK, 7, 7);
+
+    GomokuConfig threeAndThree = new GomokuConfig("3&3", 15, 15, 5, false, true, true, BoardType.ARRAY);
+    game = new GomokuGameImpl(threeAndThree);
+    game.setForbiddenMask(mask);
+    try
+    {
+      game.validateMove(Color.BLACK, 7, 7);
+      fail("The mask was not used for the 3&3 rule");
+    }
+    catch (IllegalActionException e)
+    {
+      // the mask is exact for these rules
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package se.samuelandersson.gomoku.rules;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.action.ChooseColorAction;
+import se.samuelandersson.gomoku.action.GameAction;
+import se.samuelandersson.gomoku.action.PlacePieceAction;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.impl.GomokuGameImpl;
+
+public class OpeningRuleTest
+{
+  private static GomokuGame createGame(OpeningRule opening)
+  {
+    return new GomokuGameImpl(new GomokuConfig("Opening", 15, 15, 5, false, false, false, false, opening,
+                                               BoardType.ARRAY));
+  }
+
+  private static void perform(GomokuGame game, GameAction action) throws IllegalActionException
+  {
+    action.doAction(game);
+    action.confirmAction(game);
+  }
+
+  private static void place(GomokuGame game, int x, int y) throws IllegalActionException
+  {
+    perform(game, new PlacePieceAction(game.getNextColor(), x, y));
+  }
+
+  private static void assertIllegal(GomokuGame game, GameAction action)
+  {
+    try
+    {
+      action.doAction(game);
+      fail("Expected " + action + " to be illegal");
+    }
+    catch (IllegalActionException e)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPro() throws IllegalActionException
+  {
+    GomokuGame game = createGame(OpeningRule.PRO);
+    assertIllegal(game, new PlacePieceAction(Color.BLACK, 0, 0));
+    place(game, 7, 7);
+
+    assertIllegal(game, new PlacePieceAction(Color.BLACK, 8, 8));
+    place(game, 8, 8);
+
+    assertIllegal(game, new PlacePieceAction(Color.BLACK, 9, 9));
+    place(game, 10, 7);
+    place(game, 9, 9);
+    assertEquals(game.getMoveCount(), 4);
+    assertEquals(game.getCurrentTurnPlayer().getColor(), Color.BLACK);
+  }
+
+  @Test
+  public void testSwap2() throws IllegalActionException
+  {
+    GomokuGame game = createGame(OpeningRule.SWAP2);
+    game.getPlayerOne().setName("one");
+    game.getPlayerTwo().setName("two");
+
+    place(game, 7, 7);
+    place(game, 8, 7);
+    place(game, 7, 8);
+    assertEquals(game.getCurrentTurnPlayer().getColor(), Color.WHITE);
+    assertEquals(game.getChoosingColor(), Color.WHITE);
+    assertIllegal(game, new PlacePieceAction(Color.WHITE, 0, 0));
+    assertIllegal(game, new ChooseColorAction(Color.BLACK, Color.BLACK));
+
+    // place two more, white then black, and let black choose
+    perform(game, new ChooseColorAction(Color.WHITE, Color.NONE));
+    assertEquals(game.getCurrentTurnPlayer().getColor(), Color.WHITE);
+    place(game, 6, 6);
+    place(game, 9, 9);
+    assertEquals(game.getChoosingColor(), Color.BLACK);
+    assertIllegal(game, new ChooseColorAction(Color.BLACK, Color.NONE));
+
+    perform(game, new ChooseColorAction(Color.BLACK, Color.WHITE));
+    assertEquals(game.getChoosingColor(), Color.NONE);
+    assertEquals(game.getPlayerOne().getName(), "two");
+    assertEquals(game.getPlayerTwo().getName(), "one");
+    assertEquals(game.getCurrentTurnPlayer().getColor(), Color.WHITE);
+    assertEquals(game.getNextColor(), Color.WHITE);
+
+    // the choice can not be undone
+    assertFalse(game.undo());
+    place(game, 0, 0);
+    assertEquals(game.getCurrentTurnPlayer().getColor(), Color.BLACK);
+  }
+
+  @Test
+  public void testValidatorsAfterOpening()
+  {
+    MoveValidators validators = MoveValidators.compile(createGame(OpeningRule.SWAP2).getConfig());
+    assertEquals(validators.getOpeningLength(), 6);
+
+    validators = MoveValidators.compile(createGame(OpeningRule.STANDARD).getConfig());
+    assertEquals(validators.getOpeningLength(), 0);
+  }
+}
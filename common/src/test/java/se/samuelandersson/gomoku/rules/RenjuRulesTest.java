@@ -0,0 +1,121 @@
+package se.samuelandersson.gomoku.rules;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.impl.BoardImpl;
+
+public class RenjuRulesTest
+{
+  private final RenjuRules rules = new RenjuRules();
+
+  private static GomokuBoard createBoard(Color color, int... positions)
+  {
+    GomokuBoard board = new BoardImpl(15, 15);
+    for (int i = 0; i < positions.length; i += 2)
+    {
+      board.setPiece(positions[i], positions[i + 1], color);
+    }
+
+    return board;
+  }
+
+  @Test
+  public void testDoubleThree()
+  {
+    GomokuBoard board = createBoard(Color.BLACK, 7, 5, 7, 6, 5, 7, 6, 7);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.DOUBLE_THREE);
+    assertEquals(rules.check(board, Color.WHITE, 7, 7), Forbidden.NONE);
+
+    board = createBoard(Color.BLACK, 5, 5, 6, 6, 8, 6, 9, 5);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.DOUBLE_THREE);
+  }
+
+  @Test
+  public void testBlockedThree()
+  {
+    GomokuBoard board = createBoard(Color.BLACK, 7, 5, 7, 6, 5, 7, 6, 7);
+    board.setPiece(3, 7, Color.WHITE);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.DOUBLE_THREE);
+
+    board.setPiece(9, 7, Color.WHITE);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.NONE);
+  }
+
+  @Test
+  public void testDoubleFour()
+  {
+    GomokuBoard board = createBoard(Color.BLACK, 4, 7, 5, 7, 6, 7, 7, 4, 7, 5, 7, 6);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.DOUBLE_FOUR);
+
+    // two fours in the same line
+    board = createBoard(Color.BLACK, 3, 7, 5, 7, 6, 7, 9, 7);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.DOUBLE_FOUR);
+  }
+
+  @Test
+  public void testOverlineAndFive()
+  {
+    GomokuBoard board = createBoard(Color.BLACK, 2, 7, 3, 7, 4, 7, 6, 7, 7, 7);
+    assertEquals(rules.check(board, Color.BLACK, 5, 7), Forbidden.OVERLINE);
+
+    board = createBoard(Color.BLACK, 3, 7, 4, 7, 5, 7, 6, 7, 7, 4, 7, 5, 7, 6);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.NONE);
+  }
+
+  @Test
+  public void testThreeCompletedByForbiddenMove()
+  {
+    // the horizontal three can only become a straight four on 8, 7, which
+    // makes a double four with the vertical stones, so it is not a three
+    GomokuBoard board = createBoard(Color.BLACK, 5, 7, 6, 7, 7, 5, 7, 6);
+    board.setPiece(3, 7, Color.WHITE);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.DOUBLE_THREE);
+
+    board.setPiece(8, 4, Color.BLACK);
+    board.setPiece(8, 5, Color.BLACK);
+    board.setPiece(8, 6, Color.BLACK);
+    assertEquals(rules.check(board, Color.BLACK, 7, 7), Forbidden.NONE);
+
+    board.setPiece(7, 7, Color.BLACK);
+    assertEquals(rules.check(board, Color.BLACK, 8, 7), Forbidden.DOUBLE_FOUR);
+  }
+
+  @Test
+  public void testFollowsBoardChanges()
+  {
+    Random random = new Random(6);
+    GomokuBoard board = new BoardImpl(15, 15);
+    GomokuBoard other = new BoardImpl(15, 15);
+    for (int i = 0; i < 400; i++)
+    {
+      int x = 4 + random.nextInt(7);
+      int y = 4 + random.nextInt(7);
+      int action = random.nextInt(20);
+      if (action == 0)
+      {
+        // replaced without setting any cells
+        other.setPiece(x, y, Color.BLACK);
+        board.setFrom(other);
+      }
+      else if (action < 5)
+      {
+        board.setCell(board.getGrid().index(x, y), (byte) Color.NONE.getId());
+      }
+      else
+      {
+        board.setPiece(x, y, random.nextBoolean() ? Color.BLACK : Color.WHITE);
+      }
+
+      int checkX = 4 + random.nextInt(7);
+      int checkY = 4 + random.nextInt(7);
+      assertEquals(rules.check(board, Color.BLACK, checkX, checkY),
+                   new RenjuRules(8).check(board, Color.BLACK, checkX, checkY));
+    }
+  }
+}
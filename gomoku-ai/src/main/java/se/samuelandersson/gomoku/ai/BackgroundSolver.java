@@ -0,0 +1,194 @@
+package se.samuelandersson.gomoku.ai;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+
+/**
+ * Solves positions with a {@link ProofNumberSolver} on a daemon thread of the
+ * lowest priority, one position at a time in the order they are submitted,
+ * so the solving only takes the cores nothing else needs. The results are
+ * kept by the key of the position, see
+ * {@link ProofNumberSolver#getKey(GomokuBoard, int)}, and positions already
+ * solved are skipped.
+ * <p>
+ * The solving can be paused and resumed at any time, and a paused position
+ * continues where it stopped. A position the solver gives up on, when it
+ * runs out of nodes, has no result. All methods can be called from any
+ * thread.
+ *
+ * @author Samuel Andersson
+ */
+public class BackgroundSolver
+{
+  private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+  private final GomokuConfig config;
+  private final ProofNumberSolver solver;
+  private final ExecutorService executor;
+
+  private final Map<Long, ProofResult> results = new ConcurrentHashMap<>();
+
+  /** Guards paused, and the pause of the solver following it */
+  private final Object lock = new Object();
+  private boolean paused;
+
+  /**
+   * Create a background solver for the rules of a config
+   *
+   * @param config the config of the games to solve
+   */
+  public BackgroundSolver(GomokuConfig config)
+  {
+    this(config, new ProofNumberSolver(config));
+  }
+
+  /**
+   * Create a background solver for the rules of a config
+   *
+   * @param config the config of the games to solve
+   * @param solver the solver, only used by the background thread from now on
+   */
+  public BackgroundSolver(GomokuConfig config, ProofNumberSolver solver)
+  {
+    this.config = config;
+    this.solver = solver;
+
+    String name = "solver-" + POOL_NUMBER.incrementAndGet();
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+  }
+
+  /**
+   * Queue a position to be solved
+   *
+   * @param board the board, which is copied
+   * @param moveNumber the number of the move to make
+   * @throws IllegalArgumentException if the board has too many empty cells,
+   *           see {@link ProofNumberSolver#supports(GomokuBoard)}
+   */
+  public void submit(GomokuBoard board, int moveNumber)
+  {
+    if (!ProofNumberSolver.supports(board))
+    {
+      throw new IllegalArgumentException("Too many empty cells to solve");
+    }
+
+    GomokuBoard copy = config.createBoard();
+    copy.setFrom(board);
+    executor.execute(() -> solve(copy, moveNumber));
+  }
+
+  /**
+   * Returns the result of a position, from the view of the color to move
+   *
+   * @param board the board
+   * @param moveNumber the number of the move to make
+   * @return the result, or {@link ProofResult#UNKNOWN} if the position has
+   *         not been solved
+   */
+  public ProofResult getResult(GomokuBoard board, int moveNumber)
+  {
+    return results.getOrDefault(ProofNumberSolver.getKey(board, moveNumber), ProofResult.UNKNOWN);
+  }
+
+  /**
+   * Returns the number of positions solved
+   *
+   * @return the number of results
+   */
+  public int getResultCount()
+  {
+    return results.size();
+  }
+
+  /**
+   * Stop solving until {@link #resume()}, soon after the position being
+   * solved has reached a check of the solver
+   */
+  public void pause()
+  {
+    synchronized (lock)
+    {
+      paused = true;
+      solver.pause();
+    }
+  }
+
+  /**
+   * Continue solving after {@link #pause()}
+   */
+  public void resume()
+  {
+    synchronized (lock)
+    {
+      paused = false;
+      solver.unpause();
+      lock.notifyAll();
+    }
+  }
+
+  public boolean isPaused()
+  {
+    synchronized (lock)
+    {
+      return paused;
+    }
+  }
+
+  /**
+   * Stop the thread, dropping the positions not solved yet. The solver can
+   * not be used afterwards.
+   */
+  public void shutdown()
+  {
+    executor.shutdownNow();
+    pause();
+  }
+
+  private void solve(GomokuBoard board, int moveNumber)
+  {
+    long key = ProofNumberSolver.getKey(board, moveNumber);
+    if (results.containsKey(key))
+    {
+      return;
+    }
+
+    ProofResult result = solver.solve(board, moveNumber);
+    // the pause may already be over, so what stopped the solver decides
+    while (result == ProofResult.UNKNOWN && solver.isStoppedByPause())
+    {
+      synchronized (lock)
+      {
+        while (paused)
+        {
+          try
+          {
+            lock.wait();
+          }
+          catch (InterruptedException e)
+          {
+            // shut down
+            return;
+          }
+        }
+      }
+
+      result = solver.resume();
+    }
+
+    if (result != ProofResult.UNKNOWN)
+    {
+      results.put(key, result);
+    }
+  }
+}
@@ -0,0 +1,817 @@
+package se.samuelandersson.gomoku.ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.Frontier;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+
+/**
+ * Finds a move with a Monte-Carlo tree search. Every playout walks down the
+ * tree choosing the child with the highest upper confidence bound (UCT), adds
+ * the children of the leaf once it has been visited enough, plays the game to
+ * the end with random moves near the stones and counts the result in every
+ * node on the way. The move visited most at the root is chosen.
+ * <p>
+ * The moves of the random games are drawn from the {@link Frontier}, except
+ * that a row of victory length is always made or blocked next to the last
+ * stones of each color. The children of a node are sorted by the rows they
+ * extend and block, and an unvisited child is tried once no visited one looks
+ * better than {@link #FIRST_PLAY_URGENCY}, so the tree grows along the likely
+ * moves first.
+ * <p>
+ * The playouts run in parallel on a {@link ForkJoinPool}, all in the same
+ * tree. A thread adds a virtual loss to each node it walks through, which
+ * makes the other threads pick other paths until the result is counted. The
+ * nodes are kept in preallocated arrays indexed by node, the children of a
+ * node next to each other, so the tree holds a fixed number of nodes without
+ * creating objects, and a full tree only stops growing. Each thread plays on
+ * a board of its own. The score of the result is the expected result of the
+ * move from -1000 for a loss to 1000 for a win. With one stone per turn a
+ * {@link ThreatSolver} first looks for a victory by continuous fours, which
+ * the random games rarely find. An instance must only be used by one thread
+ * at a time, except for {@link #stop()}.
+ *
+ * @author Samuel Andersson
+ */
+public class MonteCarloSearch
+{
+  private static final int DEFAULT_CAPACITY = 1 << 20;
+
+  /** The visits added to a node while a thread plays through it */
+  private static final int VIRTUAL_LOSS = 3;
+
+  /** The weight of the exploration term of the upper confidence bound */
+  private static final double EXPLORATION = 0.7;
+
+  /** The value of an unvisited child, compared to the bounds of the visited */
+  private static final double FIRST_PLAY_URGENCY = 1.0;
+
+  /** The visits of a leaf before its children are added */
+  private static final int EXPAND_VISITS = 2;
+
+  /** The random cells tried before a forbidden random game ends in a draw */
+  private static final int ROLLOUT_TRIES = 8;
+
+  /** The positions the solver may visit before the playouts */
+  private static final long THREAT_NODES = 20000;
+
+  /** The playouts between checks of the time */
+  private static final int CHECK_INTERVAL = 16;
+
+  /* The states of a node without children, stored as its first child */
+
+  private static final int UNEXPANDED = -1;
+  private static final int EXPANDING = -2;
+  private static final int FULL = -3;
+
+  private final GomokuConfig config;
+  private final ForkJoinPool pool;
+
+  /** Whether the pool was created by the search, and is shut down with it */
+  private boolean ownPool;
+
+  /* The tree, indexed by node, the root being node 0 */
+
+  private final int capacity;
+
+  /** The cell of the move leading to each node */
+  private final int[] moves;
+
+  /** The number of children of each expanded node */
+  private final int[] childCounts;
+
+  /** The first child of each node, or one of the states above */
+  private final AtomicIntegerArray firstChildren;
+
+  /** The visits of each node, including virtual losses */
+  private final AtomicIntegerArray visits;
+
+  /**
+   * The results of the playouts through each node, counted for the color
+   * making its move: 2 per win and 1 per draw
+   */
+  private final AtomicIntegerArray rewards;
+
+  private final AtomicInteger nodeCount = new AtomicInteger();
+
+  private final Worker[] workers;
+  private final ForkJoinTask<?>[] tasks;
+
+  /** The solver of forced wins, or null with more stones per turn */
+  private final ThreatSolver solver;
+
+  private long timeLimit = 1000;
+  private long playoutLimit = Long.MAX_VALUE;
+
+  private volatile boolean stopRequested;
+
+  /* The state of the current search */
+
+  private int rootMoveNumber;
+  private long deadline;
+
+  /**
+   * Create a search on a pool of its own
+   *
+   * @param config the config of the games to search
+   * @param threads the number of threads playing
+   */
+  public MonteCarloSearch(GomokuConfig config, int threads)
+  {
+    this(config, new ForkJoinPool(threads), DEFAULT_CAPACITY);
+    this.ownPool = true;
+  }
+
+  /**
+   * Create a search
+   *
+   * @param config the config of the games to search
+   * @param pool the pool to play on, with one thread playing per level of
+   *          parallelism
+   * @param capacity the largest number of nodes of the tree
+   */
+  public MonteCarloSearch(GomokuConfig config, ForkJoinPool pool, int capacity)
+  {
+    if (capacity < 2)
+    {
+      throw new IllegalArgumentException("The tree must hold at least two nodes: " + capacity);
+    }
+
+    this.config = config;
+    this.pool = pool;
+    this.capacity = capacity;
+
+    moves = new int[capacity];
+    childCounts = new int[capacity];
+    firstChildren = new AtomicIntegerArray(capacity);
+    visits = new AtomicIntegerArray(capacity);
+    rewards = new AtomicIntegerArray(capacity);
+
+    workers = new Worker[pool.getParallelism()];
+    tasks = new ForkJoinTask<?>[workers.length];
+    for (int i = 0; i < workers.length; i++)
+    {
+      workers[i] = new Worker(i);
+    }
+
+    solver = config.getStonesPerTurn() == 1 ? new ThreatSolver(config) : null;
+    if (solver != null)
+    {
+      solver.setNodeLimit(THREAT_NODES);
+    }
+  }
+
+  public GomokuConfig getConfig()
+  {
+    return config;
+  }
+
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  public int getThreadCount()
+  {
+    return workers.length;
+  }
+
+  public long getTimeLimit()
+  {
+    return timeLimit;
+  }
+
+  /**
+   * Set the longest time a search may take
+   *
+   * @param millis the time in milliseconds, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setTimeLimit(long millis)
+  {
+    this.timeLimit = millis;
+  }
+
+  public long getPlayoutLimit()
+  {
+    return playoutLimit;
+  }
+
+  /**
+   * Set the largest number of playouts of a search, split evenly between the
+   * threads
+   *
+   * @param playouts the number of playouts, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setPlayoutLimit(long playouts)
+  {
+    this.playoutLimit = playouts;
+  }
+
+  /**
+   * Stop the running search, which returns the best move found so far. Can be
+   * called from any thread.
+   */
+  public void stop()
+  {
+    stopRequested = true;
+  }
+
+  /**
+   * Stop the running search, and the threads of the pool if it was created by
+   * the search. The search can not be used afterwards.
+   */
+  public void shutdown()
+  {
+    stop();
+    if (ownPool)
+    {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Find a move for the next stone of a game. Only the moves the game would
+   * accept are tried at the root.
+   *
+   * @param game the game, which is not changed
+   * @return the result, without a move if none can be made
+   */
+  public SearchResult search(GomokuGame game)
+  {
+    long start = System.currentTimeMillis();
+    prepare(game.getBoard(), game.getMoveCount());
+
+    // the game is only read by the calling thread
+    Worker worker = workers[0];
+    Color color = game.getNextColor();
+    int count = MoveRules.getCandidates(worker.board, worker.cells);
+    int allowed = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = worker.cells[i];
+      try
+      {
+        config.getMoveValidators().validate(game, color, worker.grid.getX(cell), worker.grid.getY(cell));
+        worker.cells[allowed++] = cell;
+      }
+      catch (IllegalActionException e)
+      {
+        // not a move of the game
+      }
+    }
+
+    addChildren(0, worker, allowed, (byte) color.getId());
+    return run(start);
+  }
+
+  /**
+   * Find a move for the next stone on a board, ignoring the opening rules
+   *
+   * @param board the board, which is not changed
+   * @param moveNumber the number of the move to make, which decides the color
+   *          of the stone, see {@link GomokuConfig#getStoneColor(int)}
+   * @return the result, without a move if none can be made
+   */
+  public SearchResult search(GomokuBoard board, int moveNumber)
+  {
+    long start = System.currentTimeMillis();
+    prepare(board, moveNumber);
+    expand(0, workers[0], 0);
+    return run(start);
+  }
+
+  /**
+   * Copy the board to every thread and clear the tree
+   */
+  private void prepare(GomokuBoard board, int moveNumber)
+  {
+    for (Worker worker : workers)
+    {
+      worker.prepare(board);
+    }
+
+    this.rootMoveNumber = moveNumber;
+    this.stopRequested = false;
+
+    nodeCount.set(1);
+    firstChildren.set(0, UNEXPANDED);
+    visits.set(0, 0);
+    rewards.set(0, 0);
+  }
+
+  private SearchResult run(long start)
+  {
+    boolean timed = timeLimit < Long.MAX_VALUE / 2000000;
+    deadline = System.nanoTime() + (timed ? timeLimit * 1000000 : Long.MAX_VALUE / 2);
+
+    int first = firstChildren.get(0);
+    int count = first >= 0 ? childCounts[0] : 0;
+    int[] line = count > 1 ? findForcedWin(first, count) : null;
+    if (line != null)
+    {
+      return new SearchResult(line[0], 1000, line.length, 0, System.currentTimeMillis() - start);
+    }
+
+    if (count > 1)
+    {
+      long limit = playoutLimit == Long.MAX_VALUE ? playoutLimit : Math.max(1, playoutLimit / workers.length);
+      for (int i = 0; i < workers.length; i++)
+      {
+        workers[i].limit = limit;
+        tasks[i] = pool.submit(workers[i]);
+      }
+
+      RuntimeException failure = null;
+      for (int i = 0; i < tasks.length; i++)
+      {
+        try
+        {
+          tasks[i].join();
+        }
+        catch (RuntimeException e)
+        {
+          stop();
+          failure = e;
+        }
+
+        tasks[i] = null;
+      }
+
+      if (failure != null)
+      {
+        throw failure;
+      }
+    }
+
+    int best = -1;
+    for (int i = 0; i < count; i++)
+    {
+      if (best == -1 || visits.get(first + i) > visits.get(best))
+      {
+        best = first + i;
+      }
+    }
+
+    long playouts = 0;
+    int depth = 0;
+    for (Worker worker : workers)
+    {
+      playouts += worker.playouts;
+      depth = Math.max(depth, worker.maxDepth);
+    }
+
+    int move = -1;
+    int score = 0;
+    if (best != -1)
+    {
+      Grid grid = workers[0].grid;
+      move = Moves.pack(config.getStoneColor(rootMoveNumber), grid.getX(moves[best]), grid.getY(moves[best]));
+      int visited = visits.get(best);
+      score = visited == 0 ? 0 : (int) (1000L * rewards.get(best) / visited) - 1000;
+    }
+
+    return new SearchResult(move, score, depth, playouts, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Look for a victory by continuous fours from the root
+   *
+   * @return the moves of the line, or null if none was found or the first
+   *         move is not a child of the root
+   */
+  private int[] findForcedWin(int first, int count)
+  {
+    if (solver == null)
+    {
+      return null;
+    }
+
+    Worker worker = workers[0];
+    int[] line = solver.findVcf(worker.board, config.getStoneColor(rootMoveNumber));
+    if (line == null)
+    {
+      return null;
+    }
+
+    int cell = worker.grid.index(Moves.getX(line[0]), Moves.getY(line[0]));
+    for (int i = 0; i < count; i++)
+    {
+      if (moves[first + i] == cell)
+      {
+        return line;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Add the children of a node, unless another thread is adding them
+   *
+   * @param node the node
+   * @param worker the worker with the board of the node
+   * @param depth the depth of the node, the root being 0
+   * @return whether the node has its children
+   */
+  private boolean expand(int node, Worker worker, int depth)
+  {
+    if (!firstChildren.compareAndSet(node, UNEXPANDED, EXPANDING))
+    {
+      return firstChildren.get(node) >= 0;
+    }
+
+    GomokuBoard board = worker.board;
+    Color color = config.getStoneColor(rootMoveNumber + depth);
+    byte value = (byte) color.getId();
+    int count = MoveRules.getCandidates(board, worker.cells);
+    if (worker.rules.isRestricted(value))
+    {
+      int allowed = 0;
+      for (int i = 0; i < count; i++)
+      {
+        if (!worker.rules.isForbidden(board, color, worker.cells[i]))
+        {
+          worker.cells[allowed++] = worker.cells[i];
+        }
+      }
+
+      count = allowed;
+    }
+
+    return addChildren(node, worker, count, value);
+  }
+
+  /**
+   * Add the listed cells of a worker as the children of a node, which is
+   * marked as expanding, best shape first
+   *
+   * @return whether there was room for the children
+   */
+  private boolean addChildren(int node, Worker worker, int count, byte value)
+  {
+    int first = nodeCount.getAndAdd(count);
+    if (first + count > capacity)
+    {
+      // the tree is full, the node stays a leaf
+      firstChildren.set(node, FULL);
+      return false;
+    }
+
+    int[] cells = worker.cells;
+    int[] shapes = worker.shapes;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = cells[i];
+      int shape = worker.rules.getShape(worker.board, cell, value);
+
+      int j = i;
+      while (j > 0 && shapes[j - 1] < shape)
+      {
+        cells[j] = cells[j - 1];
+        shapes[j] = shapes[j - 1];
+        j--;
+      }
+
+      cells[j] = cell;
+      shapes[j] = shape;
+    }
+
+    for (int i = 0; i < count; i++)
+    {
+      int child = first + i;
+      moves[child] = cells[i];
+      childCounts[child] = 0;
+      firstChildren.set(child, UNEXPANDED);
+      visits.set(child, 0);
+      rewards.set(child, 0);
+    }
+
+    childCounts[node] = count;
+
+    // publishes the children to the other threads
+    firstChildren.set(node, first);
+    return true;
+  }
+
+  /**
+   * Returns the child with the highest upper confidence bound, or the first
+   * unvisited one if none is higher than {@link #FIRST_PLAY_URGENCY}
+   */
+  private int select(int node, int first, int count)
+  {
+    double logVisits = Math.log(Math.max(1, visits.get(node)));
+    int best = first;
+    double bestValue = Double.NEGATIVE_INFINITY;
+    for (int child = first; child < first + count; child++)
+    {
+      int visited = visits.get(child);
+      double value;
+      if (visited == 0)
+      {
+        value = FIRST_PLAY_URGENCY;
+      }
+      else
+      {
+        value = rewards.get(child) / (2.0 * visited) + EXPLORATION * Math.sqrt(logVisits / visited);
+      }
+
+      if (value > bestValue)
+      {
+        best = child;
+        bestValue = value;
+      }
+
+      if (visited == 0)
+      {
+        // the rest of the unvisited children have worse shapes
+        break;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * A thread of playouts, with a board of its own
+   */
+  private class Worker implements Runnable
+  {
+    private final MoveRules rules = new MoveRules(config);
+
+    private GomokuBoard board;
+    private Grid grid;
+
+    /** The candidate moves and their shapes */
+    private int[] cells;
+    private int[] shapes;
+
+    /** The nodes walked through by the playout */
+    private int[] path;
+
+    /** The cells set by the playout, to be cleared afterwards */
+    private int[] placed;
+    private int placedCount;
+
+    private final int[] steps = new int[Grid.DIRECTIONS];
+
+    private long random;
+
+    private long limit;
+    private long playouts;
+    private int maxDepth;
+
+    Worker(int id)
+    {
+      random = 0x2545F4914F6CDD1DL * (id + 1);
+    }
+
+    /**
+     * Copy the board and create the buffers if the size of the board changed
+     */
+    void prepare(GomokuBoard source)
+    {
+      int width = source.getWidth();
+      int height = source.getHeight();
+      if (board == null || board.getWidth() != width || board.getHeight() != height)
+      {
+        board = BoardType.ARRAY.supports(width, height) ? BoardType.ARRAY.createBoard(width, height)
+                                                        : config.createBoard();
+
+        int cellCount = Math.max(1, width * height);
+        cells = new int[cellCount];
+        shapes = new int[cellCount];
+        path = new int[cellCount + 1];
+        placed = new int[cellCount];
+      }
+
+      board.setFrom(source);
+      grid = board.getGrid();
+      for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+      {
+        steps[dir] = grid.getOffset(dir);
+      }
+
+      playouts = 0;
+      maxDepth = 0;
+    }
+
+    @Override
+    public void run()
+    {
+      while (!stopRequested && playouts < limit)
+      {
+        playout();
+        if (++playouts % CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0)
+        {
+          break;
+        }
+      }
+    }
+
+    private void playout()
+    {
+      int node = 0;
+      int depth = 0;
+      int pathLength = 0;
+      int winner = -1;
+      placedCount = 0;
+
+      path[pathLength++] = node;
+      while (true)
+      {
+        int first = firstChildren.get(node);
+        if (first < 0)
+        {
+          // not counting the virtual loss of this playout
+          int visited = node == 0 ? visits.get(node) : visits.get(node) - VIRTUAL_LOSS;
+          if (first != UNEXPANDED || visited < EXPAND_VISITS || !expand(node, this, depth))
+          {
+            break;
+          }
+
+          first = firstChildren.get(node);
+        }
+
+        int count = childCounts[node];
+        if (count == 0)
+        {
+          // a full board, or only forbidden moves left
+          winner = 0;
+          break;
+        }
+
+        int child = select(node, first, count);
+        visits.addAndGet(child, VIRTUAL_LOSS);
+
+        byte value = getValue(depth);
+        board.setCell(moves[child], value);
+        placed[placedCount++] = moves[child];
+        path[pathLength++] = child;
+        node = child;
+        depth++;
+
+        if (rules.isFive(board, moves[child], value))
+        {
+          winner = value;
+          break;
+        }
+      }
+
+      maxDepth = Math.max(maxDepth, depth);
+
+      if (winner == -1)
+      {
+        winner = rollout(depth);
+      }
+
+      while (placedCount > 0)
+      {
+        board.setCell(placed[--placedCount], Grid.EMPTY);
+      }
+
+      visits.incrementAndGet(0);
+      for (int i = 1; i < pathLength; i++)
+      {
+        byte value = getValue(i - 1);
+        int reward = winner == value ? 2 : winner == 0 ? 1 : 0;
+        rewards.addAndGet(path[i], reward);
+        visits.addAndGet(path[i], 1 - VIRTUAL_LOSS);
+      }
+    }
+
+    /**
+     * Play random moves until a color wins or the board is full
+     *
+     * @param depth the number of moves made from the root
+     * @return the id of the color that won, or 0 for a draw
+     */
+    private int rollout(int depth)
+    {
+      int last = placedCount > 0 ? placed[placedCount - 1] : -1;
+      int previous = placedCount > 1 ? placed[placedCount - 2] : -1;
+      while (true)
+      {
+        byte value = getValue(depth);
+        Color color = Color.valueOf(value);
+        Frontier frontier = board.getFrontier();
+        if (frontier.size() == 0 && board.getPieceCount() > 0)
+        {
+          return 0;
+        }
+
+        // make a five, or keep the other color from making one
+        int cell = findRow(previous, value);
+        if (cell == -1)
+        {
+          cell = findRow(last, (byte) (3 - value));
+        }
+
+        if (cell != -1 && rules.isRestricted(value) && rules.isForbidden(board, color, cell))
+        {
+          cell = -1;
+        }
+
+        for (int tries = 0; cell == -1 && tries < ROLLOUT_TRIES; tries++)
+        {
+          if (frontier.size() == 0)
+          {
+            cell = grid.index(board.getWidth() / 2, board.getHeight() / 2);
+            break;
+          }
+
+          int position = frontier.get((int) ((nextRandom() >>> 1) % frontier.size()));
+          cell = grid.index(position % board.getWidth(), position / board.getWidth());
+          if (rules.isRestricted(value) && rules.isForbidden(board, color, cell))
+          {
+            cell = -1;
+          }
+        }
+
+        if (cell == -1)
+        {
+          return 0;
+        }
+
+        board.setCell(cell, value);
+        placed[placedCount++] = cell;
+        depth++;
+
+        if (rules.isFive(board, cell, value))
+        {
+          return value;
+        }
+
+        previous = last;
+        last = cell;
+      }
+    }
+
+    /**
+     * Returns an empty cell on a line through a stone where a color would
+     * make a row of victory length, or -1
+     *
+     * @param origin the cell of the stone, or -1
+     * @param rowValue the id of the color of the row
+     */
+    private int findRow(int origin, byte rowValue)
+    {
+      if (origin == -1 || board.getCell(origin) != rowValue)
+      {
+        return -1;
+      }
+
+      int victoryLength = rules.getVictoryLength();
+      for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+      {
+        for (int sign = -1; sign <= 1; sign += 2)
+        {
+          int step = sign * steps[dir];
+          int cell = origin;
+          for (int distance = 1; distance < victoryLength; distance++)
+          {
+            cell += step;
+            byte value = board.getCell(cell);
+            if (value == Grid.EMPTY)
+            {
+              if (board.count(rowValue, cell, dir) >= victoryLength)
+              {
+                return cell;
+              }
+            }
+            else if (value != rowValue)
+            {
+              break;
+            }
+          }
+        }
+      }
+
+      return -1;
+    }
+
+    private byte getValue(int depth)
+    {
+      return (byte) config.getStoneColor(rootMoveNumber + depth).getId();
+    }
+
+    private long nextRandom()
+    {
+      random ^= random << 13;
+      random ^= random >>> 7;
+      random ^= random << 17;
+      return random;
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package se.samuelandersson.gomoku.ai;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.Frontier;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.rules.Forbidden;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
+import se.samuelandersson.gomoku.rules.LinePatterns;
+import se.samuelandersson.gomoku.rules.RenjuRules;
+
+/**
+ * The rules of a config as the engines check them on their own boards, by
+ * cell index and without allocating. An instance keeps the caches of the
+ * Renju rules and must only be used by one thread at a time.
+ *
+ * @author Samuel Andersson
+ */
+final class MoveRules
+{
+  /** The shape of a cell making a row of victory length */
+  static final int WIN_SHAPE = Integer.MAX_VALUE;
+
+  /** The shape of a cell where the other color would make a row of victory length */
+  static final int BLOCK_SHAPE = 1 << 29;
+
+  private final GomokuConfig config;
+
+  private final int victoryLength;
+  private final boolean exactFive;
+
+  /** Whether each color id - 1 wins with an overline */
+  private final boolean[] overlineWins = new boolean[2];
+
+  /** Whether each color id - 1 has forbidden moves */
+  private final boolean[] restricted = new boolean[2];
+
+  /** The tables of 3&3 and 4&4, or null */
+  private final LinePatterns patterns;
+
+  /** The Renju rules, or null */
+  private final RenjuRules renjuRules;
+
+  MoveRules(GomokuConfig config)
+  {
+    this.config = config;
+    this.victoryLength = config.getVictoryLength();
+    this.exactFive = !config.getAllowOverlines();
+
+    overlineWins[Color.BLACK.getId() - 1] = config.getAllowOverlines();
+    overlineWins[Color.WHITE.getId() - 1] = config.getAllowOverlines() || config.useRenju();
+
+    for (Color color : ForbiddenMask.getRestrictedColors(config))
+    {
+      restricted[color.getId() - 1] = true;
+    }
+
+    boolean lineRules = config.useThreeAndThree() || config.useFourAndFour();
+    this.patterns = lineRules ? LinePatterns.get(victoryLength, exactFive) : null;
+    this.renjuRules = config.useRenju() ? new RenjuRules() : null;
+  }
+
+  int getVictoryLength()
+  {
+    return victoryLength;
+  }
+
+  /**
+   * Returns whether a longer row than victory length does not count as five,
+   * as the threats of the board are tracked
+   */
+  boolean isExactFive()
+  {
+    return exactFive;
+  }
+
+  /**
+   * Returns whether a row longer than victory length wins for a color
+   *
+   * @param value the id of the color
+   */
+  boolean isOverlineFive(byte value)
+  {
+    return overlineWins[value - 1];
+  }
+
+  /**
+   * Returns whether a color has forbidden moves
+   *
+   * @param value the id of the color
+   */
+  boolean isRestricted(byte value)
+  {
+    return restricted[value - 1];
+  }
+
+  /**
+   * Returns whether the stone on a cell is part of a winning row
+   *
+   * @param board the board
+   * @param cell the index of the cell
+   * @param value the id of the color of the stone
+   */
+  boolean isFive(GomokuBoard board, int cell, byte value)
+  {
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      int length = board.count(value, cell, dir);
+      if (length == victoryLength || (length > victoryLength && overlineWins[value - 1]))
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns whether the rules forbid a color to place on an empty cell, as
+   * {@link GomokuGame#checkForbidden(Color, int, int)} does
+   *
+   * @param board the board
+   * @param color the color to place
+   * @param cell the index of the cell
+   */
+  boolean isForbidden(GomokuBoard board, Color color, int cell)
+  {
+    Grid grid = board.getGrid();
+    int x = grid.getX(cell);
+    int y = grid.getY(cell);
+    if (renjuRules != null && color == Color.BLACK)
+    {
+      return renjuRules.check(board, color, x, y) != Forbidden.NONE;
+    }
+
+    if (patterns == null)
+    {
+      return false;
+    }
+
+    return (config.useThreeAndThree() && !board.try3And3(color, x, y, patterns)) ||
+           (config.useFourAndFour() && !board.try4And4(color, x, y, patterns));
+  }
+
+  /**
+   * List the candidate moves of a board: the frontier, or the middle of an
+   * empty board
+   *
+   * @param board the board
+   * @param cells the array to list the cell indices in, with room for all
+   *          cells of the board
+   * @return the number of moves, 0 if the board is full
+   */
+  static int getCandidates(GomokuBoard board, int[] cells)
+  {
+    Grid grid = board.getGrid();
+    Frontier frontier = board.getFrontier();
+    if (frontier.size() == 0)
+    {
+      if (board.getPieceCount() > 0)
+      {
+        return 0;
+      }
+
+      cells[0] = grid.index(board.getWidth() / 2, board.getHeight() / 2);
+      return 1;
+    }
+
+    int width = board.getWidth();
+    int count = frontier.copyTo(cells, 0);
+    for (int i = 0; i < count; i++)
+    {
+      cells[i] = grid.index(cells[i] % width, cells[i] / width);
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns a score of the rows a stone on an empty cell extends and blocks,
+   * {@link #WIN_SHAPE} if it makes a row of victory length and
+   * {@link #BLOCK_SHAPE} if the other color would
+   *
+   * @param board the board
+   * @param cell the index of the cell
+   * @param own the id of the color to place
+   */
+  int getShape(GomokuBoard board, int cell, byte own)
+  {
+    byte other = (byte) (3 - own);
+    int score = 0;
+    boolean block = false;
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      // the rows through the cell, counting the cell itself
+      int ownLength = board.count(own, cell, dir);
+      int otherLength = board.count(other, cell, dir);
+      if (ownLength >= victoryLength)
+      {
+        return WIN_SHAPE;
+      }
+
+      block |= otherLength >= victoryLength;
+      score += (1 << 3 * Math.min(ownLength, 6)) + (1 << 3 * Math.min(otherLength, 6) - 1);
+    }
+
+    return block ? BLOCK_SHAPE : score;
+  }
+}
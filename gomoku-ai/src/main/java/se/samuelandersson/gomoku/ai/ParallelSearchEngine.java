@@ -0,0 +1,292 @@
+package se.samuelandersson.gomoku.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+
+/**
+ * Searches with several threads at once, sharing one
+ * {@link TranspositionTable}. Every thread searches the whole tree of the same
+ * position with a {@link SearchEngine} of its own, and the helpers differ from
+ * the main thread in depth and move order so they reach different positions
+ * first. What one thread finds is stored in the table, where the others pick it
+ * up as cutoffs and first moves, which makes the main thread go deeper in the
+ * same time. The table needs no locks, see {@link TranspositionTable}.
+ * <p>
+ * The search ends when the main thread does, which runs on the calling thread.
+ * The result of the thread that completed the deepest iteration is chosen,
+ * the main thread first among equals. The helpers run on daemon threads
+ * owned by the engine until {@link #shutdown()}. An instance must only be used
+ * by one thread at a time, except for {@link #stop()}.
+ *
+ * @author Samuel Andersson
+ */
+public class ParallelSearchEngine
+{
+  private static final int DEFAULT_TABLE_BITS = 22;
+
+  private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+  /** The engine of the main thread first, then the helpers */
+  private final SearchEngine[] engines;
+
+  /** The threads of the helpers, or null if there are none */
+  private final ExecutorService executor;
+
+  private final List<Future<SearchResult>> helpers = new ArrayList<>();
+
+  private long nodeLimit = Long.MAX_VALUE;
+
+  /**
+   * Create an engine for the rules of a config
+   *
+   * @param config the config of the games to search
+   * @param threads the number of threads searching, the calling thread
+   *          included
+   */
+  public ParallelSearchEngine(GomokuConfig config, int threads)
+  {
+    this(config, threads, new TranspositionTable(DEFAULT_TABLE_BITS));
+  }
+
+  /**
+   * Create an engine for the rules of a config
+   *
+   * @param config the config of the games to search
+   * @param threads the number of threads searching, the calling thread
+   *          included
+   * @param table the table shared by the threads
+   */
+  public ParallelSearchEngine(GomokuConfig config, int threads, TranspositionTable table)
+  {
+    if (threads < 1)
+    {
+      throw new IllegalArgumentException("At least one thread must search: " + threads);
+    }
+
+    engines = new SearchEngine[threads];
+    for (int i = 0; i < threads; i++)
+    {
+      engines[i] = new SearchEngine(config, table);
+      engines[i].setHelper(i);
+    }
+
+    if (threads == 1)
+    {
+      executor = null;
+    }
+    else
+    {
+      String prefix = "search-" + POOL_NUMBER.incrementAndGet() + "-";
+      AtomicInteger threadNumber = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(threads - 1, runnable -> {
+        Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  public int getThreadCount()
+  {
+    return engines.length;
+  }
+
+  public TranspositionTable getTable()
+  {
+    return engines[0].getTable();
+  }
+
+  /**
+   * Set the deepest iteration searched
+   *
+   * @param maxDepth the depth, see {@link SearchEngine#setMaxDepth(int)}
+   */
+  public void setMaxDepth(int maxDepth)
+  {
+    for (SearchEngine engine : engines)
+    {
+      engine.setMaxDepth(maxDepth);
+    }
+  }
+
+  /**
+   * Set the longest time a search may take
+   *
+   * @param millis the time in milliseconds, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setTimeLimit(long millis)
+  {
+    for (SearchEngine engine : engines)
+    {
+      engine.setTimeLimit(millis);
+    }
+  }
+
+  public long getNodeLimit()
+  {
+    return nodeLimit;
+  }
+
+  /**
+   * Set the largest number of positions a search may visit, split evenly
+   * between the threads
+   *
+   * @param nodes the number of positions, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setNodeLimit(long nodes)
+  {
+    this.nodeLimit = nodes;
+    for (SearchEngine engine : engines)
+    {
+      engine.setNodeLimit(nodes == Long.MAX_VALUE ? nodes : Math.max(1, nodes / engines.length));
+    }
+  }
+
+  /**
+   * Stop the running search, which returns the best move found so far. Can be
+   * called from any thread.
+   */
+  public void stop()
+  {
+    for (SearchEngine engine : engines)
+    {
+      engine.stop();
+    }
+  }
+
+  /**
+   * Stop the threads of the helpers. The engine can not be used afterwards.
+   */
+  public void shutdown()
+  {
+    stop();
+    if (executor != null)
+    {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Find a move for the next stone of a game, see
+   * {@link SearchEngine#search(GomokuGame)}
+   *
+   * @param game the game, which is not changed
+   * @return the result, without a move if none can be made
+   */
+  public SearchResult search(GomokuGame game)
+  {
+    long start = System.currentTimeMillis();
+
+    // the game is only read by the calling thread
+    engines[0].prepare(game);
+    for (int i = 1; i < engines.length; i++)
+    {
+      engines[i].prepare(game.getBoard(), game.getMoveCount());
+      engines[i].copyRootMoves(engines[0]);
+    }
+
+    return run(start);
+  }
+
+  /**
+   * Find a move for the next stone on a board, see
+   * {@link SearchEngine#search(GomokuBoard, int)}
+   *
+   * @param board the board, which is not changed
+   * @param moveNumber the number of the move to make
+   * @return the result, without a move if none can be made
+   */
+  public SearchResult search(GomokuBoard board, int moveNumber)
+  {
+    long start = System.currentTimeMillis();
+    for (SearchEngine engine : engines)
+    {
+      engine.prepare(board, moveNumber);
+    }
+
+    return run(start);
+  }
+
+  /**
+   * Search the prepared position with all threads until the main thread is
+   * done
+   */
+  private SearchResult run(long start)
+  {
+    for (int i = 1; i < engines.length; i++)
+    {
+      SearchEngine engine = engines[i];
+      helpers.add(executor.submit(() -> engine.iterate(start)));
+    }
+
+    SearchResult best = null;
+    long nodes = 0;
+    try
+    {
+      best = engines[0].iterate(start);
+      nodes = best.getNodes();
+    }
+    finally
+    {
+      for (int i = 1; i < engines.length; i++)
+      {
+        engines[i].stop();
+      }
+
+      // the helpers must be done before their engines are prepared again
+      boolean interrupted = false;
+      ExecutionException failure = null;
+      for (Future<SearchResult> helper : helpers)
+      {
+        while (true)
+        {
+          try
+          {
+            SearchResult result = helper.get();
+            nodes += result.getNodes();
+            if (best != null && result.getDepth() > best.getDepth() && result.hasMove())
+            {
+              best = result;
+            }
+
+            break;
+          }
+          catch (InterruptedException e)
+          {
+            interrupted = true;
+          }
+          catch (ExecutionException e)
+          {
+            failure = e;
+            break;
+          }
+        }
+      }
+
+      helpers.clear();
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+
+      if (failure != null && best != null)
+      {
+        throw new IllegalStateException("Search helper failed", failure.getCause());
+      }
+    }
+
+    return new SearchResult(best.getMove(), best.getScore(), best.getDepth(), nodes,
+                            System.currentTimeMillis() - start);
+  }
+}
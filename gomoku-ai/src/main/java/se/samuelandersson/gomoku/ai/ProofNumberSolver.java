@@ -0,0 +1,532 @@
+package se.samuelandersson.gomoku.ai;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Grid;
+
+/**
+ * Solves positions exactly with a depth-first proof-number search (df-pn).
+ * A proof-number search proves or disproves that one color wins. The proof
+ * number of a position is the fewest positions left to prove before the
+ * color is known to win there, the disproof number the fewest before it is
+ * known not to. The search always goes down to the child most likely to
+ * settle its parent, and stays below it until the numbers of the parent pass
+ * its thresholds, so it works depth-first and only keeps the current line
+ * on the board.
+ * <p>
+ * A position is solved with up to two proofs: first that the color to move
+ * wins, and if it does not, that the other color wins. When neither does the
+ * result is a draw, as it is for a full board and for a board where neither
+ * color can make a row any more. The moves are the cells of the frontier
+ * without the forbidden moves of the config, and the stones per turn of the
+ * config are followed.
+ * <p>
+ * The numbers of the searched positions are kept in a {@link ProofTable},
+ * which is all the state the search needs besides the current line. A solve
+ * stopped by {@link #pause()} or the node limit can therefore continue where
+ * it stopped with {@link #resume()}. An instance must only be used by one
+ * thread at a time, except for {@link #pause()}.
+ * <p>
+ * Every ply of the search places a stone, so the depth is bounded by the
+ * empty cells of the position. Positions with more than
+ * {@link #MAX_EMPTY_CELLS} empty cells are not accepted, see
+ * {@link #supports(GomokuBoard)}.
+ *
+ * @author Samuel Andersson
+ */
+public class ProofNumberSolver
+{
+  /**
+   * The proof number of a disproven position and the other way around, small
+   * enough to add two
+   */
+  public static final int INFINITY = Integer.MAX_VALUE / 2;
+
+  /** The most empty cells of a position to solve, which bounds the depth */
+  public static final int MAX_EMPTY_CELLS = 256;
+
+  private static final int DEFAULT_TABLE_BITS = 20;
+
+  /** The number of nodes between checks for a pause */
+  private static final int CHECK_INTERVAL = 1024;
+
+  /** Separates the same stones with different moves to make */
+  private static final long MOVE_NUMBER_KEY = 0x9E3779B97F4A7C15L;
+
+  /** Separates the proofs of the two colors */
+  private static final long WHITE_KEY = 0x14057B7EF767814FL;
+
+  private final GomokuConfig config;
+  private final ProofTable table;
+  private final MoveRules rules;
+
+  private long nodeLimit = Long.MAX_VALUE;
+
+  private volatile boolean paused;
+
+  /** The board solved on, a copy of the board of the position */
+  private GomokuBoard board;
+
+  /**
+   * The moves of each ply, as cell indices of the grid. The rows are created
+   * when a ply is first reached, large enough for its candidates.
+   */
+  private final int[][] moves = new int[MAX_EMPTY_CELLS + 1][];
+
+  /** The proof and disproof numbers of the children of each ply */
+  private final int[][] proofs = new int[MAX_EMPTY_CELLS + 1][];
+  private final int[][] disproofs = new int[MAX_EMPTY_CELLS + 1][];
+
+  /* The position being solved, kept between calls */
+
+  private int rootMoveNumber;
+  private boolean prepared;
+
+  /** Whether the color to move is proven not to win */
+  private boolean winDisproven;
+  private ProofResult result = ProofResult.UNKNOWN;
+
+  /* The state of the current proof */
+
+  private byte target;
+  private long nodes;
+  private boolean aborted;
+  private boolean stoppedByPause;
+
+  /** The numbers of the last position searched */
+  private int proof;
+  private int disproof;
+
+  /**
+   * Create a solver for the rules of a config
+   *
+   * @param config the config of the games to solve
+   */
+  public ProofNumberSolver(GomokuConfig config)
+  {
+    this(config, new ProofTable(DEFAULT_TABLE_BITS));
+  }
+
+  /**
+   * Create a solver for the rules of a config
+   *
+   * @param config the config of the games to solve
+   * @param table the table to keep the numbers of the positions in
+   */
+  public ProofNumberSolver(GomokuConfig config, ProofTable table)
+  {
+    this.config = config;
+    this.table = table;
+    this.rules = new MoveRules(config);
+  }
+
+  public GomokuConfig getConfig()
+  {
+    return config;
+  }
+
+  public ProofTable getTable()
+  {
+    return table;
+  }
+
+  public long getNodeLimit()
+  {
+    return nodeLimit;
+  }
+
+  /**
+   * Set the largest number of positions a call of
+   * {@link #solve(GomokuBoard, int)} or {@link #resume()} may visit
+   *
+   * @param nodes the number of positions, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setNodeLimit(long nodes)
+  {
+    this.nodeLimit = nodes;
+  }
+
+  /**
+   * Returns the number of positions visited by the last call of
+   * {@link #solve(GomokuBoard, int)} or {@link #resume()}
+   *
+   * @return the number of positions
+   */
+  public long getNodes()
+  {
+    return nodes;
+  }
+
+  /**
+   * Returns the result of the position solved last
+   *
+   * @return the result, {@link ProofResult#UNKNOWN} until it is found
+   */
+  public ProofResult getResult()
+  {
+    return result;
+  }
+
+  /**
+   * Stop the running solve soon, or the next one at once, until
+   * {@link #unpause()}. Can be called from any thread.
+   */
+  public void pause()
+  {
+    paused = true;
+  }
+
+  /**
+   * Let the solver run again after {@link #pause()}. Can be called from any
+   * thread.
+   */
+  public void unpause()
+  {
+    paused = false;
+  }
+
+  public boolean isPaused()
+  {
+    return paused;
+  }
+
+  /**
+   * Returns whether the last call of {@link #solve(GomokuBoard, int)} or
+   * {@link #resume()} stopped because the solver was paused, which stays true
+   * after {@link #unpause()}
+   *
+   * @return true if the last call was stopped by a pause
+   */
+  public boolean isStoppedByPause()
+  {
+    return stoppedByPause;
+  }
+
+  /**
+   * Returns the key of a position, which the numbers of the table are stored
+   * by
+   *
+   * @param board the board
+   * @param moveNumber the number of the move to make
+   * @return the key
+   */
+  public static long getKey(GomokuBoard board, int moveNumber)
+  {
+    return board.getHash() ^ moveNumber * MOVE_NUMBER_KEY;
+  }
+
+  /**
+   * Returns whether a position is small enough to solve, having at most
+   * {@link #MAX_EMPTY_CELLS} empty cells
+   *
+   * @param board the board
+   * @return true if the board can be solved
+   */
+  public static boolean supports(GomokuBoard board)
+  {
+    return (long) board.getWidth() * board.getHeight() - board.getPieceCount() <= MAX_EMPTY_CELLS;
+  }
+
+  /**
+   * Start solving a position
+   *
+   * @param board the board, which is not changed
+   * @param moveNumber the number of the move to make, which decides the color
+   *          to move
+   * @return the result from the view of the color to move, or
+   *         {@link ProofResult#UNKNOWN} if the solver was paused or ran out of
+   *         nodes first
+   * @throws IllegalArgumentException if the board has more than
+   *           {@link #MAX_EMPTY_CELLS} empty cells
+   */
+  public ProofResult solve(GomokuBoard board, int moveNumber)
+  {
+    if (!supports(board))
+    {
+      throw new IllegalArgumentException("Too many empty cells to solve: " +
+                                         ((long) board.getWidth() * board.getHeight() - board.getPieceCount()));
+    }
+
+    prepare(board);
+    this.rootMoveNumber = moveNumber;
+    this.winDisproven = false;
+    this.result = ProofResult.UNKNOWN;
+    this.prepared = true;
+
+    return resume();
+  }
+
+  /**
+   * Continue solving the position of the last call of
+   * {@link #solve(GomokuBoard, int)}, with the numbers found so far
+   *
+   * @return the result from the view of the color to move, or
+   *         {@link ProofResult#UNKNOWN} if the solver was paused or ran out of
+   *         nodes first
+   * @throws IllegalStateException if no position has been solved
+   */
+  public ProofResult resume()
+  {
+    if (!prepared)
+    {
+      throw new IllegalStateException("No position to resume");
+    }
+
+    nodes = 0;
+    aborted = false;
+    stoppedByPause = false;
+    if (result != ProofResult.UNKNOWN)
+    {
+      return result;
+    }
+
+    if (paused)
+    {
+      stoppedByPause = true;
+      return result;
+    }
+
+    byte toMove = (byte) config.getStoneColor(rootMoveNumber).getId();
+    if (!winDisproven)
+    {
+      target = toMove;
+      search(0, rootMoveNumber, INFINITY, INFINITY);
+      if (aborted)
+      {
+        return ProofResult.UNKNOWN;
+      }
+
+      if (proof == 0)
+      {
+        result = ProofResult.WIN;
+        return result;
+      }
+
+      winDisproven = true;
+    }
+
+    target = (byte) (3 - toMove);
+    search(0, rootMoveNumber, INFINITY, INFINITY);
+    if (aborted)
+    {
+      return ProofResult.UNKNOWN;
+    }
+
+    result = proof == 0 ? ProofResult.LOSS : ProofResult.DRAW;
+    return result;
+  }
+
+  /**
+   * Copy the board, creating a new one if the size of the board changed
+   */
+  private void prepare(GomokuBoard source)
+  {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (board == null || board.getWidth() != width || board.getHeight() != height)
+    {
+      // the array board counts rows without scanning
+      board = BoardType.ARRAY.supports(width, height) ? BoardType.ARRAY.createBoard(width, height)
+                                                      : config.createBoard();
+    }
+
+    board.setFrom(source);
+  }
+
+  /**
+   * Make the rows of a ply large enough for the candidates of the board
+   */
+  private void ensureRows(int ply)
+  {
+    // an empty board has the center as its single candidate
+    int needed = Math.max(1, board.getFrontier().size());
+    if (moves[ply] == null || moves[ply].length < needed)
+    {
+      moves[ply] = new int[needed];
+      proofs[ply] = new int[needed];
+      disproofs[ply] = new int[needed];
+    }
+  }
+
+  /**
+   * Search a position until its numbers reach a threshold, leaving them in
+   * {@link #proof} and {@link #disproof}
+   *
+   * @param ply the number of stones placed since the root
+   * @param moveNumber the number of the move to make
+   * @param proofLimit the threshold of the proof number
+   * @param disproofLimit the threshold of the disproof number
+   */
+  private void search(int ply, int moveNumber, int proofLimit, int disproofLimit)
+  {
+    long start = nodes;
+    if (++nodes >= nodeLimit || (nodes & (CHECK_INTERVAL - 1)) == 0)
+    {
+      if (paused)
+      {
+        stoppedByPause = true;
+      }
+
+      aborted |= nodes >= nodeLimit || stoppedByPause;
+    }
+
+    byte value = (byte) config.getStoneColor(moveNumber).getId();
+    boolean attacking = value == target;
+    long key = getKey(board, moveNumber) ^ (target == Grid.WHITE ? WHITE_KEY : 0);
+
+    int count = expand(ply, moveNumber, value, attacking);
+    if (count == -1)
+    {
+      table.store(key, proof, disproof, 1);
+      return;
+    }
+
+    int[] cells = moves[ply];
+    int[] childProofs = proofs[ply];
+    int[] childDisproofs = disproofs[ply];
+    while (true)
+    {
+      // the color of the target needs one child proven, the other color all
+      // of them, so the best child has the least proof number for the target
+      // and the least disproof number for the other color
+      int best = -1;
+      int bestOwn = INFINITY;
+      int second = INFINITY;
+      int sum = 0;
+      for (int i = 0; i < count; i++)
+      {
+        int own = attacking ? childProofs[i] : childDisproofs[i];
+        if (best == -1 || own < bestOwn)
+        {
+          second = bestOwn;
+          best = i;
+          bestOwn = own;
+        }
+        else if (own < second)
+        {
+          second = own;
+        }
+
+        sum = Math.min(INFINITY, sum + (attacking ? childDisproofs[i] : childProofs[i]));
+      }
+
+      proof = attacking ? bestOwn : sum;
+      disproof = attacking ? sum : bestOwn;
+      if (proof >= proofLimit || disproof >= disproofLimit || aborted)
+      {
+        break;
+      }
+
+      int childProofLimit;
+      int childDisproofLimit;
+      if (attacking)
+      {
+        childProofLimit = Math.min(proofLimit, second + 1);
+        childDisproofLimit = Math.min(INFINITY, disproofLimit - disproof + childDisproofs[best]);
+      }
+      else
+      {
+        childProofLimit = Math.min(INFINITY, proofLimit - proof + childProofs[best]);
+        childDisproofLimit = Math.min(disproofLimit, second + 1);
+      }
+
+      int cell = cells[best];
+      board.setCell(cell, value);
+      search(ply + 1, moveNumber + 1, childProofLimit, childDisproofLimit);
+      board.setCell(cell, Grid.EMPTY);
+
+      childProofs[best] = proof;
+      childDisproofs[best] = disproof;
+    }
+
+    table.store(key, proof, disproof, nodes - start);
+  }
+
+  /**
+   * List the children of a position with their numbers, from the table or 1
+   * for the unknown ones
+   *
+   * @return the number of children, or -1 if the position is settled by its
+   *         children alone, with its numbers in {@link #proof} and
+   *         {@link #disproof}
+   */
+  private int expand(int ply, int moveNumber, byte value, boolean attacking)
+  {
+    ensureRows(ply);
+    int[] cells = moves[ply];
+    int count = MoveRules.getCandidates(board, cells);
+    if (count == 0)
+    {
+      // a full board is a draw, which the target does not win
+      setNumbers(false);
+      return -1;
+    }
+
+    long nextKey = (moveNumber + 1) * MOVE_NUMBER_KEY ^ (target == Grid.WHITE ? WHITE_KEY : 0);
+    boolean checkRules = rules.isRestricted(value);
+    int allowed = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = cells[i];
+      if (checkRules && rules.isForbidden(board, Color.valueOf(value), cell))
+      {
+        continue;
+      }
+
+      board.setCell(cell, value);
+      if (rules.isFive(board, cell, value))
+      {
+        board.setCell(cell, Grid.EMPTY);
+
+        // one winning move settles the position
+        setNumbers(attacking);
+        return -1;
+      }
+
+      long numbers = table.probe(board.getHash() ^ nextKey);
+      boolean dead = numbers == ProofTable.NONE && board.getLiveWindows(rules.getVictoryLength()).isDead();
+      board.setCell(cell, Grid.EMPTY);
+
+      cells[allowed] = cell;
+      if (dead)
+      {
+        // neither color can make a row any more
+        proofs[ply][allowed] = INFINITY;
+        disproofs[ply][allowed] = 0;
+      }
+      else if (numbers != ProofTable.NONE)
+      {
+        proofs[ply][allowed] = ProofTable.getProof(numbers);
+        disproofs[ply][allowed] = ProofTable.getDisproof(numbers);
+      }
+      else
+      {
+        proofs[ply][allowed] = 1;
+        disproofs[ply][allowed] = 1;
+      }
+
+      allowed++;
+    }
+
+    if (allowed == 0)
+    {
+      // every move is forbidden, which ends the game like a full board
+      setNumbers(false);
+      return -1;
+    }
+
+    return allowed;
+  }
+
+  /**
+   * Set the numbers of a position proven or disproven
+   */
+  private void setNumbers(boolean proven)
+  {
+    proof = proven ? 0 : INFINITY;
+    disproof = proven ? INFINITY : 0;
+  }
+}
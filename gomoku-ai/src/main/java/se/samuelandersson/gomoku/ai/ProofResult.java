@@ -0,0 +1,22 @@
+package se.samuelandersson.gomoku.ai;
+
+/**
+ * The game-theoretic result of a position found by a
+ * {@link ProofNumberSolver}, from the view of the color to move
+ *
+ * @author Samuel Andersson
+ */
+public enum ProofResult
+{
+  /** The color to move wins, however the other color plays */
+  WIN,
+
+  /** The other color wins, however the color to move plays */
+  LOSS,
+
+  /** Neither color can force a win */
+  DRAW,
+
+  /** The solver stopped before the result was found */
+  UNKNOWN;
+}
@@ -0,0 +1,147 @@
+package se.samuelandersson.gomoku.ai;
+
+import java.util.Arrays;
+
+/**
+ * The proof and disproof numbers of the positions of a proof-number search,
+ * keyed by the hash of the position. The table has a fixed number of entries
+ * in buckets of {@link #WAYS}, the bucket given by the low bits of the hash.
+ * <p>
+ * Every entry keeps the work spent on its position, the number of positions
+ * searched below it. A position missing from a full bucket replaces the entry
+ * with the least work, which is the cheapest to find again, so the proofs of
+ * large subtrees stay in the table while it fills up.
+ * <p>
+ * Storing and probing never allocate. The table is not safe for several
+ * threads, each solver needs a table of its own.
+ *
+ * @author Samuel Andersson
+ */
+public final class ProofTable
+{
+  /** The entries per bucket */
+  public static final int WAYS = 4;
+
+  /** The entry returned when a position is not found */
+  public static final long NONE = -1;
+
+  private final long[] keys;
+
+  /** The proof number in the low 32 bits, the disproof number above it */
+  private final long[] numbers;
+
+  /** The work of each entry, 0 for an empty entry */
+  private final int[] work;
+
+  private final int mask;
+
+  /**
+   * Create a new empty table
+   *
+   * @param bits the table holds 2^bits entries
+   */
+  public ProofTable(int bits)
+  {
+    if (bits < 2 || bits > 28)
+    {
+      throw new IllegalArgumentException("Table bits must be between 2 and 28: " + bits);
+    }
+
+    keys = new long[1 << bits];
+    numbers = new long[1 << bits];
+    work = new int[1 << bits];
+    mask = (1 << bits) / WAYS - 1;
+  }
+
+  /**
+   * Returns the proof and disproof numbers of a position
+   *
+   * @param key the hash of the position
+   * @return the numbers, see {@link #pack(int, int)}, or {@link #NONE}
+   */
+  public long probe(long key)
+  {
+    int first = ((int) key & mask) * WAYS;
+    for (int i = first; i < first + WAYS; i++)
+    {
+      if (work[i] != 0 && keys[i] == key)
+      {
+        return numbers[i];
+      }
+    }
+
+    return NONE;
+  }
+
+  /**
+   * Store the proof and disproof numbers of a position, replacing the entry
+   * of the bucket with the least work if the position is not in it
+   *
+   * @param key the hash of the position
+   * @param proof the proof number
+   * @param disproof the disproof number
+   * @param nodes the positions searched below the position, in all
+   */
+  public void store(long key, int proof, int disproof, long nodes)
+  {
+    int first = ((int) key & mask) * WAYS;
+    int slot = first;
+    for (int i = first; i < first + WAYS; i++)
+    {
+      if (work[i] != 0 && keys[i] == key)
+      {
+        slot = i;
+        break;
+      }
+
+      if (work[i] < work[slot])
+      {
+        slot = i;
+      }
+    }
+
+    keys[slot] = key;
+    numbers[slot] = pack(proof, disproof);
+    work[slot] = (int) Math.max(1, Math.min(nodes, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Remove all entries, which must not be done while solving
+   */
+  public void clear()
+  {
+    Arrays.fill(work, 0);
+  }
+
+  /**
+   * Returns the number of entries the table holds
+   *
+   * @return the number of entries
+   */
+  public int getCapacity()
+  {
+    return keys.length;
+  }
+
+  /**
+   * Pack a proof and a disproof number, both at least 0
+   *
+   * @param proof the proof number
+   * @param disproof the disproof number
+   * @return the numbers
+   */
+  public static long pack(int proof, int disproof)
+  {
+    return (proof & 0xFFFFFFFFL) | (long) disproof << 32;
+  }
+
+  public static int getProof(long numbers)
+  {
+    return (int) numbers;
+  }
+
+  public static int getDisproof(long numbers)
+  {
+    return (int) (numbers >>> 32);
+  }
+}
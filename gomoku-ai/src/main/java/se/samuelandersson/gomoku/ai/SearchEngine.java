@@ -0,0 +1,778 @@
+package se.samuelandersson.gomoku.ai;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.Frontier;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.LiveWindows;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.ThreatTracker;
+import se.samuelandersson.gomoku.ThreatType;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+
+/**
+ * Finds a move with an alpha-beta search. The search is a negamax with
+ * principal variation search, deepened one ply at a time until the time or
+ * node budget runs out, and the move of the last completed iteration is
+ * chosen. The positions searched are stored in a {@link TranspositionTable}
+ * keyed by the hash of the board and the number of the move, so the stones per
+ * turn of the config are respected.
+ * <p>
+ * The moves of a position are the cells of the {@link Frontier}, tried in the
+ * order of the move of the table, two killer moves per ply, which caused
+ * cutoffs in sibling positions, and then a history of cutoffs per cell added
+ * to the rows the cell extends or blocks. The forbidden moves of the config,
+ * 3&amp;3, 4&amp;4 and Renju, are skipped, and only an overline allowed by the
+ * config wins. The leaves are scored by the threats of the board, see
+ * {@link ThreatTracker}. With one stone per turn a {@link ThreatSolver} first
+ * looks for a victory by continuous fours, which takes the search many plies.
+ * <p>
+ * The engine searches on a board of its own, and every buffer used while
+ * searching is created when a board of a new size is first searched, so the
+ * search itself does not allocate. An instance must only be used by one
+ * thread at a time, except for {@link #stop()}.
+ *
+ * @author Samuel Andersson
+ */
+public class SearchEngine
+{
+  /** The score of a five made at the root, reduced by one per ply */
+  public static final int WIN = 1000000;
+
+  /** Scores from this up are forced wins */
+  public static final int WIN_THRESHOLD = WIN - 1000;
+
+  /** The deepest ply searched */
+  public static final int MAX_PLY = 64;
+
+  private static final int INFINITY = WIN + 1;
+
+  private static final int DEFAULT_TABLE_BITS = 20;
+
+  /** The number of nodes between checks of the budget */
+  private static final int CHECK_INTERVAL = 1024;
+
+  /** Separates the same stones with different moves to make */
+  private static final long MOVE_NUMBER_KEY = 0x9E3779B97F4A7C15L;
+
+  private static final int TABLE_MOVE_ORDER = 1 << 30;
+  private static final int KILLER_ORDER = 1 << 28;
+
+  /** The positions the solver may visit before the search */
+  private static final long THREAT_NODES = 20000;
+
+  /** The ties of the move order broken at random by the helpers */
+  private static final int ORDER_NOISE = 31;
+
+  /** The largest history score before all scores are halved */
+  private static final int MAX_HISTORY = 1 << 20;
+
+  /** The score of each threat type, indexed by ordinal */
+  private static final int[] THREAT_SCORES = { 0, 20000, 2000, 1500, 400 };
+
+  private static final ThreatType[] TYPES = ThreatType.values();
+
+  private final GomokuConfig config;
+  private final TranspositionTable table;
+
+  private final MoveRules rules;
+
+  /** The solver of forced wins, or null with more stones per turn */
+  private final ThreatSolver solver;
+
+  /** The board searched on, a copy of the board of the game */
+  private GomokuBoard board;
+  private Grid grid;
+
+  /** The moves of each ply, as cell indices of the grid */
+  private int[][] moves;
+
+  /** The order score of each move of each ply */
+  private int[][] orders;
+
+  /** The moves allowed at the root, or a count of -1 for all of them */
+  private int[] rootMoves;
+  private int rootMoveCount;
+
+  private final int[][] killers = new int[MAX_PLY][2];
+
+  /** The cutoffs caused by each cell, per color id - 1 */
+  private int[][] history;
+
+  private int maxDepth = MAX_PLY - 1;
+  private long timeLimit = 1000;
+  private long nodeLimit = Long.MAX_VALUE;
+
+  private volatile boolean stopRequested;
+
+  /* How a helper of a parallel search differs, see setHelper */
+
+  private int firstDepth = 1;
+  private int orderNoise;
+  private boolean solveThreats = true;
+  private long random = 1;
+
+  /* The state of the current search */
+
+  private int rootMoveNumber;
+  private long nodes;
+  private long deadline;
+  private boolean aborted;
+  private int iterationMove;
+  private int iterationScore;
+
+  /**
+   * Create an engine for the rules of a config
+   *
+   * @param config the config of the games to search
+   */
+  public SearchEngine(GomokuConfig config)
+  {
+    this(config, new TranspositionTable(DEFAULT_TABLE_BITS));
+  }
+
+  /**
+   * Create an engine for the rules of a config
+   *
+   * @param config the config of the games to search
+   * @param table the table to store the positions searched in
+   */
+  public SearchEngine(GomokuConfig config, TranspositionTable table)
+  {
+    this.config = config;
+    this.table = table;
+    this.rules = new MoveRules(config);
+    this.solver = config.getStonesPerTurn() == 1 ? new ThreatSolver(config) : null;
+    if (solver != null)
+    {
+      solver.setNodeLimit(THREAT_NODES);
+    }
+  }
+
+  public GomokuConfig getConfig()
+  {
+    return config;
+  }
+
+  public TranspositionTable getTable()
+  {
+    return table;
+  }
+
+  public int getMaxDepth()
+  {
+    return maxDepth;
+  }
+
+  /**
+   * Set the deepest iteration searched
+   *
+   * @param maxDepth the depth, between 1 and {@link #MAX_PLY} - 1
+   */
+  public void setMaxDepth(int maxDepth)
+  {
+    if (maxDepth < 1 || maxDepth >= MAX_PLY)
+    {
+      throw new IllegalArgumentException("Depth must be between 1 and " + (MAX_PLY - 1) + ": " + maxDepth);
+    }
+
+    this.maxDepth = maxDepth;
+  }
+
+  public long getTimeLimit()
+  {
+    return timeLimit;
+  }
+
+  /**
+   * Set the longest time a search may take. The clock is read every
+   * {@value #CHECK_INTERVAL} nodes.
+   *
+   * @param millis the time in milliseconds, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setTimeLimit(long millis)
+  {
+    this.timeLimit = millis;
+  }
+
+  public long getNodeLimit()
+  {
+    return nodeLimit;
+  }
+
+  /**
+   * Set the largest number of positions a search may visit
+   *
+   * @param nodes the number of positions, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setNodeLimit(long nodes)
+  {
+    this.nodeLimit = nodes;
+  }
+
+  /**
+   * Stop the running search, which returns the best move found so far. Can be
+   * called from any thread.
+   */
+  public void stop()
+  {
+    stopRequested = true;
+  }
+
+  /**
+   * Find a move for the next stone of a game. Only the moves the game would
+   * accept are searched at the root.
+   *
+   * @param game the game, which is not changed
+   * @return the result, without a move if none can be made
+   */
+  public SearchResult search(GomokuGame game)
+  {
+    long start = System.currentTimeMillis();
+    prepare(game);
+
+    return iterate(start);
+  }
+
+  /**
+   * Find a move for the next stone on a board, ignoring the opening rules
+   *
+   * @param board the board, which is not changed
+   * @param moveNumber the number of the move to make, which decides the color
+   *          of the stone, see {@link GomokuConfig#getStoneColor(int)}
+   * @return the result, without a move if none can be made
+   */
+  public SearchResult search(GomokuBoard board, int moveNumber)
+  {
+    long start = System.currentTimeMillis();
+    prepare(board, moveNumber);
+
+    return iterate(start);
+  }
+
+  /**
+   * Copy the board of a game and list the moves the game accepts
+   */
+  void prepare(GomokuGame game)
+  {
+    prepare(game.getBoard(), game.getMoveCount());
+
+    Color color = game.getNextColor();
+    int count = generate(0);
+    int allowed = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = moves[0][i];
+      try
+      {
+        config.getMoveValidators().validate(game, color, grid.getX(cell), grid.getY(cell));
+        moves[0][allowed++] = cell;
+      }
+      catch (IllegalActionException e)
+      {
+        // not a move of the game
+      }
+    }
+
+    System.arraycopy(moves[0], 0, rootMoves, 0, allowed);
+    rootMoveCount = allowed;
+  }
+
+  /**
+   * Copy a board and create the buffers if the size of the board changed. All
+   * moves are searched at the root.
+   */
+  void prepare(GomokuBoard source, int moveNumber)
+  {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (board == null || board.getWidth() != width || board.getHeight() != height)
+    {
+      // the array board counts rows without scanning
+      board = BoardType.ARRAY.supports(width, height) ? BoardType.ARRAY.createBoard(width, height)
+                                                      : config.createBoard();
+      grid = board.getGrid();
+
+      int cellCount = Math.max(1, width * height);
+      moves = new int[MAX_PLY][cellCount];
+      orders = new int[MAX_PLY][cellCount];
+      rootMoves = new int[cellCount];
+      history = new int[2][grid.getSize()];
+    }
+
+    board.setFrom(source);
+    grid = board.getGrid();
+
+    this.rootMoveNumber = moveNumber;
+    this.rootMoveCount = -1;
+    this.nodes = 0;
+    this.aborted = false;
+    this.stopRequested = false;
+
+    for (int[] killer : killers)
+    {
+      killer[0] = TranspositionTable.NO_MOVE;
+      killer[1] = TranspositionTable.NO_MOVE;
+    }
+
+    // older cutoffs say less about this position
+    ageHistory();
+  }
+
+  /**
+   * Search the same moves at the root as another engine, which has prepared
+   * the same position
+   *
+   * @param engine the engine
+   */
+  void copyRootMoves(SearchEngine engine)
+  {
+    rootMoveCount = engine.rootMoveCount;
+    if (rootMoveCount > 0)
+    {
+      System.arraycopy(engine.rootMoves, 0, rootMoves, 0, rootMoveCount);
+    }
+  }
+
+  /**
+   * Make the engine a helper of a parallel search, which differs from the
+   * other threads searching the same position. Odd helpers start one ply
+   * deeper, and all helpers break the ties of the move order at random, so
+   * the threads spread over different parts of the tree and share what they
+   * find through the table.
+   *
+   * @param id the number of the helper, from 1, or 0 for the main thread
+   */
+  void setHelper(int id)
+  {
+    this.firstDepth = 1 + (id & 1);
+    this.orderNoise = id == 0 ? 0 : ORDER_NOISE;
+    this.solveThreats = id == 0;
+    this.random = 0x2545F4914F6CDD1DL * (id + 1);
+  }
+
+  /**
+   * Search the prepared position, one ply deeper at a time
+   *
+   * @param start the time the search started, in milliseconds
+   * @return the result
+   */
+  SearchResult iterate(long start)
+  {
+    Color color = config.getStoneColor(rootMoveNumber);
+    long startNanos = System.nanoTime();
+    boolean timed = timeLimit < Long.MAX_VALUE / 2000000;
+    deadline = startNanos + (timed ? timeLimit * 1000000 : Long.MAX_VALUE / 2);
+
+    int bestMove = TranspositionTable.NO_MOVE;
+    int bestScore = 0;
+    int completed = 0;
+
+    int rootCount = rootMoveCount >= 0 ? rootMoveCount : generate(0);
+    int[] line = rootCount > 1 ? findForcedWin(color) : null;
+    if (rootCount == 1)
+    {
+      // nothing to choose between
+      bestMove = rootMoveCount >= 0 ? rootMoves[0] : moves[0][0];
+    }
+    else if (line != null)
+    {
+      bestMove = grid.index(Moves.getX(line[0]), Moves.getY(line[0]));
+      bestScore = WIN - line.length + 1;
+      completed = line.length;
+    }
+    else if (rootCount > 1)
+    {
+      for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++)
+      {
+        iterationMove = TranspositionTable.NO_MOVE;
+        int score = search(depth, 0, -INFINITY, INFINITY);
+
+        if (iterationMove != TranspositionTable.NO_MOVE)
+        {
+          // a move searched fully is at least as good as the previous choice,
+          // which is searched first
+          bestMove = iterationMove;
+          bestScore = iterationScore;
+        }
+
+        if (aborted)
+        {
+          break;
+        }
+
+        completed = depth;
+        if (Math.abs(score) >= WIN_THRESHOLD)
+        {
+          break;
+        }
+
+        if (timed && System.nanoTime() - startNanos > timeLimit * 500000)
+        {
+          // the next iteration takes longer than all before it together
+          break;
+        }
+      }
+    }
+
+    int move = bestMove == TranspositionTable.NO_MOVE ? -1
+                                                      : Moves.pack(color, grid.getX(bestMove), grid.getY(bestMove));
+    return new SearchResult(move, bestScore, completed, nodes, System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Look for a victory by continuous fours from the root, with the main
+   * thread only
+   *
+   * @return the moves of the line, or null if none was found or the first
+   *         move is not allowed
+   */
+  private int[] findForcedWin(Color color)
+  {
+    if (solver == null || !solveThreats)
+    {
+      return null;
+    }
+
+    int[] line = solver.findVcf(board, color);
+    nodes += solver.getNodes();
+    if (line == null || rootMoveCount < 0)
+    {
+      return line;
+    }
+
+    int cell = grid.index(Moves.getX(line[0]), Moves.getY(line[0]));
+    for (int i = 0; i < rootMoveCount; i++)
+    {
+      if (rootMoves[i] == cell)
+      {
+        return line;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Search a position to a depth
+   *
+   * @return the score from the view of the color moving, or 0 if aborted
+   */
+  private int search(int depth, int ply, int alpha, int beta)
+  {
+    if (++nodes >= nodeLimit || (nodes & (CHECK_INTERVAL - 1)) == 0)
+    {
+      checkLimits();
+    }
+
+    if (aborted)
+    {
+      return 0;
+    }
+
+    Color color = config.getStoneColor(rootMoveNumber + ply);
+    long key = board.getHash() ^ (rootMoveNumber + ply) * MOVE_NUMBER_KEY;
+    long entry = table.probe(key);
+    int tableMove = TranspositionTable.NO_MOVE;
+    if (entry != TranspositionTable.NONE)
+    {
+      tableMove = TranspositionTable.getMove(entry);
+      if (ply > 0 && TranspositionTable.getDepth(entry) >= depth)
+      {
+        int score = fromTable(TranspositionTable.getScore(entry), ply);
+        int bound = TranspositionTable.getBound(entry);
+        if (bound == TranspositionTable.EXACT ||
+            (bound == TranspositionTable.LOWER && score >= beta) ||
+            (bound == TranspositionTable.UPPER && score <= alpha))
+        {
+          return score;
+        }
+      }
+    }
+
+    if (depth <= 0 || ply >= MAX_PLY - 1)
+    {
+      return evaluate(color, ply);
+    }
+
+    int count = ply == 0 && rootMoveCount >= 0 ? copyRootMoves() : generate(ply);
+    order(ply, count, color, tableMove);
+
+    byte value = (byte) color.getId();
+    boolean negate = config.getStoneColor(rootMoveNumber + ply + 1) != color;
+    boolean checkRules = rules.isRestricted(value) && !(ply == 0 && rootMoveCount >= 0);
+
+    int originalAlpha = alpha;
+    int bestScore = -INFINITY;
+    int bestMove = TranspositionTable.NO_MOVE;
+    int searched = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = pick(ply, i, count);
+      if (checkRules && rules.isForbidden(board, color, cell))
+      {
+        continue;
+      }
+
+      board.setCell(cell, value);
+
+      int score;
+      if (rules.isFive(board, cell, value))
+      {
+        score = WIN - ply - 1;
+      }
+      else if (searched == 0)
+      {
+        score = searchChild(depth - 1, ply + 1, alpha, beta, negate);
+      }
+      else
+      {
+        // prove the move is no better than the best one with a null window
+        score = searchChild(depth - 1, ply + 1, alpha, alpha + 1, negate);
+        if (score > alpha && score < beta)
+        {
+          score = searchChild(depth - 1, ply + 1, alpha, beta, negate);
+        }
+      }
+
+      board.setCell(cell, Grid.EMPTY);
+      searched++;
+
+      if (aborted)
+      {
+        return 0;
+      }
+
+      if (score > bestScore)
+      {
+        bestScore = score;
+        bestMove = cell;
+        if (ply == 0)
+        {
+          iterationMove = cell;
+          iterationScore = score;
+        }
+      }
+
+      if (score > alpha)
+      {
+        alpha = score;
+      }
+
+      if (alpha >= beta)
+      {
+        addCutoff(ply, value, cell, depth);
+        break;
+      }
+    }
+
+    if (searched == 0)
+    {
+      // a full board, or only forbidden moves left
+      return 0;
+    }
+
+    int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                                           : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    table.store(key, toTable(bestScore, ply), depth, bound, bestMove);
+
+    return bestScore;
+  }
+
+  /**
+   * Search the position after a move, from the view of the color that made
+   * it. The next stone may be of the same color when more than one stone is
+   * placed per turn.
+   */
+  private int searchChild(int depth, int ply, int alpha, int beta, boolean negate)
+  {
+    return negate ? -search(depth, ply, -beta, -alpha) : search(depth, ply, alpha, beta);
+  }
+
+  private void checkLimits()
+  {
+    if (stopRequested || nodes >= nodeLimit || System.nanoTime() - deadline >= 0)
+    {
+      aborted = true;
+    }
+  }
+
+  /**
+   * Score a position by the threats of both colors
+   */
+  private int evaluate(Color color, int ply)
+  {
+    Color other = Color.valueOf(3 - color.getId());
+    ThreatTracker threats = board.getThreats(rules.getVictoryLength(), rules.isExactFive());
+
+    if (!rules.isRestricted((byte) color.getId()) &&
+        threats.getCount(color, ThreatType.FOUR) + threats.getCount(color, ThreatType.STRAIGHT_FOUR) > 0)
+    {
+      // the next stone makes five
+      return WIN - ply - 1;
+    }
+
+    LiveWindows live = board.getLiveWindows(rules.getVictoryLength());
+    int score = live.getLiveCount(color) - live.getLiveCount(other);
+    for (int type = 1; type < TYPES.length; type++)
+    {
+      score += THREAT_SCORES[type] * (threats.getCount(color, TYPES[type]) - threats.getCount(other, TYPES[type]));
+    }
+
+    return score;
+  }
+
+  private int generate(int ply)
+  {
+    return MoveRules.getCandidates(board, moves[ply]);
+  }
+
+  private int copyRootMoves()
+  {
+    System.arraycopy(rootMoves, 0, moves[0], 0, rootMoveCount);
+    return rootMoveCount;
+  }
+
+  /**
+   * Give every move of a ply its order score
+   */
+  private void order(int ply, int count, Color color, int tableMove)
+  {
+    int[] list = moves[ply];
+    int[] scores = orders[ply];
+    byte own = (byte) color.getId();
+    int[] cutoffs = history[own - 1];
+
+    for (int i = 0; i < count; i++)
+    {
+      int cell = list[i];
+      int shape = rules.getShape(board, cell, own);
+      if (shape >= MoveRules.BLOCK_SHAPE)
+      {
+        scores[i] = shape;
+      }
+      else if (cell == tableMove)
+      {
+        scores[i] = TABLE_MOVE_ORDER;
+      }
+      else if (cell == killers[ply][0])
+      {
+        scores[i] = KILLER_ORDER;
+      }
+      else if (cell == killers[ply][1])
+      {
+        scores[i] = KILLER_ORDER - 1;
+      }
+      else
+      {
+        scores[i] = Math.min(cutoffs[cell] + shape + (nextRandom() & orderNoise), KILLER_ORDER - 2);
+      }
+    }
+  }
+
+  /**
+   * Move the best of the remaining moves of a ply to index
+   *
+   * @return the move
+   */
+  private int pick(int ply, int index, int count)
+  {
+    int[] list = moves[ply];
+    int[] scores = orders[ply];
+    int best = index;
+    for (int i = index + 1; i < count; i++)
+    {
+      if (scores[i] > scores[best])
+      {
+        best = i;
+      }
+    }
+
+    int cell = list[best];
+    list[best] = list[index];
+    list[index] = cell;
+
+    int score = scores[best];
+    scores[best] = scores[index];
+    scores[index] = score;
+
+    return cell;
+  }
+
+  /**
+   * Returns the next number of a xorshift generator
+   */
+  private int nextRandom()
+  {
+    random ^= random << 13;
+    random ^= random >>> 7;
+    random ^= random << 17;
+    return (int) random;
+  }
+
+  private void addCutoff(int ply, byte value, int cell, int depth)
+  {
+    if (killers[ply][0] != cell)
+    {
+      killers[ply][1] = killers[ply][0];
+      killers[ply][0] = cell;
+    }
+
+    int[] cutoffs = history[value - 1];
+    cutoffs[cell] += depth * depth;
+    if (cutoffs[cell] > MAX_HISTORY)
+    {
+      ageHistory();
+    }
+  }
+
+  private void ageHistory()
+  {
+    for (int[] cutoffs : history)
+    {
+      for (int i = 0; i < cutoffs.length; i++)
+      {
+        cutoffs[i] >>= 1;
+      }
+    }
+  }
+
+  /**
+   * Make a win score relative to the position stored, so it can be found
+   * at another ply
+   */
+  private static int toTable(int score, int ply)
+  {
+    if (score >= WIN_THRESHOLD)
+    {
+      return score + ply;
+    }
+
+    if (score <= -WIN_THRESHOLD)
+    {
+      return score - ply;
+    }
+
+    return score;
+  }
+
+  private static int fromTable(int score, int ply)
+  {
+    if (score >= WIN_THRESHOLD)
+    {
+      return score - ply;
+    }
+
+    if (score <= -WIN_THRESHOLD)
+    {
+      return score + ply;
+    }
+
+    return score;
+  }
+}
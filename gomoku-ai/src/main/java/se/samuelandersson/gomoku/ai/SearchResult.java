@@ -0,0 +1,108 @@
+package se.samuelandersson.gomoku.ai;
+
+import se.samuelandersson.gomoku.Moves;
+
+/**
+ * The move chosen by a search, with the score and the effort behind it
+ *
+ * @author Samuel Andersson
+ */
+public final class SearchResult
+{
+  private final int move;
+  private final int score;
+  private final int depth;
+  private final long nodes;
+  private final long millis;
+
+  /**
+   * Create a result
+   *
+   * @param move the move, packed by {@link Moves}, or -1 if there was none
+   * @param score the score from the view of the color moving
+   * @param depth the depth of the last completed iteration
+   * @param nodes the number of positions searched
+   * @param millis the time taken
+   */
+  public SearchResult(int move, int score, int depth, long nodes, long millis)
+  {
+    this.move = move;
+    this.score = score;
+    this.depth = depth;
+    this.nodes = nodes;
+    this.millis = millis;
+  }
+
+  /**
+   * Returns the move chosen
+   *
+   * @return the move, packed by {@link Moves}, or -1 if no move could be made
+   */
+  public int getMove()
+  {
+    return move;
+  }
+
+  public boolean hasMove()
+  {
+    return move != -1;
+  }
+
+  /**
+   * Returns the score of the move from the view of the color moving. Scores
+   * beyond {@link SearchEngine#WIN_THRESHOLD} are forced wins, and below its
+   * negation forced losses.
+   *
+   * @return the score
+   */
+  public int getScore()
+  {
+    return score;
+  }
+
+  /**
+   * Returns whether the color moving wins by force
+   *
+   * @return whether the score is a forced win
+   */
+  public boolean isWin()
+  {
+    return score >= SearchEngine.WIN_THRESHOLD;
+  }
+
+  /**
+   * Returns whether the color moving loses by force
+   *
+   * @return whether the score is a forced loss
+   */
+  public boolean isLoss()
+  {
+    return score <= -SearchEngine.WIN_THRESHOLD;
+  }
+
+  public int getDepth()
+  {
+    return depth;
+  }
+
+  public long getNodes()
+  {
+    return nodes;
+  }
+
+  public long getMillis()
+  {
+    return millis;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("SearchResult<%s,score=%s,depth=%s,nodes=%s,%sms>",
+                         move == -1 ? "none" : Moves.toString(move),
+                         score,
+                         depth,
+                         nodes,
+                         millis);
+  }
+}
@@ -0,0 +1,869 @@
+package se.samuelandersson.gomoku.ai;
+
+import java.util.Arrays;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.Frontier;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Grid;
+import se.samuelandersson.gomoku.Moves;
+
+/**
+ * Finds forced wins by threat-space search: victory by continuous fours (VCF),
+ * where every move of the attacker makes a four the defender must block, and
+ * victory by continuous threats (VCT), where threes are made as well.
+ * <p>
+ * Only the moves making threats are tried for the attacker. After a four the
+ * defender has one move, the cell completing it. After a three the defender
+ * may take any cell of the straight fours the three threatens, or make a four
+ * of its own, and the attacker must win against every one of them. A four of
+ * the defender has to be blocked by the attacker, which only continues if the
+ * block is a threat itself. An open four or two fours at once win, and so does
+ * a four the defender is forbidden to block. The forbidden moves and the
+ * overlines of the config are followed, see {@link MoveRules}.
+ * <p>
+ * The search deepens one attacker move at a time, so the shortest win is
+ * found first, and the positions proven to fail are kept in a
+ * {@link TranspositionTable}. The solver works on a board of its own and does
+ * not allocate while searching. An instance must only be used by one thread
+ * at a time.
+ *
+ * @author Samuel Andersson
+ */
+public class ThreatSolver
+{
+  /** The most attacker moves of a line */
+  public static final int MAX_DEPTH = 60;
+
+  private static final int DEFAULT_TABLE_BITS = 16;
+
+  private static final int DEFAULT_VCF_DEPTH = 20;
+  private static final int DEFAULT_VCT_DEPTH = 8;
+
+  private static final int MAX_PLY = MAX_DEPTH * 2 + 2;
+
+  /** Keeps the positions of the two searches and attackers apart */
+  private static final long VCT_KEY = 0x5851F42D4C957F2DL;
+  private static final long WHITE_KEY = 0x14057B7EF767814FL;
+
+  /* The order keys of the attacker moves */
+
+  private static final int NO_THREAT = 0;
+  private static final int THREE = 1;
+  private static final int FOUR = 2;
+  private static final int OPEN_FOUR = 3;
+
+  private final GomokuConfig config;
+  private final MoveRules rules;
+  private final TranspositionTable table;
+
+  private int vcfDepth = DEFAULT_VCF_DEPTH;
+  private int vctDepth = DEFAULT_VCT_DEPTH;
+  private long nodeLimit = Long.MAX_VALUE;
+
+  private GomokuBoard board;
+  private Grid grid;
+  private final int[] steps = new int[Grid.DIRECTIONS];
+
+  /** The moves of each ply, as cell indices of the grid */
+  private int[][] moves;
+
+  /** The order key of each move of each ply */
+  private int[][] orders;
+
+  /** The candidate moves read by findDefences */
+  private int[] candidates;
+
+  /** The cells of a line around a cell, see readLine */
+  private byte[] line;
+
+  /** The cells found by the last call of findCompletions */
+  private final int[] completions = new int[2 * Grid.DIRECTIONS];
+
+  /** Marks for listing each cell once, a cell is marked if it holds mark */
+  private int[] marks;
+  private int mark;
+
+  /** The winning line from each ply, packed by Moves */
+  private final int[][] lines = new int[MAX_PLY + 1][MAX_PLY + 1];
+  private final int[] lineLengths = new int[MAX_PLY + 1];
+
+  /* The state of the current search */
+
+  private byte attacker;
+  private byte defender;
+  private long nodes;
+  private boolean aborted;
+
+  /**
+   * Create a solver for the rules of a config
+   *
+   * @param config the config of the games to solve
+   * @throws IllegalArgumentException if more than one stone is placed per turn
+   */
+  public ThreatSolver(GomokuConfig config)
+  {
+    this(config, new TranspositionTable(DEFAULT_TABLE_BITS));
+  }
+
+  /**
+   * Create a solver for the rules of a config
+   *
+   * @param config the config of the games to solve
+   * @param table the table to keep the failed positions in
+   * @throws IllegalArgumentException if more than one stone is placed per turn
+   */
+  public ThreatSolver(GomokuConfig config, TranspositionTable table)
+  {
+    if (config.getStonesPerTurn() != 1)
+    {
+      throw new IllegalArgumentException("Threat-space search requires one stone per turn");
+    }
+
+    this.config = config;
+    this.rules = new MoveRules(config);
+    this.table = table;
+  }
+
+  public GomokuConfig getConfig()
+  {
+    return config;
+  }
+
+  public int getVcfDepth()
+  {
+    return vcfDepth;
+  }
+
+  /**
+   * Set the most fours of a line found by {@link #findVcf(GomokuBoard, Color)}
+   *
+   * @param depth the number of attacker moves, between 1 and
+   *          {@link #MAX_DEPTH}
+   */
+  public void setVcfDepth(int depth)
+  {
+    this.vcfDepth = checkDepth(depth);
+  }
+
+  public int getVctDepth()
+  {
+    return vctDepth;
+  }
+
+  /**
+   * Set the most threats of a line found by
+   * {@link #findVct(GomokuBoard, Color)}
+   *
+   * @param depth the number of attacker moves, between 1 and
+   *          {@link #MAX_DEPTH}
+   */
+  public void setVctDepth(int depth)
+  {
+    this.vctDepth = checkDepth(depth);
+  }
+
+  private static int checkDepth(int depth)
+  {
+    if (depth < 1 || depth > MAX_DEPTH)
+    {
+      throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH + ": " + depth);
+    }
+
+    return depth;
+  }
+
+  public long getNodeLimit()
+  {
+    return nodeLimit;
+  }
+
+  /**
+   * Set the largest number of positions a search may visit, after which no
+   * win is reported
+   *
+   * @param nodes the number of positions, or {@link Long#MAX_VALUE} for no
+   *          limit
+   */
+  public void setNodeLimit(long nodes)
+  {
+    this.nodeLimit = nodes;
+  }
+
+  /**
+   * Returns the number of positions visited by the last search
+   *
+   * @return the number of positions
+   */
+  public long getNodes()
+  {
+    return nodes;
+  }
+
+  /**
+   * Returns whether the last search ran out of nodes
+   *
+   * @return whether the search was cut short
+   */
+  public boolean isAborted()
+  {
+    return aborted;
+  }
+
+  /**
+   * Find a victory by continuous fours
+   *
+   * @param board the board, which is not changed
+   * @param color the attacker, which is to move
+   * @return the moves of the line, packed by {@link Moves}, starting with the
+   *         move of the attacker and ending with its five, or null if no win
+   *         was found. A four the defender can not block is followed by the
+   *         five directly.
+   */
+  public int[] findVcf(GomokuBoard board, Color color)
+  {
+    return solve(board, color, false, vcfDepth);
+  }
+
+  /**
+   * Find a victory by continuous threats, fours and threes. For a three the
+   * line follows the first defence tried, the attacker wins against all
+   * others as well.
+   *
+   * @param board the board, which is not changed
+   * @param color the attacker, which is to move
+   * @return the moves of the line, packed by {@link Moves}, starting with the
+   *         move of the attacker and ending with its five, or null if no win
+   *         was found
+   */
+  public int[] findVct(GomokuBoard board, Color color)
+  {
+    return solve(board, color, true, vctDepth);
+  }
+
+  private int[] solve(GomokuBoard source, Color color, boolean vct, int maxDepth)
+  {
+    if (!color.isValidPlayerColor())
+    {
+      throw new IllegalArgumentException("No attacker: " + color);
+    }
+
+    prepare(source);
+    attacker = (byte) color.getId();
+    defender = (byte) (3 - attacker);
+    nodes = 0;
+    aborted = false;
+
+    for (int depth = 1; depth <= maxDepth && !aborted; depth++)
+    {
+      if (attack(0, depth, vct, -1))
+      {
+        return Arrays.copyOf(lines[0], lineLengths[0]);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Copy the board and create the buffers if the size of the board changed
+   */
+  private void prepare(GomokuBoard source)
+  {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (board == null || board.getWidth() != width || board.getHeight() != height)
+    {
+      // the array board counts rows without scanning
+      board = BoardType.ARRAY.supports(width, height) ? BoardType.ARRAY.createBoard(width, height)
+                                                      : config.createBoard();
+      grid = board.getGrid();
+
+      int cellCount = Math.max(1, width * height);
+      moves = new int[MAX_PLY][cellCount];
+      orders = new int[MAX_PLY][cellCount];
+      candidates = new int[cellCount];
+      marks = new int[grid.getSize()];
+      mark = 0;
+      line = new byte[2 * rules.getVictoryLength() + 1];
+
+      for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+      {
+        steps[dir] = grid.getOffset(dir);
+      }
+    }
+
+    board.setFrom(source);
+  }
+
+  /**
+   * Search a position with the attacker to move
+   *
+   * @param ply the number of moves from the root
+   * @param depth the attacker moves left
+   * @param last the cell of the last stone of the defender, or -1 at the root
+   * @return whether the attacker wins, with the line in lines[ply]
+   */
+  private boolean attack(int ply, int depth, boolean vct, int last)
+  {
+    lineLengths[ply] = 0;
+    if (++nodes > nodeLimit)
+    {
+      aborted = true;
+    }
+
+    if (aborted)
+    {
+      return false;
+    }
+
+    int block;
+    int blockCount;
+    if (last == -1)
+    {
+      int five = findFive(attacker);
+      if (five != -1)
+      {
+        setLine(ply, attacker, five);
+        return true;
+      }
+
+      block = findFive(defender);
+      blockCount = block == -1 ? 0 : countFives(defender);
+    }
+    else
+    {
+      // the attacker has no four the defender left open, and only the last
+      // stone of the defender can have made one
+      blockCount = findCompletions(last, defender);
+      block = blockCount == 0 ? -1 : completions[0];
+    }
+
+    if (depth == 0)
+    {
+      return false;
+    }
+
+    long key = board.getHash() ^ (vct ? VCT_KEY : 0) ^ (attacker == Grid.WHITE ? WHITE_KEY : 0);
+    long entry = table.probe(key);
+    if (entry != TranspositionTable.NONE && TranspositionTable.getDepth(entry) >= depth)
+    {
+      return false;
+    }
+
+    int[] list = moves[ply];
+    int[] keys = orders[ply];
+    int count;
+    if (block != -1)
+    {
+      if (blockCount > 1)
+      {
+        // two fours can not both be blocked
+        return false;
+      }
+
+      // the four of the defender must be blocked
+      list[0] = block;
+      count = 1;
+    }
+    else
+    {
+      count = MoveRules.getCandidates(board, list);
+    }
+
+    // keep the threats, best first
+    int threats = 0;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = list[i];
+      int threat = classify(cell, vct);
+      if (threat == NO_THREAT)
+      {
+        continue;
+      }
+
+      int j = threats++;
+      while (j > 0 && keys[j - 1] < threat)
+      {
+        list[j] = list[j - 1];
+        keys[j] = keys[j - 1];
+        j--;
+      }
+
+      list[j] = cell;
+      keys[j] = threat;
+    }
+
+    for (int i = 0; i < threats; i++)
+    {
+      int cell = list[i];
+      board.setCell(cell, attacker);
+      boolean win = defend(ply + 1, depth - 1, vct, cell);
+      board.setCell(cell, Grid.EMPTY);
+
+      if (win)
+      {
+        prependLine(ply, attacker, cell);
+        return true;
+      }
+
+      if (aborted)
+      {
+        return false;
+      }
+    }
+
+    table.store(key, 0, depth, TranspositionTable.UPPER, TranspositionTable.NO_MOVE);
+    return false;
+  }
+
+  /**
+   * Search a position with the defender to move, after a threat
+   *
+   * @param ply the number of moves from the root
+   * @param depth the attacker moves left
+   * @param move the cell of the threat
+   * @return whether the attacker wins, with the line in lines[ply]
+   */
+  private boolean defend(int ply, int depth, boolean vct, int move)
+  {
+    // the defender has no four, any four was blocked by the attacker, and
+    // only the threat can have made one for the attacker
+    lineLengths[ply] = 0;
+    int fiveCount = findCompletions(move, attacker);
+    if (fiveCount > 0)
+    {
+      int five = completions[0];
+      if (fiveCount > 1 || rules.isRestricted(defender) && isForbidden(defender, five))
+      {
+        // the defender can not block the four
+        setLine(ply, attacker, five);
+        return true;
+      }
+
+      board.setCell(five, defender);
+      boolean win = attack(ply + 1, depth, vct, five);
+      board.setCell(five, Grid.EMPTY);
+
+      if (win)
+      {
+        prependLine(ply, defender, five);
+      }
+
+      return win;
+    }
+
+    if (!vct || depth == 0)
+    {
+      return false;
+    }
+
+    int count = findDefences(moves[ply]);
+    if (count == 0)
+    {
+      // the move threatened nothing
+      return false;
+    }
+
+    int[] list = moves[ply];
+    boolean first = true;
+    for (int i = 0; i < count; i++)
+    {
+      int cell = list[i];
+      if (rules.isRestricted(defender) && isForbidden(defender, cell))
+      {
+        continue;
+      }
+
+      board.setCell(cell, defender);
+      boolean win = attack(ply + 1, depth, vct, cell);
+      board.setCell(cell, Grid.EMPTY);
+
+      if (!win)
+      {
+        return false;
+      }
+
+      if (first)
+      {
+        prependLine(ply, defender, cell);
+        first = false;
+      }
+      else
+      {
+        // keep the line of the first defence
+        lineLengths[ply + 1] = 0;
+      }
+    }
+
+    if (first)
+    {
+      // every defence is forbidden
+      lineLengths[ply] = 0;
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the threat an attacker move on an empty cell makes
+   */
+  private int classify(int cell, boolean vct)
+  {
+    int stones = getWindowStones(cell, attacker);
+    int victoryLength = rules.getVictoryLength();
+    if (stones < victoryLength - (vct ? 3 : 2) || rules.isRestricted(attacker) && isForbidden(attacker, cell))
+    {
+      return NO_THREAT;
+    }
+
+    board.setCell(cell, attacker);
+    int threat = NO_THREAT;
+    int count = findCompletions(cell, attacker);
+    if (count > 1)
+    {
+      threat = OPEN_FOUR;
+    }
+    else if (count == 1)
+    {
+      threat = FOUR;
+    }
+    else if (vct && stones >= victoryLength - 3 && makesStraightFour(cell))
+    {
+      threat = THREE;
+    }
+
+    board.setCell(cell, Grid.EMPTY);
+    return threat;
+  }
+
+  /**
+   * Returns whether an attacker stone on an empty cell leaves one more cell
+   * to make a straight four, victory length - 1 stones in a row with empty
+   * cells at both ends that may complete it
+   */
+  private boolean makesStraightFour(int cell)
+  {
+    int victoryLength = rules.getVictoryLength();
+    boolean exactFive = rules.isExactFive() && !rules.isOverlineFive(attacker);
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      readLine(cell, dir);
+      line[victoryLength] = attacker;
+
+      // the rows of victory length + 1 with the cell inside them
+      for (int start = 1; start < victoryLength; start++)
+      {
+        int end = start + victoryLength;
+        if (line[start] != Grid.EMPTY || line[end] != Grid.EMPTY ||
+            exactFive && (line[start - 1] == attacker || end < line.length - 1 && line[end + 1] == attacker))
+        {
+          continue;
+        }
+
+        int stones = 0;
+        int empty = 0;
+        for (int i = start + 1; i < end; i++)
+        {
+          if (line[i] == attacker)
+          {
+            stones++;
+          }
+          else if (line[i] == Grid.EMPTY)
+          {
+            empty++;
+          }
+        }
+
+        if (stones == victoryLength - 2 && empty == 1)
+        {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * List the defences against the three of the attacker: the cells making
+   * straight fours and the cells completing them, and the fours of the
+   * defender
+   *
+   * @return the number of defences
+   */
+  private int findDefences(int[] list)
+  {
+    int candidateCount = MoveRules.getCandidates(board, candidates);
+
+    int defenceMark = nextMark();
+    int count = 0;
+    boolean threatened = false;
+    int fourStones = rules.getVictoryLength() - 2;
+    for (int i = 0; i < candidateCount; i++)
+    {
+      int cell = candidates[i];
+      if (getWindowStones(cell, attacker) < fourStones || rules.isRestricted(attacker) && isForbidden(attacker, cell))
+      {
+        continue;
+      }
+
+      board.setCell(cell, attacker);
+      int completionCount = findCompletions(cell, attacker);
+      board.setCell(cell, Grid.EMPTY);
+
+      if (completionCount > 1)
+      {
+        threatened = true;
+        count = addDefence(list, count, cell, defenceMark);
+        for (int j = 0; j < completionCount; j++)
+        {
+          count = addDefence(list, count, completions[j], defenceMark);
+        }
+      }
+    }
+
+    if (!threatened)
+    {
+      return 0;
+    }
+
+    // a four of the defender forces the attacker to answer
+    for (int i = 0; i < candidateCount; i++)
+    {
+      int cell = candidates[i];
+      if (getWindowStones(cell, defender) < fourStones)
+      {
+        continue;
+      }
+
+      board.setCell(cell, defender);
+      boolean four = findCompletions(cell, defender) > 0;
+      board.setCell(cell, Grid.EMPTY);
+
+      if (four)
+      {
+        count = addDefence(list, count, cell, defenceMark);
+      }
+    }
+
+    return count;
+  }
+
+  private int addDefence(int[] list, int count, int cell, int defenceMark)
+  {
+    if (marks[cell] != defenceMark)
+    {
+      marks[cell] = defenceMark;
+      list[count++] = cell;
+    }
+
+    return count;
+  }
+
+  /**
+   * Find the empty cells completing a row of victory length on the lines
+   * through a stone, into {@link #completions}
+   *
+   * @return the number of cells
+   */
+  private int findCompletions(int cell, byte value)
+  {
+    int victoryLength = rules.getVictoryLength();
+    int count = 0;
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      for (int sign = -1; sign <= 1; sign += 2)
+      {
+        // only the first empty cell can complete a row through the stone
+        int step = sign * steps[dir];
+        int next = cell;
+        for (int distance = 1; distance < victoryLength; distance++)
+        {
+          next += step;
+          byte cellValue = board.getCell(next);
+          if (cellValue == Grid.EMPTY)
+          {
+            if (makesFive(next, value) && !contains(completions, count, next))
+            {
+              completions[count++] = next;
+            }
+
+            break;
+          }
+          else if (cellValue != value)
+          {
+            break;
+          }
+        }
+      }
+    }
+
+    return count;
+  }
+
+  private static boolean contains(int[] cells, int count, int cell)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      if (cells[i] == cell)
+      {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Returns an empty cell where a color makes a row of victory length, or -1
+   */
+  private int findFive(byte value)
+  {
+    Frontier frontier = board.getFrontier();
+    int width = board.getWidth();
+    for (int i = 0; i < frontier.size(); i++)
+    {
+      int position = frontier.get(i);
+      int cell = grid.index(position % width, position / width);
+      if (makesFive(cell, value))
+      {
+        return cell;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the number of empty cells where a color makes a row of victory
+   * length, counting to two
+   */
+  private int countFives(byte value)
+  {
+    Frontier frontier = board.getFrontier();
+    int width = board.getWidth();
+    int count = 0;
+    for (int i = 0; i < frontier.size() && count < 2; i++)
+    {
+      int position = frontier.get(i);
+      if (makesFive(grid.index(position % width, position / width), value))
+      {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Returns whether a stone on an empty cell makes a row of victory length
+   * the color may make
+   */
+  private boolean makesFive(int cell, byte value)
+  {
+    return rules.isFive(board, cell, value) && !(rules.isRestricted(value) && isForbidden(value, cell));
+  }
+
+  /**
+   * Returns the most stones of a color in a row of victory length through an
+   * empty cell with no other stones in it, which tells what a stone on the
+   * cell can make without placing it
+   */
+  private int getWindowStones(int cell, byte value)
+  {
+    int victoryLength = rules.getVictoryLength();
+    int best = 0;
+    for (int dir = 0; dir < Grid.DIRECTIONS; dir++)
+    {
+      readLine(cell, dir);
+      for (int start = 1; start <= victoryLength; start++)
+      {
+        int stones = 0;
+        for (int i = start; i < start + victoryLength && stones >= 0; i++)
+        {
+          if (line[i] == value)
+          {
+            stones++;
+          }
+          else if (line[i] != Grid.EMPTY)
+          {
+            stones = -1;
+          }
+        }
+
+        best = Math.max(best, stones);
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Read victory length cells on both sides of a cell into {@link #line}, the
+   * cell in the middle, as walls past the edge of the board
+   */
+  private void readLine(int cell, int dir)
+  {
+    int victoryLength = rules.getVictoryLength();
+    line[victoryLength] = board.getCell(cell);
+    for (int sign = -1; sign <= 1; sign += 2)
+    {
+      int step = sign * steps[dir];
+      int next = cell;
+      byte value = Grid.EMPTY;
+      for (int distance = 1; distance <= victoryLength; distance++)
+      {
+        // the border may be narrower than the victory length
+        if (value != Grid.WALL)
+        {
+          next += step;
+          value = board.getCell(next);
+        }
+
+        line[victoryLength + sign * distance] = value;
+      }
+    }
+  }
+
+  private boolean isForbidden(byte value, int cell)
+  {
+    return rules.isForbidden(board, Color.valueOf(value), cell);
+  }
+
+  private int nextMark()
+  {
+    if (++mark == Integer.MAX_VALUE)
+    {
+      Arrays.fill(marks, 0);
+      mark = 1;
+    }
+
+    return mark;
+  }
+
+  private void setLine(int ply, byte value, int cell)
+  {
+    lines[ply][0] = pack(value, cell);
+    lineLengths[ply] = 1;
+  }
+
+  /**
+   * Make the line of a ply a move followed by the line of the next ply
+   */
+  private void prependLine(int ply, byte value, int cell)
+  {
+    int length = lineLengths[ply + 1];
+    lines[ply][0] = pack(value, cell);
+    System.arraycopy(lines[ply + 1], 0, lines[ply], 1, length);
+    lineLengths[ply] = length + 1;
+  }
+
+  private int pack(byte value, int cell)
+  {
+    return Moves.pack(Color.valueOf(value), grid.getX(cell), grid.getY(cell));
+  }
+}
@@ -0,0 +1,159 @@
+package se.samuelandersson.gomoku.ai;
+
+import java.util.Arrays;
+
+/**
+ * The results of searched positions, keyed by the hash of the position. The
+ * table has a fixed number of slots and is indexed by the low bits of the hash,
+ * so a position can be lost when another one with the same slot is stored.
+ * <p>
+ * Each entry is packed into one long, see {@link #pack(int, int, int, int)},
+ * and kept in one array next to its key xor the entry, so storing and probing
+ * never allocate. A probe that misses returns {@link #NONE}.
+ * <p>
+ * The table can be shared by any number of searching threads without locks.
+ * Two threads storing to the same slot at once may leave the key of one and
+ * the entry of the other, but then the key xor the entry no longer gives the
+ * hash, so the slot is read as a miss rather than as a wrong result.
+ *
+ * @author Samuel Andersson
+ */
+public final class TranspositionTable
+{
+  /** The score is exact */
+  public static final int EXACT = 1;
+
+  /** The score is a lower bound, the search failed high */
+  public static final int LOWER = 2;
+
+  /** The score is an upper bound, the search failed low */
+  public static final int UPPER = 3;
+
+  /** The entry returned when a position is not found */
+  public static final long NONE = 0;
+
+  /** The move of an entry without a best move */
+  public static final int NO_MOVE = -1;
+
+  private static final int DEPTH_SHIFT = 32;
+  private static final int BOUND_SHIFT = 40;
+  private static final int MOVE_SHIFT = 42;
+
+  /** The largest cell index that fits in an entry */
+  private static final int MAX_MOVE = (1 << (64 - MOVE_SHIFT)) - 2;
+
+  /** Two longs per slot: the key xor the entry, then the entry */
+  private final long[] slots;
+  private final int mask;
+
+  /**
+   * Create a new empty table
+   *
+   * @param bits the table holds 2^bits entries
+   */
+  public TranspositionTable(int bits)
+  {
+    if (bits < 1 || bits > 30)
+    {
+      throw new IllegalArgumentException("Table bits must be between 1 and 30: " + bits);
+    }
+
+    slots = new long[2 << bits];
+    mask = (1 << bits) - 1;
+  }
+
+  /**
+   * Returns the entry of a position
+   *
+   * @param key the hash of the position
+   * @return the entry, or {@link #NONE}
+   */
+  public long probe(long key)
+  {
+    int slot = ((int) key & mask) << 1;
+    long entry = slots[slot + 1];
+    return (slots[slot] ^ entry) == key ? entry : NONE;
+  }
+
+  /**
+   * Store the result of a search, unless the slot holds a deeper result of the
+   * same position
+   *
+   * @param key the hash of the position
+   * @param score the score
+   * @param depth the depth searched
+   * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+   * @param move the cell index of the best move, or {@link #NO_MOVE}
+   */
+  public void store(long key, int score, int depth, int bound, int move)
+  {
+    int slot = ((int) key & mask) << 1;
+    long old = slots[slot + 1];
+    if (old != NONE && (slots[slot] ^ old) == key && getDepth(old) > depth)
+    {
+      return;
+    }
+
+    long entry = pack(score, depth, bound, move);
+    slots[slot] = key ^ entry;
+    slots[slot + 1] = entry;
+  }
+
+  /**
+   * Remove all entries, which must not be done while searching
+   */
+  public void clear()
+  {
+    Arrays.fill(slots, 0);
+  }
+
+  /**
+   * Returns the number of entries the table holds
+   *
+   * @return the number of slots
+   */
+  public int getCapacity()
+  {
+    return slots.length >> 1;
+  }
+
+  /**
+   * Pack an entry: the score in the low 32 bits, then 8 bits of depth, 2 bits
+   * of bound and the move plus one. An entry is never {@link #NONE} since the
+   * bound is never 0.
+   *
+   * @param score the score
+   * @param depth the depth, 0 to 255
+   * @param bound the bound
+   * @param move the cell index of the move, or {@link #NO_MOVE}
+   * @return the entry
+   */
+  public static long pack(int score, int depth, int bound, int move)
+  {
+    long packedMove = move < 0 || move > MAX_MOVE ? 0 : move + 1;
+    return (score & 0xFFFFFFFFL) |
+           (long) (Math.min(depth, 255) & 0xFF) << DEPTH_SHIFT |
+           (long) bound << BOUND_SHIFT |
+           packedMove << MOVE_SHIFT;
+  }
+
+  public static int getScore(long entry)
+  {
+    return (int) entry;
+  }
+
+  public static int getDepth(long entry)
+  {
+    return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+  }
+
+  public static int getBound(long entry)
+  {
+    return (int) (entry >>> BOUND_SHIFT) & 0x3;
+  }
+
+  public static int getMove(long entry)
+  {
+    return (int) (entry >>> MOVE_SHIFT) - 1;
+  }
+}
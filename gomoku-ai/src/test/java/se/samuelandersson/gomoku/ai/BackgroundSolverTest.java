@@ -0,0 +1,64 @@
+package se.samuelandersson.gomoku.ai;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+
+public class BackgroundSolverTest
+{
+  @Test
+  public void testPauseAndResume() throws InterruptedException
+  {
+    GomokuConfig config = new GomokuConfig("4x4", 4, 4, 3, false, false, false, BoardType.ARRAY);
+    ProofNumberSolver solver = new ProofNumberSolver(config, new ProofTable(16));
+
+    // the solver remembers the pause after it is over
+    solver.pause();
+    assertEquals(solver.solve(config.createBoard(), 0), ProofResult.UNKNOWN);
+    solver.unpause();
+    assertTrue(solver.isStoppedByPause());
+
+    BackgroundSolver background = new BackgroundSolver(config, solver);
+    try
+    {
+      GomokuBoard board = config.createBoard();
+      background.pause();
+      background.submit(board, 0);
+      background.resume();
+
+      // a position stopped by the pause is not dropped once resumed
+      long end = System.currentTimeMillis() + 10000;
+      while (background.getResultCount() == 0 && System.currentTimeMillis() < end)
+      {
+        Thread.sleep(10);
+      }
+
+      assertEquals(background.getResult(board, 0), ProofResult.WIN);
+      assertEquals(background.getResultCount(), 1);
+    }
+    finally
+    {
+      background.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRejectsLargeBoards()
+  {
+    GomokuConfig config = new GomokuConfig("20x20", 20, 20, 5, false, false, false, BoardType.ARRAY);
+    BackgroundSolver background = new BackgroundSolver(config);
+    try
+    {
+      background.submit(config.createBoard(), 0);
+    }
+    finally
+    {
+      background.shutdown();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package se.samuelandersson.gomoku.ai;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Moves;
+
+public class MonteCarloSearchTest
+{
+  @Test
+  public void testMonteCarloSearch()
+  {
+    GomokuConfig config = new GomokuConfig();
+    MonteCarloSearch search = new MonteCarloSearch(config, 2);
+    search.setPlayoutLimit(20000);
+    search.setTimeLimit(Long.MAX_VALUE);
+    try
+    {
+      // white has a four blocked at one end
+      GomokuBoard board = config.createBoard();
+      for (int x = 3; x <= 6; x++)
+      {
+        board.setPiece(x, 7, Color.WHITE);
+      }
+
+      board.setPiece(2, 7, Color.BLACK);
+      board.setPiece(5, 3, Color.BLACK);
+      board.setPiece(6, 3, Color.BLACK);
+      board.setPiece(7, 3, Color.BLACK);
+
+      SearchResult result = search.search(board, board.getPieceCount());
+      assertEquals(Moves.getX(result.getMove()), 7, result.toString());
+      assertEquals(Moves.getY(result.getMove()), 7, result.toString());
+      assertEquals(board.getPiece(7, 7), Color.NONE);
+      assertTrue(result.getNodes() >= 20000);
+    }
+    finally
+    {
+      search.shutdown();
+    }
+  }
+}
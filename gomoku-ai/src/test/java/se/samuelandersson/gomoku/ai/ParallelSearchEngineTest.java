@@ -0,0 +1,41 @@
+package se.samuelandersson.gomoku.ai;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Moves;
+
+public class ParallelSearchEngineTest
+{
+  @Test
+  public void testParallelSearch()
+  {
+    GomokuConfig config = new GomokuConfig();
+    ParallelSearchEngine engine = new ParallelSearchEngine(config, 3, new TranspositionTable(16));
+    engine.setNodeLimit(300000);
+    try
+    {
+      // black makes an open four from a three with a gap
+      GomokuBoard board = config.createBoard();
+      board.setPiece(5, 5, Color.BLACK);
+      board.setPiece(6, 5, Color.BLACK);
+      board.setPiece(8, 5, Color.BLACK);
+      board.setPiece(7, 9, Color.WHITE);
+      board.setPiece(9, 9, Color.WHITE);
+
+      SearchResult result = engine.search(board, board.getPieceCount() + 1);
+      assertTrue(result.isWin(), result.toString());
+      assertEquals(Moves.getY(result.getMove()), 5);
+      assertTrue(result.getNodes() > 0);
+    }
+    finally
+    {
+      engine.shutdown();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package se.samuelandersson.gomoku.ai;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+
+public class ProofNumberSolverTest
+{
+  @Test
+  public void testProofNumberSolver()
+  {
+    GomokuConfig ticTacToe = new GomokuConfig("3x3", 3, 3, 3, false, false, false, BoardType.ARRAY);
+    ProofNumberSolver solver = new ProofNumberSolver(ticTacToe, new ProofTable(12));
+    assertEquals(solver.solve(ticTacToe.createBoard(), 0), ProofResult.DRAW);
+
+    // white wins after black plays in a corner
+    GomokuBoard board = ticTacToe.createBoard();
+    board.setPiece(0, 0, Color.BLACK);
+    board.setPiece(1, 0, Color.WHITE);
+    board.setPiece(1, 1, Color.BLACK);
+    assertEquals(solver.solve(board, 3), ProofResult.LOSS);
+
+    // a paused solver continues where it stopped
+    GomokuConfig config = new GomokuConfig("4x4", 4, 4, 3, false, false, false, BoardType.ARRAY);
+    solver = new ProofNumberSolver(config, new ProofTable(16));
+    solver.pause();
+    assertEquals(solver.solve(config.createBoard(), 0), ProofResult.UNKNOWN);
+    solver.unpause();
+    assertEquals(solver.resume(), ProofResult.WIN);
+    assertEquals(solver.getResult(), ProofResult.WIN);
+  }
+}
@@ -0,0 +1,71 @@
+package se.samuelandersson.gomoku.ai;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.BoardType;
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.action.PlacePieceAction;
+import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.impl.GomokuGameImpl;
+
+public class SearchEngineTest
+{
+  @Test
+  public void testWinsAndBlocks()
+  {
+    GomokuConfig config = new GomokuConfig();
+    SearchEngine engine = new SearchEngine(config, new TranspositionTable(16));
+    engine.setNodeLimit(200000);
+
+    // white has a four blocked at one end, black has an open three
+    GomokuBoard board = config.createBoard();
+    for (int x = 3; x <= 6; x++)
+    {
+      board.setPiece(x, 7, Color.WHITE);
+    }
+
+    board.setPiece(2, 7, Color.BLACK);
+    board.setPiece(5, 3, Color.BLACK);
+    board.setPiece(6, 3, Color.BLACK);
+    board.setPiece(7, 3, Color.BLACK);
+
+    SearchResult result = engine.search(board, board.getPieceCount());
+    assertEquals(Moves.getColor(result.getMove()), Color.BLACK);
+    assertEquals(Moves.getX(result.getMove()), 7);
+    assertEquals(Moves.getY(result.getMove()), 7);
+    assertEquals(board.getPiece(7, 7), Color.NONE);
+
+    // with the four blocked, the open three becomes an open four
+    board.setPiece(7, 7, Color.BLACK);
+    board.setPiece(0, 0, Color.WHITE);
+    result = engine.search(board, board.getPieceCount());
+    assertTrue(result.isWin(), result.toString());
+    assertEquals(Moves.getY(result.getMove()), 3);
+  }
+
+  @Test
+  public void testPlaysByTheRules() throws IllegalActionException
+  {
+    GomokuConfig config = new GomokuConfig("3&3", 15, 15, 5, false, true, true, BoardType.ARRAY);
+    GomokuGameImpl game = new GomokuGameImpl(config);
+    SearchEngine engine = new SearchEngine(config, new TranspositionTable(16));
+    engine.setNodeLimit(20000);
+
+    for (int i = 0; i < 20 && !game.isGameOver(); i++)
+    {
+      SearchResult result = engine.search(game);
+      assertTrue(result.hasMove());
+
+      int move = result.getMove();
+      PlacePieceAction action = new PlacePieceAction(Moves.getColor(move), Moves.getX(move), Moves.getY(move));
+      action.doAction(game);
+      action.confirmAction(game);
+    }
+  }
+}
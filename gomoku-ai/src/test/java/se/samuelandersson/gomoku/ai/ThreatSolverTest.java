@@ -0,0 +1,43 @@
+package se.samuelandersson.gomoku.ai;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuBoard;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.Moves;
+
+public class ThreatSolverTest
+{
+  @Test
+  public void testThreatSolver()
+  {
+    GomokuConfig config = new GomokuConfig();
+    ThreatSolver solver = new ThreatSolver(config);
+
+    // a four on the row also makes a three on the column, which becomes an
+    // open four once the four is blocked
+    GomokuBoard board = config.createBoard();
+    board.setPiece(3, 3, Color.BLACK);
+    board.setPiece(4, 3, Color.BLACK);
+    board.setPiece(5, 3, Color.BLACK);
+    board.setPiece(6, 4, Color.BLACK);
+    board.setPiece(6, 5, Color.BLACK);
+    board.setPiece(2, 3, Color.WHITE);
+    board.setPiece(6, 7, Color.WHITE);
+
+    int[] line = solver.findVcf(board, Color.BLACK);
+    assertTrue(line != null);
+    assertEquals(line.length, 4);
+    assertEquals(line[0], Moves.pack(Color.BLACK, 6, 3));
+    assertEquals(line[1], Moves.pack(Color.WHITE, 7, 3));
+    assertEquals(Moves.getColor(line[3]), Color.BLACK);
+    assertEquals(board.getPieceCount(), 7);
+
+    // white has no threats at all
+    assertEquals(solver.findVct(board, Color.WHITE), null);
+  }
+}
@@ -0,0 +1,159 @@
+package se.samuelandersson.gomoku.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.samuelandersson.gomoku.Color;
+import se.samuelandersson.gomoku.GomokuConfig;
+import se.samuelandersson.gomoku.GomokuGame;
+import se.samuelandersson.gomoku.Moves;
+import se.samuelandersson.gomoku.Player;
+import se.samuelandersson.gomoku.action.ChooseColorAction;
+import se.samuelandersson.gomoku.action.GameAction;
+import se.samuelandersson.gomoku.action.PlacePieceAction;
+import se.samuelandersson.gomoku.ai.ParallelSearchEngine;
+import se.samuelandersson.gomoku.ai.SearchResult;
+import se.samuelandersson.gomoku.impl.GomokuGameImpl;
+
+/**
+ * A computer player taking a seat of a {@link GomokuNetworkGame}. The moves
+ * are searched by a {@link ParallelSearchEngine} on a thread of its own, so
+ * the server keeps handling packets meanwhile. The thread searches a copy of
+ * the game made from its moves, the same way clients restore the history of a
+ * game they join, and the move found is made by the network game unless the
+ * game changed during the search.
+ * <p>
+ * In the swap openings the computer always keeps its color.
+ *
+ * @author Samuel Andersson
+ */
+public class ComputerPlayer
+{
+  private static final Logger log = LoggerFactory.getLogger(ComputerPlayer.class);
+
+  /** The time spent searching each stone, in milliseconds */
+  private static final long TIME_LIMIT = 2000;
+
+  /** The player in the player list of the network game, whose color may be swapped */
+  private final Player player;
+
+  private final ParallelSearchEngine engine;
+
+  /** The copy of the game that is searched, only used by the thread of the executor */
+  private final GomokuGameImpl copy;
+
+  private final ExecutorService executor;
+
+  private volatile boolean stopped;
+
+  /**
+   * Create a computer player
+   *
+   * @param player the player of the seat taken
+   * @param config the config of the game
+   * @param engine the search for the config, shut down with the player
+   */
+  public ComputerPlayer(Player player, GomokuConfig config, ParallelSearchEngine engine)
+  {
+    this.player = player;
+    this.engine = engine;
+    this.copy = new GomokuGameImpl(config);
+    engine.setTimeLimit(TIME_LIMIT);
+
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "computer-" + player.getColor().getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public Player getPlayer()
+  {
+    return player;
+  }
+
+  /**
+   * Make the next move of the computer if it is its turn. A choice of color is
+   * made right away, a stone is searched for in the background and then
+   * handed to the game, see
+   * {@link GomokuNetworkGame#computerAction(ComputerPlayer, int, long, GameAction)}.
+   * Must be called by the thread handling the packets of the game.
+   *
+   * @param networkGame the game the computer plays
+   */
+  public void update(GomokuNetworkGame networkGame)
+  {
+    GomokuGame game = networkGame.getGame();
+    Color color = player.getColor();
+    if (stopped || game.isGameOver())
+    {
+      return;
+    }
+
+    int moveCount = game.getMoveCount();
+    long hash = game.getBoard().getHash();
+    if (game.getChoosingColor() == color)
+    {
+      networkGame.computerAction(this, moveCount, hash, new ChooseColorAction(color, color));
+      return;
+    }
+
+    if (game.getChoosingColor() != Color.NONE || game.getCurrentTurnPlayer().getColor() != color)
+    {
+      return;
+    }
+
+    int[] moves = new int[moveCount];
+    for (int i = 0; i < moveCount; i++)
+    {
+      moves[i] = game.getMove(i);
+    }
+
+    int choiceMove = game.getChoiceMove();
+    boolean openingExtended = game.isOpeningExtended();
+    executor.execute(() -> search(networkGame, moves, choiceMove, openingExtended, hash));
+  }
+
+  /**
+   * Search the position after the moves on the thread of the executor
+   */
+  private void search(GomokuNetworkGame networkGame, int[] moves, int choiceMove, boolean openingExtended, long hash)
+  {
+    if (stopped)
+    {
+      return;
+    }
+
+    copy.reset();
+    copy.applyMoves(moves, 0, moves.length);
+    copy.setOpeningState(choiceMove, openingExtended);
+
+    SearchResult result = engine.search(copy);
+    log.debug("Computer searched {}", result);
+    if (!result.hasMove() || stopped)
+    {
+      return;
+    }
+
+    int move = result.getMove();
+    PlacePieceAction action = new PlacePieceAction(Moves.getColor(move), Moves.getX(move), Moves.getY(move));
+    networkGame.computerAction(this, moves.length, hash, action);
+  }
+
+  /**
+   * Stop searching and shut the search down. Moves already searched for are
+   * dropped.
+   */
+  public void shutdown()
+  {
+    stopped = true;
+    engine.stop();
+
+    // the search is only used by the thread of the executor
+    executor.execute(engine::shutdown);
+    executor.shutdown();
+  }
+}
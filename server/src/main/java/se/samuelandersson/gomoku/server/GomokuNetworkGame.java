@@ -16,19 +16,28 @@ import se.samuelandersson.gomoku.GomokuConfig;
 import se.samuelandersson.gomoku.GomokuGame;
 import se.samuelandersson.gomoku.GomokuGameListener;
 import se.samuelandersson.gomoku.Player;
+import se.samuelandersson.gomoku.action.BoardAction;
+import se.samuelandersson.gomoku.action.ChooseColorAction;
+import se.samuelandersson.gomoku.action.GameAction;
+import se.samuelandersson.gomoku.event.ChooseColorEvent;
 import se.samuelandersson.gomoku.event.GameEvent;
 import se.samuelandersson.gomoku.event.GameOverEvent;
 import se.samuelandersson.gomoku.exception.IllegalActionException;
+import se.samuelandersson.gomoku.impl.ConcurrentGomokuGame;
 import se.samuelandersson.gomoku.impl.GomokuGameImpl;
 import se.samuelandersson.gomoku.net.BoardPacket;
+import se.samuelandersson.gomoku.net.ForbiddenMaskPacket;
 import se.samuelandersson.gomoku.net.GameActionPacket;
 import se.samuelandersson.gomoku.net.NotifyTurnPacket;
 import se.samuelandersson.gomoku.net.PlayerListPacket;
 import se.samuelandersson.gomoku.net.Request;
 import se.samuelandersson.gomoku.net.VictoryPacket;
+import se.samuelandersson.gomoku.rules.ForbiddenMask;
 
 /**
- * A game of Gomoku, delegated by the GomokuServer.
+ * A game of Gomoku, delegated by the GomokuServer. The packets are handled
+ * while holding the lock of the game, which the moves of a computer player
+ * take as well.
  *
  * @author Samuel Andersson
  *
@@ -40,6 +49,9 @@ public class GomokuNetworkGame implements GomokuGameListener
   /** Global ID counter for games */
   private static int IDCOUNTER = 1;
 
+  /** The connection ID of a seat taken by the computer, which has no connection */
+  private static final int COMPUTER_CONN_ID = -1;
+
   /** Connection ID for the first player */
   private int playerOneConnID;
 
@@ -52,8 +64,8 @@ public class GomokuNetworkGame implements GomokuGameListener
   /** The list of all spectators */
   private Map<Integer, Player> spectators;
 
-  /** The game logic */
-  private GomokuGame game;
+  /** The game logic, readable by other threads than the one handling packets */
+  private ConcurrentGomokuGame game;
 
   /** The server holding this game */
   private GomokuServer gomokuServer;
@@ -69,6 +81,12 @@ public class GomokuNetworkGame implements GomokuGameListener
 
   private boolean isEnding;
 
+  /** The forbidden points, null if the rules forbid none */
+  private ForbiddenMask forbiddenMask;
+
+  /** The computer player, null if no seat is taken by the computer */
+  private ComputerPlayer computer;
+
   /**
    * Create a new game of Gomoku.
    *
@@ -88,9 +106,15 @@ public class GomokuNetworkGame implements GomokuGameListener
     this.gomokuServer = gomokuServer;
     this.server = server;
     this.name = config.getName();
-    game = new GomokuGameImpl(config);
+    game = new ConcurrentGomokuGame(new GomokuGameImpl(gomokuServer.createBoard(config), config));
     game.addListener(this);
     isEnding = false;
+
+    if (ForbiddenMask.getRestrictedColors(config).length > 0)
+    {
+      forbiddenMask = new ForbiddenMask(config.getWidth(), config.getHeight());
+    }
+
     id = IDCOUNTER++;
 
     playerList = new HashMap<Integer, Player>();
@@ -110,6 +134,24 @@ public class GomokuNetworkGame implements GomokuGameListener
       GameOverEvent gameOverEvent = (GameOverEvent) event;
       broadcast(null, new VictoryPacket(gameOverEvent.getColor()));
     }
+    else if (event instanceof ChooseColorEvent && ((ChooseColorEvent) event).isSwapped())
+    {
+      // the game swapped the names of its players, swap the connections too
+      int connID = playerOneConnID;
+      playerOneConnID = playerTwoConnID;
+      playerTwoConnID = connID;
+
+      if (playerOneConnID != 0)
+      {
+        playerList.get(playerOneConnID).setColor(Color.BLACK);
+      }
+      if (playerTwoConnID != 0)
+      {
+        playerList.get(playerTwoConnID).setColor(Color.WHITE);
+      }
+
+      log.info("Players of game " + name + " swapped colors.");
+    }
   }
 
   /**
@@ -131,7 +173,7 @@ public class GomokuNetworkGame implements GomokuGameListener
 
     for (Integer id : playerList.keySet())
     {
-      if (conn == null || id != conn.getID())
+      if (id != COMPUTER_CONN_ID && (conn == null || id != conn.getID()))
       {
         server.sendToTCP(id, obj);
       }
@@ -148,7 +190,7 @@ public class GomokuNetworkGame implements GomokuGameListener
    *          the player at the remote endpoint
    * @return the player object of the joined player
    */
-  public Player join(Connection conn, String playerName)
+  public synchronized Player join(Connection conn, String playerName)
   {
     Player player = new Player(playerName, Color.NONE);
     if (playerOneConnID == 0)
@@ -217,14 +259,90 @@ public class GomokuNetworkGame implements GomokuGameListener
       broadcast(conn, new PlayerListPacket(getPlayerList()));
     }
 
-    if (playerOneConnID == 0 && playerTwoConnID == 0 && spectators.isEmpty() && !isEnding)
+    if (!isPlayer(playerOneConnID) && !isPlayer(playerTwoConnID) && spectators.isEmpty() && !isEnding)
     {
       log.info("Ending game: " + name);
       isEnding = true;
+      if (computer != null)
+      {
+        computer.shutdown();
+      }
+
       gomokuServer.endGame(this);
     }
   }
 
+  /**
+   * Returns whether a seat is taken by a connected player
+   */
+  private static boolean isPlayer(int connID)
+  {
+    return connID != 0 && connID != COMPUTER_CONN_ID;
+  }
+
+  /**
+   * Seat a computer player in the free seat of the game. The search of the
+   * computer uses the number of threads set on the server, see
+   * {@link GomokuServer#setSearchThreads(int)}.
+   */
+  private void addComputer()
+  {
+    if (computer != null || (playerOneConnID != 0 && playerTwoConnID != 0))
+    {
+      log.info("No free seat for a computer player in game " + name);
+      return;
+    }
+
+    Player player = new Player("Computer", Color.NONE);
+    if (playerOneConnID == 0)
+    {
+      playerOneConnID = COMPUTER_CONN_ID;
+      player.setColor(Color.BLACK);
+      game.getPlayerOne().setFrom(player);
+    }
+    else
+    {
+      playerTwoConnID = COMPUTER_CONN_ID;
+      player.setColor(Color.WHITE);
+      game.getPlayerTwo().setFrom(player);
+    }
+
+    log.info("A computer joined game " + this.name + " as " + player.getColor().getName() + ".");
+    playerList.put(COMPUTER_CONN_ID, player);
+    broadcast(null, new PlayerListPacket(getPlayerList()));
+
+    GomokuConfig config = game.getConfig();
+    computer = new ComputerPlayer(player, config, gomokuServer.createSearchEngine(config));
+    computer.update(this);
+  }
+
+  /**
+   * Make an action of the computer player, unless the game has changed since
+   * the computer decided on it. Called by the thread of the computer.
+   *
+   * @param computer the computer player
+   * @param moveCount the number of moves made when the computer decided
+   * @param hash the hash of the board when the computer decided
+   * @param action the action
+   */
+  public synchronized void computerAction(ComputerPlayer computer, int moveCount, long hash, GameAction action)
+  {
+    if (computer != this.computer || isEnding || game.getMoveCount() != moveCount ||
+        game.getBoard().getHash() != hash)
+    {
+      return;
+    }
+
+    try
+    {
+      performAction(null, new GameActionPacket(action));
+    }
+    catch (IllegalActionException e)
+    {
+      log.error("Illegal action of the computer", e);
+    }
+  }
+
   /**
    * Returns the ID of this game
    *
@@ -255,6 +373,39 @@ public class GomokuNetworkGame implements GomokuGameListener
     return game;
   }
 
+  /**
+   * Send all forbidden points of the game to a connection, if the rules forbid
+   * any
+   *
+   * @param conn the connection
+   */
+  public synchronized void sendForbiddenMask(Connection conn)
+  {
+    if (forbiddenMask != null)
+    {
+      this.gomokuServer.sendTCP(conn, new ForbiddenMaskPacket(forbiddenMask, true));
+    }
+  }
+
+  /**
+   * Update the forbidden points after a change of x, y and send the changes to
+   * all connections. The points are checked under one lock of the game.
+   */
+  private void updateForbiddenMask(int x, int y)
+  {
+    if (forbiddenMask == null)
+    {
+      return;
+    }
+
+    forbiddenMask.clearChanges();
+    game.check(() -> forbiddenMask.update(game, x, y));
+    if (forbiddenMask.hasChanges())
+    {
+      broadcast(null, new ForbiddenMaskPacket(forbiddenMask, false));
+    }
+  }
+
   /**
    * Returns a list of connected players. The first position is reserved for
    * the black player. If no black player is connected the first spot will
@@ -264,7 +415,7 @@ public class GomokuNetworkGame implements GomokuGameListener
    *
    * @return a list of connected players
    */
-  public List<Player> getPlayerList()
+  public synchronized List<Player> getPlayerList()
   {
     List<Player> players = new ArrayList<>();
 
@@ -294,7 +445,7 @@ public class GomokuNetworkGame implements GomokuGameListener
    * @param conn
    *          the disconnected connection
    */
-  public void disconnected(Connection conn)
+  public synchronized void disconnected(Connection conn)
   {
     leave(conn, true);
   }
@@ -311,7 +462,7 @@ public class GomokuNetworkGame implements GomokuGameListener
    * @see #handleBoardAction(Connection, GameActionPacket)
    * @see #handleRequest(Connection, GenericRequestPacket)
    */
-  public void received(Connection conn, Object obj)
+  public synchronized void received(Connection conn, Object obj)
   {
     if (obj instanceof GameActionPacket)
     {
@@ -368,9 +519,7 @@ public class GomokuNetworkGame implements GomokuGameListener
 
     try
     {
-      ppp.getAction().doAction(game);
-      ppp.getAction().confirmAction(game);
-      broadcast(conn, ppp);
+      performAction(conn, ppp);
     }
     catch (IllegalActionException e)
     {
@@ -380,6 +529,39 @@ public class GomokuNetworkGame implements GomokuGameListener
     }
   }
 
+  /**
+   * Perform an action, notify other connections and let the computer move if
+   * it is its turn
+   *
+   * @param conn the connection that sent the action, or null if it was the
+   *          computer
+   * @param ppp the action
+   * @throws IllegalActionException if the action breaks the rules
+   */
+  private void performAction(Connection conn, GameActionPacket ppp) throws IllegalActionException
+  {
+    game.perform(ppp.getAction());
+    ppp.setBoardHash(game.getBoard().getHash());
+    broadcast(conn, ppp);
+
+    if (ppp.getAction() instanceof BoardAction && !game.isGameOver())
+    {
+      // no more moves are made once the game is decided, won or drawn
+      BoardAction action = (BoardAction) ppp.getAction();
+      updateForbiddenMask(action.getX(), action.getY());
+    }
+    else if (ppp.getAction() instanceof ChooseColorAction)
+    {
+      // sent after the action, which swaps the names at the clients
+      broadcast(null, new PlayerListPacket(getPlayerList()));
+    }
+
+    if (computer != null)
+    {
+      computer.update(this);
+    }
+  }
+
   /**
    * Handle a generic request, such as BoardUpdate or ClearBoard i.e.
    *
@@ -393,12 +575,23 @@ public class GomokuNetworkGame implements GomokuGameListener
     if (request == Request.UPDATE_BOARD)
     {
       this.gomokuServer.sendTCP(connection, new BoardPacket(game.getBoard()));
+      sendForbiddenMask(connection);
     }
     else if (request == Request.CLEAR_BOARD)
     {
       game.reset();
       broadcast(null, new BoardPacket(game.getBoard()));
+      if (forbiddenMask != null)
+      {
+        forbiddenMask.clear();
+        broadcast(null, new ForbiddenMaskPacket(forbiddenMask, true));
+      }
+
       broadcast(null, new NotifyTurnPacket(game.getCurrentTurnPlayer().getColor()));
+      if (computer != null)
+      {
+        computer.update(this);
+      }
     }
     else if (request == Request.GET_TURN)
     {
@@ -412,6 +605,10 @@ public class GomokuNetworkGame implements GomokuGameListener
     {
       leave(connection, false);
     }
+    else if (request == Request.PLAY_COMPUTER)
+    {
+      addComputer();
+    }
     else
     {
       log.error("Request of unknown type: " + request);
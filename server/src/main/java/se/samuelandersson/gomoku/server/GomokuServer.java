@@ -12,11 +12,13 @@ import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
 import com.esotericsoftware.kryonet.Server;
 
+import se.samuelandersson.gomoku.BoardType;
 import se.samuelandersson.gomoku.Color;
 import se.samuelandersson.gomoku.GomokuBoard;
 import se.samuelandersson.gomoku.GomokuConfig;
 import se.samuelandersson.gomoku.GomokuGame;
 import se.samuelandersson.gomoku.Player;
+import se.samuelandersson.gomoku.ai.ParallelSearchEngine;
 import se.samuelandersson.gomoku.net.CreateGamePacket;
 import se.samuelandersson.gomoku.net.GameListPacket;
 import se.samuelandersson.gomoku.net.HandshakeClientPacket;
@@ -48,6 +50,12 @@ public class GomokuServer extends Listener
   private int port;
   private boolean singleGameServer;
 
+  /** The board type used for all games, or null to use the type of each game's config */
+  private BoardType boardType;
+
+  /** The number of threads each search of the computer uses */
+  private int searchThreads = 1;
+
   /**
    * Create a new GomokuServer
    */
@@ -80,6 +88,66 @@ public class GomokuServer extends Listener
     server.stop();
   }
 
+  /**
+   * Set the board type used for all games created from now on, overriding the
+   * board type of the game configs
+   *
+   * @param boardType the board type, or null to use the type of each game's config
+   */
+  public void setBoardType(BoardType boardType)
+  {
+    this.boardType = boardType;
+  }
+
+  /**
+   * Create the board for a new game
+   *
+   * @param config the config of the game
+   * @return the new board
+   */
+  public GomokuBoard createBoard(GomokuConfig config)
+  {
+    if (this.boardType == null || !this.boardType.supports(config.getWidth(), config.getHeight()))
+    {
+      return config.createBoard();
+    }
+
+    return this.boardType.createBoard(config.getWidth(), config.getHeight());
+  }
+
+  /**
+   * Set the number of threads each search of the computer uses
+   *
+   * @param searchThreads the number of threads, at least one
+   */
+  public void setSearchThreads(int searchThreads)
+  {
+    if (searchThreads < 1)
+    {
+      throw new IllegalArgumentException("At least one thread must search: " + searchThreads);
+    }
+
+    this.searchThreads = searchThreads;
+  }
+
+  public int getSearchThreads()
+  {
+    return searchThreads;
+  }
+
+  /**
+   * Create a search for the moves of the computer in a game, using the
+   * number of threads set by {@link #setSearchThreads(int)}. The search must
+   * be shut down when the game ends.
+   *
+   * @param config the config of the game
+   * @return the new search
+   */
+  public ParallelSearchEngine createSearchEngine(GomokuConfig config)
+  {
+    return new ParallelSearchEngine(config, this.searchThreads);
+  }
+
   public void leaveGame(int connID)
   {
     playerInGame.remove(connID);
@@ -294,6 +362,22 @@ public class GomokuServer extends Listener
   {
     String playerName = playerList.get(conn.getID());
 
+    // the config is deserialized without its constructor checking it
+    try
+    {
+      if (cgp.getConfig() == null)
+      {
+        throw new IllegalArgumentException("No config");
+      }
+
+      cgp.getConfig().validate();
+    }
+    catch (IllegalArgumentException e)
+    {
+      log.warn(playerName + " tried to create a game with an invalid config: " + e.getMessage());
+      return;
+    }
+
     GomokuNetworkGame networkGame = new GomokuNetworkGame(this, server, cgp.getConfig());
     log.info(playerName + " created new game \"" + cgp.getConfig().getName() + "\".");
 
@@ -311,6 +395,7 @@ public class GomokuServer extends Listener
                                                                game.getCurrentTurnPlayer().getColor(),
                                                                networkGame.getPlayerList());
     this.sendTCP(conn, isdp);
+    networkGame.sendForbiddenMask(conn);
 
     // broadcast all games
     broadcast(conn, this.createGameListPacket());
@@ -342,7 +427,9 @@ public class GomokuServer extends Listener
     GomokuConfig config = game.getGame().getConfig();
 
     InitialServerDataPacket isdp = new InitialServerDataPacket(board, config, player.getColor(), turnColor, playerList);
+    isdp.setHistory(game.getGame());
     this.sendTCP(conn, isdp);
+    game.sendForbiddenMask(conn);
 
     String playerName = this.playerList.get(conn.getID());
     if (player.getColor() == Color.NONE)
@@ -1,6 +1,7 @@
 package se.samuelandersson.gomoku.server;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +11,8 @@ import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
 
+import se.samuelandersson.gomoku.BoardType;
+
 public class HeadlessServer
 {
   private static final Logger log = LoggerFactory.getLogger(HeadlessServer.class);
@@ -22,6 +25,24 @@ public class HeadlessServer
    */
   private static int PORT;
 
+  /**
+   * The board type used for all games. Can be set by providing --board-type to
+   * the application command line. Defaults to the packed board, the smallest
+   * one, since a headless server is meant to hold many games.
+   *
+   * @see #parseArgs(String[])
+   */
+  private static BoardType BOARD_TYPE;
+
+  /**
+   * The number of threads each search of the computer uses. Can be set by
+   * providing --search-threads to the application command line. Defaults to
+   * the number of processors.
+   *
+   * @see #parseArgs(String[])
+   */
+  private static int SEARCH_THREADS;
+
   /**
    * Parse command line arguments that was passed to the application upon
    * startup.
@@ -35,13 +56,34 @@ public class HeadlessServer
     FlaggedOption portOpt = new FlaggedOption("port").setStringParser(JSAP.INTEGER_PARSER)
                                                      .setDefault("9123")
                                                      .setLongFlag("port");
+    FlaggedOption boardTypeOpt = new FlaggedOption("board-type").setStringParser(JSAP.STRING_PARSER)
+                                                                .setDefault(BoardType.PACKED.name())
+                                                                .setLongFlag("board-type");
+    String processors = String.valueOf(Runtime.getRuntime().availableProcessors());
+    FlaggedOption searchThreadsOpt = new FlaggedOption("search-threads").setStringParser(JSAP.INTEGER_PARSER)
+                                                                        .setDefault(processors)
+                                                                        .setLongFlag("search-threads");
 
     try
     {
       jsap.registerParameter(portOpt);
+      jsap.registerParameter(boardTypeOpt);
+      jsap.registerParameter(searchThreadsOpt);
 
       JSAPResult config = jsap.parse(args);
       PORT = config.getInt("port");
+      BOARD_TYPE = BoardType.valueOf(config.getString("board-type").toUpperCase());
+      SEARCH_THREADS = config.getInt("search-threads");
+      if (SEARCH_THREADS < 1)
+      {
+        log.error("The number of search threads must be at least 1: " + SEARCH_THREADS);
+        System.exit(-1);
+      }
+    }
+    catch (IllegalArgumentException e)
+    {
+      log.error("Unknown board type, expected one of: " + Arrays.toString(BoardType.values()));
+      System.exit(-1);
     }
     catch (JSAPException e)
     {
@@ -78,6 +120,8 @@ public class HeadlessServer
     }));
 
     final GomokuServer gomokuserver = new GomokuServer(PORT, false);
+    gomokuserver.setBoardType(BOARD_TYPE);
+    gomokuserver.setSearchThreads(SEARCH_THREADS);
     try
     {
       gomokuserver.start();